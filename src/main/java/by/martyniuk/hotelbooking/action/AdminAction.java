@@ -1,5 +1,6 @@
 package by.martyniuk.hotelbooking.action;
 
+import by.martyniuk.hotelbooking.cache.PendingReservations;
 import by.martyniuk.hotelbooking.constant.CommandConstant;
 import by.martyniuk.hotelbooking.constant.PagePath;
 import by.martyniuk.hotelbooking.entity.*;
@@ -16,7 +17,6 @@ import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -169,11 +169,10 @@ public class AdminAction {
     public String showAdminPage(HttpServletRequest request) throws CommandException {
         try {
 
-            List<Reservation> reservations = reservationService.readAllReservationByStatus(Status.WAITING_FOR_APPROVE);
-            Map<Reservation, List<Apartment>> freeApartments = apartmentService.findFreeApartmentsForReservations(reservations);
+            PendingReservations pendingReservations = reservationService.readPendingReservations();
 
-            request.setAttribute(CommandConstant.RESERVATIONS, reservations);
-            request.setAttribute(CommandConstant.FREE_APARTMENTS, freeApartments);
+            request.setAttribute(CommandConstant.RESERVATIONS, pendingReservations.getReservations());
+            request.setAttribute(CommandConstant.FREE_APARTMENTS, pendingReservations.getFreeApartments());
 
             return PagePath.APPROVE_RESERVATIONS.getPage();
         } catch (ServiceException e) {
@@ -72,7 +72,7 @@ public class GuestAction {
                 return PagePath.REGISTER.getPage();
             }
 
-            if (authorizationService.register(user)) {
+            if (authorizationService.register(user).isPresent()) {
                 request.setAttribute(CommandConstant.REDIRECT, true);
                 return request.getContextPath() + CommandConstant.INDEX;
             }
@@ -106,7 +106,7 @@ public class UserAction {
             }
 
             if (!reservationService.bookApartment((User) session.getAttribute(CommandConstant.USER), apartmentClassId,
-                    checkInDate, checkOutDate, personAmount)) {
+                    checkInDate, checkOutDate, personAmount).isPresent()) {
                 session.setAttribute(CommandConstant.BOOKING_ERROR, ResourceManager.getResourceBundle().getString("error.apartment.booked"));
             } else {
                 session.setAttribute(CommandConstant.BOOKING_MESSAGE, ResourceManager.getResourceBundle().getString("message.apartment.booked"));
@@ -0,0 +1,190 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.ApartmentDao;
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The Class ApartmentInventory.
+ * <p>
+ * Keeps the active apartments in memory as an immutable snapshot. Readers take the current snapshot
+ * without locking; writers rebuild it from the database and swap it in whole.
+ * The apartments of the snapshot are shared and must not be changed by callers.
+ */
+@Component
+public class ApartmentInventory implements ChangeListener {
+
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(ApartmentInventory.class);
+
+    /**
+     * The apartment dao.
+     */
+    private ApartmentDao apartmentDao;
+
+    /**
+     * The current snapshot, null until loaded or after a failed refresh.
+     */
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public void setApartmentDao(ApartmentDao apartmentDao) {
+        this.apartmentDao = apartmentDao;
+        snapshot = null;
+    }
+
+    /**
+     * Loads the inventory once the application context is ready.
+     *
+     * @param event the event
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onStartup(ContextRefreshedEvent event) {
+        refresh();
+    }
+
+    @Override
+    public void onChanges(Collection<EntityChange> changes) {
+        if (changes.stream().anyMatch(change -> change.getEntityType() == EntityType.APARTMENT
+                || change.getEntityType() == EntityType.APARTMENT_CLASS)) {
+            refresh();
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the database. If loading fails the snapshot is dropped,
+     * so the next read loads it again instead of serving stale apartments. While the database is
+     * unavailable the snapshot is kept, since no read could load a newer one.
+     */
+    public synchronized void refresh() {
+        try {
+            snapshot = load();
+        } catch (CircuitOpenException e) {
+            LOGGER.log(Level.WARN, "Apartment snapshot kept: " + e.getMessage());
+        } catch (DaoException e) {
+            snapshot = null;
+            LOGGER.log(Level.ERROR, e);
+        }
+    }
+
+    /**
+     * Finds the apartments of the class.
+     *
+     * @param apartmentClassId the apartment class id
+     * @return the unmodifiable list
+     * @throws DaoException the dao exception
+     */
+    public List<Apartment> findApartmentsByClassId(long apartmentClassId) throws DaoException {
+        return current().apartmentsByClass.getOrDefault(apartmentClassId, Collections.emptyList());
+    }
+
+    /**
+     * Finds the apartment by id.
+     *
+     * @param id the id
+     * @return a copy of the apartment
+     * @throws DaoException the dao exception
+     */
+    public Optional<Apartment> findApartmentById(long id) throws DaoException {
+        return Optional.ofNullable(current().apartmentsById.get(id)).map(Apartment::clone);
+    }
+
+    /**
+     * Finds all apartments.
+     *
+     * @return the unmodifiable list
+     * @throws DaoException the dao exception
+     */
+    public List<Apartment> findAllApartments() throws DaoException {
+        return current().apartments;
+    }
+
+    /**
+     * Gets the current snapshot, loading it if there is none.
+     *
+     * @return the snapshot
+     * @throws DaoException the dao exception
+     */
+    private Snapshot current() throws DaoException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Loads the snapshot.
+     *
+     * @return the snapshot
+     * @throws DaoException the dao exception
+     */
+    private Snapshot load() throws DaoException {
+        return new Snapshot(apartmentDao.findAllApartments());
+    }
+
+    /**
+     * The Class Snapshot.
+     */
+    private static class Snapshot {
+
+        /**
+         * The apartments.
+         */
+        private final List<Apartment> apartments;
+
+        /**
+         * The apartments by id.
+         */
+        private final Map<Long, Apartment> apartmentsById;
+
+        /**
+         * The apartments by class id.
+         */
+        private final Map<Long, List<Apartment>> apartmentsByClass;
+
+        /**
+         * Instantiates a new snapshot.
+         *
+         * @param apartments the apartments
+         */
+        private Snapshot(List<Apartment> apartments) {
+            Map<Long, Apartment> byId = new HashMap<>();
+            Map<Long, List<Apartment>> byClass = new HashMap<>();
+            for (Apartment apartment : apartments) {
+                byId.put(apartment.getId(), apartment);
+                byClass.computeIfAbsent(apartment.getApartmentClass().getId(), id -> new ArrayList<>()).add(apartment);
+            }
+            byClass.replaceAll((id, list) -> Collections.unmodifiableList(list));
+            this.apartments = Collections.unmodifiableList(new ArrayList<>(apartments));
+            this.apartmentsById = byId;
+            this.apartmentsByClass = byClass;
+        }
+    }
+}
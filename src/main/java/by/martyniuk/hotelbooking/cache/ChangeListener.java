@@ -0,0 +1,20 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.entity.EntityChange;
+
+import java.util.Collection;
+
+/**
+ * The Interface ChangeListener.
+ * <p>
+ * Implemented by the caches that must drop entries changed by another node.
+ */
+public interface ChangeListener {
+
+    /**
+     * Called once per poll with the new changes made by other nodes, so a listener that reloads reloads once.
+     *
+     * @param changes the changes, never empty
+     */
+    void onChanges(Collection<EntityChange> changes);
+}
@@ -0,0 +1,230 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.ChangeVersionDao;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class ChangeVersionPoller.
+ * <p>
+ * Polls the change version table for writes made by other nodes and passes them to the caches.
+ * Every poll reads again an overlap before the previous one, so a transaction that bumped its row
+ * before the previous poll but committed after it is still seen. A transaction that commits later than
+ * the overlap after its bump is missed, so the overlap must exceed the longest write transaction. Changes
+ * already delivered by an earlier poll are skipped, and every listener gets the changes of a poll at once.
+ * <p>
+ * Every write leaves its row behind, so the poller also deletes the rows older than the retention, which is
+ * kept at least twice the overlap, in batches of bounded size once per purge interval.
+ */
+@Component
+public class ChangeVersionPoller {
+
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(ChangeVersionPoller.class);
+
+    /**
+     * The change version dao.
+     */
+    private ChangeVersionDao changeVersionDao;
+
+    /**
+     * The listeners.
+     */
+    private List<ChangeListener> listeners = new ArrayList<>();
+
+    /**
+     * The enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * The poll interval in milliseconds.
+     */
+    private long intervalMillis = 500;
+
+    /**
+     * The overlap in milliseconds.
+     */
+    private long overlapMillis = 10_000;
+
+    /**
+     * The retention of the changes in milliseconds.
+     */
+    private long retentionMillis = 600_000;
+
+    /**
+     * The max amount of changes deleted by one statement.
+     */
+    private int purgeBatchSize = 1000;
+
+    /**
+     * The purge interval in milliseconds.
+     */
+    private long purgeIntervalMillis = 60_000;
+
+    /**
+     * The changes delivered by the polls within the overlap.
+     */
+    private final Set<EntityChange> delivered = new HashSet<>();
+
+    /**
+     * The database time of the previous poll, null until the first one, which looks back by the overlap only.
+     */
+    private LocalDateTime lastPoll;
+
+    /**
+     * The database time of the previous purge, null until the first one.
+     */
+    private LocalDateTime lastPurge;
+
+    /**
+     * The failing, set while polls fail so the failure is logged once.
+     */
+    private boolean failing;
+
+    /**
+     * The executor.
+     */
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public void setChangeVersionDao(ChangeVersionDao changeVersionDao) {
+        this.changeVersionDao = changeVersionDao;
+    }
+
+    @Autowired(required = false)
+    public void setListeners(List<ChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * Sets the poll settings.
+     *
+     * @param enabled        the enabled
+     * @param intervalMillis the poll interval in milliseconds
+     * @param overlapMillis  the overlap in milliseconds
+     */
+    @Autowired
+    public void setPollSettings(@Value("${cache.coherence.enabled:false}") boolean enabled,
+                                @Value("${cache.coherence.interval.millis:500}") long intervalMillis,
+                                @Value("${cache.coherence.overlap.millis:10000}") long overlapMillis) {
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.overlapMillis = overlapMillis;
+    }
+
+    /**
+     * Sets the purge settings.
+     *
+     * @param retentionMillis     the retention of the changes in milliseconds
+     * @param purgeBatchSize      the max amount of changes deleted by one statement
+     * @param purgeIntervalMillis the purge interval in milliseconds
+     */
+    @Autowired
+    public void setPurgeSettings(@Value("${cache.coherence.retention.millis:600000}") long retentionMillis,
+                                 @Value("${cache.coherence.purge.batch.size:1000}") int purgeBatchSize,
+                                 @Value("${cache.coherence.purge.interval.millis:60000}") long purgeIntervalMillis) {
+        this.retentionMillis = retentionMillis;
+        this.purgeBatchSize = Math.max(1, purgeBatchSize);
+        this.purgeIntervalMillis = purgeIntervalMillis;
+    }
+
+    /**
+     * Starts polling once the application context is ready.
+     *
+     * @param event the event
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start(ContextRefreshedEvent event) {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-version-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Reads the changes since the previous poll and passes them to the listeners.
+     */
+    public void poll() {
+        try {
+            LocalDateTime now = changeVersionDao.findCurrentTime();
+            LocalDateTime since = (lastPoll != null ? lastPoll : now).minusNanos(overlapMillis * 1_000_000);
+            Set<EntityChange> changes = new LinkedHashSet<>(changeVersionDao.findChangesSince(since));
+            changes.removeAll(delivered);
+            if (!changes.isEmpty()) {
+                for (ChangeListener listener : listeners) {
+                    listener.onChanges(changes);
+                }
+            }
+            delivered.removeIf(change -> change.getChangedAt().isBefore(since));
+            delivered.addAll(changes);
+            lastPoll = now;
+            failing = false;
+        } catch (DaoException | RuntimeException e) {
+            if (!failing) {
+                LOGGER.log(Level.ERROR, "Change version poll failed", e);
+            }
+            failing = true;
+            return;
+        }
+        purge(lastPoll);
+    }
+
+    /**
+     * Deletes the changes older than the retention, one batch per statement until a batch comes back short,
+     * if the previous purge is older than the purge interval.
+     *
+     * @param now the database time
+     */
+    private void purge(LocalDateTime now) {
+        if (lastPurge != null && now.isBefore(lastPurge.plusNanos(purgeIntervalMillis * 1_000_000))) {
+            return;
+        }
+        lastPurge = now;
+        LocalDateTime before = now.minusNanos(Math.max(retentionMillis, overlapMillis * 2) * 1_000_000);
+        try {
+            while (changeVersionDao.deleteChangesBefore(before, purgeBatchSize) >= purgeBatchSize) {
+                LOGGER.log(Level.DEBUG, "Deleted " + purgeBatchSize + " changes before " + before);
+            }
+        } catch (DaoException | RuntimeException e) {
+            LOGGER.log(Level.WARN, "Change version purge failed", e);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package by.martyniuk.hotelbooking.cache;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The Class ExpiringCache.
+ * <p>
+ * A concurrent in-memory cache bounded by size and time to live. Every invalidation bumps a version,
+ * and a value loaded before an invalidation is not stored, so a slow reader cannot put back
+ * what a writer has just dropped. Expired values are kept aside until invalidated, so a caller can still
+ * answer from them while the database is unavailable.
+ * <p>
+ * Every entry lives the same time, so the order the entries were put in is the order they expire in. A put
+ * drops entries from the head of that order only, the expired ones and the oldest while the cache is full,
+ * so it never scans the cache.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ExpiringCache<K, V> {
+
+    /**
+     * The entries.
+     */
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The entries in the order they were put in, guarded by itself. Entries removed or replaced since are left
+     * in it until they reach the head.
+     */
+    private final Deque<Node<K, V>> order = new ArrayDeque<>();
+
+    /**
+     * The expired values, kept as a fallback until invalidated.
+     */
+    private final ConcurrentMap<K, V> stale = new ConcurrentHashMap<>();
+
+    /**
+     * The time to live in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * The max size.
+     */
+    private final int maxSize;
+
+    /**
+     * The clock in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The version, bumped on every invalidation.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * The hits.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The misses.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The evictions.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * The stale hits.
+     */
+    private final LongAdder staleHits = new LongAdder();
+
+    /**
+     * Instantiates a new expiring cache.
+     *
+     * @param ttl     the time to live
+     * @param unit    the time unit of the time to live
+     * @param maxSize the max size
+     */
+    public ExpiringCache(long ttl, TimeUnit unit, int maxSize) {
+        this(ttl, unit, maxSize, System::nanoTime);
+    }
+
+    /**
+     * Instantiates a new expiring cache.
+     *
+     * @param ttl     the time to live
+     * @param unit    the time unit of the time to live
+     * @param maxSize the max size
+     * @param clock   the clock in nanoseconds
+     */
+    ExpiringCache(long ttl, TimeUnit unit, int maxSize, LongSupplier clock) {
+        if (ttl <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("Time to live and size must be positive");
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the value if it is cached and not expired.
+     *
+     * @param key the key
+     * @return the value, or null on a miss
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - clock.getAsLong() > 0) {
+            hits.increment();
+            return entry.value;
+        }
+        if (entry != null) {
+            long current = version.get();
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+                retire(key, entry.value, current);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Gets the value even if it expired. Use it only when the value cannot be loaded.
+     *
+     * @param key the key
+     * @return the value, or null if it was never cached or was invalidated
+     */
+    public V getStale(K key) {
+        Entry<V> entry = entries.get(key);
+        V value = entry != null ? entry.value : stale.get(key);
+        if (value != null) {
+            staleHits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Gets the current version. Capture it before loading a value and pass it to
+     * {@link #put(Object, Object, long)}.
+     *
+     * @return the version
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Puts the value unless the cache was invalidated since the version was captured.
+     *
+     * @param key     the key
+     * @param value   the value
+     * @param version the version captured before the value was loaded
+     * @return true, if the value was stored
+     */
+    public boolean put(K key, V value, long version) {
+        if (this.version.get() != version) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        Entry<V> entry = new Entry<>(value, now + ttlNanos);
+        synchronized (order) {
+            evict(now, !entries.containsKey(key));
+            entries.put(key, entry);
+            order.addLast(new Node<>(key, entry));
+        }
+        stale.remove(key);
+        if (this.version.get() != version) {
+            entries.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Invalidates the key.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        version.incrementAndGet();
+        entries.remove(key);
+        stale.remove(key);
+    }
+
+    /**
+     * Invalidates all keys.
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        entries.clear();
+        stale.clear();
+        synchronized (order) {
+            order.clear();
+        }
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the hit count.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the miss count.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the eviction count.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the stale hit count.
+     *
+     * @return the stale hit count
+     */
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * Keeps the expired value aside unless the cache was invalidated since the version was captured.
+     *
+     * @param key     the key
+     * @param value   the value
+     * @param version the version captured before the entry was removed
+     */
+    private void retire(K key, V value, long version) {
+        if (stale.size() >= maxSize && !stale.containsKey(key)) {
+            return;
+        }
+        stale.put(key, value);
+        if (this.version.get() != version) {
+            stale.remove(key, value);
+        }
+    }
+
+    /**
+     * Drops the entries at the head of the order that were removed, replaced or have expired, then the oldest
+     * while a new key would not fit. Every node is dropped once, so a put takes constant time on average.
+     * Called holding the order.
+     *
+     * @param now    the current time in nanoseconds
+     * @param newKey the new key, true if the put adds an entry
+     */
+    private void evict(long now, boolean newKey) {
+        long current = version.get();
+        Node<K, V> node;
+        while ((node = order.peekFirst()) != null) {
+            boolean expired = node.entry.expiresAt - now <= 0;
+            if (entries.get(node.key) == node.entry && !expired && !(newKey && entries.size() >= maxSize)) {
+                return;
+            }
+            order.pollFirst();
+            if (entries.remove(node.key, node.entry)) {
+                evictions.increment();
+                if (expired) {
+                    retire(node.key, node.entry.value, current);
+                }
+            }
+        }
+    }
+
+    /**
+     * The Class Node, an entry in the order it was put in.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    private static class Node<K, V> {
+
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The entry.
+         */
+        private final Entry<V> entry;
+
+        /**
+         * Instantiates a new node.
+         *
+         * @param key   the key
+         * @param entry the entry
+         */
+        private Node(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * The Class Entry.
+     *
+     * @param <V> the value type
+     */
+    private static class Entry<V> {
+
+        /**
+         * The value.
+         */
+        private final V value;
+
+        /**
+         * The expiry time in nanoseconds.
+         */
+        private final long expiresAt;
+
+        /**
+         * Instantiates a new entry.
+         *
+         * @param value     the value
+         * @param expiresAt the expiry time in nanoseconds
+         */
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
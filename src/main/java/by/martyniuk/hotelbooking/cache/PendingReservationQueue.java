@@ -0,0 +1,287 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Status;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class PendingReservationQueue.
+ * <p>
+ * Keeps the reservations waiting for approve and their free apartments in memory, so the admin
+ * page is rendered without touching the database. Bookings and reviews made on this node update the queue
+ * in place; other changes drop it and the next read loads it again.
+ * Like {@link ApartmentInventory}, readers take an immutable snapshot and writers swap in a new one.
+ */
+@Component
+public class PendingReservationQueue implements ChangeListener {
+
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(PendingReservationQueue.class);
+
+    /**
+     * The reservation dao.
+     */
+    private ReservationDao reservationDao;
+
+    /**
+     * The apartment inventory.
+     */
+    private ApartmentInventory apartmentInventory;
+
+    /**
+     * The current snapshot, null until loaded or after an invalidation.
+     */
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public void setReservationDao(ReservationDao reservationDao) {
+        this.reservationDao = reservationDao;
+        snapshot = null;
+    }
+
+    @Autowired
+    public void setApartmentInventory(ApartmentInventory apartmentInventory) {
+        this.apartmentInventory = apartmentInventory;
+        snapshot = null;
+    }
+
+    /**
+     * Finds the pending reservations, loading them if the queue was dropped
+     * or the apartment inventory changed since it was built.
+     *
+     * @return the pending reservations
+     * @throws DaoException the dao exception
+     */
+    public PendingReservations findPendingReservations() throws DaoException {
+        Snapshot current = snapshot;
+        if (current == null || current.inventory != apartmentInventory.findAllApartments()) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.inventory != apartmentInventory.findAllApartments()) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current.view;
+    }
+
+    /**
+     * Adds a reservation booked on this node. Its apartment is taken from the overlapping reservations.
+     *
+     * @param reservation the booked reservation
+     */
+    public synchronized void added(Reservation reservation) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        try {
+            List<Apartment> free = findFreeApartments(reservation);
+            Map<Long, Reservation> reservations = new LinkedHashMap<>();
+            Map<Long, List<Apartment>> freeApartments = new LinkedHashMap<>();
+            for (Reservation pending : current.reservations.values()) {
+                if (!reservations.containsKey(reservation.getId())
+                        && pending.getCheckInDate().isAfter(reservation.getCheckInDate())) {
+                    reservations.put(reservation.getId(), reservation);
+                    freeApartments.put(reservation.getId(), free);
+                }
+                List<Apartment> pendingFree = current.freeApartments.get(pending.getId());
+                if (overlaps(pending, reservation)) {
+                    pendingFree = new ArrayList<>(pendingFree);
+                    pendingFree.removeIf(apartment -> apartment.getId() == reservation.getApartment().getId());
+                    pendingFree = Collections.unmodifiableList(pendingFree);
+                }
+                reservations.put(pending.getId(), pending);
+                freeApartments.put(pending.getId(), pendingFree);
+            }
+            reservations.putIfAbsent(reservation.getId(), reservation);
+            freeApartments.putIfAbsent(reservation.getId(), free);
+            snapshot = new Snapshot(reservations, freeApartments, current.inventory);
+        } catch (DaoException e) {
+            snapshot = null;
+            LOGGER.log(Level.ERROR, e);
+        }
+    }
+
+    /**
+     * Applies a review made on this node. The reservation leaves the queue; the apartment it was
+     * approved to is taken from the overlapping reservations, and the apartment it held is offered
+     * to them again if nothing else occupies it.
+     *
+     * @param reservation       the reviewed reservation, holding the apartment it was approved to
+     * @param previousApartment the apartment the reservation held while waiting
+     * @param status            the new status
+     */
+    public synchronized void reviewed(Reservation reservation, Apartment previousApartment, Status status) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        Map<Long, Reservation> reservations = new LinkedHashMap<>(current.reservations);
+        Map<Long, List<Apartment>> freeApartments = new LinkedHashMap<>(current.freeApartments);
+        reservations.remove(reservation.getId());
+        freeApartments.remove(reservation.getId());
+
+        Apartment taken = status == Status.APPROVED ? reservation.getApartment() : null;
+        Apartment freed = taken == null || taken.getId() != previousApartment.getId() ? previousApartment : null;
+        try {
+            for (Reservation pending : reservations.values()) {
+                if (!overlaps(pending, reservation)) {
+                    continue;
+                }
+                List<Apartment> free = new ArrayList<>(freeApartments.get(pending.getId()));
+                if (taken != null) {
+                    free.removeIf(apartment -> apartment.getId() == taken.getId());
+                }
+                if (freed != null && sameClass(pending, freed) && pending.getApartment().getId() != freed.getId()
+                        && free.stream().noneMatch(apartment -> apartment.getId() == freed.getId())
+                        && reservationDao.isApartmentAvailable(freed.getId(), pending.getCheckInDate(),
+                        pending.getCheckOutDate())) {
+                    free.add(freed);
+                }
+                freeApartments.put(pending.getId(), Collections.unmodifiableList(free));
+            }
+            snapshot = new Snapshot(reservations, freeApartments, current.inventory);
+        } catch (DaoException e) {
+            snapshot = null;
+            LOGGER.log(Level.ERROR, e);
+        }
+    }
+
+    /**
+     * Drops the queue, so the next read loads it again.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    @Override
+    public void onChanges(Collection<EntityChange> changes) {
+        if (changes.stream().anyMatch(change -> change.getEntityType() == EntityType.RESERVATION
+                || change.getEntityType() == EntityType.APARTMENT || change.getEntityType() == EntityType.APARTMENT_CLASS)) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Loads the snapshot.
+     *
+     * @return the snapshot
+     * @throws DaoException the dao exception
+     */
+    private Snapshot load() throws DaoException {
+        List<Apartment> inventory = apartmentInventory.findAllApartments();
+        Map<Long, Reservation> reservations = new LinkedHashMap<>();
+        Map<Long, List<Apartment>> freeApartments = new LinkedHashMap<>();
+        for (Reservation reservation : reservationDao.readAllReservationsByStatus(Status.WAITING_FOR_APPROVE)) {
+            reservations.put(reservation.getId(), reservation);
+            freeApartments.put(reservation.getId(), findFreeApartments(reservation));
+        }
+        return new Snapshot(reservations, freeApartments, inventory);
+    }
+
+    /**
+     * Finds the apartments of the reservation class that are free for its stay.
+     *
+     * @param reservation the reservation
+     * @return the unmodifiable list
+     * @throws DaoException the dao exception
+     */
+    private List<Apartment> findFreeApartments(Reservation reservation) throws DaoException {
+        List<Apartment> free = new ArrayList<>();
+        long apartmentClassId = reservation.getApartment().getApartmentClass().getId();
+        for (Apartment apartment : apartmentInventory.findApartmentsByClassId(apartmentClassId)) {
+            if (reservationDao.isApartmentAvailable(apartment.getId(), reservation.getCheckInDate(),
+                    reservation.getCheckOutDate())) {
+                free.add(apartment);
+            }
+        }
+        return Collections.unmodifiableList(free);
+    }
+
+    /**
+     * Checks whether the stays of the reservations overlap.
+     *
+     * @param first  the first reservation
+     * @param second the second reservation
+     * @return true, if they overlap
+     */
+    private static boolean overlaps(Reservation first, Reservation second) {
+        return first.getCheckInDate().isBefore(second.getCheckOutDate())
+                && second.getCheckInDate().isBefore(first.getCheckOutDate());
+    }
+
+    /**
+     * Checks whether the apartment belongs to the class the reservation was made for.
+     *
+     * @param reservation the reservation
+     * @param apartment   the apartment
+     * @return true, if the classes match
+     */
+    private static boolean sameClass(Reservation reservation, Apartment apartment) {
+        return reservation.getApartment().getApartmentClass().getId() == apartment.getApartmentClass().getId();
+    }
+
+    /**
+     * The Class Snapshot.
+     */
+    private static class Snapshot {
+
+        /**
+         * The reservations by id, in the order they were listed.
+         */
+        private final Map<Long, Reservation> reservations;
+
+        /**
+         * The free apartments by reservation id.
+         */
+        private final Map<Long, List<Apartment>> freeApartments;
+
+        /**
+         * The inventory list the snapshot was built from.
+         */
+        private final List<Apartment> inventory;
+
+        /**
+         * The view handed to readers.
+         */
+        private final PendingReservations view;
+
+        /**
+         * Instantiates a new snapshot.
+         *
+         * @param reservations   the reservations by id
+         * @param freeApartments the free apartments by reservation id
+         * @param inventory      the inventory list
+         */
+        private Snapshot(Map<Long, Reservation> reservations, Map<Long, List<Apartment>> freeApartments,
+                         List<Apartment> inventory) {
+            this.reservations = reservations;
+            this.freeApartments = freeApartments;
+            this.inventory = inventory;
+            Map<Reservation, List<Apartment>> byReservation = new LinkedHashMap<>();
+            reservations.forEach((id, reservation) -> byReservation.put(reservation, freeApartments.get(id)));
+            this.view = new PendingReservations(Collections.unmodifiableList(new ArrayList<>(reservations.values())),
+                    Collections.unmodifiableMap(byReservation));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.Reservation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class PendingReservations.
+ * <p>
+ * An immutable view of the reservations waiting for approve together with the apartments
+ * each of them can still be moved to. The reservations and apartments are shared and must not be changed.
+ */
+public class PendingReservations {
+
+    /**
+     * The reservations.
+     */
+    private final List<Reservation> reservations;
+
+    /**
+     * The free apartments by reservation.
+     */
+    private final Map<Reservation, List<Apartment>> freeApartments;
+
+    /**
+     * Instantiates new pending reservations.
+     *
+     * @param reservations   the unmodifiable reservations
+     * @param freeApartments the unmodifiable free apartments by reservation
+     */
+    PendingReservations(List<Reservation> reservations, Map<Reservation, List<Apartment>> freeApartments) {
+        this.reservations = reservations;
+        this.freeApartments = freeApartments;
+    }
+
+    /**
+     * Gets the reservations.
+     *
+     * @return the reservations
+     */
+    public List<Reservation> getReservations() {
+        return reservations;
+    }
+
+    /**
+     * Gets the free apartments by reservation.
+     *
+     * @return the free apartments
+     */
+    public Map<Reservation, List<Apartment>> getFreeApartments() {
+        return freeApartments;
+    }
+}
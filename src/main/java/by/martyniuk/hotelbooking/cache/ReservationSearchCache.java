@@ -0,0 +1,110 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class ReservationSearchCache.
+ * <p>
+ * Keeps the results of reservation searches by query, so an admin page polling the same filters reads
+ * the database once per time to live. Any reservation write drops every result, since one row may match
+ * many queries. The names and numbers shown with a reservation are only dropped with the time to live,
+ * which is kept short. The searches read the primary, so a result loaded right after a write includes it.
+ */
+@Component
+public class ReservationSearchCache implements ChangeListener {
+
+    /**
+     * The reservation dao.
+     */
+    private ReservationDao reservationDao;
+
+    /**
+     * The results by query.
+     */
+    private ExpiringCache<ReservationQuery, List<Reservation>> results = new ExpiringCache<>(30, TimeUnit.SECONDS, 256);
+
+    @Autowired
+    public void setReservationDao(ReservationDao reservationDao) {
+        this.reservationDao = reservationDao;
+        invalidateAll();
+    }
+
+    /**
+     * Sets the cache bounds.
+     *
+     * @param ttlSeconds the time to live in seconds
+     * @param maxSize    the max amount of cached results
+     */
+    @Autowired
+    public void setCacheBounds(@Value("${cache.reservation.search.ttl.seconds:30}") long ttlSeconds,
+                               @Value("${cache.reservation.search.max.size:256}") int maxSize) {
+        results = new ExpiringCache<>(ttlSeconds, TimeUnit.SECONDS, maxSize);
+    }
+
+    /**
+     * Gets the cache of results.
+     *
+     * @return the cache
+     */
+    public ExpiringCache<ReservationQuery, List<Reservation>> getResults() {
+        return results;
+    }
+
+    /**
+     * Finds the reservations matching the query.
+     *
+     * @param query the query
+     * @return the reservations, shared with other callers, so they must not be changed. While the database
+     * is unavailable, the last results of the query even if expired
+     * @throws DaoException the dao exception
+     */
+    public List<Reservation> search(ReservationQuery query) throws DaoException {
+        List<Reservation> cached = results.get(query);
+        if (cached != null) {
+            return cached;
+        }
+        long version = results.version();
+        List<Reservation> found;
+        try {
+            found = Collections.unmodifiableList(reservationDao.searchReservations(query));
+        } catch (CircuitOpenException e) {
+            List<Reservation> stale = results.getStale(query);
+            if (stale == null) {
+                throw e;
+            }
+            return stale;
+        }
+        results.put(query, found, version);
+        return found;
+    }
+
+    /**
+     * Drops all results. Call it after every reservation write.
+     */
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    /**
+     * Drops all results, since every entity type is shown in the reservation view.
+     *
+     * @param changes the changes
+     */
+    @Override
+    public void onChanges(Collection<EntityChange> changes) {
+        invalidateAll();
+    }
+}
@@ -0,0 +1,186 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.UserDao;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.entity.User;
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class UserCache.
+ * <p>
+ * Reads users through a cache indexed by id and by email. The email index only points to an id,
+ * so dropping a user by id drops every way to reach it. A user loaded while a write was in progress
+ * is not stored, which keeps the balance from being served stale after a debit or a refund.
+ */
+@Component
+public class UserCache implements ChangeListener {
+
+    /**
+     * The user dao.
+     */
+    private UserDao userDao;
+
+    /**
+     * The users by id.
+     */
+    private ExpiringCache<Long, User> users = new ExpiringCache<>(5, TimeUnit.MINUTES, 10_000);
+
+    /**
+     * The user ids by email.
+     */
+    private ExpiringCache<String, Long> userIds = new ExpiringCache<>(5, TimeUnit.MINUTES, 10_000);
+
+    @Autowired
+    public void setUserDao(UserDao userDao) {
+        this.userDao = userDao;
+        invalidateAll();
+    }
+
+    /**
+     * Sets the cache bounds.
+     *
+     * @param ttlSeconds the time to live in seconds
+     * @param maxSize    the max amount of cached users
+     */
+    @Autowired
+    public void setCacheBounds(@Value("${cache.user.ttl.seconds:300}") long ttlSeconds,
+                               @Value("${cache.user.max.size:10000}") int maxSize) {
+        users = new ExpiringCache<>(ttlSeconds, TimeUnit.SECONDS, maxSize);
+        userIds = new ExpiringCache<>(ttlSeconds, TimeUnit.SECONDS, maxSize);
+    }
+
+    /**
+     * Gets the cache of users by id.
+     *
+     * @return the cache
+     */
+    public ExpiringCache<Long, User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Finds the user by id.
+     *
+     * @param userId the user id
+     * @return a copy of the user
+     * @throws DaoException the dao exception
+     */
+    public Optional<User> findUserById(long userId) throws DaoException {
+        User cached = users.get(userId);
+        if (cached != null) {
+            return Optional.of(cached.clone());
+        }
+        long version = users.version();
+        Optional<User> user;
+        try {
+            user = userDao.findUserById(userId);
+        } catch (CircuitOpenException e) {
+            User stale = users.getStale(userId);
+            if (stale == null) {
+                throw e;
+            }
+            return Optional.of(stale.clone());
+        }
+        user.ifPresent(loaded -> store(loaded, version, userIds.version()));
+        return user;
+    }
+
+    /**
+     * Finds the active user by email.
+     *
+     * @param mail the mail
+     * @return a copy of the user
+     * @throws DaoException the dao exception
+     */
+    public Optional<User> findUserByMail(String mail) throws DaoException {
+        String key = mail.toLowerCase(Locale.ROOT);
+        Long userId = userIds.get(key);
+        if (userId != null) {
+            User cached = users.get(userId);
+            if (cached != null && cached.isActive() && cached.getEmail().equalsIgnoreCase(mail)) {
+                return Optional.of(cached.clone());
+            }
+        }
+        long version = users.version();
+        long idVersion = userIds.version();
+        Optional<User> user;
+        try {
+            user = userDao.findUserByMail(mail);
+        } catch (CircuitOpenException e) {
+            User stale = findStaleUserByMail(key, mail);
+            if (stale == null) {
+                throw e;
+            }
+            return Optional.of(stale.clone());
+        }
+        user.ifPresent(loaded -> store(loaded, version, idVersion));
+        return user;
+    }
+
+    /**
+     * Drops the user. Call it after every write to the user row.
+     *
+     * @param userId the user id
+     */
+    public void invalidate(long userId) {
+        users.invalidate(userId);
+    }
+
+    /**
+     * Drops all users.
+     */
+    public void invalidateAll() {
+        users.invalidateAll();
+        userIds.invalidateAll();
+    }
+
+    @Override
+    public void onChanges(Collection<EntityChange> changes) {
+        for (EntityChange change : changes) {
+            if (change.getEntityType() != EntityType.USER) {
+                continue;
+            }
+            if (change.getEntityId() == EntityChange.ANY_ID) {
+                invalidateAll();
+                return;
+            }
+            invalidate(change.getEntityId());
+        }
+    }
+
+    /**
+     * Finds the active user by email among the expired entries.
+     *
+     * @param key  the lower case mail
+     * @param mail the mail
+     * @return the cached user, or null
+     */
+    private User findStaleUserByMail(String key, String mail) {
+        Long userId = userIds.getStale(key);
+        User stale = userId != null ? users.getStale(userId) : null;
+        return stale != null && stale.isActive() && stale.getEmail().equalsIgnoreCase(mail) ? stale : null;
+    }
+
+    /**
+     * Stores a copy of the loaded user.
+     *
+     * @param user      the user
+     * @param version   the version of the users cache captured before loading
+     * @param idVersion the version of the email index captured before loading
+     */
+    private void store(User user, long version, long idVersion) {
+        if (users.put(user.getId(), user.clone(), version) && user.getEmail() != null) {
+            userIds.put(user.getEmail().toLowerCase(Locale.ROOT), user.getId(), idVersion);
+        }
+    }
+}
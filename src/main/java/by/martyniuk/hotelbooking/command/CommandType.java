@@ -4,6 +4,8 @@ import by.martyniuk.hotelbooking.action.AdminAction;
 import by.martyniuk.hotelbooking.action.CommonAction;
 import by.martyniuk.hotelbooking.action.GuestAction;
 import by.martyniuk.hotelbooking.action.UserAction;
+import by.martyniuk.hotelbooking.metrics.CommandMetrics;
+import by.martyniuk.hotelbooking.metrics.InstrumentedCommand;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -62,6 +64,16 @@ public class CommandType {
         this.userAction = userAction;
     }
 
+    /**
+     * Times every command into its stats.
+     *
+     * @param commandMetrics the command metrics
+     */
+    @Autowired
+    public void setCommandMetrics(CommandMetrics commandMetrics) {
+        commands.replaceAll((name, command) -> new InstrumentedCommand(command, commandMetrics.stats(name)));
+    }
+
     /**
      * Receive command.
      *
@@ -1,8 +1,12 @@
 package by.martyniuk.hotelbooking.config;
 
+import by.martyniuk.hotelbooking.servlet.CommandAdmission;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.JstlView;
@@ -19,4 +23,12 @@ public class BeanConfig {
         return resolver;
     }
 
+    @Bean
+    public FilterRegistrationBean forwardedAddressFilter(@Value("${admission.trusted.proxies:}") String trustedProxies) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(
+                CommandAdmission.forwardedAddressFilter(trustedProxies));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
 }
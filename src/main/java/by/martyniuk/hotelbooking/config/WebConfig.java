@@ -1,14 +1,32 @@
 package by.martyniuk.hotelbooking.config;
 
+import by.martyniuk.hotelbooking.servlet.ConcurrencyLimitInterceptor;
+import by.martyniuk.hotelbooking.servlet.OperationClassInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 @Configuration
 public class WebConfig extends WebMvcConfigurerAdapter {
+
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Autowired
+    public void setConcurrencyLimitInterceptor(ConcurrencyLimitInterceptor concurrencyLimitInterceptor) {
+        this.concurrencyLimitInterceptor = concurrencyLimitInterceptor;
+    }
+
     @Override
     public void addResourceHandlers(final ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/*.js/**").addResourceLocations("/js/");
         registry.addResourceHandler("/*.css/**").addResourceLocations("/css/");
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(concurrencyLimitInterceptor);
+        registry.addInterceptor(new OperationClassInterceptor());
+    }
 }
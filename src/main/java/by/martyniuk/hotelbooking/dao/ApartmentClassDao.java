@@ -30,7 +30,7 @@ public interface ApartmentClassDao {
 
     boolean updateApartmentClass(ApartmentClass apartmentClass) throws DaoException;
 
-    boolean addApartmentClass(ApartmentClass apartmentClass) throws DaoException;
+    Optional<ApartmentClass> addApartmentClass(ApartmentClass apartmentClass) throws DaoException;
 
     boolean deleteApartmentClass(long id) throws DaoException;
 }
@@ -16,7 +16,16 @@ public interface ApartmentDao {
 
     List<Apartment> findApartmentListByClassId(long id) throws DaoException;
 
-    boolean addApartment(Apartment apartment) throws DaoException;
+    Optional<Apartment> addApartment(Apartment apartment) throws DaoException;
+
+    /**
+     * Adds the apartments in one batch and one transaction.
+     *
+     * @param apartments the apartments
+     * @return the added apartments with their ids, in the same order
+     * @throws DaoException the dao exception
+     */
+    List<Apartment> addApartments(List<Apartment> apartments) throws DaoException;
 
     boolean updateApartment(Apartment apartment) throws DaoException;
 
@@ -0,0 +1,42 @@
+package by.martyniuk.hotelbooking.dao;
+
+import by.martyniuk.hotelbooking.entity.LedgerEntry;
+import by.martyniuk.hotelbooking.exception.DaoException;
+
+import java.util.List;
+
+/**
+ * The Interface BalanceLedgerDao.
+ */
+public interface BalanceLedgerDao {
+
+    /**
+     * Find the latest ledger entries of the user, newest first.
+     *
+     * @param userId the user id
+     * @param limit  the max amount of entries
+     * @return the list
+     * @throws DaoException the dao exception
+     */
+    List<LedgerEntry> findEntriesByUserId(long userId, int limit) throws DaoException;
+
+    /**
+     * Find the users with at least the given amount of entries not yet compacted.
+     *
+     * @param minEntries the min amount of entries
+     * @param limit      the max amount of users
+     * @return the user ids
+     * @throws DaoException the dao exception
+     */
+    List<Long> findUsersToCompact(int minEntries, int limit) throws DaoException;
+
+    /**
+     * Folds the entries written since the last compaction into the balance of the user.
+     * The entries are kept as the audit trail.
+     *
+     * @param userId the user id
+     * @return the amount of entries folded
+     * @throws DaoException the dao exception
+     */
+    int compactBalance(long userId) throws DaoException;
+}
@@ -0,0 +1,40 @@
+package by.martyniuk.hotelbooking.dao;
+
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.exception.DaoException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The Interface ChangeVersionDao.
+ */
+public interface ChangeVersionDao {
+
+    /**
+     * Find the current database time.
+     *
+     * @return the local date time
+     * @throws DaoException the dao exception
+     */
+    LocalDateTime findCurrentTime() throws DaoException;
+
+    /**
+     * Find the changes made by other nodes since the time.
+     *
+     * @param since the since
+     * @return the list
+     * @throws DaoException the dao exception
+     */
+    List<EntityChange> findChangesSince(LocalDateTime since) throws DaoException;
+
+    /**
+     * Delete up to the limit of the changes made before the time.
+     *
+     * @param before the before
+     * @param limit  the limit
+     * @return the amount of deleted changes
+     * @throws DaoException the dao exception
+     */
+    int deleteChangesBefore(LocalDateTime before, int limit) throws DaoException;
+}
@@ -25,10 +25,44 @@ public interface ReservationDao {
      * @param checkOutDate the check out date
      * @param totalCost    the total cost
      * @param personAmount the person amount
-     * @return true, if successful
+     * @return the reservation waiting for approve with its generated id, or empty if the apartment
+     * is occupied or the user cannot pay
+     * @throws DaoException the dao exception
+     */
+    Optional<Reservation> addReservation(Apartment apartment, User user, LocalDate checkInDate, LocalDate checkOutDate, BigDecimal totalCost, int personAmount) throws DaoException;
+
+    /**
+     * Adds the reservations as they are, in one batch and one transaction. Used for imports,
+     * so neither availability nor balances are checked.
+     *
+     * @param reservations the reservations
+     * @return the added reservations with their ids, in the same order
      * @throws DaoException the dao exception
      */
-    boolean addReservation(Apartment apartment, User user, LocalDate checkInDate, LocalDate checkOutDate, BigDecimal totalCost, int personAmount) throws DaoException;
+    List<Reservation> addReservations(List<Reservation> reservations) throws DaoException;
+
+    /**
+     * Books the reservations in one transaction. Every booking is paid on its own, so a user who cannot pay
+     * loses only that booking. The caller must have checked that the apartments are free.
+     *
+     * @param bookings the bookings, with apartment, user, dates, persons and costs set
+     * @return the reservations waiting for approve with their ids, or empty where the user could not pay,
+     * in the same order
+     * @throws DaoException the dao exception
+     */
+    List<Optional<Reservation>> bookReservations(List<Reservation> bookings) throws DaoException;
+
+    /**
+     * Finds the approved and waiting reservations of the apartment class whose stay overlaps the range.
+     * Only the id, the dates and the apartment id are read.
+     *
+     * @param apartmentClassId the apartment class id
+     * @param from             the first day of the range
+     * @param to               the day after the range
+     * @return the list
+     * @throws DaoException the dao exception
+     */
+    List<Reservation> findActiveStaysByApartmentClass(long apartmentClassId, LocalDate from, LocalDate to) throws DaoException;
 
     /**
      * Checks if is apartment available.
@@ -58,6 +92,15 @@ public interface ReservationDao {
      */
     List<Reservation> readAllReservationsByStatus(Status status) throws DaoException;
 
+    /**
+     * Search reservations matching the query.
+     *
+     * @param query the query
+     * @return the list
+     * @throws DaoException the dao exception
+     */
+    List<Reservation> searchReservations(ReservationQuery query) throws DaoException;
+
     /**
      * Read all reservations by user id.
      *
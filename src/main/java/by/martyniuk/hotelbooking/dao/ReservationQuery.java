@@ -0,0 +1,348 @@
+package by.martyniuk.hotelbooking.dao;
+
+import by.martyniuk.hotelbooking.entity.Status;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The Class ReservationQuery.
+ * <p>
+ * An immutable set of reservation filters. Every filter left unset matches all reservations.
+ * Two queries with the same filters are equal, so a query can be used as a cache key.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class ReservationQuery {
+
+    /**
+     * The Constant MAX_LIMIT, the most rows one query returns.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * The start of the stay range, matched by the reservations that end after it.
+     */
+    private final LocalDate from;
+
+    /**
+     * The end of the stay range, matched by the reservations that start before it.
+     */
+    private final LocalDate to;
+
+    /**
+     * The statuses.
+     */
+    private final Set<Status> statuses;
+
+    /**
+     * The user id.
+     */
+    private final Long userId;
+
+    /**
+     * The apartment id.
+     */
+    private final Long apartmentId;
+
+    /**
+     * The apartment class id.
+     */
+    private final Long apartmentClassId;
+
+    /**
+     * The min total cost.
+     */
+    private final BigDecimal minCost;
+
+    /**
+     * The max total cost.
+     */
+    private final BigDecimal maxCost;
+
+    /**
+     * The sort field.
+     */
+    private final SortField sortField;
+
+    /**
+     * The descending.
+     */
+    private final boolean descending;
+
+    /**
+     * The limit.
+     */
+    private final int limit;
+
+    /**
+     * Instantiates a new reservation query.
+     *
+     * @param builder the builder
+     */
+    private ReservationQuery(Builder builder) {
+        this.from = builder.from;
+        this.to = builder.to;
+        this.statuses = Collections.unmodifiableSet(EnumSet.copyOf(builder.statuses));
+        this.userId = builder.userId;
+        this.apartmentId = builder.apartmentId;
+        this.apartmentClassId = builder.apartmentClassId;
+        this.minCost = builder.minCost;
+        this.maxCost = builder.maxCost;
+        this.sortField = builder.sortField;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+    }
+
+    /**
+     * Creates a builder.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The Enum SortField, the columns a search can be sorted by.
+     */
+    public enum SortField {
+
+        /**
+         * The check in date.
+         */
+        CHECK_IN_DATE("check_in_date"),
+
+        /**
+         * The check out date.
+         */
+        CHECK_OUT_DATE("check_out_date"),
+
+        /**
+         * The order time.
+         */
+        ORDER_TIME("order_time"),
+
+        /**
+         * The total cost.
+         */
+        TOTAL_COST("total_cost"),
+
+        /**
+         * The id.
+         */
+        ID("id_reservation");
+
+        /**
+         * The column.
+         */
+        private final String column;
+
+        /**
+         * Instantiates a new sort field.
+         *
+         * @param column the column
+         */
+        SortField(String column) {
+            this.column = column;
+        }
+
+        /**
+         * Gets the column.
+         *
+         * @return the column
+         */
+        public String getColumn() {
+            return column;
+        }
+    }
+
+    /**
+     * The Class Builder.
+     */
+    public static final class Builder {
+
+        /**
+         * The from.
+         */
+        private LocalDate from;
+
+        /**
+         * The to.
+         */
+        private LocalDate to;
+
+        /**
+         * The statuses.
+         */
+        private EnumSet<Status> statuses = EnumSet.noneOf(Status.class);
+
+        /**
+         * The user id.
+         */
+        private Long userId;
+
+        /**
+         * The apartment id.
+         */
+        private Long apartmentId;
+
+        /**
+         * The apartment class id.
+         */
+        private Long apartmentClassId;
+
+        /**
+         * The min cost.
+         */
+        private BigDecimal minCost;
+
+        /**
+         * The max cost.
+         */
+        private BigDecimal maxCost;
+
+        /**
+         * The sort field.
+         */
+        private SortField sortField = SortField.CHECK_IN_DATE;
+
+        /**
+         * The descending.
+         */
+        private boolean descending;
+
+        /**
+         * The limit.
+         */
+        private int limit = MAX_LIMIT;
+
+        /**
+         * Instantiates a new builder.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Matches the reservations whose stay overlaps the range. Either bound may be null.
+         *
+         * @param from the first day of the range
+         * @param to   the day after the range
+         * @return the builder
+         */
+        public Builder overlapping(LocalDate from, LocalDate to) {
+            if (from != null && to != null && !from.isBefore(to)) {
+                throw new IllegalArgumentException("Empty date range " + from + " - " + to);
+            }
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * Matches the reservations in any of the statuses.
+         *
+         * @param statuses the statuses
+         * @return the builder
+         */
+        public Builder statuses(Set<Status> statuses) {
+            this.statuses = EnumSet.noneOf(Status.class);
+            if (statuses != null) {
+                this.statuses.addAll(statuses);
+            }
+            return this;
+        }
+
+        /**
+         * Matches the reservations of the user.
+         *
+         * @param userId the user id
+         * @return the builder
+         */
+        public Builder user(Long userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        /**
+         * Matches the reservations of the apartment.
+         *
+         * @param apartmentId the apartment id
+         * @return the builder
+         */
+        public Builder apartment(Long apartmentId) {
+            this.apartmentId = apartmentId;
+            return this;
+        }
+
+        /**
+         * Matches the reservations of the apartment class.
+         *
+         * @param apartmentClassId the apartment class id
+         * @return the builder
+         */
+        public Builder apartmentClass(Long apartmentClassId) {
+            this.apartmentClassId = apartmentClassId;
+            return this;
+        }
+
+        /**
+         * Matches the reservations whose total cost is in the range. Either bound may be null.
+         *
+         * @param minCost the min cost, inclusive
+         * @param maxCost the max cost, inclusive
+         * @return the builder
+         */
+        public Builder costBetween(BigDecimal minCost, BigDecimal maxCost) {
+            if (minCost != null && maxCost != null && minCost.compareTo(maxCost) > 0) {
+                throw new IllegalArgumentException("Empty cost range " + minCost + " - " + maxCost);
+            }
+            this.minCost = minCost;
+            this.maxCost = maxCost;
+            return this;
+        }
+
+        /**
+         * Sorts the result.
+         *
+         * @param sortField  the sort field
+         * @param descending the descending
+         * @return the builder
+         */
+        public Builder sortBy(SortField sortField, boolean descending) {
+            this.sortField = sortField != null ? sortField : SortField.CHECK_IN_DATE;
+            this.descending = descending;
+            return this;
+        }
+
+        /**
+         * Limits the result, at most to {@link #MAX_LIMIT} rows.
+         *
+         * @param limit the limit
+         * @return the builder
+         */
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive: " + limit);
+            }
+            this.limit = Math.min(limit, MAX_LIMIT);
+            return this;
+        }
+
+        /**
+         * Builds the query.
+         *
+         * @return the reservation query
+         */
+        public ReservationQuery build() {
+            return new ReservationQuery(this);
+        }
+    }
+}
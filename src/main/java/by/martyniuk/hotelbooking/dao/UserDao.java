@@ -42,10 +42,10 @@ public interface UserDao {
      * Adds the user.
      *
      * @param user the user
-     * @return true, if successful
+     * @return the added user with its generated id, or empty if nothing was inserted
      * @throws DaoException the dao exception
      */
-    boolean addUser(User user) throws DaoException;
+    Optional<User> addUser(User user) throws DaoException;
 
     /**
      * Update user data.
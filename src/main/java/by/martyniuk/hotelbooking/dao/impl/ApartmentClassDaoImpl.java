@@ -2,12 +2,12 @@ package by.martyniuk.hotelbooking.dao.impl;
 
 import by.martyniuk.hotelbooking.dao.ApartmentClassDao;
 import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.EntityType;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.pool.ConnectionPool;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,19 +19,12 @@ public class ApartmentClassDaoImpl implements ApartmentClassDao {
 
     @Override
     public List<ApartmentClass> findAllApartmentClasses() throws DaoException {
-        List<ApartmentClass> apartmentClassList = new ArrayList<>();
         try (Connection cn = ConnectionPool.getInstance().getConnection();
              Statement st = cn.createStatement()) {
             ResultSet resultSet = st.executeQuery(SqlQuery.SQL_SELECT_ALL_APARTMENTS_CLASSES);
-            while (resultSet.next()) {
-                apartmentClassList.add(new ApartmentClass(resultSet.getLong("id_apartment_class"), resultSet.getString("type"),
-                        resultSet.getInt("rooms_amount"), resultSet.getInt("max_capacity"),
-                        resultSet.getBigDecimal("cost_per_night"), resultSet.getBigDecimal("cost_per_person"),
-                        resultSet.getString("description"), resultSet.getString("image_path")));
-            }
-            return apartmentClassList;
+            return ApartmentClassRowMapper.of(SqlQuery.SQL_SELECT_ALL_APARTMENTS_CLASSES, resultSet).mapAll();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
@@ -41,16 +34,9 @@ public class ApartmentClassDaoImpl implements ApartmentClassDao {
             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_FIND_APARTMENT_CLASS_BY_ID);
             ps.setLong(1, id);
             ResultSet resultSet = ps.executeQuery();
-            Optional<ApartmentClass> apartmentClassOptional = Optional.empty();
-            if (resultSet.next()) {
-                apartmentClassOptional = Optional.of(new ApartmentClass(resultSet.getLong("id_apartment_class"), resultSet.getString("type"),
-                        resultSet.getInt("rooms_amount"), resultSet.getInt("max_capacity"),
-                        resultSet.getBigDecimal("cost_per_night"), resultSet.getBigDecimal("cost_per_person"),
-                        resultSet.getString("description"), resultSet.getString("image_path")));
-            }
-            return apartmentClassOptional;
+            return ApartmentClassRowMapper.of(SqlQuery.SQL_FIND_APARTMENT_CLASS_BY_ID, resultSet).mapFirst();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
@@ -66,16 +52,22 @@ public class ApartmentClassDaoImpl implements ApartmentClassDao {
             ps.setString(6, apartmentClass.getDescription());
             ps.setString(7, apartmentClass.getImagePath());
             ps.setLong(8, apartmentClass.getId());
-            return ps.executeUpdate() != 0;
+            boolean result = ps.executeUpdate() != 0;
+            if (result) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.APARTMENT_CLASS, apartmentClass.getId());
+                ReservationViewWriter.refresh(cn, SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_APARTMENT_CLASS_ID,
+                        apartmentClass.getId());
+            }
+            return result;
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
     @Override
-    public boolean addApartmentClass(ApartmentClass apartmentClass) throws DaoException {
+    public Optional<ApartmentClass> addApartmentClass(ApartmentClass apartmentClass) throws DaoException {
         try (Connection cn = ConnectionPool.getInstance().getConnection()) {
-            PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_ADD_APARTMENT_CLASS);
+            PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_ADD_APARTMENT_CLASS, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, apartmentClass.getType());
             ps.setInt(2, apartmentClass.getRoomsAmount());
             ps.setInt(3, apartmentClass.getMaxCapacity());
@@ -83,9 +75,15 @@ public class ApartmentClassDaoImpl implements ApartmentClassDao {
             ps.setBigDecimal(5, apartmentClass.getCostPerPerson());
             ps.setString(6, apartmentClass.getDescription());
             ps.setString(7, apartmentClass.getImagePath());
-            return ps.executeUpdate() != 0;
+            if (ps.executeUpdate() == 0) {
+                return Optional.empty();
+            }
+            ApartmentClass added = apartmentClass.clone();
+            added.setId(GeneratedKeys.readId(ps));
+            ChangeVersionDaoImpl.bump(cn, EntityType.APARTMENT_CLASS, added.getId());
+            return Optional.of(added);
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
@@ -94,9 +92,13 @@ public class ApartmentClassDaoImpl implements ApartmentClassDao {
         try (Connection cn = ConnectionPool.getInstance().getConnection()) {
             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_DELETE_APARTMENT_CLASS);
             ps.setLong(1, id);
-            return ps.executeUpdate() != 0;
+            boolean result = ps.executeUpdate() != 0;
+            if (result) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.APARTMENT_CLASS, id);
+            }
+            return result;
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 }
\ No newline at end of file
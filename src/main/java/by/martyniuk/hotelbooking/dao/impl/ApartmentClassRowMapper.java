@@ -0,0 +1,83 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.ApartmentClass;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The Class ApartmentClassRowMapper.
+ */
+class ApartmentClassRowMapper extends RowMapper<ApartmentClass> {
+
+    /**
+     * The column positions.
+     */
+    private static final int ID = 0, TYPE = 1, ROOMS_AMOUNT = 2, MAX_CAPACITY = 3, COST_PER_NIGHT = 4,
+            COST_PER_PERSON = 5, DESCRIPTION = 6, IMAGE_PATH = 7;
+
+    /**
+     * The columns of the apartment class and apartment selects.
+     */
+    private static final ColumnIndex CLASS_COLUMNS = new ColumnIndex("id_apartment_class", "type", "rooms_amount",
+            "max_capacity", "cost_per_night", "cost_per_person", "description", "image_path");
+
+    /**
+     * The apartment class columns of the reservation selects.
+     */
+    private static final ColumnIndex RESERVATION_COLUMNS = new ColumnIndex("id_apartment_class", "type",
+            "rooms_amount", "max_capacity", "apartment_cost_per_night", "apartment_cost_per_person", "description",
+            "image_path");
+
+    /**
+     * Instantiates a new apartment class row mapper.
+     *
+     * @param resultSet the result set
+     * @param index     the column indexes
+     */
+    private ApartmentClassRowMapper(ResultSet resultSet, int[] index) {
+        super(resultSet, index);
+    }
+
+    /**
+     * Creates the mapper for the apartment class and apartment selects.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @return the apartment class row mapper
+     * @throws SQLException the SQL exception
+     */
+    static ApartmentClassRowMapper of(String sql, ResultSet resultSet) throws SQLException {
+        return new ApartmentClassRowMapper(resultSet, CLASS_COLUMNS.resolve(sql, resultSet));
+    }
+
+    /**
+     * Creates the mapper for the apartment class columns of the reservation selects.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @return the apartment class row mapper
+     * @throws SQLException the SQL exception
+     */
+    static ApartmentClassRowMapper ofReservation(String sql, ResultSet resultSet) throws SQLException {
+        return new ApartmentClassRowMapper(resultSet, RESERVATION_COLUMNS.resolve(sql, resultSet));
+    }
+
+    /**
+     * Gets the id of the current row.
+     *
+     * @return the id
+     * @throws SQLException the SQL exception
+     */
+    long id() throws SQLException {
+        return resultSet.getLong(index[ID]);
+    }
+
+    @Override
+    ApartmentClass mapRow() throws SQLException {
+        return new ApartmentClass(id(), resultSet.getString(index[TYPE]), resultSet.getInt(index[ROOMS_AMOUNT]),
+                resultSet.getInt(index[MAX_CAPACITY]), resultSet.getBigDecimal(index[COST_PER_NIGHT]),
+                resultSet.getBigDecimal(index[COST_PER_PERSON]), resultSet.getString(index[DESCRIPTION]),
+                resultSet.getString(index[IMAGE_PATH]));
+    }
+}
@@ -2,13 +2,16 @@ package by.martyniuk.hotelbooking.dao.impl;
 
 import by.martyniuk.hotelbooking.dao.ApartmentDao;
 import by.martyniuk.hotelbooking.entity.Apartment;
-import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,23 +21,25 @@ import java.util.Optional;
 @Repository
 public class ApartmentDaoImpl implements ApartmentDao {
 
+    /**
+     * The id allocator.
+     */
+    private HiLoIdAllocator idAllocator;
+
+    @Autowired
+    public void setIdAllocator(HiLoIdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
     @Override
     public List<Apartment> findAllApartments() throws DaoException {
-        List<Apartment> apartments = new ArrayList<>();
         try (Connection cn = ConnectionPool.getInstance().getConnection();
              Statement st = cn.createStatement()) {
             ResultSet resultSet = st.executeQuery(SqlQuery.SQL_SELECT_ALL_APARTMENTS);
-            while (resultSet.next()) {
-                apartments.add(new Apartment(resultSet.getLong("id_apartment"), resultSet.getString("number"),
-                        resultSet.getInt("floor"), new ApartmentClass(resultSet.getLong("id_apartment_class"), resultSet.getString("type"),
-                        resultSet.getInt("rooms_amount"), resultSet.getInt("max_capacity"),
-                        resultSet.getBigDecimal("cost_per_night"), resultSet.getBigDecimal("cost_per_person"),
-                        resultSet.getString("description"), resultSet.getString("image_path")), resultSet.getInt("active") != 0));
-            }
+            return ApartmentRowMapper.of(SqlQuery.SQL_SELECT_ALL_APARTMENTS, resultSet).mapAll();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
-        return apartments;
     }
 
 
@@ -44,51 +49,91 @@ public class ApartmentDaoImpl implements ApartmentDao {
             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_FIND_APARTMENT_BY_ID);
             ps.setLong(1, id);
             ResultSet resultSet = ps.executeQuery();
-            Optional<Apartment> apartmentOptional = Optional.empty();
-            if (resultSet.next()) {
-                apartmentOptional = Optional.of(new Apartment(resultSet.getLong("id_apartment"), resultSet.getString("number"),
-                        resultSet.getInt("floor"),
-                        new ApartmentClass(resultSet.getLong("id_apartment_class"), resultSet.getString("type"),
-                                resultSet.getInt("rooms_amount"), resultSet.getInt("max_capacity"),
-                                resultSet.getBigDecimal("cost_per_night"), resultSet.getBigDecimal("cost_per_person"),
-                                resultSet.getString("description"), resultSet.getString("image_path")), resultSet.getInt("active") != 0));
-            }
-            return apartmentOptional;
+            return ApartmentRowMapper.of(SqlQuery.SQL_FIND_APARTMENT_BY_ID, resultSet).mapFirst();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
     @Override
     public List<Apartment> findApartmentListByClassId(long id) throws DaoException {
         try (Connection cn = ConnectionPool.getInstance().getConnection()) {
-            List<Apartment> apartmentList = new ArrayList<>();
             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_FIND_APARTMENT_BY_CLASS_ID);
             ps.setLong(1, id);
             ResultSet resultSet = ps.executeQuery();
-            while (resultSet.next()) {
-                apartmentList.add(new Apartment(resultSet.getLong("id_apartment"), resultSet.getString("number"),
-                        resultSet.getInt("floor"), new ApartmentClass(resultSet.getLong("id_apartment_class"), resultSet.getString("type"),
-                        resultSet.getInt("rooms_amount"), resultSet.getInt("max_capacity"),
-                        resultSet.getBigDecimal("cost_per_night"), resultSet.getBigDecimal("cost_per_person"),
-                        resultSet.getString("description"), resultSet.getString("image_path")), resultSet.getInt("active") != 0));
-            }
-            return apartmentList;
+            return ApartmentRowMapper.of(SqlQuery.SQL_FIND_APARTMENT_BY_CLASS_ID, resultSet).mapAll();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
     @Override
-    public boolean addApartment(Apartment apartment) throws DaoException {
+    public Optional<Apartment> addApartment(Apartment apartment) throws DaoException {
+        boolean allocated = isIdAllocated();
+        Apartment added = apartment.clone();
+        added.setActive(true);
+        allocateIds(Collections.singletonList(added));
         try (Connection cn = ConnectionPool.getInstance().getConnection();
-             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_INSERT_APARTMENT)) {
-            ps.setString(1, apartment.getNumber());
-            ps.setInt(2, apartment.getFloor());
-            ps.setLong(3, apartment.getApartmentClass().getId());
-            return (ps.executeUpdate() != 0);
+             PreparedStatement ps = prepareInsert(cn, allocated)) {
+            setInsertParameters(ps, added, allocated);
+            if (ps.executeUpdate() == 0) {
+                return Optional.empty();
+            }
+            if (!allocated) {
+                added.setId(GeneratedKeys.readId(ps));
+            }
+            ChangeVersionDaoImpl.bump(cn, EntityType.APARTMENT, added.getId());
+            return Optional.of(added);
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    @Override
+    public List<Apartment> addApartments(List<Apartment> apartments) throws DaoException {
+        boolean allocated = isIdAllocated();
+        List<Apartment> added = new ArrayList<>(apartments.size());
+        for (Apartment apartment : apartments) {
+            Apartment copy = apartment.clone();
+            copy.setActive(true);
+            added.add(copy);
+        }
+        allocateIds(added);
+        Connection cn = connect();
+        try (PreparedStatement ps = prepareInsert(cn, allocated)) {
+            cn.setAutoCommit(false);
+            for (Apartment apartment : added) {
+                setInsertParameters(ps, apartment, allocated);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            if (!allocated) {
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Apartment apartment : added) {
+                        keys.next();
+                        apartment.setId(keys.getLong(1));
+                    }
+                }
+            }
+            ChangeVersionDaoImpl.bump(cn, EntityType.APARTMENT, EntityChange.ANY_ID);
+            cn.commit();
+            return added;
+        } catch (SQLException e) {
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            if (cn != null) {
+                try {
+                    cn.setAutoCommit(true);
+                    cn.close();
+                } catch (SQLException ignored) {
+
+                }
+            }
         }
     }
 
@@ -100,9 +145,14 @@ public class ApartmentDaoImpl implements ApartmentDao {
             ps.setInt(2, apartment.getFloor());
             ps.setLong(3, apartment.getApartmentClass().getId());
             ps.setLong(4, apartment.getId());
-            return (ps.executeUpdate() != 0);
+            boolean result = ps.executeUpdate() != 0;
+            if (result) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.APARTMENT, apartment.getId());
+                ReservationViewWriter.refresh(cn, SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_APARTMENT_ID, apartment.getId());
+            }
+            return result;
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
@@ -112,9 +162,87 @@ public class ApartmentDaoImpl implements ApartmentDao {
         try (Connection cn = ConnectionPool.getInstance().getConnection();
              PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_DELETE_APARTMENT)) {
             ps.setLong(1, apartmentId);
-            return (ps.executeUpdate() != 0);
+            boolean result = ps.executeUpdate() != 0;
+            if (result) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.APARTMENT, apartmentId);
+            }
+            return result;
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    /**
+     * Checks whether inserted apartments take their ids from the allocator.
+     *
+     * @return true, if ids are allocated
+     */
+    private boolean isIdAllocated() {
+        return idAllocator != null && idAllocator.isEnabled();
+    }
+
+    /**
+     * Prepares the apartment insert.
+     *
+     * @param cn        the connection
+     * @param allocated whether the ids are allocated
+     * @return the prepared statement
+     * @throws SQLException the SQL exception
+     */
+    private PreparedStatement prepareInsert(Connection cn, boolean allocated) throws SQLException {
+        return allocated ? cn.prepareStatement(SqlQuery.SQL_INSERT_APARTMENT_WITH_ID)
+                : cn.prepareStatement(SqlQuery.SQL_INSERT_APARTMENT, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    /**
+     * Gives the apartments ids from the allocator if the ids are allocated. Call it before borrowing the
+     * connection of the insert, since reserving a block borrows one too.
+     *
+     * @param apartments the apartments, receiving the allocated ids
+     * @throws DaoException the dao exception
+     */
+    private void allocateIds(List<Apartment> apartments) throws DaoException {
+        if (!isIdAllocated()) {
+            return;
+        }
+        try {
+            long[] ids = idAllocator.nextIds(HiLoIdAllocator.APARTMENT, apartments.size());
+            for (int i = 0; i < ids.length; i++) {
+                apartments.get(i).setId(ids[i]);
+            }
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    /**
+     * Sets the parameters of the apartment insert.
+     *
+     * @param ps        the prepared statement
+     * @param apartment the apartment, holding its allocated id if the ids are allocated
+     * @param allocated whether the ids are allocated
+     * @throws SQLException the SQL exception
+     */
+    private void setInsertParameters(PreparedStatement ps, Apartment apartment, boolean allocated) throws SQLException {
+        ps.setString(1, apartment.getNumber());
+        ps.setInt(2, apartment.getFloor());
+        ps.setLong(3, apartment.getApartmentClass().getId());
+        if (allocated) {
+            ps.setLong(4, apartment.getId());
+        }
+    }
+
+    /**
+     * Gets a connection from the pool for a write that manages it by hand.
+     *
+     * @return the connection
+     * @throws DaoException if no connection got free in time
+     */
+    private static Connection connect() throws DaoException {
+        try {
+            return ConnectionPool.getInstance().getConnection();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 }
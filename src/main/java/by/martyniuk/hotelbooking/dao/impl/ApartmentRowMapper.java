@@ -0,0 +1,108 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.ApartmentClass;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The Class ApartmentRowMapper.
+ */
+class ApartmentRowMapper extends RowMapper<Apartment> {
+
+    /**
+     * The column positions.
+     */
+    private static final int ID = 0, NUMBER = 1, FLOOR = 2, ACTIVE = 3;
+
+    /**
+     * The columns of the apartment selects.
+     */
+    private static final ColumnIndex APARTMENT_COLUMNS = new ColumnIndex("id_apartment", "number", "floor", "active");
+
+    /**
+     * The apartment columns of the reservation selects.
+     */
+    private static final ColumnIndex RESERVATION_COLUMNS = new ColumnIndex("id_apartment", "number", "floor",
+            "apartment_active");
+
+    /**
+     * The apartment class mapper.
+     */
+    private final ApartmentClassRowMapper apartmentClassMapper;
+
+    /**
+     * Instantiates a new apartment row mapper.
+     *
+     * @param resultSet            the result set
+     * @param index                the column indexes
+     * @param apartmentClassMapper the apartment class mapper
+     */
+    private ApartmentRowMapper(ResultSet resultSet, int[] index, ApartmentClassRowMapper apartmentClassMapper) {
+        super(resultSet, index);
+        this.apartmentClassMapper = apartmentClassMapper;
+    }
+
+    /**
+     * Creates the mapper for the apartment selects.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @return the apartment row mapper
+     * @throws SQLException the SQL exception
+     */
+    static ApartmentRowMapper of(String sql, ResultSet resultSet) throws SQLException {
+        return new ApartmentRowMapper(resultSet, APARTMENT_COLUMNS.resolve(sql, resultSet),
+                ApartmentClassRowMapper.of(sql, resultSet));
+    }
+
+    /**
+     * Creates the mapper for the apartment columns of the reservation selects.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @return the apartment row mapper
+     * @throws SQLException the SQL exception
+     */
+    static ApartmentRowMapper ofReservation(String sql, ResultSet resultSet) throws SQLException {
+        return new ApartmentRowMapper(resultSet, RESERVATION_COLUMNS.resolve(sql, resultSet),
+                ApartmentClassRowMapper.ofReservation(sql, resultSet));
+    }
+
+    /**
+     * Gets the apartment class mapper.
+     *
+     * @return the apartment class mapper
+     */
+    ApartmentClassRowMapper apartmentClassMapper() {
+        return apartmentClassMapper;
+    }
+
+    /**
+     * Gets the id of the current row.
+     *
+     * @return the id
+     * @throws SQLException the SQL exception
+     */
+    long id() throws SQLException {
+        return resultSet.getLong(index[ID]);
+    }
+
+    @Override
+    Apartment mapRow() throws SQLException {
+        return mapRow(apartmentClassMapper.mapRow());
+    }
+
+    /**
+     * Maps the current row with an apartment class already mapped.
+     *
+     * @param apartmentClass the apartment class
+     * @return the apartment
+     * @throws SQLException the SQL exception
+     */
+    Apartment mapRow(ApartmentClass apartmentClass) throws SQLException {
+        return new Apartment(id(), resultSet.getString(index[NUMBER]), resultSet.getInt(index[FLOOR]),
+                apartmentClass, resultSet.getInt(index[ACTIVE]) != 0);
+    }
+}
@@ -0,0 +1,133 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.dao.BalanceLedgerDao;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class BalanceLedgerCompactor.
+ * <p>
+ * Folds the ledger entries of the users with many of them into their balance at a fixed delay, so reading
+ * an available balance sums only a few entries. Compacting one user locks only that user for one short
+ * transaction, and any node may run it, since a compaction that lost a race folds nothing.
+ */
+@Component
+public class BalanceLedgerCompactor {
+
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(BalanceLedgerCompactor.class);
+
+    /**
+     * The balance ledger dao.
+     */
+    private BalanceLedgerDao balanceLedgerDao;
+
+    /**
+     * The enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * The compaction interval in milliseconds.
+     */
+    private long intervalMillis = 60_000;
+
+    /**
+     * The least amount of entries that makes a user compacted.
+     */
+    private int minEntries = 20;
+
+    /**
+     * The max amount of users compacted per run.
+     */
+    private int batchSize = 100;
+
+    /**
+     * The executor.
+     */
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public void setBalanceLedgerDao(BalanceLedgerDao balanceLedgerDao) {
+        this.balanceLedgerDao = balanceLedgerDao;
+    }
+
+    /**
+     * Sets the compaction settings.
+     *
+     * @param enabled        the enabled
+     * @param intervalMillis the compaction interval in milliseconds
+     * @param minEntries     the least amount of entries that makes a user compacted
+     * @param batchSize      the max amount of users compacted per run
+     */
+    @Autowired
+    public void setCompactionSettings(@Value("${ledger.compaction.enabled:false}") boolean enabled,
+                                      @Value("${ledger.compaction.interval.millis:60000}") long intervalMillis,
+                                      @Value("${ledger.compaction.min.entries:20}") int minEntries,
+                                      @Value("${ledger.compaction.batch.size:100}") int batchSize) {
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.minEntries = Math.max(1, minEntries);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts compacting once the context is refreshed.
+     *
+     * @param event the event
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start(ContextRefreshedEvent event) {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-ledger-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::compact, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops compacting.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Compacts the users with the most entries waiting.
+     *
+     * @return the amount of entries folded
+     */
+    public int compact() {
+        int folded = 0;
+        try {
+            for (long userId : balanceLedgerDao.findUsersToCompact(minEntries, batchSize)) {
+                folded += balanceLedgerDao.compactBalance(userId);
+            }
+        } catch (DaoException | RuntimeException e) {
+            LOGGER.log(Level.ERROR, "Balance ledger compaction failed", e);
+        }
+        return folded;
+    }
+}
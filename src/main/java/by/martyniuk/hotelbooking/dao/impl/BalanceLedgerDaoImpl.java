@@ -0,0 +1,200 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.dao.BalanceLedgerDao;
+import by.martyniuk.hotelbooking.entity.LedgerEntry;
+import by.martyniuk.hotelbooking.entity.LedgerReason;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Class BalanceLedgerDaoImpl.
+ * <p>
+ * Balances change by appending entries to the balance ledger instead of updating the user row, so refunds and
+ * deposits never wait for each other. The available balance is the balance of the user row plus the entries
+ * written after its ledger position. Only a debit checks it, and it locks the user row as the last statement
+ * of its transaction, so the lock is held just until the commit. Compaction folds the entries into the user row
+ * from time to time, which keeps the sum short.
+ */
+@Repository
+public class BalanceLedgerDaoImpl implements BalanceLedgerDao {
+
+    @Override
+    public List<LedgerEntry> findEntriesByUserId(long userId, int limit) throws DaoException {
+        try (Connection cn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_SELECT_LEDGER_ENTRIES_BY_USER_ID)) {
+            ps.setLong(1, userId);
+            ps.setInt(2, limit);
+            ResultSet resultSet = ps.executeQuery();
+            List<LedgerEntry> entries = new ArrayList<>();
+            while (resultSet.next()) {
+                long reservationId = resultSet.getLong(5);
+                entries.add(new LedgerEntry(resultSet.getLong(1), resultSet.getLong(2), resultSet.getBigDecimal(3),
+                        LedgerReason.valueOf(resultSet.getString(4)), resultSet.wasNull() ? null : reservationId,
+                        resultSet.getTimestamp(6).toLocalDateTime()));
+            }
+            return entries;
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    @Override
+    public List<Long> findUsersToCompact(int minEntries, int limit) throws DaoException {
+        try (Connection cn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_SELECT_USERS_TO_COMPACT)) {
+            ps.setInt(1, minEntries);
+            ps.setInt(2, limit);
+            ResultSet resultSet = ps.executeQuery();
+            List<Long> userIds = new ArrayList<>();
+            while (resultSet.next()) {
+                userIds.add(resultSet.getLong(1));
+            }
+            return userIds;
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    @Override
+    public int compactBalance(long userId) throws DaoException {
+        Connection cn = connect();
+        try (PreparedStatement psLock = cn.prepareStatement(SqlQuery.SQL_LOCK_USER_BALANCE);
+             PreparedStatement psSum = cn.prepareStatement(SqlQuery.SQL_SUM_LEDGER_AFTER);
+             PreparedStatement psCompact = cn.prepareStatement(SqlQuery.SQL_COMPACT_USER_BALANCE)) {
+            cn.setAutoCommit(false);
+            psLock.setLong(1, userId);
+            ResultSet lock = psLock.executeQuery();
+            if (!lock.next()) {
+                cn.rollback();
+                return 0;
+            }
+            long position = lock.getLong(1);
+            psSum.setLong(1, userId);
+            psSum.setLong(2, position);
+            ResultSet sum = psSum.executeQuery();
+            sum.next();
+            long last = sum.getLong(2);
+            if (sum.wasNull()) {
+                cn.rollback();
+                return 0;
+            }
+            psCompact.setBigDecimal(1, sum.getBigDecimal(1));
+            psCompact.setLong(2, last);
+            psCompact.setLong(3, userId);
+            psCompact.setLong(4, position);
+            int folded = psCompact.executeUpdate() != 0 ? sum.getInt(3) : 0;
+            cn.commit();
+            return folded;
+        } catch (SQLException e) {
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            try {
+                cn.setAutoCommit(true);
+                cn.close();
+            } catch (SQLException ignored) {
+
+            }
+        }
+    }
+
+    /**
+     * Debits the user on the connection of the booking, unless the available balance is too low.
+     * Call it as the last statement before the commit, since it locks the user row.
+     *
+     * @param cn            the connection
+     * @param userId        the user id
+     * @param amount        the amount
+     * @param reservationId the reservation paid
+     * @return true, if debited
+     * @throws SQLException the SQL exception
+     */
+    static boolean debit(Connection cn, long userId, BigDecimal amount, long reservationId) throws SQLException {
+        try (PreparedStatement psLock = cn.prepareStatement(SqlQuery.SQL_LOCK_USER_BALANCE);
+             PreparedStatement psDebit = cn.prepareStatement(SqlQuery.SQL_INSERT_GUARDED_DEBIT)) {
+            psLock.setLong(1, userId);
+            if (!psLock.executeQuery().next()) {
+                return false;
+            }
+            psDebit.setBigDecimal(1, amount.negate());
+            psDebit.setString(2, LedgerReason.BOOKING.name());
+            psDebit.setLong(3, reservationId);
+            psDebit.setLong(4, userId);
+            psDebit.setLong(5, userId);
+            psDebit.setBigDecimal(6, amount);
+            return psDebit.executeUpdate() != 0;
+        }
+    }
+
+    /**
+     * Credits the user on the connection of the write, so it commits with it.
+     *
+     * @param cn            the connection
+     * @param userId        the user id
+     * @param amount        the amount
+     * @param reason        the reason
+     * @param reservationId the reservation refunded, or null
+     * @return true, if the user exists
+     * @throws SQLException the SQL exception
+     */
+    static boolean credit(Connection cn, long userId, BigDecimal amount, LedgerReason reason, Long reservationId)
+            throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_INSERT_LEDGER_ENTRY)) {
+            ps.setBigDecimal(1, amount);
+            ps.setString(2, reason.name());
+            if (reservationId != null) {
+                ps.setLong(3, reservationId);
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setLong(4, userId);
+            return ps.executeUpdate() != 0;
+        }
+    }
+
+    /**
+     * Sets the available balance of the user by writing the difference as an adjustment.
+     *
+     * @param cn      the connection
+     * @param userId  the user id
+     * @param balance the balance
+     * @throws SQLException the SQL exception
+     */
+    static void adjust(Connection cn, long userId, BigDecimal balance) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_INSERT_BALANCE_ADJUSTMENT)) {
+            ps.setBigDecimal(1, balance);
+            ps.setLong(2, userId);
+            ps.setLong(3, userId);
+            ps.setBigDecimal(4, balance);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Gets a connection from the pool for a write that manages it by hand.
+     *
+     * @return the connection
+     * @throws DaoException if no connection got free in time
+     */
+    private static Connection connect() throws DaoException {
+        try {
+            return ConnectionPool.getInstance().getConnection();
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.dao.ChangeVersionDao;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import org.springframework.stereotype.Repository;
+
+import java.lang.management.ManagementFactory;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The Class ChangeVersionDaoImpl.
+ * <p>
+ * Every DAO write bumps the row of the changed entity in the change version table, tagged with this node,
+ * so the other nodes can drop their cached copies.
+ */
+@Repository
+public class ChangeVersionDaoImpl implements ChangeVersionDao {
+
+    /**
+     * The name of this node.
+     */
+    static final String NODE = (ManagementFactory.getRuntimeMXBean().getName() + "/"
+            + UUID.randomUUID().toString().substring(0, 8));
+
+    @Override
+    public LocalDateTime findCurrentTime() throws DaoException {
+        try (Connection cn = ConnectionPool.getInstance().getConnection();
+             Statement st = cn.createStatement()) {
+            ResultSet resultSet = st.executeQuery(SqlQuery.SQL_SELECT_CURRENT_TIME);
+            resultSet.next();
+            return resultSet.getTimestamp(1).toLocalDateTime();
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    @Override
+    public List<EntityChange> findChangesSince(LocalDateTime since) throws DaoException {
+        try (Connection cn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_SELECT_CHANGES_SINCE)) {
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            ps.setString(2, NODE);
+            ResultSet resultSet = ps.executeQuery();
+            List<EntityChange> changes = new ArrayList<>();
+            while (resultSet.next()) {
+                changes.add(new EntityChange(EntityType.valueOf(resultSet.getString(1)), resultSet.getLong(2),
+                        resultSet.getTimestamp(3).toLocalDateTime()));
+            }
+            return changes;
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    @Override
+    public int deleteChangesBefore(LocalDateTime before, int limit) throws DaoException {
+        try (Connection cn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_DELETE_CHANGES_BEFORE)) {
+            ps.setTimestamp(1, Timestamp.valueOf(before));
+            ps.setInt(2, limit);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    /**
+     * Bumps the change version of the entity on the connection of the write, so it commits with it.
+     *
+     * @param cn         the connection
+     * @param entityType the entity type
+     * @param entityId   the entity id, or {@link EntityChange#ANY_ID}
+     * @throws SQLException the SQL exception
+     */
+    static void bump(Connection cn, EntityType entityType, long entityId) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_BUMP_CHANGE_VERSION)) {
+            ps.setString(1, entityType.name());
+            ps.setLong(2, entityId);
+            ps.setString(3, NODE);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
+import by.martyniuk.hotelbooking.exception.ConnectionUnavailableException;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import by.martyniuk.hotelbooking.exception.QueryTimeoutException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The Class CircuitBreaker.
+ * <p>
+ * Keeps the callers off the database once it fails or slows down for most calls. While closed, the outcomes
+ * of the last calls are kept in a ring, and the breaker opens when the share of failed or of slow calls
+ * reaches its threshold. While open, every call is rejected at once. After the open time a few trial calls
+ * go through: the breaker closes when all of them succeed in time and opens again otherwise. Only timeouts
+ * and unreachable connections count as failures, since any other error says nothing about the database health.
+ */
+@Component
+public class CircuitBreaker {
+
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+
+    /**
+     * The Enum State.
+     */
+    public enum State {
+
+        /**
+         * Calls go through and their outcomes are recorded.
+         */
+        CLOSED,
+
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+
+        /**
+         * A few trial calls go through.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The clock in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The amount of calls in the window.
+     */
+    private int windowSize = 50;
+
+    /**
+     * The least amount of calls recorded before the rates are checked.
+     */
+    private int minCalls = 20;
+
+    /**
+     * The failure rate in percent that opens the breaker.
+     */
+    private int failureRatePercent = 50;
+
+    /**
+     * The slow call rate in percent that opens the breaker.
+     */
+    private int slowRatePercent = 80;
+
+    /**
+     * The duration of a slow call in nanoseconds.
+     */
+    private long slowCallNanos = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * The open time in nanoseconds.
+     */
+    private long openNanos = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * The amount of trial calls in half open state.
+     */
+    private int halfOpenCalls = 3;
+
+    /**
+     * The state.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * The generation, changed on every transition, so a call started before one is not recorded after it.
+     */
+    private long generation;
+
+    /**
+     * The failed calls of the window.
+     */
+    private boolean[] failed = new boolean[windowSize];
+
+    /**
+     * The slow calls of the window.
+     */
+    private boolean[] slow = new boolean[windowSize];
+
+    /**
+     * The amount of calls recorded in the window.
+     */
+    private int recorded;
+
+    /**
+     * The next position in the window.
+     */
+    private int position;
+
+    /**
+     * The amount of failed calls in the window.
+     */
+    private int failedCount;
+
+    /**
+     * The amount of slow calls in the window.
+     */
+    private int slowCount;
+
+    /**
+     * The time the breaker opened at, in nanoseconds.
+     */
+    private long openedAt;
+
+    /**
+     * The trial calls started in half open state.
+     */
+    private int trialsStarted;
+
+    /**
+     * The trial calls succeeded in half open state.
+     */
+    private int trialsSucceeded;
+
+    /**
+     * The rejected calls.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * The times the breaker opened.
+     */
+    private final LongAdder opened = new LongAdder();
+
+    /**
+     * Instantiates a new circuit breaker.
+     */
+    public CircuitBreaker() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Instantiates a new circuit breaker.
+     *
+     * @param clock the clock in nanoseconds
+     */
+    CircuitBreaker(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the window of recorded calls.
+     *
+     * @param windowSize the amount of calls in the window
+     * @param minCalls   the least amount of calls recorded before the rates are checked
+     */
+    @Autowired
+    public synchronized void setWindow(@Value("${circuit.window.size:50}") int windowSize,
+                                       @Value("${circuit.min.calls:20}") int minCalls) {
+        if (windowSize <= 0 || minCalls <= 0 || minCalls > windowSize) {
+            throw new IllegalArgumentException("Invalid window " + windowSize + " with min calls " + minCalls);
+        }
+        this.windowSize = windowSize;
+        this.minCalls = minCalls;
+        resetWindow();
+    }
+
+    /**
+     * Sets the thresholds that open the breaker.
+     *
+     * @param failureRatePercent the failure rate in percent
+     * @param slowRatePercent    the slow call rate in percent
+     * @param slowCallMillis     the duration of a slow call in milliseconds
+     */
+    @Autowired
+    public synchronized void setThresholds(@Value("${circuit.failure.rate.percent:50}") int failureRatePercent,
+                                           @Value("${circuit.slow.rate.percent:80}") int slowRatePercent,
+                                           @Value("${circuit.slow.call.millis:2000}") long slowCallMillis) {
+        this.failureRatePercent = failureRatePercent;
+        this.slowRatePercent = slowRatePercent;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    }
+
+    /**
+     * Sets the recovery settings.
+     *
+     * @param openSeconds   the open time in seconds
+     * @param halfOpenCalls the amount of trial calls in half open state
+     */
+    @Autowired
+    public synchronized void setRecovery(@Value("${circuit.open.seconds:10}") long openSeconds,
+                                         @Value("${circuit.half.open.calls:3}") int halfOpenCalls) {
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * Lets a call through, or rejects it while the breaker is open.
+     *
+     * @return the generation to pass to {@link #record(long, long, boolean)}
+     * @throws CircuitOpenException if the breaker is open
+     */
+    public synchronized long acquire() throws CircuitOpenException {
+        long now = clock.getAsLong();
+        if (state == State.OPEN) {
+            long remaining = openedAt + openNanos - now;
+            if (remaining > 0) {
+                rejected.increment();
+                throw new CircuitOpenException(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999)));
+            }
+            transition(State.HALF_OPEN, now);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                rejected.increment();
+                throw new CircuitOpenException(1);
+            }
+            trialsStarted++;
+        }
+        return generation;
+    }
+
+    /**
+     * Records the outcome of a call.
+     *
+     * @param generation    the generation returned by {@link #acquire()}
+     * @param durationNanos the duration of the call in nanoseconds
+     * @param failure       true, if the call failed on the database
+     */
+    public synchronized void record(long generation, long durationNanos, boolean failure) {
+        if (generation != this.generation) {
+            return;
+        }
+        boolean isSlow = durationNanos >= slowCallNanos;
+        long now = clock.getAsLong();
+        if (state == State.HALF_OPEN) {
+            if (failure || isSlow) {
+                transition(State.OPEN, now);
+            } else if (++trialsSucceeded >= halfOpenCalls) {
+                transition(State.CLOSED, now);
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (recorded == windowSize) {
+            failedCount -= failed[position] ? 1 : 0;
+            slowCount -= slow[position] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[position] = failure;
+        slow[position] = isSlow;
+        failedCount += failure ? 1 : 0;
+        slowCount += isSlow ? 1 : 0;
+        position = (position + 1) % windowSize;
+        if (recorded >= minCalls && (failedCount * 100L >= (long) failureRatePercent * recorded
+                || slowCount * 100L >= (long) slowRatePercent * recorded)) {
+            transition(State.OPEN, now);
+        }
+    }
+
+    /**
+     * Checks if the exception shows the database failing rather than the call being wrong. Lock wait timeouts
+     * and deadlocks are not failures: they show contention on a few rows, which the retries deal with.
+     *
+     * @param e the exception
+     * @return true, if a failure
+     */
+    public static boolean isFailure(Throwable e) {
+        return (e instanceof QueryTimeoutException || e instanceof ConnectionUnavailableException)
+                && !(e instanceof CircuitOpenException) && !isContention(e);
+    }
+
+    /**
+     * Checks if the exception is a lock wait timeout or a deadlock.
+     *
+     * @param e the exception
+     * @return true, if contention
+     */
+    public static boolean isContention(Throwable e) {
+        return e instanceof DaoException && RetryPolicy.isRetryable((DaoException) e);
+    }
+
+    /**
+     * Gets the state.
+     *
+     * @return the state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Gets the amount of rejected calls.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Gets the amount of times the breaker opened.
+     *
+     * @return the opened count
+     */
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    /**
+     * Moves to the state.
+     *
+     * @param next the next state
+     * @param now  the current time in nanoseconds
+     */
+    private void transition(State next, long now) {
+        LOGGER.log(next == State.OPEN ? Level.WARN : Level.INFO, "Database circuit " + state + " -> " + next
+                + (state == State.CLOSED ? ", failed " + failedCount + ", slow " + slowCount + " of " + recorded : ""));
+        state = next;
+        generation++;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAt = now;
+            opened.increment();
+        }
+        resetWindow();
+    }
+
+    /**
+     * Drops the recorded calls.
+     */
+    private void resetWindow() {
+        failed = new boolean[windowSize];
+        slow = new boolean[windowSize];
+        recorded = 0;
+        position = 0;
+        failedCount = 0;
+        slowCount = 0;
+    }
+}
@@ -0,0 +1,112 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * The Class CircuitBreakerPostProcessor.
+ * <p>
+ * Puts every repository behind the database circuit breaker. The repositories are wrapped in a proxy of their
+ * interfaces, which asks the breaker before each call and records how the call ended, so reads and writes
+ * fail at once while the database is off.
+ */
+@Component
+public class CircuitBreakerPostProcessor implements BeanPostProcessor {
+
+    /**
+     * The circuit breaker.
+     */
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        Class<?> beanClass = bean.getClass();
+        if (!beanClass.isAnnotationPresent(Repository.class) || beanClass.getInterfaces().length == 0) {
+            return bean;
+        }
+        return Proxy.newProxyInstance(beanClass.getClassLoader(), beanClass.getInterfaces(),
+                new BreakerHandler(bean, circuitBreaker));
+    }
+
+    /**
+     * The Class BreakerHandler.
+     */
+    static class BreakerHandler implements InvocationHandler {
+
+        /**
+         * The target.
+         */
+        private final Object target;
+
+        /**
+         * The circuit breaker.
+         */
+        private final CircuitBreaker circuitBreaker;
+
+        /**
+         * Instantiates a new breaker handler.
+         *
+         * @param target         the target
+         * @param circuitBreaker the circuit breaker
+         */
+        BreakerHandler(Object target, CircuitBreaker circuitBreaker) {
+            this.target = target;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeTarget(method, args);
+            }
+            long generation = circuitBreaker.acquire();
+            long start = System.nanoTime();
+            boolean failure = false;
+            boolean contention = false;
+            try {
+                return invokeTarget(method, args);
+            } catch (Throwable e) {
+                failure = CircuitBreaker.isFailure(e);
+                contention = CircuitBreaker.isContention(e);
+                throw e;
+            } finally {
+                // A call that waited on a row lock is not slow because of the database as a whole.
+                circuitBreaker.record(generation, contention ? 0 : System.nanoTime() - start, failure);
+            }
+        }
+
+        /**
+         * Invokes the method on the target.
+         *
+         * @param method the method
+         * @param args   the args
+         * @return the result
+         * @throws Throwable the exception thrown by the target
+         */
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
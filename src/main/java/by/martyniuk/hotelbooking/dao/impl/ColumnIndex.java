@@ -0,0 +1,54 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class ColumnIndex.
+ * <p>
+ * Resolves the indexes of a fixed set of column labels once per query and keeps them,
+ * so rows of the same query are read by index instead of by label.
+ */
+class ColumnIndex {
+
+    /**
+     * The column labels.
+     */
+    private final String[] labels;
+
+    /**
+     * The resolved indexes by query.
+     */
+    private final ConcurrentMap<String, int[]> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new column index.
+     *
+     * @param labels the column labels
+     */
+    ColumnIndex(String... labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * Resolves the indexes of the labels in the result set of the query.
+     *
+     * @param sql       the query the result set belongs to
+     * @param resultSet the result set
+     * @return the indexes, in the order of the labels
+     * @throws SQLException if a column is missing
+     */
+    int[] resolve(String sql, ResultSet resultSet) throws SQLException {
+        int[] index = indexes.get(sql);
+        if (index == null) {
+            index = new int[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                index[i] = resultSet.findColumn(labels[i]);
+            }
+            indexes.putIfAbsent(sql, index);
+        }
+        return index;
+    }
+}
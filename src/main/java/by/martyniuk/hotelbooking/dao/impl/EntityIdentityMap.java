@@ -0,0 +1,96 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Class EntityIdentityMap.
+ * <p>
+ * Holds the entities already built while mapping one result set, so rows that reference
+ * the same user, apartment or apartment class share a single instance.
+ * Lives for one query only and is not thread safe.
+ */
+class EntityIdentityMap {
+
+    /**
+     * The users.
+     */
+    private final Map<Long, User> users = new HashMap<>();
+
+    /**
+     * The apartments.
+     */
+    private final Map<Long, Apartment> apartments = new HashMap<>();
+
+    /**
+     * The apartment classes.
+     */
+    private final Map<Long, ApartmentClass> apartmentClasses = new HashMap<>();
+
+    /**
+     * Finds the user.
+     *
+     * @param id the id
+     * @return the user, or null if it was not mapped yet
+     */
+    User findUser(long id) {
+        return users.get(id);
+    }
+
+    /**
+     * Puts the user.
+     *
+     * @param user the user
+     * @return the user
+     */
+    User putUser(User user) {
+        users.put(user.getId(), user);
+        return user;
+    }
+
+    /**
+     * Finds the apartment.
+     *
+     * @param id the id
+     * @return the apartment, or null if it was not mapped yet
+     */
+    Apartment findApartment(long id) {
+        return apartments.get(id);
+    }
+
+    /**
+     * Puts the apartment.
+     *
+     * @param apartment the apartment
+     * @return the apartment
+     */
+    Apartment putApartment(Apartment apartment) {
+        apartments.put(apartment.getId(), apartment);
+        return apartment;
+    }
+
+    /**
+     * Finds the apartment class.
+     *
+     * @param id the id
+     * @return the apartment class, or null if it was not mapped yet
+     */
+    ApartmentClass findApartmentClass(long id) {
+        return apartmentClasses.get(id);
+    }
+
+    /**
+     * Puts the apartment class.
+     *
+     * @param apartmentClass the apartment class
+     * @return the apartment class
+     */
+    ApartmentClass putApartmentClass(ApartmentClass apartmentClass) {
+        apartmentClasses.put(apartmentClass.getId(), apartmentClass);
+        return apartmentClass;
+    }
+}
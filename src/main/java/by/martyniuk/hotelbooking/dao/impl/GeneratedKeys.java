@@ -0,0 +1,35 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The Class GeneratedKeys.
+ * <p>
+ * Reads the id the database generated for an insert prepared with {@link Statement#RETURN_GENERATED_KEYS}.
+ */
+class GeneratedKeys {
+
+    /**
+     * Instantiates new generated keys.
+     */
+    private GeneratedKeys() {
+    }
+
+    /**
+     * Reads the generated id of the executed insert.
+     *
+     * @param statement the executed statement
+     * @return the id
+     * @throws SQLException if the database returned no key
+     */
+    static long readId(Statement statement) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("Insert returned no generated key");
+            }
+            return keys.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class HiLoIdAllocator.
+ * <p>
+ * Hands out ids for inserts from blocks reserved in the sequence table, so batched inserts know their ids
+ * up front and need no generated keys. One update reserves a whole block for this node; ids inside
+ * the block are taken from an atomic counter without locking. Ids of a block left unused when the
+ * application stops are skipped.
+ * When enabled, every insert into the allocated tables must take its id here, as AUTO_INCREMENT
+ * values would run into the reserved blocks. Reserving a block borrows a connection, so the inserts take
+ * their ids before they borrow the connection of their transaction.
+ */
+@Component
+public class HiLoIdAllocator {
+
+    /**
+     * The sequence of apartment ids.
+     */
+    static final String APARTMENT = "apartment";
+
+    /**
+     * The sequence of reservation ids.
+     */
+    static final String RESERVATION = "reservation";
+
+    /**
+     * The current blocks by sequence.
+     */
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * The enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * The block size.
+     */
+    private int blockSize = 100;
+
+    /**
+     * Sets the allocator settings.
+     *
+     * @param enabled   the enabled
+     * @param blockSize the amount of ids reserved by one update
+     */
+    @Autowired
+    public void setAllocatorSettings(@Value("${id.allocator.enabled:false}") boolean enabled,
+                                     @Value("${id.allocator.block.size:100}") int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.enabled = enabled;
+        this.blockSize = blockSize;
+        blocks.clear();
+    }
+
+    /**
+     * Checks if the allocator is enabled.
+     *
+     * @return true, if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes the next id of the sequence, reserving a new block when the current one is used up.
+     *
+     * @param sequence the sequence
+     * @return the id
+     * @throws SQLException the SQL exception
+     */
+    long nextId(String sequence) throws SQLException {
+        while (true) {
+            Block block = blocks.get(sequence);
+            if (block != null) {
+                long id = block.next.getAndIncrement();
+                if (id < block.limit) {
+                    return id;
+                }
+            }
+            synchronized (this) {
+                if (blocks.get(sequence) == block) {
+                    long limit = reserveBlock(sequence, blockSize);
+                    blocks.put(sequence, new Block(limit - blockSize, limit));
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the next ids of the sequence.
+     *
+     * @param sequence the sequence
+     * @param count    the amount of ids
+     * @return the ids
+     * @throws SQLException the SQL exception
+     */
+    long[] nextIds(String sequence, int count) throws SQLException {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId(sequence);
+        }
+        return ids;
+    }
+
+    /**
+     * Reserves the next block of the sequence.
+     *
+     * @param sequence the sequence
+     * @param size     the block size
+     * @return the id following the reserved block
+     * @throws SQLException the SQL exception
+     */
+    long reserveBlock(String sequence, int size) throws SQLException {
+        try (Connection cn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_RESERVE_ID_BLOCK);
+             Statement st = cn.createStatement()) {
+            ps.setInt(1, size);
+            ps.setString(2, sequence);
+            if (ps.executeUpdate() == 0) {
+                throw new SQLException("No sequence " + sequence);
+            }
+            ResultSet resultSet = st.executeQuery(SqlQuery.SQL_SELECT_LAST_INSERT_ID);
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * The Class Block.
+     */
+    private static class Block {
+
+        /**
+         * The next id.
+         */
+        private final AtomicLong next;
+
+        /**
+         * The id following the block.
+         */
+        private final long limit;
+
+        /**
+         * Instantiates a new block.
+         *
+         * @param first the first id
+         * @param limit the id following the block
+         */
+        private Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package by.martyniuk.hotelbooking.dao.impl;
 
 import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
 import by.martyniuk.hotelbooking.entity.*;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
@@ -12,8 +14,17 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 /**
  * The Class ReservationDaoImpl.
@@ -21,38 +32,62 @@ import java.util.Optional;
 @Repository
 public class ReservationDaoImpl implements ReservationDao {
 
+    /**
+     * The id allocator.
+     */
+    private HiLoIdAllocator idAllocator;
+
+    /**
+     * The retry policy.
+     */
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    public void setIdAllocator(HiLoIdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    @Autowired
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
 
     @Override
-    public boolean addReservation(Apartment apartment, User user, LocalDate checkInDate, LocalDate checkOutDate, BigDecimal totalCost, int personsAmount) throws DaoException {
-        Connection cn = ConnectionPool.getInstance().getConnection();
-        try (PreparedStatement psAvailability = cn.prepareStatement(SqlQuery.SQL_CHECK_AVAILABILITY);
-             PreparedStatement psBalance = cn.prepareStatement(SqlQuery.SQL_WITHDRAW_USER_MONEY);
-             PreparedStatement psReserve = cn.prepareStatement(SqlQuery.SQL_RESERVE_APARTMENT)) {
+    public Optional<Reservation> addReservation(Apartment apartment, User user, LocalDate checkInDate, LocalDate checkOutDate, BigDecimal totalCost, int personsAmount) throws DaoException {
+        return retry(() -> reserve(apartment, user, checkInDate, checkOutDate, totalCost, personsAmount));
+    }
+
+    /**
+     * Checks the availability, withdraws the cost and inserts the reservation in one transaction.
+     *
+     * @param apartment     the apartment
+     * @param user          the user
+     * @param checkInDate   the check in date
+     * @param checkOutDate  the check out date
+     * @param totalCost     the total cost
+     * @param personsAmount the persons amount
+     * @return the added reservation, empty if the apartment is taken or the balance is too low
+     * @throws DaoException the dao exception
+     */
+    private Optional<Reservation> reserve(Apartment apartment, User user, LocalDate checkInDate, LocalDate checkOutDate, BigDecimal totalCost, int personsAmount) throws DaoException {
+        long[] ids = allocateIds(1);
+        boolean allocated = ids != null;
+        Connection cn = connect();
+        try (PreparedStatement psReserve = prepareInsert(cn, SqlQuery.SQL_RESERVE_APARTMENT,
+                SqlQuery.SQL_RESERVE_APARTMENT_WITH_ID, allocated)) {
 
             cn.setAutoCommit(false);
 
-            Date checkIn = Date.valueOf(checkInDate);
-            Date checkOut = Date.valueOf(checkOutDate);
-            psAvailability.setDate(1, checkIn, Calendar.getInstance());
-            psAvailability.setDate(2, checkOut, Calendar.getInstance());
-            psAvailability.setDate(3, checkIn, Calendar.getInstance());
-            psAvailability.setDate(4, checkOut, Calendar.getInstance());
-            psAvailability.setLong(5, apartment.getId());
-            psAvailability.setString(6, Status.APPROVED.toString());
-            psAvailability.setString(7, Status.WAITING_FOR_APPROVE.toString());
-            ResultSet rs = psAvailability.executeQuery();
-            if (rs.next()) {
-                return false;
+            lockApartments(cn, Collections.singletonList(apartment.getId()));
+            if (!isAvailable(cn, apartment.getId(), checkInDate, checkOutDate, 0)) {
+                cn.rollback();
+                return Optional.empty();
             }
 
-            psBalance.setBigDecimal(1, totalCost);
-            psBalance.setLong(2, user.getId());
-            psBalance.setBigDecimal(3, totalCost);
-            boolean result = psBalance.executeUpdate() != 0;
-
             psReserve.setDate(1, Date.valueOf(checkInDate), Calendar.getInstance());
             psReserve.setDate(2, Date.valueOf(checkOutDate), Calendar.getInstance());
-            psReserve.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            LocalDateTime orderTime = LocalDateTime.now().withNano(0);
+            psReserve.setTimestamp(3, Timestamp.valueOf(orderTime));
             psReserve.setInt(4, personsAmount);
             psReserve.setBigDecimal(5, apartment.getApartmentClass().getCostPerPerson());
             psReserve.setBigDecimal(6, apartment.getApartmentClass().getCostPerNight());
@@ -60,21 +95,221 @@ public class ReservationDaoImpl implements ReservationDao {
             psReserve.setLong(8, user.getId());
             psReserve.setLong(9, apartment.getId());
             psReserve.setLong(10, 1);
+            long id = 0;
+            if (allocated) {
+                id = ids[0];
+                psReserve.setLong(11, id);
+            }
 
-            if (result && psReserve.executeUpdate() != 0) {
+            if (psReserve.executeUpdate() != 0) {
+                if (!allocated) {
+                    id = GeneratedKeys.readId(psReserve);
+                }
+                ReservationViewWriter.refresh(cn, SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_ID, id);
+                ChangeVersionDaoImpl.bump(cn, EntityType.RESERVATION, id);
+            }
+            // The payment locks the rows of the user, so it goes last to hold them only until the commit.
+            if (id != 0 && BalanceLedgerDaoImpl.debit(cn, user.getId(), totalCost, id)) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.USER, user.getId());
                 cn.commit();
-                return true;
+                return Optional.of(new Reservation(id, checkInDate, checkOutDate, orderTime, personsAmount,
+                        apartment.getApartmentClass().getCostPerPerson(), apartment.getApartmentClass().getCostPerNight(),
+                        totalCost, user, apartment, Status.WAITING_FOR_APPROVE));
             } else {
                 cn.rollback();
-                return false;
+                return Optional.empty();
+            }
+        } catch (SQLException e) {
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            if (cn != null) {
+                try {
+                    cn.setAutoCommit(true);
+                    cn.close();
+                } catch (SQLException ignored) {
+
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public List<Reservation> addReservations(List<Reservation> reservations) throws DaoException {
+        long[] ids = allocateIds(reservations.size());
+        boolean allocated = ids != null;
+        Connection cn = connect();
+        try (PreparedStatement ps = prepareInsert(cn, SqlQuery.SQL_IMPORT_RESERVATION,
+                SqlQuery.SQL_IMPORT_RESERVATION_WITH_ID, allocated)) {
+            cn.setAutoCommit(false);
+            List<Reservation> added = new ArrayList<>(reservations.size());
+            for (Reservation reservation : reservations) {
+                Reservation copy = reservation.clone();
+                ps.setDate(1, Date.valueOf(copy.getCheckInDate()), Calendar.getInstance());
+                ps.setDate(2, Date.valueOf(copy.getCheckOutDate()), Calendar.getInstance());
+                ps.setTimestamp(3, Timestamp.valueOf(copy.getOrderTime()));
+                ps.setInt(4, copy.getPersonAmount());
+                ps.setBigDecimal(5, copy.getCostPerPerson());
+                ps.setBigDecimal(6, copy.getCostPerNight());
+                ps.setBigDecimal(7, copy.getTotalCost());
+                ps.setLong(8, copy.getUser().getId());
+                ps.setLong(9, copy.getApartment().getId());
+                ps.setString(10, copy.getStatus().toString());
+                if (allocated) {
+                    copy.setId(ids[added.size()]);
+                    ps.setLong(11, copy.getId());
+                }
+                ps.addBatch();
+                added.add(copy);
+            }
+            ps.executeBatch();
+            if (!allocated) {
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Reservation reservation : added) {
+                        keys.next();
+                        reservation.setId(keys.getLong(1));
+                    }
+                }
+            }
+            ReservationViewWriter.refresh(cn, added.stream().map(Reservation::getId).collect(Collectors.toList()));
+            ChangeVersionDaoImpl.bump(cn, EntityType.RESERVATION, EntityChange.ANY_ID);
+            cn.commit();
+            return added;
+        } catch (SQLException e) {
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            if (cn != null) {
+                try {
+                    cn.setAutoCommit(true);
+                    cn.close();
+                } catch (SQLException ignored) {
+
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Optional<Reservation>> bookReservations(List<Reservation> bookings) throws DaoException {
+        return retry(() -> book(bookings));
+    }
+
+    /**
+     * Inserts the bookings in one batch and pays them in one transaction, dropping the ones their user cannot pay.
+     * The apartments are locked and checked again first, so a booking made meanwhile by another node or an admin
+     * reassignment drops the conflicting ones too.
+     *
+     * @param bookings the bookings
+     * @return the booked reservations, or empty where the apartment got taken or the user could not pay,
+     * in the same order
+     * @throws DaoException the dao exception
+     */
+    private List<Optional<Reservation>> book(List<Reservation> bookings) throws DaoException {
+        long[] ids = allocateIds(bookings.size());
+        boolean allocated = ids != null;
+        Connection cn = connect();
+        try (PreparedStatement psReserve = prepareInsert(cn, SqlQuery.SQL_RESERVE_APARTMENT,
+                SqlQuery.SQL_RESERVE_APARTMENT_WITH_ID, allocated);
+             PreparedStatement psDelete = cn.prepareStatement(SqlQuery.SQL_DELETE_RESERVATION)) {
+            cn.setAutoCommit(false);
+            lockApartments(cn, bookings.stream().map(booking -> booking.getApartment().getId()).collect(Collectors.toList()));
+            LocalDateTime orderTime = LocalDateTime.now().withNano(0);
+            List<Reservation> added = new ArrayList<>(bookings.size());
+            Map<Reservation, Reservation> copies = new IdentityHashMap<>();
+            for (int i = 0; i < bookings.size(); i++) {
+                Reservation booking = bookings.get(i);
+                if (!isAvailable(cn, booking.getApartment().getId(), booking.getCheckInDate(), booking.getCheckOutDate(), 0)) {
+                    continue;
+                }
+                Reservation copy = booking.clone();
+                copy.setOrderTime(orderTime);
+                copy.setStatus(Status.WAITING_FOR_APPROVE);
+                psReserve.setDate(1, Date.valueOf(copy.getCheckInDate()), Calendar.getInstance());
+                psReserve.setDate(2, Date.valueOf(copy.getCheckOutDate()), Calendar.getInstance());
+                psReserve.setTimestamp(3, Timestamp.valueOf(orderTime));
+                psReserve.setInt(4, copy.getPersonAmount());
+                psReserve.setBigDecimal(5, copy.getCostPerPerson());
+                psReserve.setBigDecimal(6, copy.getCostPerNight());
+                psReserve.setBigDecimal(7, copy.getTotalCost());
+                psReserve.setLong(8, copy.getUser().getId());
+                psReserve.setLong(9, copy.getApartment().getId());
+                psReserve.setLong(10, 1);
+                if (allocated) {
+                    copy.setId(ids[i]);
+                    psReserve.setLong(11, copy.getId());
+                }
+                psReserve.addBatch();
+                added.add(copy);
+                copies.put(booking, copy);
+            }
+            if (!added.isEmpty()) {
+                psReserve.executeBatch();
+            }
+            if (!allocated && !added.isEmpty()) {
+                try (ResultSet keys = psReserve.getGeneratedKeys()) {
+                    for (Reservation reservation : added) {
+                        keys.next();
+                        reservation.setId(keys.getLong(1));
+                    }
+                }
+            }
+
+            // Users are paid for in the order of their ids, so two batches never lock the same users in opposite orders.
+            List<Reservation> byUser = new ArrayList<>(added);
+            byUser.sort(Comparator.comparingLong(reservation -> reservation.getUser().getId()));
+            Set<Long> unpaid = new HashSet<>();
+            for (Reservation reservation : byUser) {
+                if (!BalanceLedgerDaoImpl.debit(cn, reservation.getUser().getId(), reservation.getTotalCost(), reservation.getId())) {
+                    unpaid.add(reservation.getId());
+                    psDelete.setLong(1, reservation.getId());
+                    psDelete.addBatch();
+                }
+            }
+            if (!unpaid.isEmpty()) {
+                psDelete.executeBatch();
+            }
+
+            List<Optional<Reservation>> result = new ArrayList<>(bookings.size());
+            List<Long> paid = new ArrayList<>(added.size());
+            Set<Long> users = new TreeSet<>();
+            for (Reservation booking : bookings) {
+                Reservation reservation = copies.get(booking);
+                if (reservation == null || unpaid.contains(reservation.getId())) {
+                    result.add(Optional.empty());
+                } else {
+                    result.add(Optional.of(reservation));
+                    paid.add(reservation.getId());
+                    users.add(reservation.getUser().getId());
+                }
             }
+            if (!paid.isEmpty()) {
+                ReservationViewWriter.refresh(cn, paid);
+                for (long id : paid) {
+                    ChangeVersionDaoImpl.bump(cn, EntityType.RESERVATION, id);
+                }
+                for (long userId : users) {
+                    ChangeVersionDaoImpl.bump(cn, EntityType.USER, userId);
+                }
+            }
+            cn.commit();
+            return result;
         } catch (SQLException e) {
             try {
                 cn.rollback();
             } catch (SQLException ignored) {
 
             }
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         } finally {
             if (cn != null) {
                 try {
@@ -87,6 +322,32 @@ public class ReservationDaoImpl implements ReservationDao {
         }
     }
 
+    @Override
+    public List<Reservation> findActiveStaysByApartmentClass(long apartmentClassId, LocalDate from, LocalDate to) throws DaoException {
+        try (Connection cn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_SELECT_ACTIVE_STAYS_BY_APARTMENT_CLASS)) {
+            ps.setLong(1, apartmentClassId);
+            ps.setDate(2, Date.valueOf(to), Calendar.getInstance());
+            ps.setDate(3, Date.valueOf(from), Calendar.getInstance());
+            ps.setString(4, Status.APPROVED.toString());
+            ps.setString(5, Status.WAITING_FOR_APPROVE.toString());
+            ResultSet resultSet = ps.executeQuery();
+            List<Reservation> stays = new ArrayList<>();
+            while (resultSet.next()) {
+                Reservation stay = new Reservation();
+                stay.setId(resultSet.getLong(1));
+                Apartment apartment = new Apartment();
+                apartment.setId(resultSet.getLong(2));
+                stay.setApartment(apartment);
+                stay.setCheckInDate(resultSet.getDate(3).toLocalDate());
+                stay.setCheckOutDate(resultSet.getDate(4).toLocalDate());
+                stays.add(stay);
+            }
+            return stays;
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
 
     @Override
     public boolean isApartmentAvailable(long apartmentId, LocalDate checkInDate, LocalDate checkOutDate) throws DaoException {
@@ -105,7 +366,7 @@ public class ReservationDaoImpl implements ReservationDao {
             ResultSet rs = ps.executeQuery();
             return !rs.next();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
@@ -115,44 +376,47 @@ public class ReservationDaoImpl implements ReservationDao {
             PreparedStatement ps = connection.prepareStatement(SqlQuery.SQL_SELECT_RESERVATION_BY_ID);
             ps.setLong(1, id);
             ResultSet resultSet = ps.executeQuery();
-            Optional<Reservation> reservationOptional = Optional.empty();
-            if (resultSet.next()) {
-                reservationOptional = Optional.of(getReservation(resultSet));
-            }
-            return reservationOptional;
+            return new ReservationRowMapper(SqlQuery.SQL_SELECT_RESERVATION_BY_ID, resultSet).mapFirst();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
     @Override
     public List<Reservation> readAllReservations() throws DaoException {
-        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+        try (Connection connection = ConnectionPool.getInstance(ConnectionPool.REPLICA).getConnection()) {
             Statement ps = connection.createStatement();
-            ResultSet resultSet = ps.executeQuery(SqlQuery.SQL_SELECT_ALL_RESERVATIONS);
-            ArrayList<Reservation> reservations = new ArrayList<>();
-            while (resultSet.next()) {
-                reservations.add(getReservation(resultSet));
-            }
-            return reservations;
+            ResultSet resultSet = ps.executeQuery(SqlQuery.SQL_SELECT_ALL_RESERVATION_VIEWS);
+            return new ReservationViewRowMapper(SqlQuery.SQL_SELECT_ALL_RESERVATION_VIEWS, resultSet).mapAll();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
     @Override
     public List<Reservation> readAllReservationsByStatus(Status status) throws DaoException {
         try (Connection connection = ConnectionPool.getInstance().getConnection()) {
-            PreparedStatement ps = connection.prepareStatement(SqlQuery.SQL_SELECT_ALL_RESERVATIONS_BY_STATUS);
-            ps.setString(1, status.toString());
+            PreparedStatement ps = connection.prepareStatement(SqlQuery.SQL_SELECT_RESERVATION_VIEWS_BY_STATUS);
+            ps.setString(1, status.name());
             ResultSet resultSet = ps.executeQuery();
-            ArrayList<Reservation> reservations = new ArrayList<>();
-            while (resultSet.next()) {
-                reservations.add(getReservation(resultSet));
-            }
-            return reservations;
+            return new ReservationViewRowMapper(SqlQuery.SQL_SELECT_RESERVATION_VIEWS_BY_STATUS, resultSet).mapAll();
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    @Override
+    public List<Reservation> searchReservations(ReservationQuery query) throws DaoException {
+        ReservationQuerySql compiled = ReservationQuerySql.compile(query);
+        // Read from the primary: the results are cached until the next write, and a lagging replica
+        // would keep the rows from before that write in the cache for the whole time to live.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(compiled.getSql())) {
+            compiled.setParameters(ps);
+            ResultSet resultSet = ps.executeQuery();
+            return new ReservationViewRowMapper(compiled.getSql(), resultSet).mapAll();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
@@ -162,61 +426,54 @@ public class ReservationDaoImpl implements ReservationDao {
             PreparedStatement ps = connection.prepareStatement(SqlQuery.SQL_SELECT_ALL_RESERVATIONS_BY_USER_ID);
             ps.setLong(1, userId);
             ResultSet resultSet = ps.executeQuery();
-            ArrayList<Reservation> reservations = new ArrayList<>();
-            while (resultSet.next()) {
-                reservations.add(getReservation(resultSet));
-            }
-            return reservations;
+            return new ReservationRowMapper(SqlQuery.SQL_SELECT_ALL_RESERVATIONS_BY_USER_ID, resultSet).mapAll();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
+    @Override
+    public boolean updateReservationApartmentAndStatus(Reservation reservation, Status status) throws DaoException {
+        return retry(() -> review(reservation, status));
+    }
+
     /**
-     * Gets the reservation.
+     * Updates the apartment and the status, refunding a declined or canceled reservation, in one transaction.
      *
-     * @param resultSet the result set
-     * @return the reservation
-     * @throws SQLException the SQL exception
+     * @param reservation the reservation
+     * @param status      the status
+     * @return true, if successful
+     * @throws DaoException the dao exception
      */
-    private Reservation getReservation(ResultSet resultSet) throws SQLException {
-        User user = new User(resultSet.getLong("id_user"), resultSet.getString("first_name"),
-                resultSet.getString("middle_name"), resultSet.getString("last_name"),
-                new BigDecimal(resultSet.getString("balance")), resultSet.getString("email"),
-                resultSet.getString("phone_number"), resultSet.getString("password"),
-                Role.valueOf(resultSet.getString("role").toUpperCase()),
-                resultSet.getInt("user_active") != 0);
-        Apartment apartment = new Apartment(resultSet.getLong("id_apartment"), resultSet.getString("number"),
-                resultSet.getInt("floor"),
-                new ApartmentClass(resultSet.getLong("id_apartment_class"), resultSet.getString("type"),
-                        resultSet.getInt("rooms_amount"), resultSet.getInt("max_capacity"),
-                        resultSet.getBigDecimal("apartment_cost_per_night"), resultSet.getBigDecimal("apartment_cost_per_person"),
-                        resultSet.getString("description"), resultSet.getString("image_path")), resultSet.getInt("apartment_active") != 0);
-        Status status = Status.valueOf(resultSet.getString("status").toUpperCase());
-        return new Reservation(resultSet.getLong("id_reservation"), resultSet.getDate("check_in_date").toLocalDate(),
-                resultSet.getDate("check_out_date").toLocalDate(), resultSet.getTimestamp("order_time").toLocalDateTime(),
-                resultSet.getInt("person_amount"), resultSet.getBigDecimal("reservation_cost_per_person"),
-                resultSet.getBigDecimal("reservation_cost_per_night"), resultSet.getBigDecimal("total_cost"), user, apartment, status);
-    }
-
-    @Override
-    public boolean updateReservationApartmentAndStatus(Reservation reservation, Status status) throws DaoException {
-        Connection cn = ConnectionPool.getInstance().getConnection();
-        try (PreparedStatement psUpdate = cn.prepareStatement(SqlQuery.SQL_UPDATE_RESERVATION_STATUS);
-             PreparedStatement psUpdateBalance = cn.prepareStatement(SqlQuery.SQL_DEPOSIT_MONEY)) {
+    private boolean review(Reservation reservation, Status status) throws DaoException {
+        Connection cn = connect();
+        try (PreparedStatement psUpdate = cn.prepareStatement(SqlQuery.SQL_UPDATE_RESERVATION_STATUS)) {
             cn.setAutoCommit(false);
             boolean result = true;
 
+            if (status.equals(Status.APPROVED) || status.equals(Status.WAITING_FOR_APPROVE)) {
+                // The apartment may have been booked on another node since the service checked it.
+                lockApartments(cn, Collections.singletonList(reservation.getApartment().getId()));
+                if (!isAvailable(cn, reservation.getApartment().getId(), reservation.getCheckInDate(),
+                        reservation.getCheckOutDate(), reservation.getId())) {
+                    cn.rollback();
+                    return false;
+                }
+            }
             if (status.equals(Status.DECLINED) || status.equals(Status.CANCELED)) {
-                psUpdateBalance.setBigDecimal(1, reservation.getTotalCost());
-                psUpdateBalance.setLong(2, reservation.getUser().getId());
-                result = psUpdateBalance.executeUpdate() != 0;
+                result = BalanceLedgerDaoImpl.credit(cn, reservation.getUser().getId(), reservation.getTotalCost(),
+                        LedgerReason.REFUND, reservation.getId());
             }
 
             psUpdate.setLong(1, reservation.getApartment().getId());
             psUpdate.setString(2, status.toString());
             psUpdate.setLong(3, reservation.getId());
             if (psUpdate.executeUpdate() != 0 && result) {
+                if (status.equals(Status.DECLINED) || status.equals(Status.CANCELED)) {
+                    ChangeVersionDaoImpl.bump(cn, EntityType.USER, reservation.getUser().getId());
+                }
+                ReservationViewWriter.refresh(cn, SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_ID, reservation.getId());
+                ChangeVersionDaoImpl.bump(cn, EntityType.RESERVATION, reservation.getId());
                 cn.commit();
                 return true;
             } else {
@@ -229,7 +486,7 @@ public class ReservationDaoImpl implements ReservationDao {
             } catch (SQLException ignored) {
 
             }
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         } finally {
             if (cn != null) {
                 try {
@@ -245,8 +502,20 @@ public class ReservationDaoImpl implements ReservationDao {
 
     @Override
     public boolean updateReservation(Reservation reservation) throws DaoException {
-        Connection cn = ConnectionPool.getInstance().getConnection();
+        return retry(() -> update(reservation));
+    }
+
+    /**
+     * Updates the reservation in one transaction.
+     *
+     * @param reservation the reservation
+     * @return true, if successful
+     * @throws DaoException the dao exception
+     */
+    private boolean update(Reservation reservation) throws DaoException {
+        Connection cn = connect();
         try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_UPDATE_RESERVATION)) {
+            cn.setAutoCommit(false);
             ps.setDate(1, Date.valueOf(reservation.getCheckInDate()), Calendar.getInstance());
             ps.setDate(2, Date.valueOf(reservation.getCheckOutDate()), Calendar.getInstance());
             ps.setTimestamp(3, Timestamp.valueOf(reservation.getOrderTime()));
@@ -258,21 +527,192 @@ public class ReservationDaoImpl implements ReservationDao {
             ps.setLong(9, reservation.getApartment().getId());
             ps.setString(10, reservation.getStatus().toString());
             ps.setLong(11, reservation.getId());
-            return ps.executeUpdate() != 0;
+            if (ps.executeUpdate() != 0) {
+                ReservationViewWriter.refresh(cn, SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_ID, reservation.getId());
+                ChangeVersionDaoImpl.bump(cn, EntityType.RESERVATION, reservation.getId());
+                cn.commit();
+                return true;
+            } else {
+                cn.rollback();
+                return false;
+            }
         } catch (SQLException e) {
-            throw new DaoException(e);
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            if (cn != null) {
+                try {
+                    cn.setAutoCommit(true);
+                    cn.close();
+                } catch (SQLException ignored) {
+
+                }
+            }
         }
     }
 
     @Override
     public boolean deleteReservation(long id) throws DaoException {
-        Connection cn = ConnectionPool.getInstance().getConnection();
+        return retry(() -> delete(id));
+    }
+
+    /**
+     * Deletes the reservation in one transaction.
+     *
+     * @param id the id
+     * @return true, if successful
+     * @throws DaoException the dao exception
+     */
+    private boolean delete(long id) throws DaoException {
+        Connection cn = connect();
         try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_DELETE_RESERVATION)) {
+            cn.setAutoCommit(false);
             ps.setLong(1, id);
-            return ps.executeUpdate() != 0;
+            if (ps.executeUpdate() != 0) {
+                ReservationViewWriter.delete(cn, id);
+                ChangeVersionDaoImpl.bump(cn, EntityType.RESERVATION, id);
+                cn.commit();
+                return true;
+            } else {
+                cn.rollback();
+                return false;
+            }
+        } catch (SQLException e) {
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            if (cn != null) {
+                try {
+                    cn.setAutoCommit(true);
+                    cn.close();
+                } catch (SQLException ignored) {
+
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether inserted reservations take their ids from the allocator.
+     *
+     * @return true, if ids are allocated
+     */
+    private boolean isIdAllocated() {
+        return idAllocator != null && idAllocator.isEnabled();
+    }
+
+    /**
+     * Takes ids for the inserted reservations from the allocator. Call it before borrowing the connection of
+     * the insert, since reserving a block borrows one too.
+     *
+     * @param count the amount of ids
+     * @return the ids, or null if the ids are not allocated
+     * @throws DaoException the dao exception
+     */
+    private long[] allocateIds(int count) throws DaoException {
+        if (!isIdAllocated()) {
+            return null;
+        }
+        try {
+            return idAllocator.nextIds(HiLoIdAllocator.RESERVATION, count);
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    /**
+     * Locks the apartments on the connection of the booking, in the order of their ids so two transactions never
+     * wait for each other, until the commit. Every transaction that puts a reservation on an apartment takes the
+     * lock first, so their availability checks and inserts run one after another on every node.
+     *
+     * @param cn           the connection
+     * @param apartmentIds the apartment ids
+     * @throws SQLException the SQL exception
+     */
+    private static void lockApartments(Connection cn, Collection<Long> apartmentIds) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_LOCK_APARTMENT)) {
+            for (long apartmentId : new TreeSet<>(apartmentIds)) {
+                ps.setLong(1, apartmentId);
+                ps.executeQuery().close();
+            }
+        }
+    }
+
+    /**
+     * Checks on the connection of the booking that no active reservation overlaps the stay.
+     *
+     * @param cn            the connection
+     * @param apartmentId   the apartment id
+     * @param checkInDate   the check in date
+     * @param checkOutDate  the check out date
+     * @param reservationId the reservation to ignore, or 0
+     * @return true, if available
+     * @throws SQLException the SQL exception
+     */
+    private static boolean isAvailable(Connection cn, long apartmentId, LocalDate checkInDate, LocalDate checkOutDate,
+                                       long reservationId) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_CHECK_AVAILABILITY_EXCEPT)) {
+            Date checkIn = Date.valueOf(checkInDate);
+            Date checkOut = Date.valueOf(checkOutDate);
+            ps.setDate(1, checkIn, Calendar.getInstance());
+            ps.setDate(2, checkOut, Calendar.getInstance());
+            ps.setDate(3, checkIn, Calendar.getInstance());
+            ps.setDate(4, checkOut, Calendar.getInstance());
+            ps.setLong(5, apartmentId);
+            ps.setString(6, Status.APPROVED.toString());
+            ps.setString(7, Status.WAITING_FOR_APPROVE.toString());
+            ps.setLong(8, reservationId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return !rs.next();
+            }
         }
     }
-}
 
+    /**
+     * Prepares a reservation insert.
+     *
+     * @param cn        the connection
+     * @param sql       the insert leaving the id to AUTO_INCREMENT
+     * @param sqlWithId the insert taking the id as its last parameter
+     * @param allocated whether the ids are allocated
+     * @return the prepared statement
+     * @throws SQLException the SQL exception
+     */
+    private PreparedStatement prepareInsert(Connection cn, String sql, String sqlWithId, boolean allocated) throws SQLException {
+        return allocated ? cn.prepareStatement(sqlWithId) : cn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    /**
+     * Runs the transaction through the retry policy, or once if there is none.
+     *
+     * @param transaction the transaction
+     * @param <T>         the result type
+     * @return the result
+     * @throws DaoException the dao exception
+     */
+    private <T> T retry(RetryPolicy.Transaction<T> transaction) throws DaoException {
+        return retryPolicy != null ? retryPolicy.execute(transaction) : transaction.run();
+    }
+
+    /**
+     * Gets a connection from the pool for a write that manages it by hand.
+     *
+     * @return the connection
+     * @throws DaoException if no connection got free in time
+     */
+    private static Connection connect() throws DaoException {
+        try {
+            return ConnectionPool.getInstance().getConnection();
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+}
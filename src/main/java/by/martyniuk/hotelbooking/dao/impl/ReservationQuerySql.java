@@ -0,0 +1,133 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
+import by.martyniuk.hotelbooking.entity.Status;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The Class ReservationQuerySql.
+ * <p>
+ * Compiles a reservation query into a parameterized select over the reservation view. Values always go
+ * into parameters and the sort column comes from a fixed list, so no request text reaches the SQL, and
+ * queries with the same filters set share one SQL text whatever their values.
+ */
+class ReservationQuerySql {
+
+    /**
+     * The sql.
+     */
+    private final String sql;
+
+    /**
+     * The parameters.
+     */
+    private final List<Object> parameters;
+
+    /**
+     * Instantiates a new reservation query sql.
+     *
+     * @param sql        the sql
+     * @param parameters the parameters
+     */
+    private ReservationQuerySql(String sql, List<Object> parameters) {
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * Compiles the query.
+     *
+     * @param query the query
+     * @return the compiled query
+     */
+    static ReservationQuerySql compile(ReservationQuery query) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        if (query.getFrom() != null) {
+            conditions.add("`check_out_date` > ?");
+            parameters.add(Date.valueOf(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            conditions.add("`check_in_date` < ?");
+            parameters.add(Date.valueOf(query.getTo()));
+        }
+        if (!query.getStatuses().isEmpty()) {
+            StringJoiner placeholders = new StringJoiner(", ", "`status` IN (", ")");
+            for (Status status : query.getStatuses()) {
+                placeholders.add("?");
+                parameters.add(status.name());
+            }
+            conditions.add(placeholders.toString());
+        }
+        if (query.getUserId() != null) {
+            conditions.add("`id_user` = ?");
+            parameters.add(query.getUserId());
+        }
+        if (query.getApartmentId() != null) {
+            conditions.add("`id_apartment` = ?");
+            parameters.add(query.getApartmentId());
+        }
+        if (query.getApartmentClassId() != null) {
+            conditions.add("`id_apartment_class` = ?");
+            parameters.add(query.getApartmentClassId());
+        }
+        if (query.getMinCost() != null) {
+            conditions.add("`total_cost` >= ?");
+            parameters.add(query.getMinCost());
+        }
+        if (query.getMaxCost() != null) {
+            conditions.add("`total_cost` <= ?");
+            parameters.add(query.getMaxCost());
+        }
+
+        StringBuilder sql = new StringBuilder(SqlQuery.SQL_SELECT_ALL_RESERVATION_VIEWS);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        String direction = query.isDescending() ? " DESC" : "";
+        sql.append(" ORDER BY `").append(query.getSortField().getColumn()).append('`').append(direction);
+        if (query.getSortField() != ReservationQuery.SortField.ID) {
+            sql.append(", `id_reservation`").append(direction);
+        }
+        sql.append(" LIMIT ?");
+        parameters.add(query.getLimit());
+        return new ReservationQuerySql(sql.toString(), parameters);
+    }
+
+    /**
+     * Gets the sql.
+     *
+     * @return the sql
+     */
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * Gets the parameters.
+     *
+     * @return the parameters
+     */
+    List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Sets the parameters on the statement prepared from the sql.
+     *
+     * @param ps the prepared statement
+     * @throws SQLException the SQL exception
+     */
+    void setParameters(PreparedStatement ps) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            ps.setObject(i + 1, parameters.get(i));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Status;
+import by.martyniuk.hotelbooking.entity.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The Class ReservationRowMapper.
+ * <p>
+ * Users, apartments and apartment classes repeated across the rows of one query are mapped once
+ * and shared between the reservations.
+ */
+class ReservationRowMapper extends RowMapper<Reservation> {
+
+    /**
+     * The column positions.
+     */
+    private static final int ID = 0, CHECK_IN_DATE = 1, CHECK_OUT_DATE = 2, ORDER_TIME = 3, PERSON_AMOUNT = 4,
+            COST_PER_PERSON = 5, COST_PER_NIGHT = 6, TOTAL_COST = 7, STATUS = 8;
+
+    /**
+     * The reservation columns of the reservation selects.
+     */
+    private static final ColumnIndex RESERVATION_COLUMNS = new ColumnIndex("id_reservation", "check_in_date",
+            "check_out_date", "order_time", "person_amount", "reservation_cost_per_person",
+            "reservation_cost_per_night", "total_cost", "status");
+
+    /**
+     * The statuses.
+     */
+    private static final Status[] STATUSES = Status.values();
+
+    /**
+     * The user mapper.
+     */
+    private final UserRowMapper userMapper;
+
+    /**
+     * The apartment mapper.
+     */
+    private final ApartmentRowMapper apartmentMapper;
+
+    /**
+     * The entities already mapped by the query.
+     */
+    private final EntityIdentityMap identityMap = new EntityIdentityMap();
+
+    /**
+     * Instantiates a new reservation row mapper.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @throws SQLException the SQL exception
+     */
+    ReservationRowMapper(String sql, ResultSet resultSet) throws SQLException {
+        super(resultSet, RESERVATION_COLUMNS.resolve(sql, resultSet));
+        userMapper = UserRowMapper.ofReservation(sql, resultSet);
+        apartmentMapper = ApartmentRowMapper.ofReservation(sql, resultSet);
+    }
+
+    @Override
+    Reservation mapRow() throws SQLException {
+        User user = identityMap.findUser(userMapper.id());
+        if (user == null) {
+            user = identityMap.putUser(userMapper.mapRow());
+        }
+        Apartment apartment = identityMap.findApartment(apartmentMapper.id());
+        if (apartment == null) {
+            ApartmentClassRowMapper apartmentClassMapper = apartmentMapper.apartmentClassMapper();
+            ApartmentClass apartmentClass = identityMap.findApartmentClass(apartmentClassMapper.id());
+            if (apartmentClass == null) {
+                apartmentClass = identityMap.putApartmentClass(apartmentClassMapper.mapRow());
+            }
+            apartment = identityMap.putApartment(apartmentMapper.mapRow(apartmentClass));
+        }
+        return new Reservation(resultSet.getLong(index[ID]), resultSet.getDate(index[CHECK_IN_DATE]).toLocalDate(),
+                resultSet.getDate(index[CHECK_OUT_DATE]).toLocalDate(),
+                resultSet.getTimestamp(index[ORDER_TIME]).toLocalDateTime(), resultSet.getInt(index[PERSON_AMOUNT]),
+                resultSet.getBigDecimal(index[COST_PER_PERSON]), resultSet.getBigDecimal(index[COST_PER_NIGHT]),
+                resultSet.getBigDecimal(index[TOTAL_COST]), user, apartment, toStatus(resultSet.getString(index[STATUS])));
+    }
+
+    /**
+     * Finds the status by its name, ignoring case.
+     *
+     * @param name the name
+     * @return the status
+     */
+    private static Status toStatus(String name) {
+        for (Status status : STATUSES) {
+            if (status.name().equalsIgnoreCase(name)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("No status " + name);
+    }
+}
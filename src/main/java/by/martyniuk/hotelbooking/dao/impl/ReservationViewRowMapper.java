@@ -0,0 +1,103 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Status;
+import by.martyniuk.hotelbooking.entity.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The Class ReservationViewRowMapper.
+ * <p>
+ * Maps rows of the reservation view. The view carries display columns only, so users, apartments
+ * and apartment classes are filled partially: ids, names, numbers and the class type.
+ */
+class ReservationViewRowMapper extends RowMapper<Reservation> {
+
+    /**
+     * The column positions.
+     */
+    private static final int ID = 0, CHECK_IN_DATE = 1, CHECK_OUT_DATE = 2, ORDER_TIME = 3, PERSON_AMOUNT = 4,
+            COST_PER_PERSON = 5, COST_PER_NIGHT = 6, TOTAL_COST = 7, STATUS = 8, USER_ID = 9, FIRST_NAME = 10,
+            LAST_NAME = 11, EMAIL = 12, APARTMENT_ID = 13, NUMBER = 14, FLOOR = 15, APARTMENT_CLASS_ID = 16, TYPE = 17;
+
+    /**
+     * The columns of the reservation view.
+     */
+    private static final ColumnIndex VIEW_COLUMNS = new ColumnIndex("id_reservation", "check_in_date",
+            "check_out_date", "order_time", "person_amount", "cost_per_person", "cost_per_night", "total_cost",
+            "status", "id_user", "first_name", "last_name", "email", "id_apartment", "number", "floor",
+            "id_apartment_class", "type");
+
+    /**
+     * The statuses.
+     */
+    private static final Status[] STATUSES = Status.values();
+
+    /**
+     * The entities already mapped by the query.
+     */
+    private final EntityIdentityMap identityMap = new EntityIdentityMap();
+
+    /**
+     * Instantiates a new reservation view row mapper.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @throws SQLException the SQL exception
+     */
+    ReservationViewRowMapper(String sql, ResultSet resultSet) throws SQLException {
+        super(resultSet, VIEW_COLUMNS.resolve(sql, resultSet));
+    }
+
+    @Override
+    Reservation mapRow() throws SQLException {
+        long userId = resultSet.getLong(index[USER_ID]);
+        User user = identityMap.findUser(userId);
+        if (user == null) {
+            user = new User();
+            user.setId(userId);
+            user.setFirstName(resultSet.getString(index[FIRST_NAME]));
+            user.setLastName(resultSet.getString(index[LAST_NAME]));
+            user.setEmail(resultSet.getString(index[EMAIL]));
+            identityMap.putUser(user);
+        }
+        long apartmentId = resultSet.getLong(index[APARTMENT_ID]);
+        Apartment apartment = identityMap.findApartment(apartmentId);
+        if (apartment == null) {
+            long apartmentClassId = resultSet.getLong(index[APARTMENT_CLASS_ID]);
+            ApartmentClass apartmentClass = identityMap.findApartmentClass(apartmentClassId);
+            if (apartmentClass == null) {
+                apartmentClass = new ApartmentClass();
+                apartmentClass.setId(apartmentClassId);
+                apartmentClass.setType(resultSet.getString(index[TYPE]));
+                identityMap.putApartmentClass(apartmentClass);
+            }
+            apartment = identityMap.putApartment(new Apartment(apartmentId, resultSet.getString(index[NUMBER]),
+                    resultSet.getInt(index[FLOOR]), apartmentClass, true));
+        }
+        return new Reservation(resultSet.getLong(index[ID]), resultSet.getDate(index[CHECK_IN_DATE]).toLocalDate(),
+                resultSet.getDate(index[CHECK_OUT_DATE]).toLocalDate(),
+                resultSet.getTimestamp(index[ORDER_TIME]).toLocalDateTime(), resultSet.getInt(index[PERSON_AMOUNT]),
+                resultSet.getBigDecimal(index[COST_PER_PERSON]), resultSet.getBigDecimal(index[COST_PER_NIGHT]),
+                resultSet.getBigDecimal(index[TOTAL_COST]), user, apartment, toStatus(resultSet.getString(index[STATUS])));
+    }
+
+    /**
+     * Finds the status by its name, ignoring case.
+     *
+     * @param name the name
+     * @return the status
+     */
+    private static Status toStatus(String name) {
+        for (Status status : STATUSES) {
+            if (status.name().equalsIgnoreCase(name)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("No status " + name);
+    }
+}
@@ -0,0 +1,67 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * The Class ReservationViewWriter.
+ * <p>
+ * Keeps the denormalized reservation view in step with the tables it is built from.
+ * Every method runs on the connection of the write, so the view commits together with it.
+ */
+class ReservationViewWriter {
+
+    /**
+     * Instantiates a new reservation view writer.
+     */
+    private ReservationViewWriter() {
+    }
+
+    /**
+     * Rebuilds the view rows selected by the query.
+     *
+     * @param cn  the connection
+     * @param sql one of the reservation view refresh queries
+     * @param id  the id the query filters by
+     * @throws SQLException the SQL exception
+     */
+    static void refresh(Connection cn, String sql, long id) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Rebuilds the view rows of the reservations in one batch.
+     *
+     * @param cn             the connection
+     * @param reservationIds the reservation ids
+     * @throws SQLException the SQL exception
+     */
+    static void refresh(Connection cn, List<Long> reservationIds) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_ID)) {
+            for (long id : reservationIds) {
+                ps.setLong(1, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Deletes the view row of the reservation.
+     *
+     * @param cn            the connection
+     * @param reservationId the reservation id
+     * @throws SQLException the SQL exception
+     */
+    static void delete(Connection cn, long reservationId) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_DELETE_FROM_RESERVATION_VIEW)) {
+            ps.setLong(1, reservationId);
+            ps.executeUpdate();
+        }
+    }
+}
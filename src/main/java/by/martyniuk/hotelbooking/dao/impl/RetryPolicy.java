@@ -0,0 +1,202 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class RetryPolicy.
+ * <p>
+ * Runs a whole transaction again when InnoDB rolled it back because of a deadlock or a lock wait timeout,
+ * which a second attempt usually gets through. Attempts are spaced by an exponential backoff with full
+ * jitter, so the transactions that collided do not collide again. The transaction must roll back
+ * everything it did before throwing.
+ */
+@Component
+public class RetryPolicy {
+
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(RetryPolicy.class);
+
+    /**
+     * The SQL state of a serialization failure, reported for deadlocks.
+     */
+    static final String SERIALIZATION_FAILURE_STATE = "40001";
+
+    /**
+     * The MySQL error of a deadlock.
+     */
+    static final int ER_LOCK_DEADLOCK = 1213;
+
+    /**
+     * The max attempts, the first one included.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * The backoff before the second attempt in milliseconds.
+     */
+    private long initialBackoffMillis = 20;
+
+    /**
+     * The max backoff in milliseconds.
+     */
+    private long maxBackoffMillis = 500;
+
+    /**
+     * The retries made.
+     */
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * The transactions that succeeded after a retry.
+     */
+    private final LongAdder recovered = new LongAdder();
+
+    /**
+     * The transactions that failed on every attempt.
+     */
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * Sets the retry settings.
+     *
+     * @param maxAttempts          the max attempts, the first one included
+     * @param initialBackoffMillis the backoff before the second attempt in milliseconds
+     * @param maxBackoffMillis     the max backoff in milliseconds
+     */
+    @Autowired
+    public void setRetrySettings(@Value("${retry.max.attempts:3}") int maxAttempts,
+                                 @Value("${retry.backoff.initial.millis:20}") long initialBackoffMillis,
+                                 @Value("${retry.backoff.max.millis:500}") long maxBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Runs the transaction, again after a backoff while it fails on a transient conflict.
+     *
+     * @param transaction the transaction
+     * @param <T>         the result type
+     * @return the result
+     * @throws DaoException the exception of the last attempt
+     */
+    public <T> T execute(Transaction<T> transaction) throws DaoException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transaction.run();
+                if (attempt > 1) {
+                    recovered.increment();
+                }
+                return result;
+            } catch (DaoException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    LOGGER.log(Level.WARN, "Transaction failed after " + attempt + " attempts", e);
+                    throw e;
+                }
+                retries.increment();
+                try {
+                    sleep(backoff(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the failure is a deadlock or a lock wait timeout.
+     *
+     * @param e the exception
+     * @return true, if retryable
+     */
+    static boolean isRetryable(DaoException e) {
+        if (!(e.getCause() instanceof SQLException)) {
+            return false;
+        }
+        SQLException cause = (SQLException) e.getCause();
+        return SERIALIZATION_FAILURE_STATE.equals(cause.getSQLState()) || cause.getErrorCode() == ER_LOCK_DEADLOCK
+                || cause.getErrorCode() == SqlExceptionTranslator.ER_LOCK_WAIT_TIMEOUT;
+    }
+
+    /**
+     * Gets a random backoff up to the exponential bound of the attempt.
+     *
+     * @param attempt the failed attempt, from 1
+     * @return the backoff in milliseconds
+     */
+    long backoff(int attempt) {
+        long bound = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Waits before the next attempt.
+     *
+     * @param millis the milliseconds
+     * @throws InterruptedException the interrupted exception
+     */
+    void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    /**
+     * Gets the amount of retries made.
+     *
+     * @return the retry count
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Gets the amount of transactions that succeeded after a retry.
+     *
+     * @return the recovered count
+     */
+    public long getRecoveredCount() {
+        return recovered.sum();
+    }
+
+    /**
+     * Gets the amount of transactions that failed on every attempt.
+     *
+     * @return the exhausted count
+     */
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    /**
+     * The Interface Transaction.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface Transaction<T> {
+
+        /**
+         * Runs the transaction.
+         *
+         * @return the result
+         * @throws DaoException the dao exception
+         */
+        T run() throws DaoException;
+    }
+}
@@ -0,0 +1,70 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The Class RowMapper.
+ * <p>
+ * Maps the rows of one result set to entities, reading the columns by the indexes resolved for the query.
+ *
+ * @param <T> the entity type
+ */
+abstract class RowMapper<T> {
+
+    /**
+     * The result set.
+     */
+    final ResultSet resultSet;
+
+    /**
+     * The column indexes.
+     */
+    final int[] index;
+
+    /**
+     * Instantiates a new row mapper.
+     *
+     * @param resultSet the result set
+     * @param index     the column indexes
+     */
+    RowMapper(ResultSet resultSet, int[] index) {
+        this.resultSet = resultSet;
+        this.index = index;
+    }
+
+    /**
+     * Maps the current row.
+     *
+     * @return the entity
+     * @throws SQLException the SQL exception
+     */
+    abstract T mapRow() throws SQLException;
+
+    /**
+     * Maps the next row, if any.
+     *
+     * @return the optional
+     * @throws SQLException the SQL exception
+     */
+    Optional<T> mapFirst() throws SQLException {
+        return resultSet.next() ? Optional.of(mapRow()) : Optional.empty();
+    }
+
+    /**
+     * Maps all remaining rows.
+     *
+     * @return the list
+     * @throws SQLException the SQL exception
+     */
+    List<T> mapAll() throws SQLException {
+        List<T> entities = new ArrayList<>();
+        while (resultSet.next()) {
+            entities.add(mapRow());
+        }
+        return entities;
+    }
+}
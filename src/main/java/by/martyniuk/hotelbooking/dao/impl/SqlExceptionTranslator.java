@@ -0,0 +1,67 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.exception.ConnectionUnavailableException;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import by.martyniuk.hotelbooking.exception.QueryCancelledException;
+import by.martyniuk.hotelbooking.exception.QueryTimeoutException;
+import com.mysql.cj.jdbc.exceptions.MySQLStatementCancelledException;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * The Class SqlExceptionTranslator.
+ * <p>
+ * Turns SQL exceptions into dao exceptions, with a subtype for timeouts, cancellations and missing
+ * connections, so the callers can tell a slow database from a failed statement.
+ */
+final class SqlExceptionTranslator {
+
+    /**
+     * The MySQL error of a lock wait timeout.
+     */
+    static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    /**
+     * The MySQL error of a query killed or cancelled on the server.
+     */
+    static final int ER_QUERY_INTERRUPTED = 1317;
+
+    /**
+     * The MySQL error of a query over its max execution time.
+     */
+    static final int ER_QUERY_TIMEOUT = 3024;
+
+    /**
+     * The SQL state class of connection errors.
+     */
+    private static final String CONNECTION_STATE_CLASS = "08";
+
+    /**
+     * Instantiates a new SQL exception translator.
+     */
+    private SqlExceptionTranslator() {
+    }
+
+    /**
+     * Translates the exception.
+     *
+     * @param e the exception
+     * @return the dao exception
+     */
+    static DaoException translate(SQLException e) {
+        if (e instanceof SQLTimeoutException || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                || e.getErrorCode() == ER_QUERY_TIMEOUT) {
+            return new QueryTimeoutException(e);
+        }
+        if (e instanceof MySQLStatementCancelledException || e.getErrorCode() == ER_QUERY_INTERRUPTED) {
+            return new QueryCancelledException(e);
+        }
+        if (e instanceof SQLTransientConnectionException
+                || (e.getSQLState() != null && e.getSQLState().startsWith(CONNECTION_STATE_CLASS))) {
+            return new ConnectionUnavailableException(e);
+        }
+        return new DaoException(e);
+    }
+}
@@ -5,6 +5,13 @@ package by.martyniuk.hotelbooking.dao.impl;
  */
 class SqlQuery {
 
+    /**
+     * The available balance of the selected user: the compacted balance plus the ledger entries written after it.
+     */
+    private static final String AVAILABLE_BALANCE = "(`user`.`balance` + COALESCE((SELECT SUM(`balance_ledger`.`amount`) " +
+            "FROM `balance_ledger` WHERE `balance_ledger`.`user_id_fk` = `user`.`id_user` " +
+            "AND `balance_ledger`.`id_entry` > `user`.`ledger_position`), 0)) AS `balance`";
+
     /**
      * The Constant SQL_SELECT_ALL_APARTMENTS_CLASSES.
      */
@@ -60,6 +67,11 @@ class SqlQuery {
      */
     static final String SQL_INSERT_APARTMENT = "INSERT INTO `apartment` (`number`,`floor`, `apartment_class_id_fk`, `active`) VALUES (?,?,?,1)";
 
+    /**
+     * The Constant SQL_INSERT_APARTMENT_WITH_ID.
+     */
+    static final String SQL_INSERT_APARTMENT_WITH_ID = "INSERT INTO `apartment` (`number`,`floor`, `apartment_class_id_fk`, `active`, `id_apartment`) VALUES (?,?,?,1,?)";
+
     /**
      * The Constant SQL_UPDATE_APARTMENT.
      */
@@ -80,6 +92,29 @@ class SqlQuery {
             "`order_time`, `person_amount`, `cost_per_person`, `cost_per_night`, `total_cost`, `user_id_fk`, " +
             "`apartment_id_fk`, `status_id_fk`) VALUES (?,?,?,?,?,?,?,?,?,?)";
 
+    /**
+     * The Constant SQL_RESERVE_APARTMENT_WITH_ID.
+     */
+    static final String SQL_RESERVE_APARTMENT_WITH_ID = "INSERT INTO `reservation` (`check_in_date`, `check_out_date`, " +
+            "`order_time`, `person_amount`, `cost_per_person`, `cost_per_night`, `total_cost`, `user_id_fk`, " +
+            "`apartment_id_fk`, `status_id_fk`, `id_reservation`) VALUES (?,?,?,?,?,?,?,?,?,?,?)";
+
+    /**
+     * The Constant SQL_IMPORT_RESERVATION.
+     */
+    static final String SQL_IMPORT_RESERVATION = "INSERT INTO `reservation` (`check_in_date`, `check_out_date`, " +
+            "`order_time`, `person_amount`, `cost_per_person`, `cost_per_night`, `total_cost`, `user_id_fk`, " +
+            "`apartment_id_fk`, `status_id_fk`) VALUES (?,?,?,?,?,?,?,?,?," +
+            "(SELECT `id_status` FROM `status` WHERE UPPER(`status`) = UPPER(?)))";
+
+    /**
+     * The Constant SQL_IMPORT_RESERVATION_WITH_ID.
+     */
+    static final String SQL_IMPORT_RESERVATION_WITH_ID = "INSERT INTO `reservation` (`check_in_date`, `check_out_date`, " +
+            "`order_time`, `person_amount`, `cost_per_person`, `cost_per_night`, `total_cost`, `user_id_fk`, " +
+            "`apartment_id_fk`, `status_id_fk`, `id_reservation`) VALUES (?,?,?,?,?,?,?,?,?," +
+            "(SELECT `id_status` FROM `status` WHERE UPPER(`status`) = UPPER(?)),?)";
+
     /**
      * The Constant SQL_CHECK_AVAILABILITY.
      */
@@ -91,43 +126,20 @@ class SqlQuery {
             "OR (`status_id_fk` = (SELECT `id_status` FROM `status` WHERE UPPER(`status`) LIKE UPPER(?))))";
 
     /**
-     * The Constant SQL_SELECT_ALL_RESERVATIONS.
+     * The Constant SQL_CHECK_AVAILABILITY_EXCEPT, the availability check ignoring one reservation.
      */
-    static final String SQL_SELECT_ALL_RESERVATIONS = "SELECT `id_reservation`, `check_in_date`, `check_out_date`, `order_time`," +
-            " `person_amount`, `id_user`, `first_name`, `middle_name`, `last_name`, `balance`," +
-            " `email`, `phone_number`, `password`, `role`,  `user`.`active` AS `user_active`, `apartment`.`active` AS `apartment_active`, `id_apartment`, `number`, `floor`, " +
-            " `id_apartment_class`, `type`, `rooms_amount`, `max_capacity`, `reservation`.`cost_per_night` AS `reservation_cost_per_night`, " +
-            " `reservation`.`cost_per_person` AS `reservation_cost_per_person`, " +
-            " `description`, `image_path`, `id_status`, `status`, `total_cost`, `apartment_class`.`cost_per_night` AS `apartment_cost_per_night`, " +
-            " `apartment_class`.`cost_per_person` AS `apartment_cost_per_person` " +
-            "FROM `reservation` " +
-            "LEFT JOIN (`user` LEFT JOIN `role` ON `role`.`id_role` = `user`.`role_id_fk`) ON `user`.`id_user` = `reservation`.`user_id_fk` " +
-            "LEFT JOIN (`apartment` LEFT JOIN `apartment_class` ON `apartment_class`.`id_apartment_class` = `apartment`.`apartment_class_id_fk`) " +
-            "ON `apartment`.`id_apartment` = `reservation`.`apartment_id_fk` " +
-            "LEFT JOIN `status` ON `status`.`id_status` = `reservation`.`status_id_fk`";
+    static final String SQL_CHECK_AVAILABILITY_EXCEPT = SQL_CHECK_AVAILABILITY + " AND `id_reservation` <> ?";
 
     /**
-     * The Constant SQL_SELECT_ALL_RESERVATIONS_BY_STATUS.
+     * The Constant SQL_LOCK_APARTMENT.
      */
-    static final String SQL_SELECT_ALL_RESERVATIONS_BY_STATUS = "SELECT `id_reservation`, `check_in_date`, `check_out_date`, `order_time`," +
-            " `person_amount`, `id_user`, `first_name`, `middle_name`, `last_name`, `balance`," +
-            " `email`, `phone_number`, `password`, `role`,  `user`.`active` AS `user_active`, `apartment`.`active` AS `apartment_active`, `id_apartment`, `number`, `floor`, " +
-            " `id_apartment_class`, `type`, `rooms_amount`, `max_capacity`, `reservation`.`cost_per_night` AS `reservation_cost_per_night`, " +
-            " `reservation`.`cost_per_person` AS `reservation_cost_per_person`, " +
-            " `description`, `image_path`, `id_status`, `status`, `total_cost`, `apartment_class`.`cost_per_night` AS `apartment_cost_per_night`, " +
-            " `apartment_class`.`cost_per_person` AS `apartment_cost_per_person` " +
-            "FROM `reservation` " +
-            "LEFT JOIN (`user` LEFT JOIN `role` ON `role`.`id_role` = `user`.`role_id_fk`) ON `user`.`id_user` = `reservation`.`user_id_fk` " +
-            "LEFT JOIN (`apartment` LEFT JOIN `apartment_class` ON `apartment_class`.`id_apartment_class` = `apartment`.`apartment_class_id_fk`) " +
-            "ON `apartment`.`id_apartment` = `reservation`.`apartment_id_fk` " +
-            "LEFT JOIN `status` ON `status`.`id_status` = `reservation`.`status_id_fk`" +
-            "WHERE UPPER(`status`) LIKE UPPER(?)";
+    static final String SQL_LOCK_APARTMENT = "SELECT `id_apartment` FROM `apartment` WHERE `id_apartment` = ? FOR UPDATE";
 
     /**
      * The Constant SQL_SELECT_ALL_RESERVATIONS_BY_USER_ID.
      */
     static final String SQL_SELECT_ALL_RESERVATIONS_BY_USER_ID = "SELECT `id_reservation`, `check_in_date`, `check_out_date`, `order_time`," +
-            " `person_amount`, `id_user`, `first_name`, `middle_name`, `last_name`, `balance`," +
+            " `person_amount`, `id_user`, `first_name`, `middle_name`, `last_name`, " + AVAILABLE_BALANCE + "," +
             " `email`, `phone_number`, `password`, `role`,  `user`.`active` AS `user_active`, `apartment`.`active` AS `apartment_active`, `id_apartment`, `number`, `floor`," +
             " `id_apartment_class`, `type`, `rooms_amount`, `max_capacity`, `reservation`.`cost_per_night` AS `reservation_cost_per_night`, " +
             " `reservation`.`cost_per_person` AS `reservation_cost_per_person`, " +
@@ -144,7 +156,7 @@ class SqlQuery {
      * The Constant SQL_SELECT_RESERVATION_BY_ID.
      */
     static final String SQL_SELECT_RESERVATION_BY_ID = "SELECT `id_reservation`, `check_in_date`, `check_out_date`, `order_time`," +
-            " `person_amount`, `id_user`, `first_name`, `middle_name`, `last_name`, `balance`," +
+            " `person_amount`, `id_user`, `first_name`, `middle_name`, `last_name`, " + AVAILABLE_BALANCE + "," +
             " `email`, `phone_number`, `password`, `role`,  `user`.`active` AS `user_active`, `apartment`.`active` AS `apartment_active`, `id_apartment`, `number`, `floor`," +
             " `id_apartment_class`, `type`, `rooms_amount`, `max_capacity`, `reservation`.`cost_per_night` AS `reservation_cost_per_night`, " +
             " `reservation`.`cost_per_person` AS `reservation_cost_per_person`, " +
@@ -157,6 +169,16 @@ class SqlQuery {
             "LEFT JOIN `status` ON `status`.`id_status` = `reservation`.`status_id_fk`" +
             "WHERE `id_reservation` = ?";
 
+    /**
+     * The Constant SQL_SELECT_ACTIVE_STAYS_BY_APARTMENT_CLASS.
+     */
+    static final String SQL_SELECT_ACTIVE_STAYS_BY_APARTMENT_CLASS = "SELECT `id_reservation`, `apartment_id_fk`, " +
+            "`check_in_date`, `check_out_date` FROM `reservation` " +
+            "JOIN `apartment` ON `apartment`.`id_apartment` = `reservation`.`apartment_id_fk` " +
+            "JOIN `status` ON `status`.`id_status` = `reservation`.`status_id_fk` " +
+            "WHERE `apartment`.`apartment_class_id_fk` = ? AND `check_in_date` < ? AND `check_out_date` > ? " +
+            "AND (UPPER(`status`.`status`) = UPPER(?) OR UPPER(`status`.`status`) = UPPER(?))";
+
     /**
      * The Constant SQL_UPDATE_RESERVATION_STATUS.
      */
@@ -165,34 +187,93 @@ class SqlQuery {
             " WHERE `id_reservation` = ?";
 
     static final String SQL_UPDATE_RESERVATION = "UPDATE `reservation` SET `check_in_date` = ?, `check_out_date` = ?," +
-            " `order_time` = ?, `order_time` = ?, `person_amount` = ?, `cost_per_person` = ?, cost_per_night = ?," +
+            " `order_time` = ?, `person_amount` = ?, `cost_per_person` = ?, cost_per_night = ?," +
             " `total_cost` = ?, `user_id_fk` = ?, `apartment_id_fk` = ?, " +
             " `status_id_fk` = (SELECT `id_status` FROM `status` WHERE UPPER(`status`) LIKE UPPER(?)) " +
             " WHERE `id_reservation` = ?";
 
     static final String SQL_DELETE_RESERVATION = "DELETE FROM `reservation` WHERE `id_reservation` = ?";
 
+    /**
+     * The Constant SQL_REFRESH_RESERVATION_VIEW, completed by one of the WHERE clauses below.
+     */
+    private static final String SQL_REFRESH_RESERVATION_VIEW = "REPLACE INTO `reservation_view` (`id_reservation`," +
+            " `check_in_date`, `check_out_date`, `order_time`, `person_amount`, `cost_per_person`, `cost_per_night`," +
+            " `total_cost`, `status`, `id_user`, `first_name`, `last_name`, `email`, `id_apartment`, `number`, `floor`," +
+            " `id_apartment_class`, `type`) " +
+            "SELECT `id_reservation`, `check_in_date`, `check_out_date`, `order_time`, `person_amount`," +
+            " `reservation`.`cost_per_person`, `reservation`.`cost_per_night`, `total_cost`, UPPER(`status`), `id_user`," +
+            " `first_name`, `last_name`, `email`, `id_apartment`, `number`, `floor`, `id_apartment_class`, `type` " +
+            "FROM `reservation` " +
+            "JOIN `user` ON `user`.`id_user` = `reservation`.`user_id_fk` " +
+            "JOIN `apartment` ON `apartment`.`id_apartment` = `reservation`.`apartment_id_fk` " +
+            "JOIN `apartment_class` ON `apartment_class`.`id_apartment_class` = `apartment`.`apartment_class_id_fk` " +
+            "JOIN `status` ON `status`.`id_status` = `reservation`.`status_id_fk` ";
+
+    /**
+     * The Constant SQL_REFRESH_RESERVATION_VIEW_BY_ID.
+     */
+    static final String SQL_REFRESH_RESERVATION_VIEW_BY_ID = SQL_REFRESH_RESERVATION_VIEW +
+            "WHERE `id_reservation` = ?";
+
+    /**
+     * The Constant SQL_REFRESH_RESERVATION_VIEW_BY_USER_ID.
+     */
+    static final String SQL_REFRESH_RESERVATION_VIEW_BY_USER_ID = SQL_REFRESH_RESERVATION_VIEW +
+            "WHERE `reservation`.`user_id_fk` = ?";
+
+    /**
+     * The Constant SQL_REFRESH_RESERVATION_VIEW_BY_APARTMENT_ID.
+     */
+    static final String SQL_REFRESH_RESERVATION_VIEW_BY_APARTMENT_ID = SQL_REFRESH_RESERVATION_VIEW +
+            "WHERE `reservation`.`apartment_id_fk` = ?";
+
+    /**
+     * The Constant SQL_REFRESH_RESERVATION_VIEW_BY_APARTMENT_CLASS_ID.
+     */
+    static final String SQL_REFRESH_RESERVATION_VIEW_BY_APARTMENT_CLASS_ID = SQL_REFRESH_RESERVATION_VIEW +
+            "WHERE `apartment`.`apartment_class_id_fk` = ?";
+
+    /**
+     * The Constant SQL_DELETE_FROM_RESERVATION_VIEW.
+     */
+    static final String SQL_DELETE_FROM_RESERVATION_VIEW = "DELETE FROM `reservation_view` WHERE `id_reservation` = ?";
+
+    /**
+     * The Constant SQL_SELECT_ALL_RESERVATION_VIEWS.
+     */
+    static final String SQL_SELECT_ALL_RESERVATION_VIEWS = "SELECT `id_reservation`, `check_in_date`, `check_out_date`," +
+            " `order_time`, `person_amount`, `cost_per_person`, `cost_per_night`, `total_cost`, `status`, `id_user`," +
+            " `first_name`, `last_name`, `email`, `id_apartment`, `number`, `floor`, `id_apartment_class`, `type` " +
+            "FROM `reservation_view`";
+
+    /**
+     * The Constant SQL_SELECT_RESERVATION_VIEWS_BY_STATUS.
+     */
+    static final String SQL_SELECT_RESERVATION_VIEWS_BY_STATUS = SQL_SELECT_ALL_RESERVATION_VIEWS +
+            " WHERE `status` = ? ORDER BY `check_in_date`";
+
     //---------------
 
 
     /**
      * The Constant SQL_SELECT_ALL_USERS.
      */
-    static final String SQL_SELECT_ALL_USERS = "SELECT `id_user`, `first_name`, `middle_name`, `last_name`, `balance`, `email`, " +
+    static final String SQL_SELECT_ALL_USERS = "SELECT `id_user`, `first_name`, `middle_name`, `last_name`, " + AVAILABLE_BALANCE + ", `email`, " +
             "`phone_number`, `password`, `role`, `active` FROM `user` LEFT JOIN `role` " +
             "ON `role`.`id_role` = `user`.`role_id_fk`";
 
     /**
      * The Constant SQL_FIND_USER_BY_ID.
      */
-    static final String SQL_FIND_USER_BY_ID = "SELECT `id_user`, `first_name`, `middle_name`, `last_name`, `balance`, `email`, " +
+    static final String SQL_FIND_USER_BY_ID = "SELECT `id_user`, `first_name`, `middle_name`, `last_name`, " + AVAILABLE_BALANCE + ", `email`, " +
             "`phone_number`, `password`, `role`, `active` FROM `user` LEFT JOIN `role` " +
             "ON `role`.`id_role` = `user`.`role_id_fk` WHERE `user`.`id_user` = ?";
 
     /**
      * The Constant SQL_FIND_USER_BY_MAIL.
      */
-    static final String SQL_FIND_USER_BY_MAIL = "SELECT `id_user`, `first_name`, `middle_name`, `last_name`, `balance`, `email`, " +
+    static final String SQL_FIND_USER_BY_MAIL = "SELECT `id_user`, `first_name`, `middle_name`, `last_name`, " + AVAILABLE_BALANCE + ", `email`, " +
             "`phone_number`, `password`, `role`, `active` FROM `user` LEFT JOIN `role` " +
             "ON `role`.`id_role` = `user`.`role_id_fk` WHERE `user`.`email`	= ?  AND `active` = 1";
 
@@ -210,7 +291,7 @@ class SqlQuery {
             "`role_id_fk` = (SELECT `id_role` FROM `role` WHERE UPPER(`role`) LIKE UPPER(?)) WHERE `id_user` = ?";
 
     static final String SQL_UPDATE_USER = "UPDATE `user` SET `first_name` = ?, `middle_name` = ?, `last_name` = ?, " +
-            "`email` = ?, `phone_number` = ?, `password` = ?, `balance` = ?, `active` = ?, " +
+            "`email` = ?, `phone_number` = ?, `password` = ?, `active` = ?, " +
             "`role_id_fk` = (SELECT `id_role` FROM `role` WHERE UPPER(`role`) LIKE UPPER(?)) WHERE `id_user` = ?";
 
     /**
@@ -220,18 +301,95 @@ class SqlQuery {
 
 
     /**
-     * The Constant SQL_DEPOSIT_MONEY.
+     * The Constant SQL_LOCK_USER_BALANCE, which makes the balance checks of one user wait for each other.
+     */
+    static final String SQL_LOCK_USER_BALANCE = "SELECT `ledger_position` FROM `user` WHERE `id_user` = ? FOR UPDATE";
+
+    /**
+     * The Constant SQL_INSERT_LEDGER_ENTRY.
+     */
+    static final String SQL_INSERT_LEDGER_ENTRY = "INSERT INTO `balance_ledger` (`user_id_fk`, `amount`, `reason`, " +
+            "`reservation_id_fk`, `created_at`) SELECT `id_user`, ?, ?, ?, NOW(3) FROM `user` WHERE `id_user` = ?";
+
+    /**
+     * The Constant SQL_INSERT_GUARDED_DEBIT, which writes the debit only if the available balance covers it.
+     */
+    static final String SQL_INSERT_GUARDED_DEBIT = SQL_INSERT_LEDGER_ENTRY + " AND `balance` + " +
+            "COALESCE((SELECT SUM(`amount`) FROM `balance_ledger` WHERE `user_id_fk` = ? AND `id_entry` > `ledger_position`), 0) >= ?";
+
+    /**
+     * The Constant SQL_INSERT_BALANCE_ADJUSTMENT, which writes the difference between the set and the available balance.
+     */
+    static final String SQL_INSERT_BALANCE_ADJUSTMENT = "INSERT INTO `balance_ledger` (`user_id_fk`, `amount`, `reason`, " +
+            "`reservation_id_fk`, `created_at`) SELECT `id_user`, ? - `available`, 'ADJUSTMENT', NULL, NOW(3) FROM " +
+            "(SELECT `id_user`, `balance` + COALESCE((SELECT SUM(`amount`) FROM `balance_ledger` WHERE `user_id_fk` = ? " +
+            "AND `id_entry` > `ledger_position`), 0) AS `available` FROM `user` WHERE `id_user` = ?) AS `current` " +
+            "WHERE `available` <> ?";
+
+    /**
+     * The Constant SQL_SELECT_LEDGER_ENTRIES_BY_USER_ID.
+     */
+    static final String SQL_SELECT_LEDGER_ENTRIES_BY_USER_ID = "SELECT `id_entry`, `user_id_fk`, `amount`, `reason`, " +
+            "`reservation_id_fk`, `created_at` FROM `balance_ledger` WHERE `user_id_fk` = ? ORDER BY `id_entry` DESC LIMIT ?";
+
+    /**
+     * The Constant SQL_SELECT_USERS_TO_COMPACT.
+     */
+    static final String SQL_SELECT_USERS_TO_COMPACT = "SELECT `user_id_fk` FROM `balance_ledger` " +
+            "JOIN `user` ON `user`.`id_user` = `balance_ledger`.`user_id_fk` " +
+            "WHERE `id_entry` > `ledger_position` GROUP BY `user_id_fk` HAVING COUNT(*) >= ? LIMIT ?";
+
+    /**
+     * The Constant SQL_SUM_LEDGER_AFTER, read with locks so no entry is written while it is folded.
      */
-    static final String SQL_DEPOSIT_MONEY = "UPDATE `user` SET `balance` = (`balance` + ?) WHERE `id_user` = ?";
+    static final String SQL_SUM_LEDGER_AFTER = "SELECT COALESCE(SUM(`amount`), 0), MAX(`id_entry`), COUNT(*) FROM `balance_ledger` " +
+            "WHERE `user_id_fk` = ? AND `id_entry` > ? LOCK IN SHARE MODE";
 
     /**
-     * The Constant SQL_WITHDRAW_USER_MONEY.
+     * The Constant SQL_COMPACT_USER_BALANCE.
      */
-    static final String SQL_WITHDRAW_USER_MONEY = "UPDATE `user` SET `balance` = (`balance` - ?) " +
-            "WHERE `id_user` = ? AND `balance` >= ?";
+    static final String SQL_COMPACT_USER_BALANCE = "UPDATE `user` SET `balance` = `balance` + ?, `ledger_position` = ? " +
+            "WHERE `id_user` = ? AND `ledger_position` = ?";
 
     /**
      * The Constant SQL_BAN_USER.
      */
     static final String SQL_BAN_USER = "UPDATE `user` SET `active` = 0 WHERE `id_user` = ?";
+
+    //---------------
+
+    /**
+     * The Constant SQL_BUMP_CHANGE_VERSION.
+     */
+    static final String SQL_BUMP_CHANGE_VERSION = "INSERT INTO `change_version` (`entity`, `entity_id`, `changed_at`, `node`) " +
+            "VALUES (?, ?, NOW(3), ?) ON DUPLICATE KEY UPDATE `changed_at` = NOW(3), `node` = VALUES(`node`)";
+
+    /**
+     * The Constant SQL_SELECT_CHANGES_SINCE.
+     */
+    static final String SQL_SELECT_CHANGES_SINCE = "SELECT `entity`, `entity_id`, `changed_at` FROM `change_version` " +
+            "WHERE `changed_at` >= ? AND `node` <> ?";
+
+    /**
+     * The Constant SQL_DELETE_CHANGES_BEFORE.
+     */
+    static final String SQL_DELETE_CHANGES_BEFORE = "DELETE FROM `change_version` WHERE `changed_at` < ? LIMIT ?";
+
+    /**
+     * The Constant SQL_SELECT_CURRENT_TIME.
+     */
+    static final String SQL_SELECT_CURRENT_TIME = "SELECT NOW(3)";
+
+    //---------------
+
+    /**
+     * The Constant SQL_RESERVE_ID_BLOCK.
+     */
+    static final String SQL_RESERVE_ID_BLOCK = "UPDATE `sequence` SET `next_value` = LAST_INSERT_ID(`next_value` + ?) " +
+            "WHERE `name` = ?";
+
+    /**
+     * The Constant SQL_SELECT_LAST_INSERT_ID.
+     */
+    static final String SQL_SELECT_LAST_INSERT_ID = "SELECT LAST_INSERT_ID()";
 }
@@ -0,0 +1,49 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Class SqlQueryNames.
+ * <p>
+ * Names the SQL templates of {@link SqlQuery} by their constants, so the statement stats read as
+ * SQL_SELECT_USER_BY_ID rather than as the whole statement.
+ */
+public final class SqlQueryNames {
+
+    /**
+     * The Constant NAMES, the constant names by SQL.
+     */
+    private static final Map<String, String> NAMES = new HashMap<>();
+
+    static {
+        for (Field field : SqlQuery.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && !Modifier.isPrivate(modifiers) && field.getType() == String.class) {
+                try {
+                    NAMES.putIfAbsent((String) field.get(null), field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new ExceptionInInitializerError(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Instantiates a new sql query names.
+     */
+    private SqlQueryNames() {
+    }
+
+    /**
+     * Finds the constant of an SQL template.
+     *
+     * @param sql the SQL
+     * @return the constant name, or the SQL itself if it is not a constant of {@link SqlQuery}
+     */
+    public static String nameOf(String sql) {
+        return NAMES.getOrDefault(sql, sql);
+    }
+}
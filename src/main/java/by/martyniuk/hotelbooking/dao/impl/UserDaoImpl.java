@@ -1,7 +1,8 @@
 package by.martyniuk.hotelbooking.dao.impl;
 
 import by.martyniuk.hotelbooking.dao.UserDao;
-import by.martyniuk.hotelbooking.entity.Role;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.entity.LedgerReason;
 import by.martyniuk.hotelbooking.entity.User;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.pool.ConnectionPool;
@@ -9,7 +10,6 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.sql.*;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,22 +21,13 @@ public class UserDaoImpl implements UserDao {
 
     @Override
     public List<User> findAllUsers() throws DaoException {
-        List<User> users = new ArrayList<>();
-        try (Connection cn = ConnectionPool.getInstance().getConnection();
+        try (Connection cn = ConnectionPool.getInstance(ConnectionPool.REPLICA).getConnection();
              Statement st = cn.createStatement()) {
             ResultSet resultSet = st.executeQuery(SqlQuery.SQL_SELECT_ALL_USERS);
-            while (resultSet.next()) {
-                users.add(new User(resultSet.getLong("id_user"), resultSet.getString("first_name"),
-                        resultSet.getString("middle_name"), resultSet.getString("last_name"),
-                        new BigDecimal(resultSet.getString("balance")), resultSet.getString("email"),
-                        resultSet.getString("phone_number"), resultSet.getString("password"),
-                        Role.valueOf(resultSet.getString("role").toUpperCase()),
-                        resultSet.getInt("active") != 0));
-            }
+            return UserRowMapper.of(SqlQuery.SQL_SELECT_ALL_USERS, resultSet).mapAll();
         } catch (SQLException e) {
-            throw new DaoException("SQL exception (request or table failed): " + e, e);
+            throw SqlExceptionTranslator.translate(e);
         }
-        return users;
     }
 
 
@@ -46,18 +37,9 @@ public class UserDaoImpl implements UserDao {
              PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_FIND_USER_BY_MAIL)) {
             ps.setString(1, mail);
             ResultSet resultSet = ps.executeQuery();
-            Optional<User> user = Optional.empty();
-            if (resultSet.next()) {
-                user = Optional.of(new User(resultSet.getLong("id_user"), resultSet.getString("first_name"),
-                        resultSet.getString("middle_name"), resultSet.getString("last_name"),
-                        new BigDecimal(resultSet.getString("balance")), resultSet.getString("email"),
-                        resultSet.getString("phone_number"), resultSet.getString("password"),
-                        Role.valueOf(resultSet.getString("role").toUpperCase()),
-                        resultSet.getInt("active") != 0));
-            }
-            return user;
+            return UserRowMapper.of(SqlQuery.SQL_FIND_USER_BY_MAIL, resultSet).mapFirst();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
@@ -67,25 +49,16 @@ public class UserDaoImpl implements UserDao {
              PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_FIND_USER_BY_ID)) {
             ps.setLong(1, userId);
             ResultSet resultSet = ps.executeQuery();
-            Optional<User> user = Optional.empty();
-            if (resultSet.next()) {
-                user = Optional.of(new User(resultSet.getLong("id_user"), resultSet.getString("first_name"),
-                        resultSet.getString("middle_name"), resultSet.getString("last_name"),
-                        new BigDecimal(resultSet.getString("balance")), resultSet.getString("email"),
-                        resultSet.getString("phone_number"), resultSet.getString("password"),
-                        Role.valueOf(resultSet.getString("role").toUpperCase()),
-                        resultSet.getInt("active") != 0));
-            }
-            return user;
+            return UserRowMapper.of(SqlQuery.SQL_FIND_USER_BY_ID, resultSet).mapFirst();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
     @Override
-    public boolean addUser(User user) throws DaoException {
+    public Optional<User> addUser(User user) throws DaoException {
         try (Connection cn = ConnectionPool.getInstance().getConnection();
-             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_INSERT_USER)) {
+             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, user.getFirstName());
             ps.setString(2, user.getMiddleName());
             ps.setString(3, user.getLastName());
@@ -95,16 +68,22 @@ public class UserDaoImpl implements UserDao {
             ps.setString(7, user.getPassword());
             ps.setString(8, user.getRole().toString());
             ps.setInt(9, (user.isActive()) ? 1 : 0);
-            return (ps.executeUpdate() != 0);
+            if (ps.executeUpdate() == 0) {
+                return Optional.empty();
+            }
+            User added = user.clone();
+            added.setId(GeneratedKeys.readId(ps));
+            return Optional.of(added);
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 
     @Override
     public boolean updateUserData(User user) throws DaoException {
-        try (Connection cn = ConnectionPool.getInstance().getConnection();
-             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_UPDATE_USER_DATA)) {
+        Connection cn = connect();
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_UPDATE_USER_DATA)) {
+            cn.setAutoCommit(false);
             ps.setString(1, user.getFirstName());
             ps.setString(2, user.getMiddleName());
             ps.setString(3, user.getLastName());
@@ -114,41 +93,96 @@ public class UserDaoImpl implements UserDao {
             ps.setInt(7, (user.isActive()) ? 1 : 0);
             ps.setString(8, user.getRole().toString());
             ps.setLong(9, user.getId());
-            return (ps.executeUpdate() != 0);
+            boolean result = ps.executeUpdate() != 0;
+            if (result) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.USER, user.getId());
+                ReservationViewWriter.refresh(cn, SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_USER_ID, user.getId());
+            }
+            cn.commit();
+            return result;
         } catch (SQLException e) {
-            throw new DaoException(e);
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            try {
+                cn.setAutoCommit(true);
+                cn.close();
+            } catch (SQLException ignored) {
+
+            }
         }
     }
 
     @Override
     public boolean updateUser(User user) throws DaoException {
-        try (Connection cn = ConnectionPool.getInstance().getConnection();
-             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_UPDATE_USER)) {
+        Connection cn = connect();
+        try (PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_UPDATE_USER)) {
+            cn.setAutoCommit(false);
             ps.setString(1, user.getFirstName());
             ps.setString(2, user.getMiddleName());
             ps.setString(3, user.getLastName());
             ps.setString(4, user.getEmail());
             ps.setString(5, user.getPhoneNumber());
             ps.setString(6, user.getPassword());
-            ps.setBigDecimal(7, user.getBalance());
-            ps.setInt(8, (user.isActive()) ? 1 : 0);
-            ps.setString(9, user.getRole().toString());
-            ps.setLong(10, user.getId());
-            return (ps.executeUpdate() != 0);
+            ps.setInt(7, (user.isActive()) ? 1 : 0);
+            ps.setString(8, user.getRole().toString());
+            ps.setLong(9, user.getId());
+            boolean result = ps.executeUpdate() != 0;
+            if (result) {
+                if (user.getBalance() != null) {
+                    BalanceLedgerDaoImpl.adjust(cn, user.getId(), user.getBalance());
+                }
+                ChangeVersionDaoImpl.bump(cn, EntityType.USER, user.getId());
+                ReservationViewWriter.refresh(cn, SqlQuery.SQL_REFRESH_RESERVATION_VIEW_BY_USER_ID, user.getId());
+            }
+            cn.commit();
+            return result;
         } catch (SQLException e) {
-            throw new DaoException(e);
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            try {
+                cn.setAutoCommit(true);
+                cn.close();
+            } catch (SQLException ignored) {
+
+            }
         }
     }
 
     @Override
     public boolean depositMoney(long userId, BigDecimal money) throws DaoException {
-        try (Connection cn = ConnectionPool.getInstance().getConnection();
-             PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_DEPOSIT_MONEY)) {
-            ps.setBigDecimal(1, money);
-            ps.setLong(2, userId);
-            return ps.executeUpdate() != 0;
+        Connection cn = connect();
+        try {
+            cn.setAutoCommit(false);
+            boolean result = BalanceLedgerDaoImpl.credit(cn, userId, money, LedgerReason.DEPOSIT, null);
+            if (result) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.USER, userId);
+            }
+            cn.commit();
+            return result;
         } catch (SQLException e) {
-            throw new DaoException(e);
+            try {
+                cn.rollback();
+            } catch (SQLException ignored) {
+
+            }
+            throw SqlExceptionTranslator.translate(e);
+        } finally {
+            try {
+                cn.setAutoCommit(true);
+                cn.close();
+            } catch (SQLException ignored) {
+
+            }
         }
     }
 
@@ -158,9 +192,27 @@ public class UserDaoImpl implements UserDao {
              PreparedStatement ps = cn.prepareStatement(SqlQuery.SQL_UPDATE_USER_PASSWORD)) {
             ps.setString(1, newPassword);
             ps.setLong(2, userId);
-            return ps.executeUpdate() != 0;
+            boolean result = ps.executeUpdate() != 0;
+            if (result) {
+                ChangeVersionDaoImpl.bump(cn, EntityType.USER, userId);
+            }
+            return result;
+        } catch (SQLException e) {
+            throw SqlExceptionTranslator.translate(e);
+        }
+    }
+
+    /**
+     * Gets a connection from the pool for a write that manages it by hand.
+     *
+     * @return the connection
+     * @throws DaoException if no connection got free in time
+     */
+    private static Connection connect() throws DaoException {
+        try {
+            return ConnectionPool.getInstance().getConnection();
         } catch (SQLException e) {
-            throw new DaoException(e);
+            throw SqlExceptionTranslator.translate(e);
         }
     }
 }
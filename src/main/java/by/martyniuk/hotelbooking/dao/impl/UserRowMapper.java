@@ -0,0 +1,104 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.Role;
+import by.martyniuk.hotelbooking.entity.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The Class UserRowMapper.
+ */
+class UserRowMapper extends RowMapper<User> {
+
+    /**
+     * The column positions.
+     */
+    private static final int ID = 0, FIRST_NAME = 1, MIDDLE_NAME = 2, LAST_NAME = 3, BALANCE = 4, EMAIL = 5,
+            PHONE_NUMBER = 6, PASSWORD = 7, ROLE = 8, ACTIVE = 9;
+
+    /**
+     * The columns of the user selects.
+     */
+    private static final ColumnIndex USER_COLUMNS = new ColumnIndex("id_user", "first_name", "middle_name",
+            "last_name", "balance", "email", "phone_number", "password", "role", "active");
+
+    /**
+     * The user columns of the reservation selects.
+     */
+    private static final ColumnIndex RESERVATION_COLUMNS = new ColumnIndex("id_user", "first_name", "middle_name",
+            "last_name", "balance", "email", "phone_number", "password", "role", "user_active");
+
+    /**
+     * The roles.
+     */
+    private static final Role[] ROLES = Role.values();
+
+    /**
+     * Instantiates a new user row mapper.
+     *
+     * @param resultSet the result set
+     * @param index     the column indexes
+     */
+    private UserRowMapper(ResultSet resultSet, int[] index) {
+        super(resultSet, index);
+    }
+
+    /**
+     * Creates the mapper for the user selects.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @return the user row mapper
+     * @throws SQLException the SQL exception
+     */
+    static UserRowMapper of(String sql, ResultSet resultSet) throws SQLException {
+        return new UserRowMapper(resultSet, USER_COLUMNS.resolve(sql, resultSet));
+    }
+
+    /**
+     * Creates the mapper for the user columns of the reservation selects.
+     *
+     * @param sql       the query
+     * @param resultSet the result set
+     * @return the user row mapper
+     * @throws SQLException the SQL exception
+     */
+    static UserRowMapper ofReservation(String sql, ResultSet resultSet) throws SQLException {
+        return new UserRowMapper(resultSet, RESERVATION_COLUMNS.resolve(sql, resultSet));
+    }
+
+    /**
+     * Gets the id of the current row.
+     *
+     * @return the id
+     * @throws SQLException the SQL exception
+     */
+    long id() throws SQLException {
+        return resultSet.getLong(index[ID]);
+    }
+
+    @Override
+    User mapRow() throws SQLException {
+        return new User(id(), resultSet.getString(index[FIRST_NAME]), resultSet.getString(index[MIDDLE_NAME]),
+                resultSet.getString(index[LAST_NAME]), resultSet.getBigDecimal(index[BALANCE]),
+                resultSet.getString(index[EMAIL]), resultSet.getString(index[PHONE_NUMBER]),
+                resultSet.getString(index[PASSWORD]), toRole(resultSet.getString(index[ROLE])),
+                resultSet.getInt(index[ACTIVE]) != 0);
+    }
+
+    /**
+     * Finds the role by its name, ignoring case.
+     *
+     * @param name the name
+     * @return the role
+     */
+    private static Role toRole(String name) {
+        for (Role role : ROLES) {
+            if (role.name().equalsIgnoreCase(name)) {
+                return role;
+            }
+        }
+        throw new IllegalArgumentException("No role " + name);
+    }
+}
@@ -38,4 +38,17 @@ public class Apartment implements Serializable, Cloneable {
      * The active.
      */
     private boolean active;
+
+    @Override
+    public Apartment clone() {
+        try {
+            Apartment apartment = (Apartment) super.clone();
+            if (apartmentClass != null) {
+                apartment.apartmentClass = apartmentClass.clone();
+            }
+            return apartment;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
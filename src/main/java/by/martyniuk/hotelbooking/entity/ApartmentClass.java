@@ -54,4 +54,13 @@ public class ApartmentClass implements Serializable, Cloneable {
      * The image path.
      */
     private String imagePath;
+
+    @Override
+    public ApartmentClass clone() {
+        try {
+            return (ApartmentClass) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
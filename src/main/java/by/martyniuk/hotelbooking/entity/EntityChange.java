@@ -0,0 +1,37 @@
+package by.martyniuk.hotelbooking.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The Class EntityChange.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityChange implements Serializable {
+
+    /**
+     * The id used when the change is not bound to a single entity.
+     */
+    public static final long ANY_ID = 0;
+
+    /**
+     * The entity type.
+     */
+    private EntityType entityType;
+
+    /**
+     * The entity id, or {@link #ANY_ID}.
+     */
+    private long entityId;
+
+    /**
+     * The change time.
+     */
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,29 @@
+package by.martyniuk.hotelbooking.entity;
+
+/**
+ * The Enum EntityType.
+ * <p>
+ * The kinds of entities whose changes are published through the change version table.
+ */
+public enum EntityType {
+
+    /**
+     * The apartment class.
+     */
+    APARTMENT_CLASS,
+
+    /**
+     * The apartment.
+     */
+    APARTMENT,
+
+    /**
+     * The user.
+     */
+    USER,
+
+    /**
+     * The reservation.
+     */
+    RESERVATION
+}
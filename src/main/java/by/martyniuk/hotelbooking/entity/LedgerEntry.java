@@ -0,0 +1,48 @@
+package by.martyniuk.hotelbooking.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The Class LedgerEntry.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry implements Serializable {
+
+    /**
+     * The id.
+     */
+    private long id;
+
+    /**
+     * The user id.
+     */
+    private long userId;
+
+    /**
+     * The signed amount, negative for a debit.
+     */
+    private BigDecimal amount;
+
+    /**
+     * The reason.
+     */
+    private LedgerReason reason;
+
+    /**
+     * The reservation id, or null if the entry is not bound to a reservation.
+     */
+    private Long reservationId;
+
+    /**
+     * The creation time.
+     */
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,29 @@
+package by.martyniuk.hotelbooking.entity;
+
+/**
+ * The Enum LedgerReason.
+ * <p>
+ * The reasons a balance ledger entry is written for.
+ */
+public enum LedgerReason {
+
+    /**
+     * The payment of a booking.
+     */
+    BOOKING,
+
+    /**
+     * The refund of a declined or canceled booking.
+     */
+    REFUND,
+
+    /**
+     * The money added by the user.
+     */
+    DEPOSIT,
+
+    /**
+     * The balance set by an administrator.
+     */
+    ADJUSTMENT
+}
@@ -72,4 +72,20 @@ public class Reservation implements Serializable, Cloneable {
      * The status.
      */
     private Status status;
+
+    @Override
+    public Reservation clone() {
+        try {
+            Reservation reservation = (Reservation) super.clone();
+            if (user != null) {
+                reservation.user = user.clone();
+            }
+            if (apartment != null) {
+                reservation.apartment = apartment.clone();
+            }
+            return reservation;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
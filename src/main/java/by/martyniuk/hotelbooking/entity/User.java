@@ -64,4 +64,13 @@ public class User implements Serializable, Cloneable {
      * The active.
      */
     private boolean active;
+
+    @Override
+    public User clone() {
+        try {
+            return (User) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
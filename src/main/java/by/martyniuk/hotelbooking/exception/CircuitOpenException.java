@@ -0,0 +1,33 @@
+package by.martyniuk.hotelbooking.exception;
+
+/**
+ * The Class CircuitOpenException.
+ * <p>
+ * Thrown without touching the database while the circuit breaker keeps it off after too many failures.
+ */
+public class CircuitOpenException extends ConnectionUnavailableException {
+
+    /**
+     * The seconds until the database is tried again.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Instantiates a new circuit open exception.
+     *
+     * @param retryAfterSeconds the seconds until the database is tried again
+     */
+    public CircuitOpenException(long retryAfterSeconds) {
+        super("Database is unavailable, retry in " + retryAfterSeconds + " s", null);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Gets the seconds until the database is tried again.
+     *
+     * @return the retry after seconds
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
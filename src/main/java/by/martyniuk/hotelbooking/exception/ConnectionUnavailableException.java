@@ -0,0 +1,28 @@
+package by.martyniuk.hotelbooking.exception;
+
+/**
+ * The Class ConnectionUnavailableException.
+ * <p>
+ * Thrown when no connection got free in time or the database cannot be reached.
+ */
+public class ConnectionUnavailableException extends DaoException {
+
+    /**
+     * Instantiates a new connection unavailable exception.
+     *
+     * @param message the message
+     * @param cause   the cause
+     */
+    public ConnectionUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Instantiates a new connection unavailable exception.
+     *
+     * @param cause the cause
+     */
+    public ConnectionUnavailableException(Throwable cause) {
+        super(cause);
+    }
+}
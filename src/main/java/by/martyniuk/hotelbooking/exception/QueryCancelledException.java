@@ -0,0 +1,28 @@
+package by.martyniuk.hotelbooking.exception;
+
+/**
+ * The Class QueryCancelledException.
+ * <p>
+ * Thrown when a statement was cancelled or its query killed on the server.
+ */
+public class QueryCancelledException extends DaoException {
+
+    /**
+     * Instantiates a new query cancelled exception.
+     *
+     * @param message the message
+     * @param cause   the cause
+     */
+    public QueryCancelledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Instantiates a new query cancelled exception.
+     *
+     * @param cause the cause
+     */
+    public QueryCancelledException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,28 @@
+package by.martyniuk.hotelbooking.exception;
+
+/**
+ * The Class QueryTimeoutException.
+ * <p>
+ * Thrown when a statement or a lock wait ran out of its time.
+ */
+public class QueryTimeoutException extends DaoException {
+
+    /**
+     * Instantiates a new query timeout exception.
+     *
+     * @param message the message
+     * @param cause   the cause
+     */
+    public QueryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Instantiates a new query timeout exception.
+     *
+     * @param cause the cause
+     */
+    public QueryTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,42 @@
+package by.martyniuk.hotelbooking.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class CommandMetrics.
+ * <p>
+ * Holds the stats of every command of the command dispatcher, by command name.
+ */
+@Component
+public class CommandMetrics {
+
+    /**
+     * The stats by command name.
+     */
+    private final ConcurrentMap<String, CommandStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Finds the stats of a command, creating them on first use.
+     *
+     * @param command the command name
+     * @return the stats
+     */
+    public CommandStats stats(String command) {
+        return stats.computeIfAbsent(command, name -> new CommandStats());
+    }
+
+    /**
+     * Gets the stats of every command, sorted by command name.
+     *
+     * @return the stats
+     */
+    public Map<String, CommandStats> getStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(stats));
+    }
+}
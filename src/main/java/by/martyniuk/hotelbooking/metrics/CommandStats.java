@@ -0,0 +1,75 @@
+package by.martyniuk.hotelbooking.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class CommandStats.
+ * <p>
+ * Holds the latency, the errors and the calls in flight of one command.
+ */
+public class CommandStats {
+
+    /**
+     * The latency.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * The error count.
+     */
+    private final LongAdder errorCount = new LongAdder();
+
+    /**
+     * The calls in flight.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Marks the start of a call.
+     */
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a call.
+     *
+     * @param nanos  the latency in nanoseconds
+     * @param failed true, if the call failed
+     */
+    void finished(long nanos, boolean failed) {
+        inFlight.decrementAndGet();
+        latency.record(nanos);
+        if (failed) {
+            errorCount.increment();
+        }
+    }
+
+    /**
+     * Gets the latency.
+     *
+     * @return the latency
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the error count.
+     *
+     * @return the error count
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * Gets the calls in flight.
+     *
+     * @return the calls in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,49 @@
+package by.martyniuk.hotelbooking.metrics;
+
+import by.martyniuk.hotelbooking.command.ActionCommand;
+import by.martyniuk.hotelbooking.exception.CommandException;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The Class InstrumentedCommand.
+ * <p>
+ * Times a command into its stats. A call failed if it threw.
+ */
+public class InstrumentedCommand implements ActionCommand {
+
+    /**
+     * The command.
+     */
+    private final ActionCommand command;
+
+    /**
+     * The stats.
+     */
+    private final CommandStats stats;
+
+    /**
+     * Instantiates a new instrumented command.
+     *
+     * @param command the command
+     * @param stats   the stats
+     */
+    public InstrumentedCommand(ActionCommand command, CommandStats stats) {
+        this.command = command;
+        this.stats = stats;
+    }
+
+    @Override
+    public String execute(HttpServletRequest request) throws CommandException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        stats.started();
+        try {
+            String page = command.execute(request);
+            failed = false;
+            return page;
+        } finally {
+            stats.finished(System.nanoTime() - start, failed);
+        }
+    }
+}
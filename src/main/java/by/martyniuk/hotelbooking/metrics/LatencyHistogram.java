@@ -0,0 +1,122 @@
+package by.martyniuk.hotelbooking.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class LatencyHistogram.
+ * <p>
+ * Counts latencies into fixed buckets with upper bounds from one millisecond to ten seconds, plus one
+ * bucket for the slower ones. Recording adds to one counter, so many threads record without contention.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The Constant BOUNDS_MILLIS, the upper bounds of the buckets in milliseconds.
+     */
+    private static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    /**
+     * The Constant BOUNDS_NANOS, the upper bounds of the buckets in nanoseconds.
+     */
+    private static final long[] BOUNDS_NANOS = Arrays.stream(BOUNDS_MILLIS).map(TimeUnit.MILLISECONDS::toNanos).toArray();
+
+    /**
+     * The counts by bucket, the last one counting the latencies above every bound.
+     */
+    private final LongAdder[] counts = new LongAdder[BOUNDS_MILLIS.length + 1];
+
+    /**
+     * The sum of the latencies in nanoseconds.
+     */
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Instantiates a new latency histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+        counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Gets the upper bounds of the buckets in milliseconds.
+     *
+     * @return the bounds
+     */
+    public static long[] getBoundsMillis() {
+        return BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Gets the counts by bucket, the last one counting the latencies above every bound.
+     *
+     * @return the counts
+     */
+    public long[] getCounts() {
+        long[] result = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = counts[i].sum();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the amount of latencies recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the sum of the latencies in nanoseconds.
+     *
+     * @return the sum
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Finds the upper bound of the bucket holding the quantile.
+     *
+     * @param quantile the quantile, from 0 to 1
+     * @return the bound in milliseconds, or Long.MAX_VALUE if the quantile is above every bound,
+     * or 0 if nothing was recorded
+     */
+    public long getQuantileMillis(double quantile) {
+        long[] snapshot = getCounts();
+        long total = Arrays.stream(snapshot).sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return BOUNDS_MILLIS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,140 @@
+package by.martyniuk.hotelbooking.metrics;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class PrometheusWriter.
+ * <p>
+ * Writes metrics in the Prometheus text format, version 0.0.4. The samples of one metric must be written
+ * one after another, since the type line is written before the first of them only.
+ */
+public class PrometheusWriter {
+
+    /**
+     * The Constant CONTENT_TYPE.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The text.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * The metrics already typed.
+     */
+    private final Set<String> typed = new HashSet<>();
+
+    /**
+     * Writes a counter sample.
+     *
+     * @param name   the metric name
+     * @param value  the value
+     * @param labels the labels as name and value pairs
+     * @return the writer
+     */
+    public PrometheusWriter counter(String name, long value, String... labels) {
+        type(name, "counter");
+        return sample(name, labels, null, Long.toString(value));
+    }
+
+    /**
+     * Writes a gauge sample.
+     *
+     * @param name   the metric name
+     * @param value  the value
+     * @param labels the labels as name and value pairs
+     * @return the writer
+     */
+    public PrometheusWriter gauge(String name, double value, String... labels) {
+        type(name, "gauge");
+        return sample(name, labels, null, format(value));
+    }
+
+    /**
+     * Writes a histogram in seconds.
+     *
+     * @param name      the metric name
+     * @param histogram the histogram
+     * @param labels    the labels as name and value pairs
+     * @return the writer
+     */
+    public PrometheusWriter histogram(String name, LatencyHistogram histogram, String... labels) {
+        type(name, "histogram");
+        long[] bounds = LatencyHistogram.getBoundsMillis();
+        long[] counts = histogram.getCounts();
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += counts[i];
+            sample(name + "_bucket", labels, format(bounds[i] / 1000.0), Long.toString(cumulative));
+        }
+        cumulative += counts[bounds.length];
+        sample(name + "_bucket", labels, "+Inf", Long.toString(cumulative));
+        sample(name + "_sum", labels, null, format(histogram.getSumNanos() / (double) TimeUnit.SECONDS.toNanos(1)));
+        return sample(name + "_count", labels, null, Long.toString(cumulative));
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    /**
+     * Writes the type line of a metric before its first sample.
+     *
+     * @param name the metric name
+     * @param type the type
+     */
+    private void type(String name, String type) {
+        if (typed.add(name)) {
+            text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+    }
+
+    /**
+     * Writes a sample line.
+     *
+     * @param name   the sample name
+     * @param labels the labels as name and value pairs
+     * @param le     the bucket bound, or null
+     * @param value  the value
+     * @return the writer
+     */
+    private PrometheusWriter sample(String name, String[] labels, String le, String value) {
+        text.append(name);
+        if (labels.length > 0 || le != null) {
+            text.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                text.append(i == 0 ? "" : ",").append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            if (le != null) {
+                text.append(labels.length > 0 ? "," : "").append("le=\"").append(le).append('"');
+            }
+            text.append('}');
+        }
+        text.append(' ').append(value).append('\n');
+        return this;
+    }
+
+    /**
+     * Formats a number without a needless fraction.
+     *
+     * @param value the value
+     * @return the text
+     */
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * Escapes a label value.
+     *
+     * @param value the value
+     * @return the escaped value
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,162 @@
+package by.martyniuk.hotelbooking.pool;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class Bulkhead.
+ * <p>
+ * Splits the connections of a pool between the operation classes. Every class has a reserved quota no other
+ * class can take, and a limit on the connections it holds at once. Connections beyond the reserved ones
+ * are shared. A thread that already holds a connection takes the next one outside the quotas, so a write
+ * that opens a second connection cannot wait for itself.
+ */
+class Bulkhead {
+
+    /**
+     * The time to wait on the shared connections before checking the reserved ones again, in milliseconds.
+     */
+    private static final long SLICE_MILLIS = 10;
+
+    /**
+     * The reserved connections by class.
+     */
+    private final Map<OperationClass, Semaphore> reserved = new EnumMap<>(OperationClass.class);
+
+    /**
+     * The connection limits by class.
+     */
+    private final Map<OperationClass, Semaphore> limits = new EnumMap<>(OperationClass.class);
+
+    /**
+     * The max connections by class.
+     */
+    private final Map<OperationClass, Integer> maxConnections = new EnumMap<>(OperationClass.class);
+
+    /**
+     * The shared connections.
+     */
+    private final Semaphore shared;
+
+    /**
+     * The amount of connections held by the current thread.
+     */
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * Instantiates a new bulkhead.
+     *
+     * @param poolSize       the pool size
+     * @param reservedQuotas the reserved connections by class
+     * @param maxQuotas      the max connections by class
+     */
+    Bulkhead(int poolSize, Map<OperationClass, Integer> reservedQuotas, Map<OperationClass, Integer> maxQuotas) {
+        int reservedTotal = 0;
+        for (OperationClass operationClass : OperationClass.values()) {
+            int reservedQuota = reservedQuotas.getOrDefault(operationClass, 0);
+            int maxQuota = Math.min(poolSize, maxQuotas.getOrDefault(operationClass, poolSize));
+            if (reservedQuota < 0 || maxQuota < Math.max(reservedQuota, 1)) {
+                throw new IllegalArgumentException("Invalid quota of " + operationClass + ": reserved "
+                        + reservedQuota + ", max " + maxQuota);
+            }
+            reserved.put(operationClass, new Semaphore(reservedQuota, true));
+            limits.put(operationClass, new Semaphore(maxQuota, true));
+            maxConnections.put(operationClass, maxQuota);
+            reservedTotal += reservedQuota;
+        }
+        if (reservedTotal > poolSize) {
+            throw new IllegalArgumentException("Reserved connections " + reservedTotal + " exceed the pool size " + poolSize);
+        }
+        shared = new Semaphore(poolSize - reservedTotal, true);
+    }
+
+    /**
+     * Takes a permit for a connection, waiting for a reserved or a shared one.
+     *
+     * @param operationClass the operation class
+     * @param timeoutMillis  the timeout in milliseconds
+     * @return the permit
+     * @throws SQLException if no permit got free in time
+     */
+    Permit acquire(OperationClass operationClass, long timeoutMillis) throws SQLException {
+        int[] count = held.get();
+        if (count[0] > 0) {
+            count[0]++;
+            return new Permit(operationClass, null);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Semaphore limit = limits.get(operationClass);
+        Semaphore own = reserved.get(operationClass);
+        try {
+            if (!limit.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(operationClass + " holds its limit of "
+                        + maxConnections.get(operationClass) + " connections.");
+            }
+            do {
+                if (own.tryAcquire()) {
+                    count[0]++;
+                    return new Permit(operationClass, own);
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (shared.tryAcquire(Math.max(0, Math.min(remaining, SLICE_MILLIS)), TimeUnit.MILLISECONDS)) {
+                    count[0]++;
+                    return new Permit(operationClass, shared);
+                }
+            } while (System.nanoTime() < deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            limit.release();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+        limit.release();
+        throw new SQLTransientConnectionException("No connection free for " + operationClass + " in "
+                + timeoutMillis + " ms.");
+    }
+
+    /**
+     * Releases the permit. Call it on the thread that acquired it.
+     *
+     * @param permit the permit
+     */
+    void release(Permit permit) {
+        int[] count = held.get();
+        if (count[0] > 0) {
+            count[0]--;
+        }
+        if (permit.semaphore != null) {
+            permit.semaphore.release();
+            limits.get(permit.operationClass).release();
+        }
+    }
+
+    /**
+     * The Class Permit.
+     */
+    static final class Permit {
+
+        /**
+         * The operation class.
+         */
+        private final OperationClass operationClass;
+
+        /**
+         * The semaphore the permit came from, null for a nested connection.
+         */
+        private final Semaphore semaphore;
+
+        /**
+         * Instantiates a new permit.
+         *
+         * @param operationClass the operation class
+         * @param semaphore      the semaphore
+         */
+        private Permit(OperationClass operationClass, Semaphore semaphore) {
+            this.operationClass = operationClass;
+            this.semaphore = semaphore;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package by.martyniuk.hotelbooking.pool;
 
-import by.martyniuk.hotelbooking.exception.ConnectionPoolException;
+import by.martyniuk.hotelbooking.metrics.LatencyHistogram;
 import com.mysql.cj.jdbc.Driver;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
@@ -10,17 +10,52 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The Class ConnectionPool.
+ * <p>
+ * Opens its connections on a small executor, so creating the pool does not wait for the database.
+ * The pool is ready once min idle connections are open; the rest are opened when requests need them.
+ * A connection free for longer than the validation idle time is checked before it is borrowed, and a broken
+ * one is replaced.
+ * <p>
+ * Pools are named. The primary pool uses the {@code jdbc.*} and {@code pool.*} properties; any other pool
+ * is configured by {@code pool.<name>.url} (or {@code pool.<name>.test.url} in tests) and may override
+ * the user, password and pool settings the same way. A pool whose url is not configured is the primary one,
+ * so reads routed to a replica stay correct on a single database.
  */
 public class ConnectionPool {
 
+    /**
+     * The name of the primary pool, which takes every write.
+     */
+    public static final String PRIMARY = "primary";
+
+    /**
+     * The name of the replica pool, which takes the listings that may lag behind the primary.
+     */
+    public static final String REPLICA = "replica";
+
     /**
      * The is test.
      */
@@ -45,32 +80,162 @@ public class ConnectionPool {
         try {
             DRIVER = new Driver();
             PROPERTIES.load(ConnectionPool.class.getResourceAsStream("/db.properties"));
+            DriverManager.registerDriver(DRIVER);
         } catch (SQLException | IOException e) {
             throw new ExceptionInInitializerError(e);
         }
     }
 
+    /**
+     * The Constant VALIDATION_TIMEOUT_SECONDS.
+     */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * The pools by name.
+     */
+    private static final ConcurrentMap<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The name.
+     */
+    private final String name;
+
+    /**
+     * The max amount of connections.
+     */
+    private final int poolSize;
+
+    /**
+     * The amount of connections opened at start up, which makes the pool ready.
+     */
+    private final int minIdle;
+
+    /**
+     * The time to wait for a free connection in milliseconds.
+     */
+    private final long connectionTimeoutMillis;
+
     /**
      * The empty connection queue.
      */
-    private BlockingDeque<ProxyConnection> emptyConnectionQueue;
+    private final BlockingDeque<ProxyConnection> emptyConnectionQueue;
 
     /**
-     * The busy connection list.
+     * The busy connections.
      */
-    private List<ProxyConnection> busyConnectionList;
+    private final Set<ProxyConnection> busyConnections = ConcurrentHashMap.newKeySet();
 
+    /**
+     * The amount of connections open or being opened.
+     */
+    private final AtomicInteger openConnections = new AtomicInteger();
 
     /**
-     * Instantiates a new connection pool.
+     * The ready latch, counted down by every opened connection until min idle are open.
+     */
+    private final CountDownLatch ready;
+
+    /**
+     * The executor opening connections.
+     */
+    private final ThreadPoolExecutor connector;
+
+    /**
+     * The bulkhead, null if disabled.
+     */
+    private final Bulkhead bulkhead;
+
+    /**
+     * The query timeouts in seconds by operation class.
+     */
+    private final Map<OperationClass, Integer> queryTimeouts = new EnumMap<>(OperationClass.class);
+
+    /**
+     * The stats of the statements, or null if they are not kept.
+     */
+    private final StatementStats statementStats;
+
+    /**
+     * The idle time after which a connection is validated before it is borrowed, in nanoseconds, or -1 for never.
+     */
+    private final long validationIdleNanos;
+
+    /**
+     * The threads waiting for a connection.
+     */
+    private final AtomicInteger pendingBorrows = new AtomicInteger();
+
+    /**
+     * The time the borrows waited for a connection.
+     */
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+
+    /**
+     * The time the connections were held.
+     */
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+
+    /**
+     * The connections opened.
+     */
+    private final LongAdder createdCount = new LongAdder();
+
+    /**
+     * The connections closed.
+     */
+    private final LongAdder destroyedCount = new LongAdder();
+
+    /**
+     * The connections that failed to open.
+     */
+    private final LongAdder openFailureCount = new LongAdder();
+
+    /**
+     * The connections found broken before a borrow.
+     */
+    private final LongAdder validationFailureCount = new LongAdder();
+
+    /**
+     * The borrows that got no connection in time.
+     */
+    private final LongAdder timeoutCount = new LongAdder();
+
+
+    /**
+     * Instantiates a new connection pool. The connections are opened in the background: min idle
+     * at once, in parallel, and the rest when no free connection is left.
      *
-     * @throws ConnectionPoolException the connection pool exception
+     * @param name the name
      */
-    private ConnectionPool() throws ConnectionPoolException {
-        try {
-            initConnectionPool();
-        } catch (SQLException e) {
-            throw new ConnectionPoolException("Failed to get connection.", e);
+    private ConnectionPool(String name) {
+        this.name = name;
+        poolSize = Integer.parseInt(property(name, "size", null));
+        minIdle = Math.min(poolSize, Integer.parseInt(property(name, "min.idle", String.valueOf(poolSize))));
+        connectionTimeoutMillis = Long.parseLong(property(name, "connection.timeout.millis", "30000"));
+        int threads = Integer.parseInt(property(name, "warmup.threads", "4"));
+        emptyConnectionQueue = new LinkedBlockingDeque<>(poolSize);
+        ready = new CountDownLatch(minIdle);
+        bulkhead = Boolean.parseBoolean(property(name, "bulkhead.enabled", "false")) ? createBulkhead(name, poolSize) : null;
+        for (OperationClass operationClass : OperationClass.values()) {
+            queryTimeouts.put(operationClass, Integer.parseInt(property(name,
+                    "query.timeout." + operationClass.name().toLowerCase(Locale.ROOT) + ".seconds", "30")));
+        }
+        statementStats = Boolean.parseBoolean(property(name, "statement.stats.enabled", "false"))
+                ? new StatementStats(Integer.parseInt(property(name, "statement.stats.max.templates", "500")),
+                Long.parseLong(property(name, "slow.query.millis", "500")))
+                : null;
+        long validationIdleMillis = Long.parseLong(property(name, "validation.idle.millis", "30000"));
+        validationIdleNanos = validationIdleMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(validationIdleMillis);
+        AtomicInteger threadNumber = new AtomicInteger();
+        connector = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-" + name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        connector.allowCoreThreadTimeOut(true);
+        for (int i = 0; i < minIdle; i++) {
+            openConnectionAsync();
         }
     }
 
@@ -80,61 +245,207 @@ public class ConnectionPool {
      * @param connection the connection
      */
     public void returnConnection(Connection connection) {
-        if (busyConnectionList.remove(connection)) {
-            emptyConnectionQueue.addLast((ProxyConnection) connection);
+        if (busyConnections.remove(connection)) {
+            ProxyConnection proxyConnection = (ProxyConnection) connection;
+            Bulkhead.Permit permit = proxyConnection.getPermit();
+            proxyConnection.setPermit(null);
+            long now = System.nanoTime();
+            holdTime.record(now - proxyConnection.getBorrowedAt());
+            proxyConnection.setFreeSince(now);
+            emptyConnectionQueue.addLast(proxyConnection);
+            if (permit != null) {
+                bulkhead.release(permit);
+            }
         }
     }
 
     /**
-     * The Class ConnectionPoolHolder.
+     * Gets the primary pool.
+     *
+     * @return the primary pool
+     */
+    public static ConnectionPool getInstance() {
+        return getInstance(PRIMARY);
+    }
+
+    /**
+     * Gets the pool by name, or the primary pool if no url is configured for the name.
+     *
+     * @param name the name
+     * @return the pool
+     */
+    public static ConnectionPool getInstance(String name) {
+        String resolved = url(name) != null ? name : PRIMARY;
+        return POOLS.computeIfAbsent(resolved, ConnectionPool::new);
+    }
+
+    /**
+     * Gets the pools created so far.
+     *
+     * @return the pools
      */
-    private static class ConnectionPoolHolder {
+    public static Collection<ConnectionPool> getInstances() {
+        return Collections.unmodifiableCollection(new ArrayList<>(POOLS.values()));
+    }
 
-        /**
-         * The holder instance.
-         */
-        private static ConnectionPool HOLDER_INSTANCE;
+    /**
+     * Closes all pools.
+     */
+    public static void destroyAll() {
+        for (ConnectionPool pool : POOLS.values()) {
+            pool.destroy();
+        }
+        try {
+            DriverManager.deregisterDriver(DRIVER);
+        } catch (SQLException e) {
+            LOGGER.log(Level.INFO, "Can't deregister driver", e);
+        }
+    }
 
-        static {
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets a free connection, opening a new one if none is free and the pool is not full,
+     * and waits for one otherwise. With the bulkhead enabled, the operation class of the thread
+     * must first get a connection from its quota.
+     *
+     * @return the connection
+     * @throws SQLException if no connection got free in time
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        pendingBorrows.incrementAndGet();
+        try {
+            Bulkhead.Permit permit = bulkhead != null ? bulkhead.acquire(OperationContext.current(), connectionTimeoutMillis) : null;
+            ProxyConnection connection;
             try {
-                DriverManager.registerDriver(DRIVER);
-                HOLDER_INSTANCE = new ConnectionPool();
-            } catch (SQLException | ConnectionPoolException e) {
-                throw new ExceptionInInitializerError(e);
+                connection = takeConnection();
+            } catch (SQLException | RuntimeException e) {
+                if (permit != null) {
+                    bulkhead.release(permit);
+                }
+                throw e;
             }
+            connection.setPermit(permit);
+            connection.setBorrowedAt(System.nanoTime());
+            busyConnections.add(connection);
+            return connection;
+        } catch (SQLTransientConnectionException e) {
+            timeoutCount.increment();
+            throw e;
+        } finally {
+            pendingBorrows.decrementAndGet();
+            borrowWait.record(System.nanoTime() - start);
         }
     }
 
     /**
-     * Gets the single instance of ConnectionPool.
+     * Takes a free connection, waiting for one if none is free.
      *
-     * @return single instance of ConnectionPool
+     * @return the connection
+     * @throws SQLException if no connection got free in time
      */
-    public static ConnectionPool getInstance() {
-        return ConnectionPoolHolder.HOLDER_INSTANCE;
+    private ProxyConnection takeConnection() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMillis);
+        while (true) {
+            ProxyConnection connection = emptyConnectionQueue.pollFirst();
+            if (connection == null) {
+                openConnectionAsync();
+                try {
+                    connection = emptyConnectionQueue.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a connection.", e);
+                }
+                if (connection == null) {
+                    throw new SQLTransientConnectionException("No free connection in " + connectionTimeoutMillis + " ms.");
+                }
+            }
+            if (isValid(connection)) {
+                return connection;
+            }
+        }
     }
 
     /**
-     * Gets the connection.
+     * Checks a connection that was free for long before it is borrowed, replacing it if it is broken.
      *
-     * @return the connection
+     * @param connection the connection
+     * @return true, if the connection may be borrowed
+     */
+    private boolean isValid(ProxyConnection connection) {
+        if (validationIdleNanos < 0 || System.nanoTime() - connection.getFreeSince() < validationIdleNanos) {
+            return true;
+        }
+        try {
+            if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARN, "Validation of a connection of pool " + name + " failed.", e);
+        }
+        validationFailureCount.increment();
+        connection.reallyClose();
+        destroyedCount.increment();
+        openConnections.decrementAndGet();
+        openConnectionAsync();
+        return false;
+    }
+
+    /**
+     * Gets the query timeout of the operation class, set on every statement of the pool.
+     *
+     * @param operationClass the operation class
+     * @return the timeout in seconds, 0 for none
+     */
+    public int getQueryTimeoutSeconds(OperationClass operationClass) {
+        return queryTimeouts.get(operationClass);
+    }
+
+    /**
+     * Gets the stats of the statements of the pool.
+     *
+     * @return the statement stats, or null if they are not kept
+     */
+    public StatementStats getStatementStats() {
+        return statementStats;
+    }
+
+    /**
+     * Checks if min idle connections were opened.
+     *
+     * @return true, if ready
+     */
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * Waits until min idle connections are opened.
+     *
+     * @param timeout the timeout
+     * @param unit    the unit
+     * @return true, if ready
+     * @throws InterruptedException the interrupted exception
      */
-    public Connection getConnection() {
-        ProxyConnection connection = emptyConnectionQueue.poll();
-        busyConnectionList.add(connection);
-        return connection;
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return ready.await(timeout, unit);
     }
 
     /**
      * Destroy.
      */
     public void destroy() {
+        POOLS.remove(name, this);
+        connector.shutdownNow();
         closeConnections();
-        try {
-            DriverManager.deregisterDriver(DRIVER);
-        } catch (SQLException e) {
-            LOGGER.log(Level.INFO, "Can't close connection", e);
-        }
     }
 
     /**
@@ -152,7 +463,97 @@ public class ConnectionPool {
      * @return the amount busy connections
      */
     public int getAmountBusyConnections() {
-        return busyConnectionList.size();
+        return busyConnections.size();
+    }
+
+    /**
+     * Gets the amount of connections open or being opened.
+     *
+     * @return the amount open connections
+     */
+    public int getAmountOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Gets the max amount of connections.
+     *
+     * @return the pool size
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Gets the amount of threads waiting for a connection.
+     *
+     * @return the amount pending borrows
+     */
+    public int getAmountPendingBorrows() {
+        return pendingBorrows.get();
+    }
+
+    /**
+     * Gets the time the borrows waited for a connection.
+     *
+     * @return the borrow wait
+     */
+    public LatencyHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    /**
+     * Gets the time the connections were held.
+     *
+     * @return the hold time
+     */
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * Gets the amount of connections opened.
+     *
+     * @return the created count
+     */
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    /**
+     * Gets the amount of connections closed.
+     *
+     * @return the destroyed count
+     */
+    public long getDestroyedCount() {
+        return destroyedCount.sum();
+    }
+
+    /**
+     * Gets the amount of connections that failed to open.
+     *
+     * @return the open failure count
+     */
+    public long getOpenFailureCount() {
+        return openFailureCount.sum();
+    }
+
+    /**
+     * Gets the amount of connections found broken before a borrow.
+     *
+     * @return the validation failure count
+     */
+    public long getValidationFailureCount() {
+        return validationFailureCount.sum();
+    }
+
+    /**
+     * Gets the amount of borrows that got no connection in time.
+     *
+     * @return the timeout count
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
     }
 
     /**
@@ -164,33 +565,90 @@ public class ConnectionPool {
             connection.reallyClose();
             count++;
         }
-        for (ProxyConnection connection : busyConnectionList) {
+        for (ProxyConnection connection : busyConnections) {
             connection.reallyClose();
             count++;
         }
-        LOGGER.log(Level.INFO, "Connections in the amount of " + count + " where successfully closed.");
+        destroyedCount.add(count);
+        LOGGER.log(Level.INFO, "Connections of pool " + name + " in the amount of " + count + " where successfully closed.");
     }
 
     /**
-     * Inits the connection pool.
-     *
-     * @throws SQLException the SQL exception
+     * Opens a connection in the background unless the pool is full.
      */
-    private void initConnectionPool() throws SQLException {
-        int poolSize = Integer.parseInt(PROPERTIES.getProperty("pool.size"));
-        emptyConnectionQueue = new LinkedBlockingDeque<>(poolSize);
-        busyConnectionList = new ArrayList<>(poolSize);
-
-        for (int i = 0; i < poolSize; i++) {
-            Connection connection;
-            if (isTest) {
-                connection = DriverManager.getConnection(PROPERTIES.getProperty("jdbc.database.test.url"), PROPERTIES.getProperty("jdbc.username"),
-                        PROPERTIES.getProperty("jdbc.password"));
-            } else {
-                connection = DriverManager.getConnection(PROPERTIES.getProperty("jdbc.database.url"), PROPERTIES.getProperty("jdbc.username"),
-                        PROPERTIES.getProperty("jdbc.password"));
+    private void openConnectionAsync() {
+        int current;
+        do {
+            current = openConnections.get();
+            if (current >= poolSize) {
+                return;
             }
-            emptyConnectionQueue.offer(new ProxyConnection(connection));
+        } while (!openConnections.compareAndSet(current, current + 1));
+        try {
+            connector.execute(this::openConnection);
+        } catch (RejectedExecutionException e) {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Opens a connection and adds it to the free ones.
+     */
+    private void openConnection() {
+        try {
+            Connection connection = DriverManager.getConnection(url(name),
+                    PROPERTIES.getProperty("pool." + name + ".username", PROPERTIES.getProperty("jdbc.username")),
+                    PROPERTIES.getProperty("pool." + name + ".password", PROPERTIES.getProperty("jdbc.password")));
+            emptyConnectionQueue.addLast(new ProxyConnection(connection, this));
+            createdCount.increment();
+            ready.countDown();
+        } catch (SQLException | RuntimeException e) {
+            openConnections.decrementAndGet();
+            openFailureCount.increment();
+            LOGGER.log(Level.ERROR, "Failed to open connection of pool " + name + ".", e);
         }
     }
+
+    /**
+     * Creates the bulkhead from the {@code bulkhead.<class>.reserved} and {@code bulkhead.<class>.max} settings.
+     *
+     * @param name     the name
+     * @param poolSize the pool size
+     * @return the bulkhead
+     */
+    private static Bulkhead createBulkhead(String name, int poolSize) {
+        Map<OperationClass, Integer> reserved = new EnumMap<>(OperationClass.class);
+        Map<OperationClass, Integer> max = new EnumMap<>(OperationClass.class);
+        for (OperationClass operationClass : OperationClass.values()) {
+            String key = "bulkhead." + operationClass.name().toLowerCase(Locale.ROOT);
+            reserved.put(operationClass, Integer.parseInt(property(name, key + ".reserved", "0")));
+            max.put(operationClass, Integer.parseInt(property(name, key + ".max", String.valueOf(poolSize))));
+        }
+        return new Bulkhead(poolSize, reserved, max);
+    }
+
+    /**
+     * Gets the url of the pool.
+     *
+     * @param name the name
+     * @return the url, or null if the pool is not configured
+     */
+    private static String url(String name) {
+        if (PRIMARY.equals(name)) {
+            return PROPERTIES.getProperty(isTest ? "jdbc.database.test.url" : "jdbc.database.url");
+        }
+        return PROPERTIES.getProperty("pool." + name + (isTest ? ".test.url" : ".url"));
+    }
+
+    /**
+     * Gets a pool setting, falling back to the setting shared by all pools.
+     *
+     * @param name         the name
+     * @param key          the key
+     * @param defaultValue the default value
+     * @return the value
+     */
+    private static String property(String name, String key, String defaultValue) {
+        return PROPERTIES.getProperty("pool." + name + "." + key, PROPERTIES.getProperty("pool." + key, defaultValue));
+    }
 }
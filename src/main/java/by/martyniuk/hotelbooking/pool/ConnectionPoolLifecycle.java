@@ -0,0 +1,33 @@
+package by.martyniuk.hotelbooking.pool;
+
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * The Class ConnectionPoolLifecycle.
+ * <p>
+ * Creates the connection pools while the application starts, so the connections are warmed up
+ * before the first request, and closes them when it stops.
+ */
+@Component
+public class ConnectionPoolLifecycle {
+
+    /**
+     * Starts opening the connections without waiting for them.
+     */
+    @PostConstruct
+    public void start() {
+        ConnectionPool.getInstance();
+        ConnectionPool.getInstance(ConnectionPool.REPLICA);
+    }
+
+    /**
+     * Closes the connections.
+     */
+    @PreDestroy
+    public void stop() {
+        ConnectionPool.destroyAll();
+    }
+}
@@ -0,0 +1,30 @@
+package by.martyniuk.hotelbooking.pool;
+
+/**
+ * The Enum OperationClass.
+ * <p>
+ * The kinds of traffic that get separate connection quotas, so slow admin pages and exports
+ * cannot take the connections bookings need.
+ */
+public enum OperationClass {
+
+    /**
+     * The booking, which takes the user's money and an apartment.
+     */
+    BOOKING,
+
+    /**
+     * The browsing of classes, profiles and personal reservations.
+     */
+    BROWSING,
+
+    /**
+     * The admin pages and the admin API.
+     */
+    ADMIN,
+
+    /**
+     * The document exports.
+     */
+    REPORTING
+}
@@ -0,0 +1,47 @@
+package by.martyniuk.hotelbooking.pool;
+
+/**
+ * The Class OperationContext.
+ * <p>
+ * Holds the operation class of the request served by the current thread. Threads that did not set one,
+ * such as background pollers, count as browsing.
+ */
+public final class OperationContext {
+
+    /**
+     * The Constant CURRENT.
+     */
+    private static final ThreadLocal<OperationClass> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Instantiates a new operation context.
+     */
+    private OperationContext() {
+    }
+
+    /**
+     * Gets the operation class of the current thread.
+     *
+     * @return the operation class
+     */
+    public static OperationClass current() {
+        OperationClass operationClass = CURRENT.get();
+        return operationClass != null ? operationClass : OperationClass.BROWSING;
+    }
+
+    /**
+     * Sets the operation class of the current thread.
+     *
+     * @param operationClass the operation class
+     */
+    public static void set(OperationClass operationClass) {
+        CURRENT.set(operationClass);
+    }
+
+    /**
+     * Clears the operation class of the current thread.
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -15,13 +15,89 @@ public class ProxyConnection implements Connection {
      */
     private Connection connection;
 
+    /**
+     * The pool the connection is returned to.
+     */
+    private ConnectionPool pool;
+
+    /**
+     * The bulkhead permit held while the connection is busy.
+     */
+    private Bulkhead.Permit permit;
+
+    /**
+     * The time the connection was borrowed in nanoseconds.
+     */
+    private long borrowedAt;
+
+    /**
+     * The time the connection became free in nanoseconds.
+     */
+    private long freeSince = System.nanoTime();
+
     /**
      * Instantiates a new proxy connection.
      *
      * @param connection the connection
+     * @param pool       the pool
      */
-    ProxyConnection(Connection connection) {
+    ProxyConnection(Connection connection, ConnectionPool pool) {
         this.connection = connection;
+        this.pool = pool;
+    }
+
+    /**
+     * Gets the permit.
+     *
+     * @return the permit
+     */
+    Bulkhead.Permit getPermit() {
+        return permit;
+    }
+
+    /**
+     * Sets the permit.
+     *
+     * @param permit the permit
+     */
+    void setPermit(Bulkhead.Permit permit) {
+        this.permit = permit;
+    }
+
+    /**
+     * Gets the time the connection was borrowed in nanoseconds.
+     *
+     * @return the borrowed at
+     */
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    /**
+     * Sets the time the connection was borrowed in nanoseconds.
+     *
+     * @param borrowedAt the borrowed at
+     */
+    void setBorrowedAt(long borrowedAt) {
+        this.borrowedAt = borrowedAt;
+    }
+
+    /**
+     * Gets the time the connection became free in nanoseconds.
+     *
+     * @return the free since
+     */
+    long getFreeSince() {
+        return freeSince;
+    }
+
+    /**
+     * Sets the time the connection became free in nanoseconds.
+     *
+     * @param freeSince the free since
+     */
+    void setFreeSince(long freeSince) {
+        this.freeSince = freeSince;
     }
 
     /**
@@ -37,22 +113,40 @@ public class ProxyConnection implements Connection {
 
     @Override
     public void close() {
-        ConnectionPool.getInstance().returnConnection(this);
+        pool.returnConnection(this);
+    }
+
+    /**
+     * Sets the query timeout of the operation class on a new statement, which bounds the statements of a request
+     * whose client is gone. The statement is handed out wrapped, timing its executions, if the pool keeps
+     * statement stats.
+     *
+     * @param statement the statement
+     * @param type      the statement interface
+     * @param sql       the SQL of a prepared statement, or null for a plain one
+     * @param <T>       the statement type
+     * @return the statement
+     * @throws SQLException the SQL exception
+     */
+    private <T extends Statement> T track(T statement, Class<T> type, String sql) throws SQLException {
+        statement.setQueryTimeout(pool.getQueryTimeoutSeconds(OperationContext.current()));
+        StatementStats stats = pool.getStatementStats();
+        return stats != null ? stats.wrap(statement, type, sql) : statement;
     }
 
     @Override
     public Statement createStatement() throws SQLException {
-        return connection.createStatement();
+        return track(connection.createStatement(), Statement.class, null);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return connection.prepareStatement(sql);
+        return track(connection.prepareStatement(sql), PreparedStatement.class, sql);
     }
 
     @Override
     public CallableStatement prepareCall(String sql) throws SQLException {
-        return connection.prepareCall(sql);
+        return track(connection.prepareCall(sql), CallableStatement.class, sql);
     }
 
     @Override
@@ -133,17 +227,17 @@ public class ProxyConnection implements Connection {
 
     @Override
     public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
-        return connection.createStatement(resultSetType, resultSetConcurrency);
+        return track(connection.createStatement(resultSetType, resultSetConcurrency), Statement.class, null);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-        return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        return track(connection.prepareStatement(sql, resultSetType, resultSetConcurrency), PreparedStatement.class, sql);
     }
 
     @Override
     public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-        return connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+        return track(connection.prepareCall(sql, resultSetType, resultSetConcurrency), CallableStatement.class, sql);
     }
 
     @Override
@@ -188,32 +282,32 @@ public class ProxyConnection implements Connection {
 
     @Override
     public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+        return track(connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability), Statement.class, null);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        return track(connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), PreparedStatement.class, sql);
     }
 
     @Override
     public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        return track(connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability), CallableStatement.class, sql);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
-        return connection.prepareStatement(sql, autoGeneratedKeys);
+        return track(connection.prepareStatement(sql, autoGeneratedKeys), PreparedStatement.class, sql);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
-        return connection.prepareStatement(sql, columnIndexes);
+        return track(connection.prepareStatement(sql, columnIndexes), PreparedStatement.class, sql);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
-        return connection.prepareStatement(sql, columnNames);
+        return track(connection.prepareStatement(sql, columnNames), PreparedStatement.class, sql);
     }
 
     @Override
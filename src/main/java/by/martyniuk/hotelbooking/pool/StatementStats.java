@@ -0,0 +1,207 @@
+package by.martyniuk.hotelbooking.pool;
+
+import by.martyniuk.hotelbooking.metrics.LatencyHistogram;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * The Class StatementStats.
+ * <p>
+ * Aggregates the executions of the statements of a pool per SQL template: their latency, the rows they read
+ * and their failures. The statements handed out by the pool are wrapped in dynamic proxies that time them.
+ * An execution slower than the threshold goes to the slow query log with the types of its parameters only,
+ * and the literals of a plain statement are replaced by placeholders, so no user data reaches the log.
+ * The SQL of a prepared statement is its template as it is.
+ */
+public class StatementStats {
+
+    /**
+     * The Constant SLOW_QUERY_LOGGER.
+     */
+    private static final Logger SLOW_QUERY_LOGGER = LogManager.getLogger("SlowQueryLog");
+
+    /**
+     * The Constant OTHER, the template the executions are counted under once the map is full.
+     */
+    static final String OTHER = "other";
+
+    /**
+     * The Constant STRING_LITERAL.
+     */
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+
+    /**
+     * The Constant NUMBER_LITERAL.
+     */
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+
+    /**
+     * The Constant WHITESPACE.
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * The max amount of templates.
+     */
+    private final int maxTemplates;
+
+    /**
+     * The slow query threshold in nanoseconds, or 0 for no slow query log.
+     */
+    private final long slowQueryNanos;
+
+    /**
+     * The stats by SQL template.
+     */
+    private final ConcurrentMap<String, TemplateStats> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates new statement stats.
+     *
+     * @param maxTemplates    the max amount of templates
+     * @param slowQueryMillis the slow query threshold in milliseconds, or 0 for no slow query log
+     */
+    StatementStats(int maxTemplates, long slowQueryMillis) {
+        this.maxTemplates = Math.max(1, maxTemplates);
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowQueryMillis));
+    }
+
+    /**
+     * Wraps a statement into a proxy timing its executions.
+     *
+     * @param statement the statement
+     * @param type      the statement interface
+     * @param sql       the SQL of a prepared statement, or null for a plain one
+     * @param <T>       the statement type
+     * @return the proxy
+     */
+    <T extends Statement> T wrap(T statement, Class<T> type, String sql) {
+        return type.cast(Proxy.newProxyInstance(StatementStats.class.getClassLoader(), new Class<?>[]{type},
+                new StatementTimer(statement, sql, this)));
+    }
+
+    /**
+     * Records an execution.
+     *
+     * @param template the SQL template
+     * @param nanos    the latency in nanoseconds
+     * @param failed   true, if the execution failed
+     * @param params   the redacted parameters
+     */
+    void record(String template, long nanos, boolean failed, Map<Integer, String> params) {
+        TemplateStats stats = stats(template);
+        stats.latency.record(nanos);
+        if (failed) {
+            stats.errorCount.increment();
+        }
+        if (slowQueryNanos > 0 && nanos >= slowQueryNanos) {
+            SLOW_QUERY_LOGGER.log(Level.WARN, TimeUnit.NANOSECONDS.toMillis(nanos) + " ms" + (failed ? " (failed)" : "")
+                    + ": " + template + (params.isEmpty() ? "" : " " + params));
+        }
+    }
+
+    /**
+     * Counts the rows read through a result set of a query.
+     *
+     * @param template the SQL template
+     * @param rows     the rows read
+     */
+    void rowsRead(String template, long rows) {
+        stats(template).rowCount.add(rows);
+    }
+
+    /**
+     * Gets the stats of every template, sorted by template.
+     *
+     * @return the stats
+     */
+    public Map<String, TemplateStats> getTemplates() {
+        return Collections.unmodifiableMap(new TreeMap<>(templates));
+    }
+
+    /**
+     * Turns SQL into its template, replacing the literals with placeholders and collapsing the whitespace.
+     *
+     * @param sql the SQL
+     * @return the template
+     */
+    static String template(String sql) {
+        String template = STRING_LITERAL.matcher(sql).replaceAll("?");
+        template = NUMBER_LITERAL.matcher(template).replaceAll("?");
+        return WHITESPACE.matcher(template).replaceAll(" ").trim();
+    }
+
+    /**
+     * Finds the stats of a template, counting it as other once the map is full.
+     *
+     * @param template the SQL template
+     * @return the stats
+     */
+    private TemplateStats stats(String template) {
+        TemplateStats stats = templates.get(template);
+        if (stats != null) {
+            return stats;
+        }
+        return templates.computeIfAbsent(templates.size() < maxTemplates ? template : OTHER, key -> new TemplateStats());
+    }
+
+    /**
+     * The Class TemplateStats.
+     */
+    public static class TemplateStats {
+
+        /**
+         * The latency.
+         */
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        /**
+         * The rows read.
+         */
+        private final LongAdder rowCount = new LongAdder();
+
+        /**
+         * The failed executions.
+         */
+        private final LongAdder errorCount = new LongAdder();
+
+        /**
+         * Gets the latency.
+         *
+         * @return the latency
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Gets the rows read.
+         *
+         * @return the row count
+         */
+        public long getRowCount() {
+            return rowCount.sum();
+        }
+
+        /**
+         * Gets the failed executions.
+         *
+         * @return the error count
+         */
+        public long getErrorCount() {
+            return errorCount.sum();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package by.martyniuk.hotelbooking.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The Class StatementTimer.
+ * <p>
+ * Times the executions of a statement into the statement stats and counts the rows read through its result
+ * sets. The rows are counted by the result set and added to the stats once, when it is read to the end or closed,
+ * so reading a row costs no shared counter. The bound parameters are kept as their types only, for the slow query log.
+ */
+class StatementTimer implements InvocationHandler {
+
+    /**
+     * The statement.
+     */
+    private final Statement statement;
+
+    /**
+     * The SQL template of a prepared statement, or null for a plain one.
+     */
+    private final String sql;
+
+    /**
+     * The stats.
+     */
+    private final StatementStats stats;
+
+    /**
+     * The redacted parameters by index.
+     */
+    private final Map<Integer, String> params = new TreeMap<>();
+
+    /**
+     * The SQL template of the last execution, which its result set reads for.
+     */
+    private String lastTemplate;
+
+    /**
+     * The row counter of the open result set, or null.
+     */
+    private RowCounter rowCounter;
+
+    /**
+     * Instantiates a new statement timer.
+     *
+     * @param statement the statement
+     * @param sql       the SQL template of a prepared statement, or null for a plain one
+     * @param stats     the stats
+     */
+    StatementTimer(Statement statement, String sql, StatementStats stats) {
+        this.statement = statement;
+        this.sql = sql;
+        this.stats = stats;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("execute")) {
+            return execute(method, args);
+        }
+        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            params.put((Integer) args[0], "setNull".equals(name) || args[1] == null
+                    ? "<null>" : "<" + args[1].getClass().getSimpleName() + ">");
+        } else if ("clearParameters".equals(name)) {
+            params.clear();
+        } else if ("close".equals(name)) {
+            flushRows();
+        }
+        Object result = call(method, args);
+        if ("getResultSet".equals(name) && result != null) {
+            return count((ResultSet) result, lastTemplate);
+        }
+        return result;
+    }
+
+    /**
+     * Runs and times an execution.
+     *
+     * @param method the method
+     * @param args   the arguments
+     * @return the result, its result set counting the rows read
+     * @throws Throwable the exception of the execution
+     */
+    private Object execute(Method method, Object[] args) throws Throwable {
+        String template = sql != null ? sql
+                : args != null && args.length > 0 && args[0] instanceof String ? StatementStats.template((String) args[0])
+                : "batch";
+        lastTemplate = template;
+        flushRows();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = call(method, args);
+            failed = false;
+            return result instanceof ResultSet ? count((ResultSet) result, template) : result;
+        } finally {
+            stats.record(template, System.nanoTime() - start, failed, params);
+        }
+    }
+
+    /**
+     * Wraps a result set into a proxy counting the rows read.
+     *
+     * @param resultSet the result set
+     * @param template  the SQL template
+     * @return the proxy
+     */
+    private ResultSet count(ResultSet resultSet, String template) {
+        flushRows();
+        rowCounter = new RowCounter(resultSet, template);
+        return (ResultSet) Proxy.newProxyInstance(StatementTimer.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                rowCounter);
+    }
+
+    /**
+     * Adds the rows read through the open result set to the stats, since closing or executing the statement
+     * closes it.
+     */
+    private void flushRows() {
+        if (rowCounter != null) {
+            rowCounter.flush();
+            rowCounter = null;
+        }
+    }
+
+    /**
+     * Calls the method on the statement.
+     *
+     * @param method the method
+     * @param args   the arguments
+     * @return the result
+     * @throws Throwable the exception of the method
+     */
+    private Object call(Method method, Object[] args) throws Throwable {
+        return call(statement, method, args);
+    }
+
+    /**
+     * Calls the method on the target, throwing what the method threw.
+     *
+     * @param target the target
+     * @param method the method
+     * @param args   the arguments
+     * @return the result
+     * @throws Throwable the exception of the method
+     */
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The Class RowCounter, the handler of a result set counting its rows.
+     */
+    private final class RowCounter implements InvocationHandler {
+
+        /**
+         * The result set.
+         */
+        private final ResultSet resultSet;
+
+        /**
+         * The SQL template.
+         */
+        private final String template;
+
+        /**
+         * The rows read and not yet added to the stats.
+         */
+        private long rows;
+
+        /**
+         * Instantiates a new row counter.
+         *
+         * @param resultSet the result set
+         * @param template  the SQL template
+         */
+        private RowCounter(ResultSet resultSet, String template) {
+            this.resultSet = resultSet;
+            this.template = template;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(resultSet, method, args);
+            String name = method.getName();
+            if ("next".equals(name)) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    flush();
+                }
+            } else if ("close".equals(name)) {
+                flush();
+            }
+            return result;
+        }
+
+        /**
+         * Adds the rows read to the stats.
+         */
+        private void flush() {
+            if (rows > 0) {
+                stats.rowsRead(template, rows);
+                rows = 0;
+            }
+        }
+    }
+}
@@ -30,7 +30,7 @@ public interface ApartmentClassService {
 
     boolean updateApartmentClass(ApartmentClass apartmentClass) throws ServiceException;
 
-    boolean addApartmentClass(ApartmentClass apartmentClass) throws ServiceException;
+    Optional<ApartmentClass> addApartmentClass(ApartmentClass apartmentClass) throws ServiceException;
 
     boolean deleteApartmentClass(long id) throws ServiceException;
 }
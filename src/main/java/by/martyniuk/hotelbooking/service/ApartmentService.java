@@ -17,10 +17,19 @@ public interface ApartmentService {
      * Insert apartment.
      *
      * @param apartment the apartment
-     * @return true, if successful
+     * @return the inserted apartment with its generated id, or empty if nothing was inserted
+     * @throws ServiceException the service exception
+     */
+    Optional<Apartment> insertApartment(Apartment apartment) throws ServiceException;
+
+    /**
+     * Insert apartments in one batch.
+     *
+     * @param apartments the apartments
+     * @return the inserted apartments with their generated ids
      * @throws ServiceException the service exception
      */
-    boolean insertApartment(Apartment apartment) throws ServiceException;
+    List<Apartment> insertApartments(List<Apartment> apartments) throws ServiceException;
 
     /**
      * Update apartment.
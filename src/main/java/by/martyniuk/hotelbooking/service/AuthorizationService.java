@@ -24,8 +24,8 @@ public interface AuthorizationService {
      * Register.
      *
      * @param user the user
-     * @return true, if successful
+     * @return the registered user with its generated id, or empty if the email is taken
      * @throws ServiceException the service exception
      */
-    boolean register(User user) throws ServiceException;
+    Optional<User> register(User user) throws ServiceException;
 }
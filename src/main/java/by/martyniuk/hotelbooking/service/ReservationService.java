@@ -1,5 +1,7 @@
 package by.martyniuk.hotelbooking.service;
 
+import by.martyniuk.hotelbooking.cache.PendingReservations;
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
 import by.martyniuk.hotelbooking.entity.Reservation;
 import by.martyniuk.hotelbooking.entity.Status;
 import by.martyniuk.hotelbooking.entity.User;
@@ -30,10 +32,10 @@ public interface ReservationService {
      * @param checkInDate      the check in date
      * @param checkOutDate     the check out date
      * @param personsAmount    the persons amount
-     * @return true, if successful
+     * @return the booked reservation with its generated id, or empty if no apartment could be booked
      * @throws ServiceException the service exception
      */
-    boolean bookApartment(User user, long apartmentClassId, LocalDate checkInDate, LocalDate checkOutDate, int personsAmount) throws ServiceException;
+    Optional<Reservation> bookApartment(User user, long apartmentClassId, LocalDate checkInDate, LocalDate checkOutDate, int personsAmount) throws ServiceException;
 
     /**
      * Read all reservation by user id.
@@ -53,6 +55,32 @@ public interface ReservationService {
      */
     List<Reservation> readAllReservationByStatus(Status status) throws ServiceException;
 
+    /**
+     * Search reservations matching the query. Identical queries are served from a cache.
+     *
+     * @param query the query
+     * @return the list, which must not be changed
+     * @throws ServiceException the service exception
+     */
+    List<Reservation> searchReservations(ReservationQuery query) throws ServiceException;
+
+    /**
+     * Import reservations in one batch, without checking availability or charging the users.
+     *
+     * @param reservations the reservations
+     * @return the imported reservations with their generated ids
+     * @throws ServiceException the service exception
+     */
+    List<Reservation> importReservations(List<Reservation> reservations) throws ServiceException;
+
+    /**
+     * Read the reservations waiting for approve with their free apartments.
+     *
+     * @return the pending reservations
+     * @throws ServiceException the service exception
+     */
+    PendingReservations readPendingReservations() throws ServiceException;
+
     /**
      * Update reservation status.
      *
@@ -1,5 +1,6 @@
 package by.martyniuk.hotelbooking.service;
 
+import by.martyniuk.hotelbooking.entity.LedgerEntry;
 import by.martyniuk.hotelbooking.entity.User;
 import by.martyniuk.hotelbooking.exception.ServiceException;
 
@@ -68,9 +69,19 @@ public interface UserService {
      */
     boolean depositMoney(long userId, BigDecimal money) throws ServiceException;
 
+    /**
+     * Find the latest balance changes of the user, newest first.
+     *
+     * @param userId the user id
+     * @param limit  the max amount of changes
+     * @return the list
+     * @throws ServiceException the service exception
+     */
+    List<LedgerEntry> findBalanceHistory(long userId, int limit) throws ServiceException;
+
     boolean updateUser(User user) throws ServiceException;
 
-    boolean addUser(User user) throws ServiceException;
+    Optional<User> addUser(User user) throws ServiceException;
 
     boolean deleteUser(long id) throws ServiceException;
 }
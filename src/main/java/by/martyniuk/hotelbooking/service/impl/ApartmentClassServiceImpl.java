@@ -1,37 +1,121 @@
 package by.martyniuk.hotelbooking.service.impl;
 
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
+import by.martyniuk.hotelbooking.cache.ChangeListener;
+import by.martyniuk.hotelbooking.cache.ExpiringCache;
 import by.martyniuk.hotelbooking.dao.ApartmentClassDao;
 import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.exception.ServiceException;
 import by.martyniuk.hotelbooking.service.ApartmentClassService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Class ApartmentClassServiceImpl.
+ * <p>
+ * Apartment classes are read through a cache that is dropped on every write.
+ * Callers get copies, so changing a returned class never changes the cached one.
  */
 @Service
-public class ApartmentClassServiceImpl implements ApartmentClassService {
+public class ApartmentClassServiceImpl implements ApartmentClassService, ChangeListener {
+
+    /**
+     * The key of the cached list of all apartment classes.
+     */
+    private static final String ALL = "ALL";
 
     /**
      * The apartment class dao.
      */
     private ApartmentClassDao apartmentClassDao;
 
+    /**
+     * The apartment inventory, which holds the classes of the apartments.
+     */
+    private ApartmentInventory apartmentInventory;
+
+    /**
+     * The apartment classes by id.
+     */
+    private ExpiringCache<Long, ApartmentClass> apartmentClassCache = new ExpiringCache<>(10, TimeUnit.MINUTES, 256);
+
+    /**
+     * The list of all apartment classes.
+     */
+    private ExpiringCache<String, List<ApartmentClass>> apartmentClassListCache = new ExpiringCache<>(10, TimeUnit.MINUTES, 1);
+
 
     @Autowired
     public void setApartmentClassDao(ApartmentClassDao apartmentClassDao) {
         this.apartmentClassDao = apartmentClassDao;
+        invalidateCache();
+    }
+
+    @Autowired
+    public void setApartmentInventory(ApartmentInventory apartmentInventory) {
+        this.apartmentInventory = apartmentInventory;
+    }
+
+    /**
+     * Sets the cache bounds.
+     *
+     * @param ttlSeconds the time to live in seconds
+     * @param maxSize    the max amount of cached classes
+     */
+    @Autowired
+    public void setCacheBounds(@Value("${cache.apartment.class.ttl.seconds:600}") long ttlSeconds,
+                               @Value("${cache.apartment.class.max.size:256}") int maxSize) {
+        apartmentClassCache = new ExpiringCache<>(ttlSeconds, TimeUnit.SECONDS, maxSize);
+        apartmentClassListCache = new ExpiringCache<>(ttlSeconds, TimeUnit.SECONDS, 1);
+    }
+
+    /**
+     * Gets the cache of apartment classes by id.
+     *
+     * @return the cache
+     */
+    public ExpiringCache<Long, ApartmentClass> getApartmentClassCache() {
+        return apartmentClassCache;
+    }
+
+    /**
+     * Gets the cache of the apartment class list.
+     *
+     * @return the cache
+     */
+    public ExpiringCache<String, List<ApartmentClass>> getApartmentClassListCache() {
+        return apartmentClassListCache;
     }
 
     @Override
     public Optional<ApartmentClass> findApartmentClassById(long id) throws ServiceException {
+        ApartmentClass cached = apartmentClassCache.get(id);
+        if (cached != null) {
+            return Optional.of(cached.clone());
+        }
         try {
-            return apartmentClassDao.findApartmentClassById(id);
+            long version = apartmentClassCache.version();
+            Optional<ApartmentClass> apartmentClass = apartmentClassDao.findApartmentClassById(id);
+            apartmentClass.ifPresent(loaded -> apartmentClassCache.put(id, loaded.clone(), version));
+            return apartmentClass;
+        } catch (CircuitOpenException e) {
+            ApartmentClass stale = apartmentClassCache.getStale(id);
+            if (stale == null) {
+                throw new ServiceException(e);
+            }
+            return Optional.of(stale.clone());
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
@@ -39,8 +123,21 @@ public class ApartmentClassServiceImpl implements ApartmentClassService {
 
     @Override
     public List<ApartmentClass> findAllApartmentClasses() throws ServiceException {
+        List<ApartmentClass> cached = apartmentClassListCache.get(ALL);
+        if (cached != null) {
+            return copy(cached);
+        }
         try {
-            return apartmentClassDao.findAllApartmentClasses();
+            long version = apartmentClassListCache.version();
+            List<ApartmentClass> apartmentClasses = apartmentClassDao.findAllApartmentClasses();
+            apartmentClassListCache.put(ALL, Collections.unmodifiableList(copy(apartmentClasses)), version);
+            return apartmentClasses;
+        } catch (CircuitOpenException e) {
+            List<ApartmentClass> stale = apartmentClassListCache.getStale(ALL);
+            if (stale == null) {
+                throw new ServiceException(e);
+            }
+            return copy(stale);
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
@@ -53,15 +150,21 @@ public class ApartmentClassServiceImpl implements ApartmentClassService {
             return apartmentClassDao.updateApartmentClass(apartmentClass);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            invalidateCache();
+            apartmentInventory.refresh();
         }
     }
 
     @Override
-    public boolean addApartmentClass(ApartmentClass apartmentClass) throws ServiceException {
+    public Optional<ApartmentClass> addApartmentClass(ApartmentClass apartmentClass) throws ServiceException {
         try {
             return apartmentClassDao.addApartmentClass(apartmentClass);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            invalidateCache();
+            apartmentInventory.refresh();
         }
     }
 
@@ -71,6 +174,38 @@ public class ApartmentClassServiceImpl implements ApartmentClassService {
             return apartmentClassDao.deleteApartmentClass(id);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            invalidateCache();
+            apartmentInventory.refresh();
+        }
+    }
+
+    @Override
+    public void onChanges(Collection<EntityChange> changes) {
+        if (changes.stream().anyMatch(change -> change.getEntityType() == EntityType.APARTMENT_CLASS)) {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Drops the cached apartment classes.
+     */
+    private void invalidateCache() {
+        apartmentClassCache.invalidateAll();
+        apartmentClassListCache.invalidateAll();
+    }
+
+    /**
+     * Copies the apartment classes.
+     *
+     * @param apartmentClasses the apartment classes
+     * @return the copies
+     */
+    private List<ApartmentClass> copy(List<ApartmentClass> apartmentClasses) {
+        List<ApartmentClass> copies = new ArrayList<>(apartmentClasses.size());
+        for (ApartmentClass apartmentClass : apartmentClasses) {
+            copies.add(apartmentClass.clone());
         }
+        return copies;
     }
 }
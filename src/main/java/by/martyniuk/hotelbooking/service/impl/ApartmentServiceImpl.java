@@ -1,5 +1,6 @@
 package by.martyniuk.hotelbooking.service.impl;
 
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
 import by.martyniuk.hotelbooking.dao.ApartmentDao;
 import by.martyniuk.hotelbooking.dao.ReservationDao;
 import by.martyniuk.hotelbooking.entity.Apartment;
@@ -39,6 +40,11 @@ public class ApartmentServiceImpl implements ApartmentService {
      */
     private ReservationDao reservationDao;
 
+    /**
+     * The apartment inventory.
+     */
+    private ApartmentInventory apartmentInventory;
+
     @Autowired
     public void setApartmentDao(ApartmentDao apartmentDao) {
         this.apartmentDao = apartmentDao;
@@ -49,12 +55,30 @@ public class ApartmentServiceImpl implements ApartmentService {
         this.reservationDao = reservationDao;
     }
 
+    @Autowired
+    public void setApartmentInventory(ApartmentInventory apartmentInventory) {
+        this.apartmentInventory = apartmentInventory;
+    }
+
     @Override
-    public boolean insertApartment(Apartment apartment) throws ServiceException {
+    public Optional<Apartment> insertApartment(Apartment apartment) throws ServiceException {
         try {
             return apartmentDao.addApartment(apartment);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            apartmentInventory.refresh();
+        }
+    }
+
+    @Override
+    public List<Apartment> insertApartments(List<Apartment> apartments) throws ServiceException {
+        try {
+            return apartmentDao.addApartments(apartments);
+        } catch (DaoException e) {
+            throw new ServiceException(e);
+        } finally {
+            apartmentInventory.refresh();
         }
     }
 
@@ -64,6 +88,8 @@ public class ApartmentServiceImpl implements ApartmentService {
             return apartmentDao.updateApartment(apartment);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            apartmentInventory.refresh();
         }
     }
 
@@ -73,13 +99,15 @@ public class ApartmentServiceImpl implements ApartmentService {
             return apartmentDao.deleteApartment(apartmentId);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            apartmentInventory.refresh();
         }
     }
 
     @Override
     public Optional<Apartment> getApartment(long id) throws ServiceException {
         try {
-            return apartmentDao.findApartmentById(id);
+            return apartmentInventory.findApartmentById(id);
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
@@ -90,7 +118,7 @@ public class ApartmentServiceImpl implements ApartmentService {
         Map<Reservation, List<Apartment>> freeApartments = new HashMap<>();
         try {
             for (Reservation reservation : reservations) {
-                List<Apartment> apartments = apartmentDao.findApartmentListByClassId(reservation.getApartment().getApartmentClass().getId());
+                List<Apartment> apartments = apartmentInventory.findApartmentsByClassId(reservation.getApartment().getApartmentClass().getId());
                 freeApartments.put(reservation, apartments.stream()
                         .filter(apartment -> {
                             try {
@@ -111,7 +139,7 @@ public class ApartmentServiceImpl implements ApartmentService {
     @Override
     public List<Apartment> findAllApartments() throws ServiceException {
         try {
-            return apartmentDao.findAllApartments();
+            return apartmentInventory.findAllApartments();
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
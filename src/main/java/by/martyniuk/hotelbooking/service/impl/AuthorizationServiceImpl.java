@@ -1,13 +1,16 @@
 package by.martyniuk.hotelbooking.service.impl;
 
+import by.martyniuk.hotelbooking.cache.UserCache;
 import by.martyniuk.hotelbooking.dao.UserDao;
 import by.martyniuk.hotelbooking.entity.Role;
 import by.martyniuk.hotelbooking.entity.User;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.exception.ServiceException;
 import by.martyniuk.hotelbooking.service.AuthorizationService;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -19,21 +22,47 @@ import java.util.Optional;
 @Service
 public class AuthorizationServiceImpl implements AuthorizationService {
 
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(AuthorizationServiceImpl.class);
+
     /**
      * The user dao.
      */
     private UserDao userDao;
 
+    /**
+     * The user cache.
+     */
+    private UserCache userCache;
+
+    /**
+     * The password hasher.
+     */
+    private PasswordHasher passwordHasher;
+
     @Autowired
     public void setUserDao(UserDao userDao) {
         this.userDao = userDao;
     }
 
+    @Autowired
+    public void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    @Autowired
+    public void setPasswordHasher(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
     @Override
     public Optional<User> login(String mail, String password) throws ServiceException {
         try {
-            Optional<User> user = userDao.findUserByMail(mail);
-            if (user.isPresent() && BCrypt.checkpw(password, user.get().getPassword())) {
+            Optional<User> user = userCache.findUserByMail(mail);
+            if (user.isPresent() && passwordHasher.verify(password, user.get().getPassword())) {
+                rehash(user.get(), password);
                 return user;
             } else {
                 return Optional.empty();
@@ -44,19 +73,38 @@ public class AuthorizationServiceImpl implements AuthorizationService {
     }
 
     @Override
-    public boolean register(User user) throws ServiceException {
+    public Optional<User> register(User user) throws ServiceException {
         try {
-            Optional<User> optionalUser = userDao.findUserByMail(user.getEmail());
+            Optional<User> optionalUser = userCache.findUserByMail(user.getEmail());
             if (optionalUser.isPresent()) {
-                return false;
+                return Optional.empty();
             }
 
             return userDao.addUser(new User(0, user.getFirstName(), user.getMiddleName(), user.getLastName(),
                     new BigDecimal("0"), user.getEmail(), user.getPhoneNumber(),
-                    BCrypt.hashpw(user.getPassword(), BCrypt.gensalt()), Role.USER, true));
+                    passwordHasher.hash(user.getPassword()), Role.USER, true));
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
     }
 
+    /**
+     * Hashes the password again if its hash was made with another cost than the configured one.
+     * The login goes on if it fails, since the old hash still matches.
+     *
+     * @param user     the user
+     * @param password the password
+     */
+    private void rehash(User user, String password) {
+        if (!passwordHasher.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            userDao.updateUserPassword(user.getId(), passwordHasher.hash(password));
+        } catch (DaoException | ServiceException e) {
+            LOGGER.log(Level.WARN, "Password of user " + user.getId() + " is not rehashed", e);
+        } finally {
+            userCache.invalidate(user.getId());
+        }
+    }
 }
@@ -0,0 +1,390 @@
+package by.martyniuk.hotelbooking.service.impl;
+
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
+import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Status;
+import by.martyniuk.hotelbooking.entity.User;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import by.martyniuk.hotelbooking.pool.OperationClass;
+import by.martyniuk.hotelbooking.pool.OperationContext;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Class BookingPipeline.
+ * <p>
+ * Books apartments in micro-batches during booking peaks. Requests wait in a bounded queue of their apartment
+ * class, and a single writer per class takes all of them queued at once. The writer reads the stays of the class
+ * once, picks the apartments in memory in arrival order, then books the batch in one transaction, so a whole
+ * batch costs one commit. Since one writer books a class on this node, the requests of a class never race each
+ * other for an apartment. Other nodes and admin reassignments may still take one after the stays were read, so
+ * the transaction locks the picked apartments and checks them again, and a request whose apartment got taken
+ * completes empty like an unpaid one.
+ */
+@Component
+public class BookingPipeline {
+
+    /**
+     * The Constant LOGGER.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(BookingPipeline.class);
+
+    /**
+     * The reservation dao.
+     */
+    private ReservationDao reservationDao;
+
+    /**
+     * The apartment inventory.
+     */
+    private ApartmentInventory apartmentInventory;
+
+    /**
+     * The enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * The capacity of the queue of every apartment class.
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * The max amount of bookings per transaction.
+     */
+    private int maxBatchSize = 100;
+
+    /**
+     * The time a caller waits for its booking in milliseconds.
+     */
+    private long timeoutMillis = 10_000;
+
+    /**
+     * The writers by apartment class id.
+     */
+    private final ConcurrentMap<Long, Writer> writers = new ConcurrentHashMap<>();
+
+    /**
+     * The stopped.
+     */
+    private volatile boolean stopped;
+
+    @Autowired
+    public void setReservationDao(ReservationDao reservationDao) {
+        this.reservationDao = reservationDao;
+    }
+
+    @Autowired
+    public void setApartmentInventory(ApartmentInventory apartmentInventory) {
+        this.apartmentInventory = apartmentInventory;
+    }
+
+    /**
+     * Sets the pipeline settings.
+     *
+     * @param enabled       the enabled
+     * @param queueCapacity the capacity of the queue of every apartment class
+     * @param maxBatchSize  the max amount of bookings per transaction
+     * @param timeoutMillis the time a caller waits for its booking in milliseconds
+     */
+    @Autowired
+    public void setPipelineSettings(@Value("${booking.pipeline.enabled:false}") boolean enabled,
+                                    @Value("${booking.pipeline.queue.capacity:1000}") int queueCapacity,
+                                    @Value("${booking.pipeline.batch.size:100}") int maxBatchSize,
+                                    @Value("${booking.pipeline.timeout.millis:10000}") long timeoutMillis) {
+        this.enabled = enabled;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Checks if bookings go through the pipeline.
+     *
+     * @return true, if enabled
+     */
+    public boolean isEnabled() {
+        return enabled && !stopped;
+    }
+
+    /**
+     * Gets the time a caller waits for its booking in milliseconds.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Queues the booking of any free apartment of the class. Every class gets a writer thread of its own, so
+     * the callers submit only classes known to have apartments.
+     *
+     * @param user             the user
+     * @param apartmentClassId the apartment class id
+     * @param checkInDate      the check in date
+     * @param checkOutDate     the check out date
+     * @param personsAmount    the persons amount
+     * @return the future of the reservation, empty if no apartment is free or the user cannot pay. It fails with
+     * a {@link RejectedExecutionException} if the queue of the class is full. Cancelling it fails once the writer
+     * has claimed the request for a batch, since the transaction decides the booking from then on.
+     */
+    public CompletableFuture<Optional<Reservation>> submit(User user, long apartmentClassId, LocalDate checkInDate,
+                                                           LocalDate checkOutDate, int personsAmount) {
+        Request request = new Request(user, checkInDate, checkOutDate, personsAmount);
+        if (stopped || !writers.computeIfAbsent(apartmentClassId, Writer::new).queue.offer(request)) {
+            request.result.completeExceptionally(new RejectedExecutionException(
+                    "Booking queue of apartment class " + apartmentClassId + " is full"));
+        }
+        return request.result;
+    }
+
+    /**
+     * Stops the writers and fails the bookings still queued.
+     */
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        for (Writer writer : writers.values()) {
+            writer.thread.interrupt();
+            List<Request> pending = new ArrayList<>();
+            writer.queue.drainTo(pending);
+            pending.forEach(request -> request.result.completeExceptionally(
+                    new RejectedExecutionException("Booking pipeline stopped")));
+        }
+    }
+
+    /**
+     * Books the batch and completes its requests. Every request is claimed before it is placed, so requests whose
+     * caller gave up are skipped and the callers of the others can no longer cancel them.
+     *
+     * @param apartmentClassId the apartment class id
+     * @param batch            the batch
+     */
+    void process(long apartmentClassId, List<Request> batch) {
+        List<Request> placed = new ArrayList<>(batch.size());
+        try {
+            List<Apartment> apartments = apartmentInventory.findApartmentsByClassId(apartmentClassId);
+            LocalDate from = batch.get(0).checkInDate;
+            LocalDate to = batch.get(0).checkOutDate;
+            for (Request request : batch) {
+                from = request.checkInDate.isBefore(from) ? request.checkInDate : from;
+                to = request.checkOutDate.isAfter(to) ? request.checkOutDate : to;
+            }
+            Map<Long, List<Reservation>> stays = new HashMap<>();
+            for (Reservation stay : reservationDao.findActiveStaysByApartmentClass(apartmentClassId, from, to)) {
+                stays.computeIfAbsent(stay.getApartment().getId(), id -> new ArrayList<>()).add(stay);
+            }
+
+            List<Reservation> bookings = new ArrayList<>(batch.size());
+            for (Request request : batch) {
+                if (!request.result.claim()) {
+                    continue;
+                }
+                Optional<Apartment> free = apartments.stream()
+                        .filter(apartment -> isFree(stays.get(apartment.getId()), request))
+                        .findFirst();
+                if (!free.isPresent()) {
+                    request.result.complete(Optional.empty());
+                    continue;
+                }
+                Apartment apartment = free.get();
+                Reservation booking = new Reservation(0, request.checkInDate, request.checkOutDate, null,
+                        request.personsAmount, apartment.getApartmentClass().getCostPerPerson(),
+                        apartment.getApartmentClass().getCostPerNight(),
+                        ReservationServiceImpl.totalCost(apartment, request.personsAmount, request.checkInDate,
+                                request.checkOutDate), request.user, apartment, Status.WAITING_FOR_APPROVE);
+                stays.computeIfAbsent(apartment.getId(), id -> new ArrayList<>()).add(booking);
+                bookings.add(booking);
+                placed.add(request);
+            }
+            if (bookings.isEmpty()) {
+                return;
+            }
+
+            List<Optional<Reservation>> booked = reservationDao.bookReservations(bookings);
+            for (int i = 0; i < placed.size(); i++) {
+                placed.get(i).result.complete(booked.get(i));
+            }
+        } catch (DaoException | RuntimeException e) {
+            LOGGER.log(Level.ERROR, "Booking batch of apartment class " + apartmentClassId + " failed", e);
+            batch.forEach(request -> request.result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Checks if none of the stays overlaps the requested one.
+     *
+     * @param stays   the stays of an apartment, or null
+     * @param request the request
+     * @return true, if free
+     */
+    private static boolean isFree(List<Reservation> stays, Request request) {
+        if (stays == null) {
+            return true;
+        }
+        for (Reservation stay : stays) {
+            if (stay.getCheckInDate().isBefore(request.checkOutDate) && stay.getCheckOutDate().isAfter(request.checkInDate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The Class Request.
+     */
+    static final class Request {
+
+        /**
+         * The user.
+         */
+        private final User user;
+
+        /**
+         * The check in date.
+         */
+        private final LocalDate checkInDate;
+
+        /**
+         * The check out date.
+         */
+        private final LocalDate checkOutDate;
+
+        /**
+         * The persons amount.
+         */
+        private final int personsAmount;
+
+        /**
+         * The result.
+         */
+        private final Result result = new Result();
+
+        /**
+         * Instantiates a new request.
+         *
+         * @param user          the user
+         * @param checkInDate   the check in date
+         * @param checkOutDate  the check out date
+         * @param personsAmount the persons amount
+         */
+        Request(User user, LocalDate checkInDate, LocalDate checkOutDate, int personsAmount) {
+            this.user = user;
+            this.checkInDate = checkInDate;
+            this.checkOutDate = checkOutDate;
+            this.personsAmount = personsAmount;
+        }
+
+        /**
+         * Gets the result.
+         *
+         * @return the result
+         */
+        CompletableFuture<Optional<Reservation>> getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * The Class Result, the future of a request that either its caller cancels or the writer claims, whichever
+     * comes first.
+     */
+    private static final class Result extends CompletableFuture<Optional<Reservation>> {
+
+        /**
+         * The taken, set by the caller cancelling or the writer claiming.
+         */
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        /**
+         * Claims the request for the writer.
+         *
+         * @return true, if claimed, false if the caller cancelled it first
+         */
+        private boolean claim() {
+            return taken.compareAndSet(false, true);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return taken.compareAndSet(false, true) && super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /**
+     * The Class Writer, the single thread booking one apartment class. Every batch runs as a booking operation,
+     * so it gets the booking share and timeouts of the pool.
+     */
+    private final class Writer implements Runnable {
+
+        /**
+         * The apartment class id.
+         */
+        private final long apartmentClassId;
+
+        /**
+         * The queue.
+         */
+        private final BlockingQueue<Request> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        /**
+         * The thread.
+         */
+        private final Thread thread;
+
+        /**
+         * Instantiates a new writer and starts its thread.
+         *
+         * @param apartmentClassId the apartment class id
+         */
+        private Writer(long apartmentClassId) {
+            this.apartmentClassId = apartmentClassId;
+            thread = new Thread(this, "booking-writer-" + apartmentClassId);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            List<Request> batch = new ArrayList<>(maxBatchSize);
+            while (!stopped) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                queue.drainTo(batch, maxBatchSize - 1);
+                OperationContext.set(OperationClass.BOOKING);
+                try {
+                    process(apartmentClassId, batch);
+                } finally {
+                    OperationContext.clear();
+                    batch.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package by.martyniuk.hotelbooking.service.impl;
+
+import by.martyniuk.hotelbooking.exception.ServiceException;
+import by.martyniuk.hotelbooking.metrics.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class PasswordHasher.
+ * <p>
+ * Runs the BCrypt work on its own threads, as many as the cores, behind a bounded queue. A storm of logins
+ * then waits on the queue or fails fast when it is full, instead of holding every server thread on the CPU.
+ * Hashes made with another cost than the configured one are reported for rehashing, so changing the cost
+ * upgrades the stored hashes as their users log in.
+ */
+@Component
+public class PasswordHasher {
+
+    /**
+     * The Constant COST_OFFSET, where the cost stands in a BCrypt hash like "$2a$10$...".
+     */
+    private static final int COST_OFFSET = 4;
+
+    /**
+     * The threads, or 0 for one per core.
+     */
+    private int threads;
+
+    /**
+     * The capacity of the queue.
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * The BCrypt cost, the log2 of the rounds.
+     */
+    private int cost = 10;
+
+    /**
+     * The time a caller waits for its hash in milliseconds.
+     */
+    private long timeoutMillis = 5_000;
+
+    /**
+     * The executor, created on first use.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * The latency of the hashing, from queueing to the result.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Sets the hashing settings.
+     *
+     * @param threads       the threads, or 0 for one per core
+     * @param queueCapacity the capacity of the queue
+     * @param cost          the BCrypt cost, the log2 of the rounds
+     * @param timeoutMillis the time a caller waits for its hash in milliseconds
+     */
+    @Autowired
+    public synchronized void setHashSettings(@Value("${password.hash.threads:0}") int threads,
+                                             @Value("${password.hash.queue.capacity:64}") int queueCapacity,
+                                             @Value("${password.hash.cost:10}") int cost,
+                                             @Value("${password.hash.timeout.millis:5000}") long timeoutMillis) {
+        this.threads = Math.max(0, threads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.cost = Math.min(31, Math.max(4, cost));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Hashes a password with the configured cost.
+     *
+     * @param password the password
+     * @return the hash
+     * @throws ServiceException if the queue is full or the hash took too long
+     */
+    public String hash(String password) throws ServiceException {
+        int rounds = cost;
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(rounds)));
+    }
+
+    /**
+     * Checks a password against a hash.
+     *
+     * @param password the password
+     * @param hash     the hash
+     * @return true, if the password matches
+     * @throws ServiceException if the queue is full or the check took too long
+     */
+    public boolean verify(String password, String hash) throws ServiceException {
+        return run(() -> BCrypt.checkpw(password, hash));
+    }
+
+    /**
+     * Checks if a hash was made with another cost than the configured one.
+     *
+     * @param hash the hash
+     * @return true, if it should be hashed again
+     */
+    public boolean needsRehash(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(COST_OFFSET, COST_OFFSET + 2)) != cost;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the latency of the hashing.
+     *
+     * @return the latency
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the amount of hashes waiting in the queue.
+     *
+     * @return the queued count
+     */
+    public int getQueuedCount() {
+        ThreadPoolExecutor current = executor;
+        return current == null ? 0 : current.getQueue().size();
+    }
+
+    /**
+     * Stops the threads.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Runs the work on the hashing threads and waits for it.
+     *
+     * @param work the work
+     * @param <T>  the type of the result
+     * @return the result
+     * @throws ServiceException if the queue is full, the work failed or it took too long
+     */
+    private <T> T run(Callable<T> work) throws ServiceException {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor().submit(work);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceException("Password hashing queue is full", e);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceException("Password hashing is not done in " + timeoutMillis + " ms", e);
+        } catch (ExecutionException e) {
+            throw new ServiceException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceException(e);
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gets the executor, creating it on first use.
+     *
+     * @return the executor
+     */
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+            AtomicInteger number = new AtomicInteger();
+            executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "password-hasher-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        }
+        return executor;
+    }
+}
@@ -1,7 +1,12 @@
 package by.martyniuk.hotelbooking.service.impl;
 
-import by.martyniuk.hotelbooking.dao.ApartmentDao;
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
+import by.martyniuk.hotelbooking.cache.PendingReservationQueue;
+import by.martyniuk.hotelbooking.cache.PendingReservations;
+import by.martyniuk.hotelbooking.cache.ReservationSearchCache;
+import by.martyniuk.hotelbooking.cache.UserCache;
 import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
 import by.martyniuk.hotelbooking.entity.Apartment;
 import by.martyniuk.hotelbooking.entity.Reservation;
 import by.martyniuk.hotelbooking.entity.Status;
@@ -20,6 +25,11 @@ import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The Class ReservationServiceImpl.
@@ -33,9 +43,29 @@ public class ReservationServiceImpl implements ReservationService {
     private ReservationDao reservationDao;
 
     /**
-     * The apartment dao.
+     * The apartment inventory.
      */
-    private ApartmentDao apartmentDao;
+    private ApartmentInventory apartmentInventory;
+
+    /**
+     * The user cache.
+     */
+    private UserCache userCache;
+
+    /**
+     * The pending reservation queue.
+     */
+    private PendingReservationQueue pendingReservationQueue;
+
+    /**
+     * The reservation search cache.
+     */
+    private ReservationSearchCache reservationSearchCache;
+
+    /**
+     * The booking pipeline.
+     */
+    private BookingPipeline bookingPipeline;
 
     @Autowired
     public void setReservationDao(ReservationDao reservationDao) {
@@ -43,8 +73,28 @@ public class ReservationServiceImpl implements ReservationService {
     }
 
     @Autowired
-    public void setApartmentDao(ApartmentDao apartmentDao) {
-        this.apartmentDao = apartmentDao;
+    public void setApartmentInventory(ApartmentInventory apartmentInventory) {
+        this.apartmentInventory = apartmentInventory;
+    }
+
+    @Autowired
+    public void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    @Autowired
+    public void setPendingReservationQueue(PendingReservationQueue pendingReservationQueue) {
+        this.pendingReservationQueue = pendingReservationQueue;
+    }
+
+    @Autowired
+    public void setBookingPipeline(BookingPipeline bookingPipeline) {
+        this.bookingPipeline = bookingPipeline;
+    }
+
+    @Autowired
+    public void setReservationSearchCache(ReservationSearchCache reservationSearchCache) {
+        this.reservationSearchCache = reservationSearchCache;
     }
 
     /**
@@ -54,9 +104,12 @@ public class ReservationServiceImpl implements ReservationService {
 
 
     @Override
-    public boolean bookApartment(User user, long apartmentClassId, LocalDate checkInDate, LocalDate checkOutDate, int personsAmount) throws ServiceException {
+    public Optional<Reservation> bookApartment(User user, long apartmentClassId, LocalDate checkInDate, LocalDate checkOutDate, int personsAmount) throws ServiceException {
+        if (bookingPipeline != null && bookingPipeline.isEnabled()) {
+            return bookThroughPipeline(user, apartmentClassId, checkInDate, checkOutDate, personsAmount);
+        }
         try {
-            List<Apartment> apartmentList = apartmentDao.findApartmentListByClassId(apartmentClassId);
+            List<Apartment> apartmentList = apartmentInventory.findApartmentsByClassId(apartmentClassId);
             Optional<Apartment> apartmentOptional = apartmentList.stream().filter(p -> {
                 try {
                     return reservationDao.isApartmentAvailable(p.getId(), checkInDate, checkOutDate);
@@ -67,21 +120,94 @@ public class ReservationServiceImpl implements ReservationService {
             }).findFirst();
             if (apartmentOptional.isPresent()) {
                 Apartment apartment = apartmentOptional.get();
-                long daysAmount = ChronoUnit.DAYS.between(checkInDate, checkOutDate);
-                BigDecimal totalCost = apartment.getApartmentClass().getCostPerPerson()
-                        .multiply(new BigDecimal(personsAmount))
-                        .multiply(new BigDecimal(daysAmount));
-                totalCost = totalCost.add((new BigDecimal(daysAmount))
-                        .multiply(apartment.getApartmentClass().getCostPerNight()));
-
-                return reservationDao.addReservation(apartmentOptional.get(), user, checkInDate, checkOutDate, totalCost, personsAmount);
+                BigDecimal totalCost = totalCost(apartment, personsAmount, checkInDate, checkOutDate);
+
+                try {
+                    Optional<Reservation> reservation = reservationDao.addReservation(apartment, user, checkInDate,
+                            checkOutDate, totalCost, personsAmount);
+                    reservation.ifPresent(pendingReservationQueue::added);
+                    return reservation;
+                } finally {
+                    userCache.invalidate(user.getId());
+                    reservationSearchCache.invalidateAll();
+                }
             }
-            return false;
+            return Optional.empty();
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
     }
 
+    /**
+     * Books an apartment through the booking pipeline and waits for the batch that takes it. A booking not done
+     * in time is cancelled, so the writer does not book it after the caller was told it failed. Once the writer
+     * has claimed it the cancel fails, and the caller waits for the transaction instead, so a booking is never
+     * paid for behind its back. Classes without apartments are answered at once, so clients cannot start a writer
+     * for any id they send.
+     *
+     * @param user             the user
+     * @param apartmentClassId the apartment class id
+     * @param checkInDate      the check in date
+     * @param checkOutDate     the check out date
+     * @param personsAmount    the persons amount
+     * @return the reservation, empty if no apartment is free or the user cannot pay
+     * @throws ServiceException if the queue is full, the batch failed or it took too long
+     */
+    private Optional<Reservation> bookThroughPipeline(User user, long apartmentClassId, LocalDate checkInDate,
+                                                      LocalDate checkOutDate, int personsAmount) throws ServiceException {
+        try {
+            if (apartmentInventory.findApartmentsByClassId(apartmentClassId).isEmpty()) {
+                return Optional.empty();
+            }
+        } catch (DaoException e) {
+            throw new ServiceException(e);
+        }
+        CompletableFuture<Optional<Reservation>> booking = bookingPipeline.submit(user, apartmentClassId,
+                checkInDate, checkOutDate, personsAmount);
+        boolean interrupted = false;
+        try {
+            Optional<Reservation> reservation;
+            try {
+                reservation = booking.get(bookingPipeline.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | InterruptedException e) {
+                interrupted = e instanceof InterruptedException;
+                if (booking.cancel(false)) {
+                    throw interrupted ? new ServiceException(e) : new ServiceException("Booking is not done in "
+                            + bookingPipeline.getTimeoutMillis() + " ms", e);
+                }
+                reservation = booking.join();
+            }
+            reservation.ifPresent(pendingReservationQueue::added);
+            return reservation;
+        } catch (ExecutionException | CompletionException e) {
+            throw new ServiceException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            userCache.invalidate(user.getId());
+            reservationSearchCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Counts the total cost of a stay.
+     *
+     * @param apartment     the apartment
+     * @param personsAmount the persons amount
+     * @param checkInDate   the check in date
+     * @param checkOutDate  the check out date
+     * @return the total cost
+     */
+    static BigDecimal totalCost(Apartment apartment, int personsAmount, LocalDate checkInDate, LocalDate checkOutDate) {
+        long daysAmount = ChronoUnit.DAYS.between(checkInDate, checkOutDate);
+        BigDecimal totalCost = apartment.getApartmentClass().getCostPerPerson()
+                .multiply(new BigDecimal(personsAmount))
+                .multiply(new BigDecimal(daysAmount));
+        return totalCost.add((new BigDecimal(daysAmount))
+                .multiply(apartment.getApartmentClass().getCostPerNight()));
+    }
+
     @Override
     public List<Reservation> readAllReservationByUserId(long userId) throws ServiceException {
         try {
@@ -100,6 +226,36 @@ public class ReservationServiceImpl implements ReservationService {
         }
     }
 
+    @Override
+    public List<Reservation> searchReservations(ReservationQuery query) throws ServiceException {
+        try {
+            return reservationSearchCache.search(query);
+        } catch (DaoException e) {
+            throw new ServiceException(e);
+        }
+    }
+
+    @Override
+    public List<Reservation> importReservations(List<Reservation> reservations) throws ServiceException {
+        try {
+            return reservationDao.addReservations(reservations);
+        } catch (DaoException e) {
+            throw new ServiceException(e);
+        } finally {
+            pendingReservationQueue.invalidate();
+            reservationSearchCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public PendingReservations readPendingReservations() throws ServiceException {
+        try {
+            return pendingReservationQueue.findPendingReservations();
+        } catch (DaoException e) {
+            throw new ServiceException(e);
+        }
+    }
+
     @Override
     public boolean updateReservationStatus(long reservationId, long apartmentId, Status status) throws ServiceException {
         try {
@@ -112,7 +268,7 @@ public class ReservationServiceImpl implements ReservationService {
             if (!reservation.getStatus().equals(Status.WAITING_FOR_APPROVE)) {
                 return false;
             }
-            Optional<Apartment> apartmentOptional = apartmentDao.findApartmentById(apartmentId);
+            Optional<Apartment> apartmentOptional = apartmentInventory.findApartmentById(apartmentId);
 
             if (!apartmentOptional.isPresent()) {
                 return false;
@@ -121,9 +277,19 @@ public class ReservationServiceImpl implements ReservationService {
             if (reservation.getApartment().equals(apartment) || (reservationDao.isApartmentAvailable(apartmentId, reservation.getCheckInDate(),
                     reservation.getCheckOutDate()) && apartment.getApartmentClass().equals(reservation.getApartment().getApartmentClass()))) {
 
+                Apartment previousApartment = reservation.getApartment();
                 reservation.setApartment(apartment);
 
-                return reservationDao.updateReservationApartmentAndStatus(reservation, status);
+                try {
+                    if (reservationDao.updateReservationApartmentAndStatus(reservation, status)) {
+                        pendingReservationQueue.reviewed(reservation, previousApartment, status);
+                        return true;
+                    }
+                    return false;
+                } finally {
+                    userCache.invalidate(reservation.getUser().getId());
+                    reservationSearchCache.invalidateAll();
+                }
             }
             return false;
         } catch (DaoException e) {
@@ -155,6 +321,9 @@ public class ReservationServiceImpl implements ReservationService {
             return reservationDao.deleteReservation(id);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            pendingReservationQueue.invalidate();
+            reservationSearchCache.invalidateAll();
         }
     }
 
@@ -164,5 +333,9 @@ public class ReservationServiceImpl implements ReservationService {
             return reservationDao.updateReservation(reservation);
         } catch (DaoException e) {
             throw new ServiceException(e);
-        }    }
+        } finally {
+            pendingReservationQueue.invalidate();
+            reservationSearchCache.invalidateAll();
+        }
+    }
 }
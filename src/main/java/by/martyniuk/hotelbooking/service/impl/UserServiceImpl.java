@@ -1,12 +1,14 @@
 package by.martyniuk.hotelbooking.service.impl;
 
+import by.martyniuk.hotelbooking.cache.UserCache;
+import by.martyniuk.hotelbooking.dao.BalanceLedgerDao;
 import by.martyniuk.hotelbooking.dao.UserDao;
+import by.martyniuk.hotelbooking.entity.LedgerEntry;
 import by.martyniuk.hotelbooking.entity.User;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.exception.ServiceException;
 import by.martyniuk.hotelbooking.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -24,17 +26,49 @@ public class UserServiceImpl implements UserService {
      */
     private UserDao userDao;
 
+    /**
+     * The user cache.
+     */
+    private UserCache userCache;
+
+    /**
+     * The balance ledger dao.
+     */
+    private BalanceLedgerDao balanceLedgerDao;
+
+    /**
+     * The password hasher.
+     */
+    private PasswordHasher passwordHasher;
+
     @Autowired
     public void setUserDao(UserDao userDao) {
         this.userDao = userDao;
     }
 
+    @Autowired
+    public void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    @Autowired
+    public void setBalanceLedgerDao(BalanceLedgerDao balanceLedgerDao) {
+        this.balanceLedgerDao = balanceLedgerDao;
+    }
+
+    @Autowired
+    public void setPasswordHasher(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
     @Override
     public boolean updateUserProfile(User user) throws ServiceException {
         try {
             userDao.updateUserData(user);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            userCache.invalidate(user.getId());
         }
         return true;
     }
@@ -45,6 +79,8 @@ public class UserServiceImpl implements UserService {
             userDao.depositMoney(userId, money);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            userCache.invalidate(userId);
         }
         return true;
     }
@@ -61,7 +97,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public Optional<User> findUserByMail(String mail) throws ServiceException {
         try {
-            return userDao.findUserByMail(mail);
+            return userCache.findUserByMail(mail);
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
@@ -70,7 +106,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public Optional<User> findUserById(long userId) throws ServiceException {
         try {
-            return userDao.findUserById(userId);
+            return userCache.findUserById(userId);
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
@@ -79,12 +115,25 @@ public class UserServiceImpl implements UserService {
     @Override
     public boolean changeUserPassword(String mail, String currentPassword, String newPassword) throws ServiceException {
         try {
-            Optional<User> optionalUser = userDao.findUserByMail(mail);
-            if (!(optionalUser.isPresent() && BCrypt.checkpw(currentPassword, optionalUser.get().getPassword()))) {
+            Optional<User> optionalUser = userCache.findUserByMail(mail);
+            if (!(optionalUser.isPresent() && passwordHasher.verify(currentPassword, optionalUser.get().getPassword()))) {
                 return false;
             }
             User user = optionalUser.get();
-            return userDao.updateUserPassword(user.getId(), BCrypt.hashpw(newPassword, BCrypt.gensalt()));
+            try {
+                return userDao.updateUserPassword(user.getId(), passwordHasher.hash(newPassword));
+            } finally {
+                userCache.invalidate(user.getId());
+            }
+        } catch (DaoException e) {
+            throw new ServiceException(e);
+        }
+    }
+
+    @Override
+    public List<LedgerEntry> findBalanceHistory(long userId, int limit) throws ServiceException {
+        try {
+            return balanceLedgerDao.findEntriesByUserId(userId, limit);
         } catch (DaoException e) {
             throw new ServiceException(e);
         }
@@ -96,11 +145,13 @@ public class UserServiceImpl implements UserService {
             return userDao.updateUser(user);
         } catch (DaoException e) {
             throw new ServiceException(e);
+        } finally {
+            userCache.invalidate(user.getId());
         }
     }
 
     @Override
-    public boolean addUser(User user) throws ServiceException {
+    public Optional<User> addUser(User user) throws ServiceException {
         try {
             return userDao.addUser(user);
         } catch (DaoException e) {
@@ -114,7 +165,13 @@ public class UserServiceImpl implements UserService {
             Optional<User> user = userDao.findUserById(id);
             if (user.isPresent()) {
                 user.get().setActive(false);
-                userDao.updateUser(user.get());
+                // A balance left set would be written back as an adjustment, undoing concurrent payments.
+                user.get().setBalance(null);
+                try {
+                    userDao.updateUser(user.get());
+                } finally {
+                    userCache.invalidate(id);
+                }
                 return true;
             }
             return false;
@@ -0,0 +1,167 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class AdaptiveConcurrencyLimit.
+ * <p>
+ * Limits the requests one endpoint runs at once, finding the limit by additive increase and multiplicative
+ * decrease. The latency of the last fifty or so requests is compared with that of the last five hundred, both
+ * kept as moving averages: when the recent one exceeds the tolerance times the longer one, or a request failed,
+ * the limit is cut; otherwise a request raises it by one while the limit is at least half used. Averaging keeps an
+ * endpoint that mixes cache hits with database reads from judging every read slow, and the longer average follows
+ * a database that got slower for good. Requests that started before the last cut do not cut again, so one slow
+ * spell costs one cut.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    /**
+     * The Constant RECENT_WEIGHT, the weight of a sample in the recent latency, about the last 50 requests.
+     */
+    private static final double RECENT_WEIGHT = 2.0 / 51;
+
+    /**
+     * The Constant BASELINE_WEIGHT, the weight of a sample in the baseline latency, about the last 500 requests.
+     */
+    private static final double BASELINE_WEIGHT = 2.0 / 501;
+
+    /**
+     * The min limit.
+     */
+    private final int minLimit;
+
+    /**
+     * The max limit.
+     */
+    private final int maxLimit;
+
+    /**
+     * The factor of a cut.
+     */
+    private final double backoff;
+
+    /**
+     * The latency tolerated, in multiples of the baseline latency.
+     */
+    private final double tolerance;
+
+    /**
+     * The requests in flight.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The rejected count.
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * The limit.
+     */
+    private volatile int limit;
+
+    /**
+     * The recent latency in nanoseconds, or 0 before the first sample.
+     */
+    private double recentNanos;
+
+    /**
+     * The baseline latency in nanoseconds, or 0 before the first sample.
+     */
+    private double baselineNanos;
+
+    /**
+     * The time of the last cut in nanoseconds.
+     */
+    private long lastCutNanos = Long.MIN_VALUE;
+
+    /**
+     * Instantiates a new adaptive concurrency limit.
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit     the min limit
+     * @param maxLimit     the max limit
+     * @param backoff      the factor of a cut
+     * @param tolerance    the latency tolerated, in multiples of the baseline latency
+     */
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoff, double tolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoff = backoff;
+        this.tolerance = tolerance;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Takes a place for a request.
+     *
+     * @return true, if the request may run
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the place of a request and adapts the limit to its outcome.
+     *
+     * @param startNanos the start of the request in nanoseconds
+     * @param endNanos   the end of the request in nanoseconds
+     * @param failed     true, if the request failed on the server or timed out
+     */
+    synchronized void release(long startNanos, long endNanos, boolean failed) {
+        int running = inFlight.getAndDecrement();
+        long latency = Math.max(1, endNanos - startNanos);
+        if (!failed && baselineNanos == 0) {
+            recentNanos = latency;
+            baselineNanos = latency;
+        } else if (!failed) {
+            recentNanos += (latency - recentNanos) * RECENT_WEIGHT;
+            baselineNanos += (latency - baselineNanos) * BASELINE_WEIGHT;
+        }
+        if (failed || recentNanos > baselineNanos * tolerance) {
+            if (startNanos > lastCutNanos) {
+                limit = Math.max(minLimit, (int) (limit * backoff));
+                lastCutNanos = endNanos;
+            }
+        } else if (running * 2 >= limit && limit < maxLimit) {
+            limit++;
+        }
+    }
+
+    /**
+     * Gets the limit.
+     *
+     * @return the limit
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the requests in flight.
+     *
+     * @return the requests in flight
+     */
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the rejected count.
+     *
+     * @return the rejected count
+     */
+    long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
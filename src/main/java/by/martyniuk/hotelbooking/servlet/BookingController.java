@@ -13,6 +13,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -22,6 +24,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Class BookingController.
@@ -37,6 +40,9 @@ public class BookingController {
     @Autowired
     private CommandType commandType;
 
+    @Autowired
+    private CommandAdmission commandAdmission;
+
     @RequestMapping(value = "", method = RequestMethod.GET)
     public ModelAndView post() {
         ModelAndView model = new ModelAndView();
@@ -72,7 +78,14 @@ public class BookingController {
      * @throws IOException      Signals that an I/O exception has occurred.
      */
     private void doAction(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        ActionCommand command = commandType.receiveCommand(request.getParameter(CommandConstant.ACTION).toUpperCase());
+        String action = request.getParameter(CommandConstant.ACTION).toUpperCase();
+        long waitNanos = commandAdmission.admit(action, CommandAdmission.client(action, request));
+        if (waitNanos > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+        ActionCommand command = commandType.receiveCommand(action);
         try {
             String page = command.execute(request);
             if (request.getAttribute(CommandConstant.REDIRECT) != null) {
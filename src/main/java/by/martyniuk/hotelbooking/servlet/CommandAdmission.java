@@ -0,0 +1,287 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import by.martyniuk.hotelbooking.constant.CommandConstant;
+import by.martyniuk.hotelbooking.entity.User;
+import org.apache.catalina.filters.RemoteIpFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The Class CommandAdmission.
+ * <p>
+ * Limits how often one client may run the commands that cost a connection or a BCrypt hash, before they run.
+ * Every client has a token bucket per command, kept as the time its bucket gets full again, which a compare
+ * and set moves forward, so admitting a command takes no lock. A bucket that is full again is the same as a
+ * missing one, so the idle buckets are swept out once the map holds too many clients. If the map is still full,
+ * the new clients share one bucket per command.
+ * <p>
+ * The commands that hash a password are limited per address: a new session costs an attacker nothing, so
+ * keying them by session would give every guess a fresh bucket. Behind the load balancer the address of the
+ * request is the one of the proxy, so the {@link #forwardedAddressFilter(String) forwarded address filter} puts the
+ * client address from the X-Forwarded-For header of trusted proxies in its place, or all logins would share a bucket.
+ */
+@Component
+public class CommandAdmission {
+
+    /**
+     * The Constant SHARED, the client of the shared buckets.
+     */
+    private static final String SHARED = "*";
+
+    /**
+     * The Constant AUTH_COMMANDS, the commands that hash a password.
+     */
+    private static final Set<String> AUTH_COMMANDS = new HashSet<>(Arrays.asList("LOGIN", "REGISTER", "UPDATE_PASSWORD"));
+
+    /**
+     * The clock in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The limits by command.
+     */
+    private final Map<String, Limit> limits = new HashMap<>();
+
+    /**
+     * The times the buckets get full again, by command and client.
+     */
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * The sweeping.
+     */
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * The enabled.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The max amount of buckets.
+     */
+    private int maxBuckets = 100_000;
+
+    /**
+     * The rejected count.
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Instantiates a new command admission.
+     */
+    public CommandAdmission() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Instantiates a new command admission.
+     *
+     * @param clock the clock in nanoseconds
+     */
+    CommandAdmission(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the admission settings.
+     *
+     * @param enabled    the enabled
+     * @param maxBuckets the max amount of buckets
+     */
+    @Autowired
+    public void setAdmission(@Value("${admission.enabled:true}") boolean enabled,
+                             @Value("${admission.max.buckets:100000}") int maxBuckets) {
+        this.enabled = enabled;
+        this.maxBuckets = Math.max(1, maxBuckets);
+    }
+
+    /**
+     * Sets the limits of the commands that book or pay.
+     *
+     * @param perMinute the commands per minute
+     * @param burst     the commands a client may run at once
+     */
+    @Autowired
+    public void setBookingLimit(@Value("${admission.booking.per.minute:30}") int perMinute,
+                                @Value("${admission.booking.burst:10}") int burst) {
+        Limit limit = new Limit(perMinute, burst);
+        limits.put("BOOK_APARTMENT", limit);
+        limits.put("ADD_MONEY", limit);
+    }
+
+    /**
+     * Sets the limits of the commands that hash a password.
+     *
+     * @param perMinute the commands per minute
+     * @param burst     the commands a client may run at once
+     */
+    @Autowired
+    public void setAuthLimit(@Value("${admission.auth.per.minute:10}") int perMinute,
+                             @Value("${admission.auth.burst:5}") int burst) {
+        Limit limit = new Limit(perMinute, burst);
+        AUTH_COMMANDS.forEach(command -> limits.put(command, limit));
+    }
+
+    /**
+     * Takes a token of the client for the command.
+     *
+     * @param command the command name
+     * @param client  the client
+     * @return 0, if admitted, otherwise the nanoseconds until the next token
+     */
+    public long admit(String command, String client) {
+        Limit limit = limits.get(command);
+        if (!enabled || limit == null) {
+            return 0;
+        }
+        AtomicLong bucket = bucket(command + ' ' + client, command);
+        long now = clock.getAsLong();
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long wait = start - limit.toleranceNanos - now;
+            if (wait > 0) {
+                rejectedCount.incrementAndGet();
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, start + limit.intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Finds the client of the request for the command: its address for the commands that hash a password,
+     * otherwise its user, its session, or its address. It never creates a session, so rejected requests cost none.
+     *
+     * @param command the command name
+     * @param request the request
+     * @return the client
+     */
+    public static String client(String command, HttpServletRequest request) {
+        HttpSession session = AUTH_COMMANDS.contains(command) ? null : request.getSession(false);
+        if (session != null) {
+            Object user = session.getAttribute(CommandConstant.USER);
+            if (user instanceof User) {
+                return "user:" + ((User) user).getId();
+            }
+            return "session:" + session.getId();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Creates the filter that makes the address of a request the one its trusted proxies forwarded. Addresses
+     * forwarded by anyone else are ignored, so a client cannot pick its bucket by sending the header itself.
+     *
+     * @param trustedProxies the regular expression of the proxy addresses, or blank for the private networks
+     * @return the filter
+     */
+    public static Filter forwardedAddressFilter(String trustedProxies) {
+        RemoteIpFilter filter = new RemoteIpFilter();
+        filter.setRemoteIpHeader("X-Forwarded-For");
+        if (trustedProxies != null && !trustedProxies.trim().isEmpty()) {
+            filter.setInternalProxies(trustedProxies.trim());
+        }
+        return filter;
+    }
+
+    /**
+     * Gets the rejected count.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the amount of buckets.
+     *
+     * @return the amount of buckets
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Finds the bucket of the key, sweeping the full buckets out if the map holds too many.
+     *
+     * @param key     the key
+     * @param command the command name
+     * @return the bucket
+     */
+    private AtomicLong bucket(String key, String command) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            sweep();
+            if (buckets.size() >= maxBuckets) {
+                return buckets.computeIfAbsent(command + ' ' + SHARED, k -> new AtomicLong(Long.MIN_VALUE));
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+    }
+
+    /**
+     * Removes the buckets that are full again. One thread sweeps at a time, the others go on.
+     */
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = clock.getAsLong();
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * The Class Limit.
+     */
+    private static final class Limit {
+
+        /**
+         * The nanoseconds one token takes to come back.
+         */
+        private final long intervalNanos;
+
+        /**
+         * The nanoseconds a bucket may run ahead, which lets a burst through.
+         */
+        private final long toleranceNanos;
+
+        /**
+         * Instantiates a new limit.
+         *
+         * @param perMinute the commands per minute
+         * @param burst     the commands a client may run at once
+         */
+        private Limit(int perMinute, int burst) {
+            intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+            toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import by.martyniuk.hotelbooking.dao.impl.CircuitBreaker;
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class ConcurrencyLimitInterceptor.
+ * <p>
+ * Sheds the requests of an endpoint beyond its adaptive concurrency limit with 503, so a slow database makes
+ * the requests fail fast instead of queueing on the server threads. The endpoint is the handler method, and
+ * the commands of {@link BookingController} are split further by their operation class. The health checks
+ * are never shed, so the load balancer sees the real state of the node.
+ */
+@Component
+public class ConcurrencyLimitInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * The Constant PERMIT, the request attribute holding the endpoint and the start of an admitted request.
+     */
+    private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".PERMIT";
+
+    /**
+     * The limits by endpoint.
+     */
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * The enabled.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The initial limit.
+     */
+    private int initialLimit = 20;
+
+    /**
+     * The min limit.
+     */
+    private int minLimit = 2;
+
+    /**
+     * The max limit.
+     */
+    private int maxLimit = 200;
+
+    /**
+     * The factor of a cut.
+     */
+    private double backoff = 0.9;
+
+    /**
+     * The latency tolerated, in multiples of the baseline latency.
+     */
+    private double tolerance = 2.0;
+
+    /**
+     * The seconds a shed client is told to wait.
+     */
+    private long retryAfterSeconds = 1;
+
+    /**
+     * Sets the limit settings.
+     *
+     * @param enabled           the enabled
+     * @param initialLimit      the initial limit
+     * @param minLimit          the min limit
+     * @param maxLimit          the max limit
+     * @param backoff           the factor of a cut
+     * @param tolerance         the latency tolerated, in multiples of the baseline latency
+     * @param retryAfterSeconds the seconds a shed client is told to wait
+     */
+    @Autowired
+    public void setLimitSettings(@Value("${concurrency.limit.enabled:true}") boolean enabled,
+                                 @Value("${concurrency.limit.initial:20}") int initialLimit,
+                                 @Value("${concurrency.limit.min:2}") int minLimit,
+                                 @Value("${concurrency.limit.max:200}") int maxLimit,
+                                 @Value("${concurrency.limit.backoff:0.9}") double backoff,
+                                 @Value("${concurrency.limit.tolerance:2.0}") double tolerance,
+                                 @Value("${concurrency.limit.retry.after.seconds:1}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoff = backoff;
+        this.tolerance = tolerance;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!enabled || request.getAttribute(PERMIT) != null) {
+            return true;
+        }
+        String endpoint = endpoint(request, handler);
+        if (endpoint == null) {
+            return true;
+        }
+        AdaptiveConcurrencyLimit limit = limits.computeIfAbsent(endpoint,
+                key -> new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, backoff, tolerance));
+        if (!limit.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return false;
+        }
+        request.setAttribute(PERMIT, new Permit(limit, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT);
+        if (permit == null) {
+            return;
+        }
+        request.removeAttribute(PERMIT);
+        permit.limit.release(permit.startNanos, System.nanoTime(), isOverload(response.getStatus(), ex));
+    }
+
+    /**
+     * Checks if a request failed because the server or the database is overloaded, rather than because of
+     * the request itself.
+     *
+     * @param status the response status
+     * @param ex     the exception the handler threw, or null
+     * @return true, if the request was unavailable or timed out
+     */
+    static boolean isOverload(int status, Exception ex) {
+        if (status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value()) {
+            return true;
+        }
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (CircuitBreaker.isFailure(cause) || cause instanceof CircuitOpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the current limits by endpoint.
+     *
+     * @return the limits
+     */
+    public Map<String, Integer> getLimits() {
+        Map<String, Integer> result = new TreeMap<>();
+        limits.forEach((endpoint, limit) -> result.put(endpoint, limit.getLimit()));
+        return result;
+    }
+
+    /**
+     * Gets the requests shed so far.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return limits.values().stream().mapToLong(AdaptiveConcurrencyLimit::getRejectedCount).sum();
+    }
+
+    /**
+     * Finds the endpoint of the request.
+     *
+     * @param request the request
+     * @param handler the handler
+     * @return the endpoint, or null if the handler is not limited
+     */
+    static String endpoint(HttpServletRequest request, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return null;
+        }
+        HandlerMethod method = (HandlerMethod) handler;
+        Class<?> type = method.getBeanType();
+        if (type == BookingController.class) {
+            return type.getSimpleName() + '.' + OperationClassInterceptor.classify(request);
+        }
+        if (type.isAnnotationPresent(RestController.class) && type != RestHealthController.class) {
+            return type.getSimpleName() + '.' + method.getMethod().getName();
+        }
+        return null;
+    }
+
+    /**
+     * The Class Permit.
+     */
+    private static final class Permit {
+
+        /**
+         * The limit.
+         */
+        private final AdaptiveConcurrencyLimit limit;
+
+        /**
+         * The start in nanoseconds.
+         */
+        private final long startNanos;
+
+        /**
+         * Instantiates a new permit.
+         *
+         * @param limit      the limit
+         * @param startNanos the start in nanoseconds
+         */
+        private Permit(AdaptiveConcurrencyLimit limit, long startNanos) {
+            this.limit = limit;
+            this.startNanos = startNanos;
+        }
+    }
+}
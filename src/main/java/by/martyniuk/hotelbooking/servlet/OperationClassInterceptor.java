@@ -0,0 +1,96 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import by.martyniuk.hotelbooking.constant.CommandConstant;
+import by.martyniuk.hotelbooking.pool.OperationClass;
+import by.martyniuk.hotelbooking.pool.OperationContext;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The Class OperationClassInterceptor.
+ * <p>
+ * Sets the operation class of every request, so its connections come from the quota of that class and its
+ * statements get the query timeout of the class. A request whose client is gone is bounded by those timeouts.
+ */
+public class OperationClassInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * The Constant API, the prefix of the REST controllers.
+     */
+    private static final String API = "/api/";
+
+    /**
+     * The Constant CERTIFICATES, the prefix of the document exports.
+     */
+    private static final String CERTIFICATES = "/api/v1/certificates/";
+
+    /**
+     * The Constant RESERVATIONS, which books an apartment on POST.
+     */
+    private static final String RESERVATIONS = "/api/v1/reservations/";
+
+    /**
+     * The operation classes of the commands that are not browsing.
+     */
+    private static final Map<String, OperationClass> COMMANDS = new HashMap<>();
+
+    static {
+        COMMANDS.put("BOOK_APARTMENT", OperationClass.BOOKING);
+        COMMANDS.put("ADD_MONEY", OperationClass.BOOKING);
+        COMMANDS.put("ADD_APARTMENT", OperationClass.ADMIN);
+        COMMANDS.put("SHOW_ADMIN_PAGE", OperationClass.ADMIN);
+        COMMANDS.put("SHOW_APARTMENT_EDITOR", OperationClass.ADMIN);
+        COMMANDS.put("APPROVE_RESERVATION", OperationClass.ADMIN);
+        COMMANDS.put("EDIT_APARTMENT", OperationClass.ADMIN);
+        COMMANDS.put("SHOW_USER_MANAGER", OperationClass.ADMIN);
+        COMMANDS.put("SHOW_USER_PROFILE", OperationClass.ADMIN);
+        COMMANDS.put("ADMIN_SHOW_USER_PROFILE", OperationClass.ADMIN);
+        COMMANDS.put("ADMIN_SHOW_USER_RESERVATIONS", OperationClass.ADMIN);
+        COMMANDS.put("ADMIN_UPDATE_USER_PROFILE", OperationClass.ADMIN);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        OperationContext.set(classify(request));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        OperationContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        OperationContext.clear();
+    }
+
+    /**
+     * Finds the operation class of the request.
+     *
+     * @param request the request
+     * @return the operation class
+     */
+    static OperationClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith(CERTIFICATES)) {
+            return OperationClass.REPORTING;
+        }
+        if (path.equals(RESERVATIONS) && "POST".equals(request.getMethod())) {
+            return OperationClass.BOOKING;
+        }
+        if (path.startsWith(API)) {
+            return OperationClass.ADMIN;
+        }
+        String action = request.getParameter(CommandConstant.ACTION);
+        if (action == null) {
+            return OperationClass.BROWSING;
+        }
+        return COMMANDS.getOrDefault(action.toUpperCase(Locale.ROOT), OperationClass.BROWSING);
+    }
+}
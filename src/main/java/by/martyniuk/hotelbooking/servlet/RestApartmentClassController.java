@@ -7,7 +7,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,9 +44,12 @@ public class RestApartmentClassController {
     }
 
     @PostMapping("/")
-    public ResponseEntity addApartmentClass(@RequestBody ApartmentClass apartmentClass) {
-        if (apartmentClassService.addApartmentClass(apartmentClass)) {
-            return ResponseEntity.ok().build();
+    public ResponseEntity<ApartmentClass> addApartmentClass(@RequestBody ApartmentClass apartmentClass) {
+        Optional<ApartmentClass> added = apartmentClassService.addApartmentClass(apartmentClass);
+        if (added.isPresent()) {
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("{id}")
+                    .buildAndExpand(added.get().getId()).toUri();
+            return ResponseEntity.created(location).body(added.get());
         } else {
             return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
         }
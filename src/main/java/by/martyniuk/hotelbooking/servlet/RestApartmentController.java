@@ -6,7 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,14 +44,22 @@ public class RestApartmentController {
     }
 
     @PostMapping("/")
-    public ResponseEntity addApartment(@RequestBody Apartment apartment) {
-        if (apartmentService.insertApartment(apartment)) {
-            return ResponseEntity.ok().build();
+    public ResponseEntity<Apartment> addApartment(@RequestBody Apartment apartment) {
+        Optional<Apartment> added = apartmentService.insertApartment(apartment);
+        if (added.isPresent()) {
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("{id}")
+                    .buildAndExpand(added.get().getId()).toUri();
+            return ResponseEntity.created(location).body(added.get());
         } else {
             return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<Apartment>> addApartments(@RequestBody List<Apartment> apartments) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(apartmentService.insertApartments(apartments));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity deleteApartment(@PathVariable long id) {
         if (apartmentService.deleteApartment(id)) {
@@ -0,0 +1,42 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
+import by.martyniuk.hotelbooking.exception.ServiceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The Class RestExceptionAdvice.
+ * <p>
+ * Answers the REST calls failed by an open database circuit with 503 and the time to retry after,
+ * so the clients back off instead of seeing a server error.
+ */
+@RestControllerAdvice(annotations = RestController.class)
+public class RestExceptionAdvice {
+
+    /**
+     * Handles the service exception.
+     *
+     * @param e the exception
+     * @return the response
+     * @throws ServiceException the exception, if not caused by an open circuit
+     */
+    @ExceptionHandler(ServiceException.class)
+    public ResponseEntity<Map<String, String>> handleServiceException(ServiceException e) throws ServiceException {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitOpenException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(((CircuitOpenException) cause).getRetryAfterSeconds()))
+                        .body(Collections.singletonMap("error", cause.getMessage()));
+            }
+        }
+        throw e;
+    }
+}
@@ -0,0 +1,51 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import by.martyniuk.hotelbooking.dao.impl.CircuitBreaker;
+import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Class RestHealthController.
+ * <p>
+ * Answers the readiness checks of the load balancer: 200 while every pool has its min idle connections open
+ * and the database circuit is not open, 503 otherwise. A pool with threads waiting and no free connection is
+ * reported as saturated, which does not fail the check but is worth an alert.
+ */
+@RestController
+@RequestMapping("/api/v1/health")
+public class RestHealthController {
+
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    @GetMapping("/")
+    public ResponseEntity<Map<String, Object>> getHealth() {
+        boolean up = circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (ConnectionPool pool : ConnectionPool.getInstances()) {
+            Map<String, Object> health = new LinkedHashMap<>();
+            health.put("ready", pool.isReady());
+            health.put("active", pool.getAmountBusyConnections());
+            health.put("idle", pool.getAmountFreeConnections());
+            health.put("pending", pool.getAmountPendingBorrows());
+            health.put("size", pool.getPoolSize());
+            health.put("saturated", pool.getAmountPendingBorrows() > 0 && pool.getAmountFreeConnections() == 0);
+            pools.put(pool.getName(), health);
+            up &= pool.isReady();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", up ? "UP" : "DOWN");
+        result.put("circuit", circuitBreaker.getState());
+        result.put("pools", pools);
+        return ResponseEntity.status(up ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(result);
+    }
+}
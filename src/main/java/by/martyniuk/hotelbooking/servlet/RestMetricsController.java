@@ -0,0 +1,190 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import by.martyniuk.hotelbooking.dao.impl.CircuitBreaker;
+import by.martyniuk.hotelbooking.dao.impl.RetryPolicy;
+import by.martyniuk.hotelbooking.dao.impl.SqlQueryNames;
+import by.martyniuk.hotelbooking.metrics.CommandMetrics;
+import by.martyniuk.hotelbooking.metrics.CommandStats;
+import by.martyniuk.hotelbooking.metrics.LatencyHistogram;
+import by.martyniuk.hotelbooking.metrics.PrometheusWriter;
+import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import by.martyniuk.hotelbooking.pool.StatementStats;
+import by.martyniuk.hotelbooking.service.impl.PasswordHasher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class RestMetricsController.
+ * <p>
+ * Exposes the latency, errors and calls in flight of every command, the time spent in every SQL statement,
+ * the connections of every pool, and the counters of the password hashing, the circuit breaker, the retries
+ * and the admission control, as JSON and in the Prometheus format.
+ */
+@RestController
+@RequestMapping("/api/v1/metrics")
+public class RestMetricsController {
+
+    @Autowired
+    private CommandMetrics commandMetrics;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    private CommandAdmission commandAdmission;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @GetMapping("/")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> commands = new LinkedHashMap<>();
+        commandMetrics.getStats().forEach((name, stats) -> {
+            Map<String, Object> command = latency(stats.getLatency());
+            command.put("errors", stats.getErrorCount());
+            command.put("inFlight", stats.getInFlight());
+            commands.put(name, command);
+        });
+        Map<String, Object> hashing = latency(passwordHasher.getLatency());
+        hashing.put("queued", passwordHasher.getQueuedCount());
+
+        Map<String, Object> circuit = new LinkedHashMap<>();
+        circuit.put("state", circuitBreaker.getState());
+        circuit.put("rejected", circuitBreaker.getRejectedCount());
+        circuit.put("opened", circuitBreaker.getOpenedCount());
+        Map<String, Object> retry = new LinkedHashMap<>();
+        retry.put("retries", retryPolicy.getRetryCount());
+        retry.put("recovered", retryPolicy.getRecoveredCount());
+        retry.put("exhausted", retryPolicy.getExhaustedCount());
+        Map<String, Object> admission = new LinkedHashMap<>();
+        admission.put("rejected", commandAdmission.getRejectedCount());
+        admission.put("buckets", commandAdmission.getBucketCount());
+        Map<String, Object> concurrency = new LinkedHashMap<>();
+        concurrency.put("limits", concurrencyLimitInterceptor.getLimits());
+        concurrency.put("rejected", concurrencyLimitInterceptor.getRejectedCount());
+
+        Map<String, Object> sql = new LinkedHashMap<>();
+        statementTemplates().forEach((template, stats) -> {
+            Map<String, Object> statement = latency(stats.getLatency());
+            statement.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(stats.getLatency().getSumNanos()));
+            statement.put("rows", stats.getRowCount());
+            statement.put("errors", stats.getErrorCount());
+            sql.put(SqlQueryNames.nameOf(template), statement);
+        });
+
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (ConnectionPool pool : ConnectionPool.getInstances()) {
+            Map<String, Object> connections = new LinkedHashMap<>();
+            connections.put("active", pool.getAmountBusyConnections());
+            connections.put("idle", pool.getAmountFreeConnections());
+            connections.put("pending", pool.getAmountPendingBorrows());
+            connections.put("size", pool.getPoolSize());
+            connections.put("borrowWait", latency(pool.getBorrowWait()));
+            connections.put("holdTime", latency(pool.getHoldTime()));
+            connections.put("created", pool.getCreatedCount());
+            connections.put("destroyed", pool.getDestroyedCount());
+            connections.put("openFailures", pool.getOpenFailureCount());
+            connections.put("validationFailures", pool.getValidationFailureCount());
+            connections.put("timeouts", pool.getTimeoutCount());
+            pools.put(pool.getName(), connections);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("commands", commands);
+        metrics.put("sql", sql);
+        metrics.put("pools", pools);
+        metrics.put("passwordHashing", hashing);
+        metrics.put("circuitBreaker", circuit);
+        metrics.put("retry", retry);
+        metrics.put("admission", admission);
+        metrics.put("concurrencyLimit", concurrency);
+        return ResponseEntity.ok(metrics);
+    }
+
+    @GetMapping("/prometheus")
+    public ResponseEntity<String> getPrometheusMetrics() {
+        PrometheusWriter writer = new PrometheusWriter();
+        Map<String, CommandStats> stats = commandMetrics.getStats();
+        stats.forEach((name, command) -> writer.histogram("booking_command_duration_seconds", command.getLatency(), "command", name));
+        stats.forEach((name, command) -> writer.counter("booking_command_errors_total", command.getErrorCount(), "command", name));
+        stats.forEach((name, command) -> writer.gauge("booking_command_in_flight", command.getInFlight(), "command", name));
+        Map<String, StatementStats.TemplateStats> templates = statementTemplates();
+        templates.forEach((template, statement) -> writer.histogram("booking_sql_duration_seconds", statement.getLatency(),
+                "statement", SqlQueryNames.nameOf(template)));
+        templates.forEach((template, statement) -> writer.counter("booking_sql_rows_read_total", statement.getRowCount(),
+                "statement", SqlQueryNames.nameOf(template)));
+        templates.forEach((template, statement) -> writer.counter("booking_sql_errors_total", statement.getErrorCount(),
+                "statement", SqlQueryNames.nameOf(template)));
+        Collection<ConnectionPool> pools = ConnectionPool.getInstances();
+        pools.forEach(pool -> writer.gauge("booking_pool_active_connections", pool.getAmountBusyConnections(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.gauge("booking_pool_idle_connections", pool.getAmountFreeConnections(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.gauge("booking_pool_pending_borrows", pool.getAmountPendingBorrows(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.gauge("booking_pool_max_connections", pool.getPoolSize(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.histogram("booking_pool_borrow_wait_seconds", pool.getBorrowWait(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.histogram("booking_pool_hold_seconds", pool.getHoldTime(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.counter("booking_pool_created_total", pool.getCreatedCount(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.counter("booking_pool_destroyed_total", pool.getDestroyedCount(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.counter("booking_pool_open_failures_total", pool.getOpenFailureCount(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.counter("booking_pool_validation_failures_total", pool.getValidationFailureCount(), "pool", pool.getName()));
+        pools.forEach(pool -> writer.counter("booking_pool_timeouts_total", pool.getTimeoutCount(), "pool", pool.getName()));
+        writer.histogram("booking_password_hash_duration_seconds", passwordHasher.getLatency())
+                .gauge("booking_password_hash_queued", passwordHasher.getQueuedCount());
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            writer.gauge("booking_circuit_state", circuitBreaker.getState() == state ? 1 : 0, "state", state.name());
+        }
+        writer.counter("booking_circuit_rejected_total", circuitBreaker.getRejectedCount())
+                .counter("booking_circuit_opened_total", circuitBreaker.getOpenedCount())
+                .counter("booking_retry_total", retryPolicy.getRetryCount())
+                .counter("booking_retry_recovered_total", retryPolicy.getRecoveredCount())
+                .counter("booking_retry_exhausted_total", retryPolicy.getExhaustedCount())
+                .counter("booking_admission_rejected_total", commandAdmission.getRejectedCount())
+                .gauge("booking_admission_buckets", commandAdmission.getBucketCount())
+                .counter("booking_concurrency_rejected_total", concurrencyLimitInterceptor.getRejectedCount());
+        concurrencyLimitInterceptor.getLimits().forEach((endpoint, limit) ->
+                writer.gauge("booking_concurrency_limit", limit, "endpoint", endpoint));
+        return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, PrometheusWriter.CONTENT_TYPE).body(writer.toString());
+    }
+
+    /**
+     * Gets the statement stats of the pool by SQL template.
+     *
+     * @return the stats, empty if the pool keeps none
+     */
+    private static Map<String, StatementStats.TemplateStats> statementTemplates() {
+        StatementStats stats = ConnectionPool.getInstance().getStatementStats();
+        return stats != null ? stats.getTemplates() : Collections.emptyMap();
+    }
+
+    /**
+     * Describes a latency histogram.
+     *
+     * @param histogram the histogram
+     * @return the count, the mean and the percentiles in milliseconds
+     */
+    private static Map<String, Object> latency(LatencyHistogram histogram) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long count = histogram.getCount();
+        result.put("count", count);
+        result.put("meanMillis", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(histogram.getSumNanos() / count));
+        result.put("p50Millis", histogram.getQuantileMillis(0.5));
+        result.put("p95Millis", histogram.getQuantileMillis(0.95));
+        result.put("p99Millis", histogram.getQuantileMillis(0.99));
+        return result;
+    }
+}
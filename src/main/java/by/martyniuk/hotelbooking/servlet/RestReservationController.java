@@ -1,17 +1,25 @@
 package by.martyniuk.hotelbooking.servlet;
 
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
 import by.martyniuk.hotelbooking.entity.Reservation;
 import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Status;
 import by.martyniuk.hotelbooking.service.ReservationService;
 import by.martyniuk.hotelbooking.service.ReservationService;
 import by.martyniuk.hotelbooking.util.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/reservations")
@@ -25,6 +33,37 @@ public class RestReservationController {
         return ResponseEntity.ok(reservationService.readAllReservations());
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<Reservation>> searchReservations(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Set<Status> status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long apartmentId,
+            @RequestParam(required = false) Long apartmentClassId,
+            @RequestParam(required = false) BigDecimal minCost,
+            @RequestParam(required = false) BigDecimal maxCost,
+            @RequestParam(defaultValue = "CHECK_IN_DATE") ReservationQuery.SortField sort,
+            @RequestParam(defaultValue = "false") boolean descending,
+            @RequestParam(defaultValue = "100") int limit) {
+        ReservationQuery query;
+        try {
+            query = ReservationQuery.builder()
+                    .overlapping(from, to)
+                    .statuses(status)
+                    .user(userId)
+                    .apartment(apartmentId)
+                    .apartmentClass(apartmentClassId)
+                    .costBetween(minCost, maxCost)
+                    .sortBy(sort, descending)
+                    .limit(limit)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(reservationService.searchReservations(query));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Reservation> getReservation(@PathVariable long id) {
         Optional<Reservation> user = reservationService.readReservation(id);
@@ -45,15 +84,24 @@ public class RestReservationController {
     }
 
     @PostMapping("/")
-    public ResponseEntity addReservation(@RequestBody Reservation reservation) {
-        if (reservationService.bookApartment(reservation.getUser(), reservation.getApartment().getApartmentClass().getId(),
-                reservation.getCheckInDate(), reservation.getCheckOutDate(), reservation.getPersonAmount())) {
-            return ResponseEntity.ok().build();
+    public ResponseEntity<Reservation> addReservation(@RequestBody Reservation reservation) {
+        Optional<Reservation> booked = reservationService.bookApartment(reservation.getUser(),
+                reservation.getApartment().getApartmentClass().getId(), reservation.getCheckInDate(),
+                reservation.getCheckOutDate(), reservation.getPersonAmount());
+        if (booked.isPresent()) {
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("{id}")
+                    .buildAndExpand(booked.get().getId()).toUri();
+            return ResponseEntity.created(location).body(booked.get());
         } else {
             return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<Reservation>> importReservations(@RequestBody List<Reservation> reservations) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservationService.importReservations(reservations));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity deleteReservation(@PathVariable long id) {
         if (reservationService.deleteReservation(id)) {
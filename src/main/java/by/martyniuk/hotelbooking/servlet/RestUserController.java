@@ -1,5 +1,6 @@
 package by.martyniuk.hotelbooking.servlet;
 
+import by.martyniuk.hotelbooking.entity.LedgerEntry;
 import by.martyniuk.hotelbooking.entity.User;
 import by.martyniuk.hotelbooking.service.UserService;
 import by.martyniuk.hotelbooking.util.Validator;
@@ -7,7 +8,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +19,11 @@ import java.util.Optional;
 @RequestMapping("/api/v1/users")
 public class RestUserController {
 
+    /**
+     * The max amount of ledger entries returned at once.
+     */
+    private static final int MAX_LEDGER_ENTRIES = 1000;
+
     @Autowired
     private UserService userService;
 
@@ -34,6 +42,15 @@ public class RestUserController {
         }
     }
 
+    @GetMapping("/{id}/ledger")
+    public ResponseEntity<List<LedgerEntry>> getBalanceHistory(@PathVariable long id,
+                                                               @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.findBalanceHistory(id, Math.min(limit, MAX_LEDGER_ENTRIES)));
+    }
+
     @PutMapping("/")
     public ResponseEntity updateUser(@RequestBody User user) {
         if (Validator.validateUser(user) && userService.updateUser(user)) {
@@ -44,10 +61,13 @@ public class RestUserController {
     }
 
     @PostMapping("/")
-    public ResponseEntity addUser(@RequestBody User user) {
+    public ResponseEntity<User> addUser(@RequestBody User user) {
         System.out.println("Came id: " + user.getEmail());
-        if (userService.addUser(user)) {
-            return ResponseEntity.ok().build();
+        Optional<User> added = userService.addUser(user);
+        if (added.isPresent()) {
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("{id}")
+                    .buildAndExpand(added.get().getId()).toUri();
+            return ResponseEntity.created(location).body(added.get());
         } else {
             return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
         }
@@ -0,0 +1,136 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.ChangeVersionDao;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * The Class ChangeVersionPollerTest.
+ */
+public class ChangeVersionPollerTest {
+
+    /**
+     * The change version dao.
+     */
+    private ChangeVersionDao changeVersionDao;
+
+    /**
+     * The listener.
+     */
+    private ChangeListener listener;
+
+    /**
+     * The poller.
+     */
+    private ChangeVersionPoller poller;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        changeVersionDao = mock(ChangeVersionDao.class);
+        listener = mock(ChangeListener.class);
+        poller = new ChangeVersionPoller();
+        poller.setChangeVersionDao(changeVersionDao);
+        poller.setListeners(Collections.singletonList(listener));
+        poller.setPollSettings(true, 500, 2000);
+    }
+
+    /**
+     * Poll overlaps previous poll test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void pollOverlapsPreviousPollTest() throws DaoException {
+        LocalDateTime first = LocalDateTime.of(2018, 2, 1, 12, 0, 0);
+        LocalDateTime second = first.plusSeconds(1);
+        EntityChange change = new EntityChange(EntityType.USER, 3, first.plusNanos(500_000_000));
+        when(changeVersionDao.findCurrentTime()).thenReturn(first, second);
+        when(changeVersionDao.findChangesSince(first.minusSeconds(2))).thenReturn(Collections.emptyList(),
+                Collections.singletonList(change));
+
+        poller.poll();
+        verify(listener, never()).onChanges(Collections.singleton(change));
+        poller.poll();
+        verify(listener).onChanges(Collections.singleton(change));
+    }
+
+    /**
+     * Failed poll keeps watermark test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void failedPollKeepsWatermarkTest() throws DaoException {
+        LocalDateTime first = LocalDateTime.of(2018, 2, 1, 12, 0, 0);
+        EntityChange change = new EntityChange(EntityType.APARTMENT, 5, first);
+        when(changeVersionDao.findCurrentTime()).thenReturn(first).thenThrow(new DaoException())
+                .thenReturn(first.plusSeconds(10));
+        when(changeVersionDao.findChangesSince(first.minusSeconds(2))).thenReturn(Collections.emptyList(),
+                Collections.singletonList(change));
+
+        poller.poll();
+        poller.poll();
+        poller.poll();
+        verify(listener).onChanges(Collections.singleton(change));
+    }
+
+    /**
+     * Change seen by overlapping polls is delivered once test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void overlappingPollsDeliverOnceTest() throws DaoException {
+        LocalDateTime first = LocalDateTime.of(2018, 2, 1, 12, 0, 0);
+        LocalDateTime second = first.plusNanos(500_000_000);
+        EntityChange change = new EntityChange(EntityType.APARTMENT, 5, first.minusSeconds(1));
+        EntityChange next = new EntityChange(EntityType.APARTMENT, 6, second);
+        when(changeVersionDao.findCurrentTime()).thenReturn(first, second);
+        when(changeVersionDao.findChangesSince(first.minusSeconds(2))).thenReturn(Collections.singletonList(change),
+                Arrays.asList(change, next));
+
+        poller.poll();
+        poller.poll();
+        verify(listener).onChanges(Collections.singleton(change));
+        verify(listener).onChanges(Collections.singleton(next));
+        verifyNoMoreInteractions(listener);
+    }
+
+    /**
+     * Purge deletes old changes in batches once per interval test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void purgeTest() throws DaoException {
+        poller.setPurgeSettings(1000, 100, 60_000);
+        LocalDateTime first = LocalDateTime.of(2018, 2, 1, 12, 0, 0);
+        when(changeVersionDao.findCurrentTime()).thenReturn(first, first.plusSeconds(1), first.plusSeconds(60));
+        when(changeVersionDao.deleteChangesBefore(anyObject(), anyInt())).thenReturn(100, 100, 7, 0);
+
+        poller.poll();
+        verify(changeVersionDao, times(3)).deleteChangesBefore(first.minusSeconds(4), 100);
+        poller.poll();
+        poller.poll();
+        verify(changeVersionDao).deleteChangesBefore(first.plusSeconds(56), 100);
+    }
+}
@@ -0,0 +1,136 @@
+package by.martyniuk.hotelbooking.cache;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * The Class ExpiringCacheTest.
+ */
+public class ExpiringCacheTest {
+
+    /**
+     * The current time in nanoseconds.
+     */
+    private long now;
+
+    /**
+     * The cache.
+     */
+    private ExpiringCache<Long, String> cache;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        now = 0;
+        cache = new ExpiringCache<>(10, TimeUnit.SECONDS, 2, () -> now);
+    }
+
+    /**
+     * Hit and miss test.
+     */
+    @Test
+    public void hitAndMissTest() {
+        assertNull(cache.get(1L));
+        cache.put(1L, "one", cache.version());
+        assertEquals(cache.get(1L), "one");
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+    }
+
+    /**
+     * Expiry test.
+     */
+    @Test
+    public void expiryTest() {
+        cache.put(1L, "one", cache.version());
+        now = TimeUnit.SECONDS.toNanos(10);
+        assertNull(cache.get(1L));
+        assertEquals(cache.getEvictionCount(), 1);
+        assertEquals(cache.size(), 0);
+    }
+
+    /**
+     * Max size test.
+     */
+    @Test
+    public void maxSizeTest() {
+        cache.put(1L, "one", cache.version());
+        now = 1;
+        cache.put(2L, "two", cache.version());
+        cache.put(3L, "three", cache.version());
+        assertEquals(cache.size(), 2);
+        assertNull(cache.get(1L));
+        assertEquals(cache.get(3L), "three");
+        assertEquals(cache.getEvictionCount(), 1);
+    }
+
+    /**
+     * Eviction follows the put order test.
+     */
+    @Test
+    public void evictionOrderTest() {
+        cache.put(1L, "one", cache.version());
+        cache.put(2L, "two", cache.version());
+        cache.put(1L, "one again", cache.version());
+        cache.put(3L, "three", cache.version());
+        assertNull(cache.get(2L));
+        assertEquals(cache.get(1L), "one again");
+        assertEquals(cache.get(3L), "three");
+
+        now = TimeUnit.SECONDS.toNanos(10);
+        cache.put(4L, "four", cache.version());
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getStale(1L), "one again");
+        assertEquals(cache.getStale(3L), "three");
+        assertEquals(cache.getEvictionCount(), 3);
+    }
+
+    /**
+     * Stale put test.
+     */
+    @Test
+    public void stalePutTest() {
+        long version = cache.version();
+        cache.invalidate(1L);
+        assertFalse(cache.put(1L, "one", version));
+        assertNull(cache.get(1L));
+        assertTrue(cache.put(1L, "one", cache.version()));
+    }
+
+    /**
+     * Invalidate all test.
+     */
+    @Test
+    public void invalidateAllTest() {
+        cache.put(1L, "one", cache.version());
+        cache.put(2L, "two", cache.version());
+        cache.invalidateAll();
+        assertEquals(cache.size(), 0);
+    }
+
+    /**
+     * Stale value test.
+     */
+    @Test
+    public void staleValueTest() {
+        cache.put(1L, "one", cache.version());
+        cache.put(2L, "two", cache.version());
+        now = TimeUnit.SECONDS.toNanos(10);
+        assertNull(cache.get(1L));
+        assertEquals(cache.getStale(1L), "one");
+        cache.invalidate(1L);
+        assertNull(cache.getStale(1L));
+        assertEquals(cache.getStale(2L), "two");
+        cache.invalidateAll();
+        assertNull(cache.getStale(2L));
+    }
+}
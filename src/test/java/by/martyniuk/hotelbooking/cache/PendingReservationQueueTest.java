@@ -0,0 +1,168 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.ApartmentDao;
+import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Status;
+import by.martyniuk.hotelbooking.entity.User;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * The Class PendingReservationQueueTest.
+ */
+public class PendingReservationQueueTest {
+
+    /**
+     * The reservation dao.
+     */
+    private ReservationDao reservationDao;
+
+    /**
+     * The queue.
+     */
+    private PendingReservationQueue queue;
+
+    /**
+     * The apartments of one class.
+     */
+    private Apartment apartmentOne, apartmentTwo, apartmentThree;
+
+    /**
+     * The overlapping reservations waiting for approve.
+     */
+    private Reservation first, second;
+
+    /**
+     * Sets the up.
+     *
+     * @throws DaoException the dao exception
+     */
+    @BeforeMethod
+    public void setUp() throws DaoException {
+        ApartmentClass apartmentClass = new ApartmentClass(1, "first", 2, 3, new BigDecimal(100), new BigDecimal(50),
+                "description", "img/path.jpg");
+        apartmentOne = new Apartment(1, "101", 1, apartmentClass, true);
+        apartmentTwo = new Apartment(2, "102", 1, apartmentClass, true);
+        apartmentThree = new Apartment(3, "103", 1, apartmentClass, true);
+        ApartmentDao apartmentDao = mock(ApartmentDao.class);
+        when(apartmentDao.findAllApartments()).thenReturn(Arrays.asList(apartmentOne, apartmentTwo, apartmentThree));
+        ApartmentInventory apartmentInventory = new ApartmentInventory();
+        apartmentInventory.setApartmentDao(apartmentDao);
+
+        User user = new User();
+        user.setId(1);
+        first = new Reservation(1, LocalDate.of(2018, 2, 1), LocalDate.of(2018, 2, 5), LocalDateTime.now(), 1,
+                new BigDecimal(50), new BigDecimal(100), new BigDecimal(600), user, apartmentOne, Status.WAITING_FOR_APPROVE);
+        second = new Reservation(2, LocalDate.of(2018, 2, 3), LocalDate.of(2018, 2, 7), LocalDateTime.now(), 1,
+                new BigDecimal(50), new BigDecimal(100), new BigDecimal(600), user, apartmentTwo, Status.WAITING_FOR_APPROVE);
+
+        reservationDao = mock(ReservationDao.class);
+        when(reservationDao.readAllReservationsByStatus(Status.WAITING_FOR_APPROVE)).thenReturn(Arrays.asList(first, second));
+        when(reservationDao.isApartmentAvailable(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(false);
+        when(reservationDao.isApartmentAvailable(3, first.getCheckInDate(), first.getCheckOutDate())).thenReturn(true);
+        when(reservationDao.isApartmentAvailable(3, second.getCheckInDate(), second.getCheckOutDate())).thenReturn(true);
+
+        queue = new PendingReservationQueue();
+        queue.setReservationDao(reservationDao);
+        queue.setApartmentInventory(apartmentInventory);
+    }
+
+    /**
+     * Loads once test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void loadsOnceTest() throws DaoException {
+        PendingReservations pending = queue.findPendingReservations();
+        assertEquals(pending.getReservations(), Arrays.asList(first, second));
+        assertEquals(pending.getFreeApartments().get(first), Collections.singletonList(apartmentThree));
+        queue.findPendingReservations();
+        verify(reservationDao, times(1)).readAllReservationsByStatus(Status.WAITING_FOR_APPROVE);
+    }
+
+    /**
+     * Approval takes apartment test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void approvalTakesApartmentTest() throws DaoException {
+        queue.findPendingReservations();
+        first.setApartment(apartmentThree);
+        when(reservationDao.isApartmentAvailable(1, second.getCheckInDate(), second.getCheckOutDate())).thenReturn(true);
+        queue.reviewed(first, apartmentOne, Status.APPROVED);
+
+        PendingReservations pending = queue.findPendingReservations();
+        assertEquals(pending.getReservations(), Collections.singletonList(second));
+        assertEquals(pending.getFreeApartments().get(second), Collections.singletonList(apartmentOne));
+        verify(reservationDao, times(1)).readAllReservationsByStatus(Status.WAITING_FOR_APPROVE);
+    }
+
+    /**
+     * Decline keeps occupied apartment test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void declineKeepsOccupiedApartmentTest() throws DaoException {
+        queue.findPendingReservations();
+        queue.reviewed(first, apartmentOne, Status.DECLINED);
+
+        PendingReservations pending = queue.findPendingReservations();
+        assertEquals(pending.getFreeApartments().get(second), Collections.singletonList(apartmentThree));
+    }
+
+    /**
+     * Booking takes apartment test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void bookingTakesApartmentTest() throws DaoException {
+        queue.findPendingReservations();
+        Reservation booked = new Reservation(3, LocalDate.of(2018, 2, 2), LocalDate.of(2018, 2, 4), LocalDateTime.now(), 1,
+                new BigDecimal(50), new BigDecimal(100), new BigDecimal(300), first.getUser(), apartmentThree,
+                Status.WAITING_FOR_APPROVE);
+        queue.added(booked);
+
+        PendingReservations pending = queue.findPendingReservations();
+        assertEquals(pending.getReservations(), Arrays.asList(first, booked, second));
+        assertEquals(pending.getFreeApartments().get(first), Collections.emptyList());
+        assertEquals(pending.getFreeApartments().get(booked), Collections.emptyList());
+        verify(reservationDao, times(1)).readAllReservationsByStatus(Status.WAITING_FOR_APPROVE);
+    }
+
+    /**
+     * Change from another node reloads test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void changeFromAnotherNodeReloadsTest() throws DaoException {
+        queue.findPendingReservations();
+        queue.onChanges(Collections.singletonList(new EntityChange(EntityType.RESERVATION, EntityChange.ANY_ID, LocalDateTime.now())));
+        queue.findPendingReservations();
+        verify(reservationDao, times(2)).readAllReservationsByStatus(Status.WAITING_FOR_APPROVE);
+    }
+}
@@ -0,0 +1,80 @@
+package by.martyniuk.hotelbooking.cache;
+
+import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
+import by.martyniuk.hotelbooking.entity.EntityChange;
+import by.martyniuk.hotelbooking.entity.EntityType;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * The Class ReservationSearchCacheTest.
+ */
+public class ReservationSearchCacheTest {
+
+    /**
+     * The reservation dao.
+     */
+    private ReservationDao reservationDao;
+
+    /**
+     * The cache.
+     */
+    private ReservationSearchCache cache;
+
+    /**
+     * Sets the up.
+     *
+     * @throws DaoException the dao exception
+     */
+    @BeforeMethod
+    public void setUp() throws DaoException {
+        reservationDao = mock(ReservationDao.class);
+        when(reservationDao.searchReservations(any(ReservationQuery.class)))
+                .thenReturn(Collections.singletonList(new Reservation()));
+        cache = new ReservationSearchCache();
+        cache.setReservationDao(reservationDao);
+    }
+
+    /**
+     * Identical queries load once test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void identicalQueriesLoadOnceTest() throws DaoException {
+        cache.search(ReservationQuery.builder().user(1L).limit(10).build());
+        cache.search(ReservationQuery.builder().user(1L).limit(10).build());
+        cache.search(ReservationQuery.builder().user(1L).limit(20).build());
+        verify(reservationDao, times(2)).searchReservations(any(ReservationQuery.class));
+        assertEquals(cache.getResults().getHitCount(), 1);
+    }
+
+    /**
+     * Write drops results test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void writeDropsResultsTest() throws DaoException {
+        ReservationQuery query = ReservationQuery.builder().build();
+        cache.search(query);
+        cache.invalidateAll();
+        cache.search(query);
+        cache.onChanges(Collections.singletonList(new EntityChange(EntityType.APARTMENT, 1, LocalDateTime.now())));
+        cache.search(query);
+        verify(reservationDao, times(3)).searchReservations(query);
+    }
+}
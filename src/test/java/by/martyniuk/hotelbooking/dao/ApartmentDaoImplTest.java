@@ -157,8 +157,9 @@ public class ApartmentDaoImplTest {
      */
     @Test
     public void addApartmentTest() throws DaoException {
-        apartmentDao.addApartment(newApartment);
-        assertEquals(apartmentDao.findApartmentById(20).get(), newApartment);
+        Apartment added = apartmentDao.addApartment(newApartment).get();
+        assertEquals(added.getId(), 20);
+        assertEquals(apartmentDao.findApartmentById(20).get(), added);
     }
 
     /**
@@ -0,0 +1,200 @@
+package by.martyniuk.hotelbooking.dao;
+
+import by.martyniuk.hotelbooking.dao.impl.ApartmentDaoImpl;
+import by.martyniuk.hotelbooking.dao.impl.BalanceLedgerDaoImpl;
+import by.martyniuk.hotelbooking.dao.impl.ReservationDaoImpl;
+import by.martyniuk.hotelbooking.dao.impl.UserDaoImpl;
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.LedgerEntry;
+import by.martyniuk.hotelbooking.entity.LedgerReason;
+import by.martyniuk.hotelbooking.entity.User;
+import by.martyniuk.hotelbooking.pool.ConnectionPool;
+import by.martyniuk.hotelbooking.pool.ConnectionPoolTest;
+import com.ibatis.common.jdbc.ScriptRunner;
+import com.mysql.cj.jdbc.Driver;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * The Class BalanceLedgerDaoImplTest.
+ */
+public class BalanceLedgerDaoImplTest {
+
+    /**
+     * The threads booking at once.
+     */
+    private static final int THREADS = 16;
+
+    /**
+     * The bookings tried by every thread.
+     */
+    private static final int BOOKINGS_PER_THREAD = 10;
+
+    /**
+     * The script runner.
+     */
+    private ScriptRunner scriptRunner;
+
+    /**
+     * The connection.
+     */
+    private Connection connection;
+
+    /**
+     * The balance ledger dao.
+     */
+    private BalanceLedgerDao balanceLedgerDao;
+
+    /**
+     * The reservation dao.
+     */
+    private ReservationDao reservationDao;
+
+    /**
+     * The user dao.
+     */
+    private UserDao userDao;
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception the exception
+     */
+    @BeforeClass
+    public void setUp() throws Exception {
+        balanceLedgerDao = new BalanceLedgerDaoImpl();
+        reservationDao = new ReservationDaoImpl();
+        userDao = new UserDaoImpl();
+        Properties properties = new Properties();
+        properties.load(ConnectionPool.class.getResourceAsStream("/db.properties"));
+        DriverManager.registerDriver(new Driver());
+        connection = DriverManager.getConnection(properties.getProperty("jdbc.url"),
+                properties.getProperty("jdbc.username"), properties.getProperty("jdbc.password"));
+        scriptRunner = new ScriptRunner(connection, false, true);
+        scriptRunner.runScript(new InputStreamReader(ConnectionPoolTest.class.getResourceAsStream("/Insert.sql")));
+        ConnectionPool.isTest = true;
+    }
+
+    /**
+     * Before method set up.
+     *
+     * @throws Exception the exception
+     */
+    @BeforeMethod
+    public void beforeMethodSetUp() throws Exception {
+        scriptRunner.runScript(new InputStreamReader(ConnectionPoolTest.class.getResourceAsStream("/Insert.sql")));
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception the exception
+     */
+    @AfterClass
+    public void tearDown() throws Exception {
+        ConnectionPool.isTest = false;
+        Reader reader = new InputStreamReader(ConnectionPoolTest.class.getResourceAsStream("/Drop.sql"));
+        scriptRunner.runScript(reader);
+        connection.close();
+    }
+
+    /**
+     * Concurrent bookings on one account never overdraw it test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void concurrentBookingsTest() throws Exception {
+        User user = userDao.findUserById(2).get();
+        List<Apartment> apartments = new ApartmentDaoImpl().findAllApartments();
+        BigDecimal cost = new BigDecimal("10.00");
+        int affordable = user.getBalance().divide(cost).intValue();
+        LocalDate start = LocalDate.now().plusYears(5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int first = thread * BOOKINGS_PER_THREAD;
+            results.add(executor.submit((Callable<Integer>) () -> {
+                int booked = 0;
+                for (int i = first; i < first + BOOKINGS_PER_THREAD; i++) {
+                    Apartment apartment = apartments.get(i % apartments.size());
+                    LocalDate checkIn = start.plusDays(2 * (i / apartments.size()));
+                    if (reservationDao.addReservation(apartment, user, checkIn, checkIn.plusDays(1), cost, 1).isPresent()) {
+                        booked++;
+                    }
+                }
+                return booked;
+            }));
+        }
+        int booked = 0;
+        for (Future<Integer> result : results) {
+            booked += result.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        Reporter.log(THREADS * BOOKINGS_PER_THREAD + " bookings on one account in " + elapsedMillis + " ms, "
+                + (THREADS * BOOKINGS_PER_THREAD * 1000L / elapsedMillis) + " per second", true);
+
+        assertEquals(booked, Math.min(affordable, THREADS * BOOKINGS_PER_THREAD));
+        assertEquals(userDao.findUserById(2).get().getBalance(), user.getBalance().subtract(cost.multiply(new BigDecimal(booked))));
+        assertEquals(balanceLedgerDao.findEntriesByUserId(2, 1000).size(), booked);
+    }
+
+    /**
+     * Compaction keeps the balance and the audit trail test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void compactBalanceTest() throws Exception {
+        userDao.depositMoney(2, new BigDecimal("50.00"));
+        userDao.depositMoney(2, new BigDecimal("25.00"));
+        BigDecimal balance = userDao.findUserById(2).get().getBalance();
+
+        assertEquals(balanceLedgerDao.findUsersToCompact(2, 10), Collections.singletonList(2L));
+        assertEquals(balanceLedgerDao.compactBalance(2), 2);
+        assertEquals(balanceLedgerDao.compactBalance(2), 0);
+        assertEquals(userDao.findUserById(2).get().getBalance(), balance);
+        List<LedgerEntry> entries = balanceLedgerDao.findEntriesByUserId(2, 10);
+        assertEquals(entries.size(), 2);
+        assertEquals(entries.get(0).getReason(), LedgerReason.DEPOSIT);
+    }
+
+    /**
+     * Update user writes an adjustment test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void adjustmentTest() throws Exception {
+        User user = userDao.findUserById(2).get();
+        user.setBalance(new BigDecimal("400.00"));
+        userDao.updateUser(user);
+        assertEquals(userDao.findUserById(2).get().getBalance(), new BigDecimal("400.00"));
+        assertEquals(balanceLedgerDao.findEntriesByUserId(2, 10).get(0).getReason(), LedgerReason.ADJUSTMENT);
+    }
+}
@@ -18,6 +18,8 @@ import java.io.Reader;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Optional;
 import java.util.Properties;
 
 import static org.testng.Assert.assertEquals;
@@ -106,8 +108,11 @@ public class ReservationDaoImplTest {
         reservation.setId(3);
         reservation.setCheckInDate(LocalDate.now().plusDays(10));
         reservation.setCheckOutDate(LocalDate.now().plusDays(12));
-        assertTrue(reservationDao.addReservation(reservation.getApartment(), reservation.getUser(), reservation.getCheckInDate(),
-                reservation.getCheckOutDate(), reservation.getTotalCost(), reservation.getPersonAmount()));
+        Optional<Reservation> added = reservationDao.addReservation(reservation.getApartment(), reservation.getUser(),
+                reservation.getCheckInDate(), reservation.getCheckOutDate(), reservation.getTotalCost(),
+                reservation.getPersonAmount());
+        assertTrue(added.isPresent());
+        assertEquals(added.get().getId(), reservation.getId());
     }
 
     /**
@@ -161,6 +166,25 @@ public class ReservationDaoImplTest {
     @Test
     public void readAllReservationsByStatus() throws DaoException {
         Reservation reservation = reservationDao.readReservationById(2).get();
-        assertEquals(reservationDao.readAllReservationsByStatus(Status.WAITING_FOR_APPROVE).get(0), reservation);
+        Reservation listed = reservationDao.readAllReservationsByStatus(Status.WAITING_FOR_APPROVE).get(0);
+        assertEquals(listed.getId(), reservation.getId());
+        assertEquals(listed.getTotalCost(), reservation.getTotalCost());
+        assertEquals(listed.getUser().getEmail(), reservation.getUser().getEmail());
+        assertEquals(listed.getApartment().getNumber(), reservation.getApartment().getNumber());
+        assertEquals(listed.getStatus(), reservation.getStatus());
     }
-}
\ No newline at end of file
+
+    /**
+     * Search reservations test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void searchReservationsTest() throws DaoException {
+        ReservationQuery query = ReservationQuery.builder()
+                .statuses(EnumSet.of(Status.WAITING_FOR_APPROVE))
+                .user(1L)
+                .build();
+        assertEquals(reservationDao.searchReservations(query).get(0).getId(), 2);
+    }
+}
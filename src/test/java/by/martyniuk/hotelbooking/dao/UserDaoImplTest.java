@@ -134,7 +134,7 @@ public class UserDaoImplTest {
         String mail = "mail@mail.ru";
         user.setId(5);
         user.setEmail(mail);
-        userDao.addUser(user);
+        assertEquals(userDao.addUser(user).get().getId(), user.getId());
         assertEquals(userDao.findUserByMail(user.getEmail()).get(), user);
     }
 
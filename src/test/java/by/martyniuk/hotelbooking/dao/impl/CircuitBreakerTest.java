@@ -0,0 +1,168 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.exception.CircuitOpenException;
+import by.martyniuk.hotelbooking.exception.ConnectionUnavailableException;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import by.martyniuk.hotelbooking.exception.QueryTimeoutException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * The Class CircuitBreakerTest.
+ */
+public class CircuitBreakerTest {
+
+    /**
+     * The current time in nanoseconds.
+     */
+    private long now;
+
+    /**
+     * The circuit breaker.
+     */
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        now = 0;
+        circuitBreaker = new CircuitBreaker(() -> now);
+        circuitBreaker.setWindow(10, 4);
+        circuitBreaker.setThresholds(50, 80, 1000);
+        circuitBreaker.setRecovery(5, 2);
+    }
+
+    /**
+     * Opens on failures test.
+     *
+     * @throws CircuitOpenException the circuit open exception
+     */
+    @Test
+    public void opensOnFailuresTest() throws CircuitOpenException {
+        call(false);
+        call(true);
+        call(false);
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.CLOSED);
+        call(true);
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+        try {
+            circuitBreaker.acquire();
+            fail();
+        } catch (CircuitOpenException e) {
+            assertEquals(e.getRetryAfterSeconds(), 5);
+        }
+        assertEquals(circuitBreaker.getRejectedCount(), 1);
+    }
+
+    /**
+     * Opens on slow calls test.
+     *
+     * @throws CircuitOpenException the circuit open exception
+     */
+    @Test
+    public void opensOnSlowCallsTest() throws CircuitOpenException {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.record(circuitBreaker.acquire(), TimeUnit.SECONDS.toNanos(2), false);
+        }
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+    }
+
+    /**
+     * Closes after trials test.
+     *
+     * @throws CircuitOpenException the circuit open exception
+     */
+    @Test
+    public void closesAfterTrialsTest() throws CircuitOpenException {
+        open();
+        now = TimeUnit.SECONDS.toNanos(5);
+        long first = circuitBreaker.acquire();
+        long second = circuitBreaker.acquire();
+        try {
+            circuitBreaker.acquire();
+            fail();
+        } catch (CircuitOpenException e) {
+            assertEquals(circuitBreaker.getState(), CircuitBreaker.State.HALF_OPEN);
+        }
+        circuitBreaker.record(first, 0, false);
+        circuitBreaker.record(second, 0, false);
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    /**
+     * Reopens on failed trial test.
+     *
+     * @throws CircuitOpenException the circuit open exception
+     */
+    @Test
+    public void reopensOnFailedTrialTest() throws CircuitOpenException {
+        open();
+        now = TimeUnit.SECONDS.toNanos(5);
+        circuitBreaker.record(circuitBreaker.acquire(), 0, true);
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+        assertEquals(circuitBreaker.getOpenedCount(), 2);
+    }
+
+    /**
+     * Call started before opening is ignored test.
+     *
+     * @throws CircuitOpenException the circuit open exception
+     */
+    @Test
+    public void callStartedBeforeOpeningIsIgnoredTest() throws CircuitOpenException {
+        long late = circuitBreaker.acquire();
+        open();
+        now = TimeUnit.SECONDS.toNanos(5);
+        long trial = circuitBreaker.acquire();
+        circuitBreaker.record(late, 0, true);
+        circuitBreaker.record(trial, 0, false);
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.HALF_OPEN);
+    }
+
+    /**
+     * Failure test.
+     */
+    @Test
+    public void failureTest() {
+        assertTrue(CircuitBreaker.isFailure(new QueryTimeoutException(null)));
+        assertTrue(CircuitBreaker.isFailure(new ConnectionUnavailableException(null)));
+        assertFalse(CircuitBreaker.isFailure(new CircuitOpenException(1)));
+        assertFalse(CircuitBreaker.isFailure(new DaoException("Duplicate entry")));
+        assertFalse(CircuitBreaker.isFailure(SqlExceptionTranslator.translate(
+                new SQLException("Lock wait timeout exceeded", "HY000", SqlExceptionTranslator.ER_LOCK_WAIT_TIMEOUT))));
+        assertFalse(CircuitBreaker.isFailure(SqlExceptionTranslator.translate(
+                new SQLException("Deadlock found", RetryPolicy.SERIALIZATION_FAILURE_STATE, RetryPolicy.ER_LOCK_DEADLOCK))));
+    }
+
+    /**
+     * Makes a call.
+     *
+     * @param failure true, if the call fails
+     * @throws CircuitOpenException the circuit open exception
+     */
+    private void call(boolean failure) throws CircuitOpenException {
+        circuitBreaker.record(circuitBreaker.acquire(), 0, failure);
+    }
+
+    /**
+     * Opens the breaker.
+     *
+     * @throws CircuitOpenException the circuit open exception
+     */
+    private void open() throws CircuitOpenException {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+    }
+}
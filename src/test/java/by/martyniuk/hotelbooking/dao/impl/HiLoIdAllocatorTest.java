@@ -0,0 +1,128 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * The Class HiLoIdAllocatorTest.
+ */
+public class HiLoIdAllocatorTest {
+
+    /**
+     * The block size.
+     */
+    private static final int BLOCK_SIZE = 10;
+
+    /**
+     * The next value of the stubbed sequence table.
+     */
+    private AtomicLong sequence;
+
+    /**
+     * The amount of reserved blocks.
+     */
+    private AtomicInteger reservations;
+
+    /**
+     * The allocator.
+     */
+    private HiLoIdAllocator allocator;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        sequence = new AtomicLong(20);
+        reservations = new AtomicInteger();
+        allocator = new HiLoIdAllocator() {
+            @Override
+            long reserveBlock(String name, int size) {
+                reservations.incrementAndGet();
+                return sequence.addAndGet(size);
+            }
+        };
+        allocator.setAllocatorSettings(true, BLOCK_SIZE);
+    }
+
+    /**
+     * Ids continue the sequence test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void idsContinueSequenceTest() throws SQLException {
+        for (long expected = 20; expected < 45; expected++) {
+            assertEquals(allocator.nextId(HiLoIdAllocator.APARTMENT), expected);
+        }
+        assertEquals(reservations.get(), 3);
+    }
+
+    /**
+     * Sequences are separate test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void sequencesAreSeparateTest() throws SQLException {
+        assertEquals(allocator.nextId(HiLoIdAllocator.APARTMENT), 20);
+        assertEquals(allocator.nextId(HiLoIdAllocator.RESERVATION), 30);
+        assertEquals(allocator.nextId(HiLoIdAllocator.APARTMENT), 21);
+        assertEquals(allocator.nextIds(HiLoIdAllocator.APARTMENT, 3), new long[]{22, 23, 24});
+    }
+
+    /**
+     * Concurrent ids are unique test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void concurrentIdsAreUniqueTest() throws Exception {
+        int threads = 8;
+        int idsPerThread = 1000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    for (int j = 0; j < idsPerThread; j++) {
+                        assertTrue(ids.add(allocator.nextId(HiLoIdAllocator.RESERVATION)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(ids.size(), threads * idsPerThread);
+        assertEquals(reservations.get(), threads * idsPerThread / BLOCK_SIZE);
+    }
+
+    /**
+     * Disabled by default test.
+     */
+    @Test
+    public void disabledByDefaultTest() {
+        assertFalse(new HiLoIdAllocator().isEnabled());
+    }
+}
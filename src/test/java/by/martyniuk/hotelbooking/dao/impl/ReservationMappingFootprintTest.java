@@ -0,0 +1,205 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.Reservation;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * The Class ReservationMappingFootprintTest.
+ * <p>
+ * Compares the heap retained by a reservation listing mapped row by row with the same listing
+ * mapped through one identity map per query.
+ */
+public class ReservationMappingFootprintTest {
+
+    /**
+     * The amount of reservations of one user.
+     */
+    private static final int ROWS = 500;
+
+    /**
+     * The column labels of the reservation selects.
+     */
+    private static final List<String> COLUMNS = Arrays.asList("id_reservation", "check_in_date", "check_out_date",
+            "order_time", "person_amount", "id_user", "first_name", "middle_name", "last_name", "balance", "email",
+            "phone_number", "password", "role", "user_active", "apartment_active", "id_apartment", "number", "floor",
+            "id_apartment_class", "type", "rooms_amount", "max_capacity", "reservation_cost_per_night",
+            "reservation_cost_per_person", "description", "image_path", "id_status", "status", "total_cost",
+            "apartment_cost_per_night", "apartment_cost_per_person");
+
+    /**
+     * The rows.
+     */
+    private List<Object[]> rows;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            LocalDate checkIn = LocalDate.of(2018, 1, 1).plusDays(i * 3);
+            rows.add(new Object[]{i + 1, Date.valueOf(checkIn), Date.valueOf(checkIn.plusDays(2)),
+                    Timestamp.valueOf(LocalDateTime.of(2017, 12, 1, 12, 0)), 1, 1, "Vadim", "Alekseevich", "Martyniuk",
+                    // copies of the column values, as a driver decodes them anew for every row
+                    new String("1000.00"), new String("konkord321@gmail.com"), "+375257473147",
+                    new String("$2a$10$CoZeYuDWPHpdMFWn6H4I2eXI36e3NVyDrdujnm0zr6cUasG42df8q"), "Admin", 1, 1,
+                    i % 2 + 1, "10" + (i % 2 + 1), 1, 2, "Double room", 1, 2, "135.00", "35.00",
+                    new String("An elegant stylish room with a queen-size bed."), "img/double-room.jpg", 2, "Approved",
+                    "340.00", "135.00", "35.00"});
+        }
+    }
+
+    /**
+     * Shared entities test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void sharedEntitiesTest() throws SQLException {
+        List<Reservation> reservations = map(rows);
+        assertEquals(reservations.size(), ROWS);
+        for (Reservation reservation : reservations) {
+            assertSame(reservation.getUser(), reservations.get(0).getUser());
+            assertSame(reservation.getApartment().getApartmentClass(), reservations.get(0).getApartment().getApartmentClass());
+        }
+        assertSame(reservations.get(2).getApartment(), reservations.get(0).getApartment());
+    }
+
+    /**
+     * Retained size test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void retainedSizeTest() throws Exception {
+        List<Reservation> rowByRow = new ArrayList<>();
+        for (Object[] row : rows) {
+            rowByRow.addAll(map(Collections.singletonList(row)));
+        }
+        List<Reservation> perQuery = map(rows);
+
+        long before = retainedSize(rowByRow);
+        long after = retainedSize(perQuery);
+        assertEquals(perQuery, rowByRow);
+        assertTrue(after * 2 < before, "retained " + after + " bytes, row by row mapping retained " + before);
+    }
+
+    /**
+     * Maps the rows as one query.
+     *
+     * @param rows the rows
+     * @return the reservations
+     * @throws SQLException the SQL exception
+     */
+    private List<Reservation> map(List<Object[]> rows) throws SQLException {
+        return new ReservationRowMapper(SqlQuery.SQL_SELECT_ALL_RESERVATIONS_BY_USER_ID, ResultSetStub.of(COLUMNS, rows)).mapAll();
+    }
+
+    /**
+     * Estimates the bytes retained by the object graph, counting every instance once.
+     * Uses 16 byte headers, 8 byte fields and references, aligned to 8 bytes.
+     *
+     * @param root the root
+     * @return the size
+     * @throws IllegalAccessException the illegal access exception
+     */
+    private long retainedSize(Object root) throws IllegalAccessException {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(root);
+        long size = 0;
+        while (!stack.isEmpty()) {
+            Object object = stack.pop();
+            if (object instanceof Class || !visited.add(object)) {
+                continue;
+            }
+            if (object instanceof Collection) {
+                size += 16 + 8L * ((Collection<?>) object).size();
+                ((Collection<?>) object).forEach(element -> push(stack, element));
+            } else if (object instanceof Map) {
+                size += 16 + 32L * ((Map<?, ?>) object).size();
+                ((Map<?, ?>) object).forEach((key, value) -> {
+                    push(stack, key);
+                    push(stack, value);
+                });
+            } else if (object.getClass().isArray()) {
+                size += align(16 + (object instanceof char[] ? 2L * ((char[]) object).length : 8L * arrayLength(object)));
+                if (object instanceof Object[]) {
+                    Arrays.stream((Object[]) object).forEach(element -> push(stack, element));
+                }
+            } else {
+                long shallow = 16;
+                for (Class<?> type = object.getClass(); type != null; type = type.getSuperclass()) {
+                    for (Field field : type.getDeclaredFields()) {
+                        if (Modifier.isStatic(field.getModifiers())) {
+                            continue;
+                        }
+                        shallow += 8;
+                        if (!field.getType().isPrimitive()) {
+                            field.setAccessible(true);
+                            push(stack, field.get(object));
+                        }
+                    }
+                }
+                size += align(shallow);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Pushes the object unless it is null.
+     *
+     * @param stack  the stack
+     * @param object the object
+     */
+    private void push(Deque<Object> stack, Object object) {
+        if (object != null) {
+            stack.push(object);
+        }
+    }
+
+    /**
+     * Gets the array length.
+     *
+     * @param array the array
+     * @return the length
+     */
+    private int arrayLength(Object array) {
+        return java.lang.reflect.Array.getLength(array);
+    }
+
+    /**
+     * Aligns the size to 8 bytes.
+     *
+     * @param size the size
+     * @return the aligned size
+     */
+    private long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,92 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.dao.ReservationQuery;
+import by.martyniuk.hotelbooking.entity.Status;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+/**
+ * The Class ReservationQuerySqlTest.
+ */
+public class ReservationQuerySqlTest {
+
+    /**
+     * Empty query test.
+     */
+    @Test
+    public void emptyQueryTest() {
+        ReservationQuerySql compiled = ReservationQuerySql.compile(ReservationQuery.builder().build());
+        assertEquals(compiled.getSql(), SqlQuery.SQL_SELECT_ALL_RESERVATION_VIEWS
+                + " ORDER BY `check_in_date`, `id_reservation` LIMIT ?");
+        assertEquals(compiled.getParameters(), Collections.singletonList(ReservationQuery.MAX_LIMIT));
+    }
+
+    /**
+     * All filters test.
+     */
+    @Test
+    public void allFiltersTest() {
+        LocalDate from = LocalDate.of(2018, 5, 1);
+        LocalDate to = LocalDate.of(2018, 5, 10);
+        ReservationQuery query = ReservationQuery.builder()
+                .overlapping(from, to)
+                .statuses(EnumSet.of(Status.WAITING_FOR_APPROVE, Status.APPROVED))
+                .user(1L)
+                .apartment(2L)
+                .apartmentClass(3L)
+                .costBetween(new BigDecimal("10"), new BigDecimal("500"))
+                .sortBy(ReservationQuery.SortField.TOTAL_COST, true)
+                .limit(20)
+                .build();
+        ReservationQuerySql compiled = ReservationQuerySql.compile(query);
+        assertEquals(compiled.getSql(), SqlQuery.SQL_SELECT_ALL_RESERVATION_VIEWS
+                + " WHERE `check_out_date` > ? AND `check_in_date` < ? AND `status` IN (?, ?)"
+                + " AND `id_user` = ? AND `id_apartment` = ? AND `id_apartment_class` = ?"
+                + " AND `total_cost` >= ? AND `total_cost` <= ?"
+                + " ORDER BY `total_cost` DESC, `id_reservation` DESC LIMIT ?");
+        assertEquals(compiled.getParameters(), Arrays.asList(Date.valueOf(from), Date.valueOf(to),
+                Status.WAITING_FOR_APPROVE.name(), Status.APPROVED.name(), 1L, 2L, 3L,
+                new BigDecimal("10"), new BigDecimal("500"), 20));
+    }
+
+    /**
+     * Same shape shares sql test.
+     */
+    @Test
+    public void sameShapeSharesSqlTest() {
+        ReservationQuery first = ReservationQuery.builder().user(1L).limit(10).build();
+        ReservationQuery second = ReservationQuery.builder().user(2L).limit(50).build();
+        assertNotEquals(first, second);
+        assertEquals(ReservationQuerySql.compile(first).getSql(), ReservationQuerySql.compile(second).getSql());
+    }
+
+    /**
+     * Equal queries test.
+     */
+    @Test
+    public void equalQueriesTest() {
+        ReservationQuery first = ReservationQuery.builder()
+                .statuses(EnumSet.of(Status.APPROVED, Status.DECLINED)).user(1L).build();
+        ReservationQuery second = ReservationQuery.builder()
+                .statuses(EnumSet.of(Status.DECLINED, Status.APPROVED)).user(1L).build();
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    /**
+     * Empty date range test.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void emptyDateRangeTest() {
+        ReservationQuery.builder().overlapping(LocalDate.of(2018, 5, 10), LocalDate.of(2018, 5, 10));
+    }
+}
@@ -0,0 +1,96 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The Class ResultSetStub.
+ * <p>
+ * Builds a mocked result set over in-memory rows, answering the getters by column label or index.
+ */
+class ResultSetStub implements Answer<Object> {
+
+    /**
+     * The column labels.
+     */
+    private final List<String> columns;
+
+    /**
+     * The rows.
+     */
+    private final List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * The cursor.
+     */
+    private int cursor = -1;
+
+    /**
+     * Instantiates a new result set stub.
+     *
+     * @param columns the column labels
+     */
+    private ResultSetStub(List<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Creates the result set.
+     *
+     * @param columns the column labels
+     * @param rows    the rows
+     * @return the result set
+     */
+    static ResultSet of(List<String> columns, List<Object[]> rows) {
+        ResultSetStub stub = new ResultSetStub(columns);
+        stub.rows.addAll(rows);
+        return mock(ResultSet.class, stub);
+    }
+
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+        String name = invocation.getMethod().getName();
+        if ("next".equals(name)) {
+            return ++cursor < rows.size();
+        }
+        if ("findColumn".equals(name)) {
+            return indexOf(invocation.getArguments()[0]) + 1;
+        }
+        Object value = rows.get(cursor)[indexOf(invocation.getArguments()[0])];
+        switch (name) {
+            case "getLong":
+                return ((Number) value).longValue();
+            case "getInt":
+                return ((Number) value).intValue();
+            case "getString":
+                return value == null ? null : value.toString();
+            case "getBigDecimal":
+                return value == null ? null : new BigDecimal(value.toString());
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Resolves the column index of the getter argument.
+     *
+     * @param column the column label or the one based column index
+     * @return the index
+     * @throws SQLException if the column is unknown
+     */
+    private int indexOf(Object column) throws SQLException {
+        int index = column instanceof Integer ? (Integer) column - 1 : columns.indexOf(column);
+        if (index < 0 || index >= columns.size()) {
+            throw new SQLException("Column not found: " + column);
+        }
+        return index;
+    }
+}
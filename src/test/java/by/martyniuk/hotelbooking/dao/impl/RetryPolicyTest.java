@@ -0,0 +1,104 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * The Class RetryPolicyTest.
+ */
+public class RetryPolicyTest {
+
+    /**
+     * The retry policy, which records its backoffs instead of sleeping.
+     */
+    private RetryPolicy retryPolicy;
+
+    /**
+     * The backoffs.
+     */
+    private List<Long> backoffs;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        backoffs = new ArrayList<>();
+        retryPolicy = new RetryPolicy() {
+            @Override
+            void sleep(long millis) {
+                backoffs.add(millis);
+            }
+        };
+        retryPolicy.setRetrySettings(3, 20, 500);
+    }
+
+    /**
+     * Deadlock is retried test.
+     *
+     * @throws DaoException the dao exception
+     */
+    @Test
+    public void deadlockIsRetriedTest() throws DaoException {
+        AtomicInteger attempts = new AtomicInteger();
+        String result = retryPolicy.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new DaoException(new SQLTransactionRollbackException("Deadlock found", "40001", 1213));
+            }
+            return "booked";
+        });
+        assertEquals(result, "booked");
+        assertEquals(attempts.get(), 3);
+        assertEquals(backoffs.size(), 2);
+        assertTrue(backoffs.get(0) <= 20 && backoffs.get(1) <= 40);
+        assertEquals(retryPolicy.getRetryCount(), 2);
+        assertEquals(retryPolicy.getRecoveredCount(), 1);
+    }
+
+    /**
+     * Other failure is not retried test.
+     */
+    @Test
+    public void otherFailureIsNotRetriedTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            retryPolicy.execute(() -> {
+                attempts.incrementAndGet();
+                throw new DaoException(new SQLException("Duplicate entry", "23000", 1062));
+            });
+            fail("Failure swallowed");
+        } catch (DaoException e) {
+            assertEquals(attempts.get(), 1);
+            assertEquals(retryPolicy.getRetryCount(), 0);
+        }
+    }
+
+    /**
+     * Lock wait timeout is exhausted test.
+     */
+    @Test
+    public void lockWaitTimeoutIsExhaustedTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            retryPolicy.execute(() -> {
+                attempts.incrementAndGet();
+                throw new DaoException(new SQLException("Lock wait timeout exceeded", "HY000", 1205));
+            });
+            fail("Failure swallowed");
+        } catch (DaoException e) {
+            assertEquals(attempts.get(), 3);
+            assertEquals(retryPolicy.getExhaustedCount(), 1);
+        }
+    }
+}
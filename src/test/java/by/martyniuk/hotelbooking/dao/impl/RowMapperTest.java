@@ -0,0 +1,166 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Role;
+import by.martyniuk.hotelbooking.entity.Status;
+import by.martyniuk.hotelbooking.entity.User;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * The Class RowMapperTest.
+ * <p>
+ * Checks the mapping and that column labels are resolved once per query shape, not per row.
+ */
+public class RowMapperTest {
+
+    /**
+     * The user columns, in another order than the mapper expects.
+     */
+    private static final List<String> USER_COLUMNS = Arrays.asList("email", "id_user", "first_name", "middle_name",
+            "last_name", "balance", "phone_number", "password", "role", "active");
+
+    /**
+     * The apartment columns.
+     */
+    private static final List<String> APARTMENT_COLUMNS = Arrays.asList("id_apartment", "number", "floor", "active",
+            "id_apartment_class", "type", "rooms_amount", "max_capacity", "cost_per_night", "cost_per_person",
+            "description", "image_path");
+
+    /**
+     * The reservation view columns.
+     */
+    private static final List<String> RESERVATION_VIEW_COLUMNS = Arrays.asList("id_reservation", "check_in_date",
+            "check_out_date", "order_time", "person_amount", "cost_per_person", "cost_per_night", "total_cost",
+            "status", "id_user", "first_name", "last_name", "email", "id_apartment", "number", "floor",
+            "id_apartment_class", "type");
+
+    /**
+     * The user rows.
+     */
+    private static final List<Object[]> USER_ROWS = Arrays.asList(
+            new Object[]{"konkord321@gmail.com", 1, "Vadim", "Alekseevich", "Martyniuk", "1000.00", "+375257473147",
+                    "password", "Admin", 1},
+            new Object[]{"user@gmail.com", 2, "Ivan", "Ivanovich", "Ivanov", "0.00", "+375291234567", "password",
+                    "User", 0});
+
+    /**
+     * Map user test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void mapUserTest() throws SQLException {
+        List<User> users = UserRowMapper.of("mapUserTest", ResultSetStub.of(USER_COLUMNS, USER_ROWS)).mapAll();
+        assertEquals(users, Arrays.asList(
+                new User(1, "Vadim", "Alekseevich", "Martyniuk", new BigDecimal("1000.00"), "konkord321@gmail.com",
+                        "+375257473147", "password", Role.ADMIN, true),
+                new User(2, "Ivan", "Ivanovich", "Ivanov", new BigDecimal("0.00"), "user@gmail.com",
+                        "+375291234567", "password", Role.USER, false)));
+    }
+
+    /**
+     * Map apartment test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void mapApartmentTest() throws SQLException {
+        ResultSet resultSet = ResultSetStub.of(APARTMENT_COLUMNS, Collections.singletonList(
+                new Object[]{5, "105", 1, 1, 2, "Double room", 1, 2, "135.00", "35.00", "description", "img.jpg"}));
+        Apartment apartment = ApartmentRowMapper.of("mapApartmentTest", resultSet).mapFirst().get();
+        assertEquals(apartment.getId(), 5);
+        assertEquals(apartment.getApartmentClass().getId(), 2);
+        assertEquals(apartment.getApartmentClass().getCostPerNight(), new BigDecimal("135.00"));
+    }
+
+    /**
+     * Columns resolved once test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void columnsResolvedOnceTest() throws SQLException {
+        ResultSet first = ResultSetStub.of(USER_COLUMNS, USER_ROWS);
+        UserRowMapper.of("columnsResolvedOnceTest", first).mapAll();
+        verify(first, times(1)).findColumn("email");
+        verify(first, never()).getString(anyString());
+        verify(first, never()).getLong(anyString());
+
+        ResultSet second = ResultSetStub.of(USER_COLUMNS, USER_ROWS);
+        User user = UserRowMapper.of("columnsResolvedOnceTest", second).mapAll().get(0);
+        verify(second, never()).findColumn(anyString());
+        assertEquals(user.getEmail(), "konkord321@gmail.com");
+    }
+
+    /**
+     * Unknown role test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownRoleTest() throws SQLException {
+        Object[] row = USER_ROWS.get(0).clone();
+        row[8] = "Guest";
+        UserRowMapper.of("unknownRoleTest", ResultSetStub.of(USER_COLUMNS, Collections.singletonList(row))).mapAll();
+    }
+
+    /**
+     * Shared mapper indexes test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void sharedIndexesTest() throws SQLException {
+        UserRowMapper mapper = UserRowMapper.of("sharedIndexesTest", ResultSetStub.of(USER_COLUMNS, USER_ROWS));
+        UserRowMapper other = UserRowMapper.of("sharedIndexesTest", ResultSetStub.of(USER_COLUMNS, USER_ROWS));
+        assertSame(mapper.index, other.index);
+    }
+
+    /**
+     * Map reservation view test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void mapReservationViewTest() throws SQLException {
+        Timestamp orderTime = Timestamp.valueOf(LocalDateTime.of(2018, 1, 31, 20, 15));
+        ResultSet resultSet = ResultSetStub.of(RESERVATION_VIEW_COLUMNS, Arrays.asList(
+                new Object[]{2, Date.valueOf("2018-02-06"), Date.valueOf("2018-02-08"), orderTime, 2, "40.00",
+                        "145.00", "450.00", "WAITING_FOR_APPROVE", 1, "Vadim", "Martyniuk", "konkord321@gmail.com", 5,
+                        "105", 1, 2, "Double room"},
+                new Object[]{3, Date.valueOf("2018-03-01"), Date.valueOf("2018-03-02"), orderTime, 1, "35.00",
+                        "135.00", "170.00", "WAITING_FOR_APPROVE", 1, "Vadim", "Martyniuk", "konkord321@gmail.com", 6,
+                        "106", 1, 2, "Double room"}));
+        List<Reservation> reservations = new ReservationViewRowMapper("mapReservationViewTest", resultSet).mapAll();
+
+        Reservation reservation = reservations.get(0);
+        assertEquals(reservation.getId(), 2);
+        assertEquals(reservation.getCheckInDate(), LocalDate.of(2018, 2, 6));
+        assertEquals(reservation.getTotalCost(), new BigDecimal("450.00"));
+        assertEquals(reservation.getStatus(), Status.WAITING_FOR_APPROVE);
+        assertEquals(reservation.getUser().getEmail(), "konkord321@gmail.com");
+        assertEquals(reservation.getApartment().getNumber(), "105");
+        assertEquals(reservation.getApartment().getApartmentClass().getId(), 2);
+        assertSame(reservations.get(1).getUser(), reservation.getUser());
+        assertSame(reservations.get(1).getApartment().getApartmentClass(), reservation.getApartment().getApartmentClass());
+    }
+}
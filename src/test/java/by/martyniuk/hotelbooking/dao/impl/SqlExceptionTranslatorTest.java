@@ -0,0 +1,61 @@
+package by.martyniuk.hotelbooking.dao.impl;
+
+import by.martyniuk.hotelbooking.exception.ConnectionUnavailableException;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import by.martyniuk.hotelbooking.exception.QueryCancelledException;
+import by.martyniuk.hotelbooking.exception.QueryTimeoutException;
+import com.mysql.cj.jdbc.exceptions.MySQLStatementCancelledException;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * The Class SqlExceptionTranslatorTest.
+ */
+public class SqlExceptionTranslatorTest {
+
+    /**
+     * Timeout test.
+     */
+    @Test
+    public void timeoutTest() {
+        assertTrue(SqlExceptionTranslator.translate(new SQLTimeoutException()) instanceof QueryTimeoutException);
+        assertTrue(SqlExceptionTranslator.translate(new SQLException("Lock wait timeout exceeded", "HY000",
+                SqlExceptionTranslator.ER_LOCK_WAIT_TIMEOUT)) instanceof QueryTimeoutException);
+    }
+
+    /**
+     * Cancelled test.
+     */
+    @Test
+    public void cancelledTest() {
+        assertTrue(SqlExceptionTranslator.translate(new MySQLStatementCancelledException()) instanceof QueryCancelledException);
+        assertTrue(SqlExceptionTranslator.translate(new SQLException("Query execution was interrupted", "70100",
+                SqlExceptionTranslator.ER_QUERY_INTERRUPTED)) instanceof QueryCancelledException);
+    }
+
+    /**
+     * Connection unavailable test.
+     */
+    @Test
+    public void connectionUnavailableTest() {
+        assertTrue(SqlExceptionTranslator.translate(new SQLTransientConnectionException()) instanceof ConnectionUnavailableException);
+        assertTrue(SqlExceptionTranslator.translate(new SQLException("Link failure", "08S01")) instanceof ConnectionUnavailableException);
+    }
+
+    /**
+     * Other failure test.
+     */
+    @Test
+    public void otherFailureTest() {
+        SQLException e = new SQLException("Duplicate entry", "23000", 1062);
+        DaoException translated = SqlExceptionTranslator.translate(e);
+        assertEquals(translated.getClass(), DaoException.class);
+        assertEquals(translated.getCause(), e);
+    }
+}
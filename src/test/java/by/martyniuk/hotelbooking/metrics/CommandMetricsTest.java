@@ -0,0 +1,84 @@
+package by.martyniuk.hotelbooking.metrics;
+
+import by.martyniuk.hotelbooking.command.ActionCommand;
+import by.martyniuk.hotelbooking.exception.CommandException;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * The Class CommandMetricsTest.
+ */
+public class CommandMetricsTest {
+
+    /**
+     * Instrumented command test.
+     *
+     * @throws CommandException the command exception
+     */
+    @Test
+    public void instrumentedCommandTest() throws CommandException {
+        CommandMetrics commandMetrics = new CommandMetrics();
+        CommandStats stats = commandMetrics.stats("LOGIN");
+        ActionCommand command = new InstrumentedCommand(request -> {
+            assertEquals(stats.getInFlight(), 1);
+            return "page";
+        }, stats);
+        ActionCommand failing = new InstrumentedCommand(request -> {
+            throw new CommandException("failed");
+        }, commandMetrics.stats("LOGIN"));
+
+        assertEquals(command.execute(null), "page");
+        try {
+            failing.execute(null);
+            fail();
+        } catch (CommandException e) {
+            assertEquals(stats.getLatency().getCount(), 2);
+        }
+        assertEquals(stats.getErrorCount(), 1);
+        assertEquals(stats.getInFlight(), 0);
+        assertEquals(commandMetrics.getStats().keySet().iterator().next(), "LOGIN");
+    }
+
+    /**
+     * Quantile test.
+     */
+    @Test
+    public void quantileTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getQuantileMillis(0.5), 0);
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(150));
+        histogram.record(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(histogram.getQuantileMillis(0.5), 5);
+        assertEquals(histogram.getQuantileMillis(0.99), 200);
+        assertEquals(histogram.getQuantileMillis(1), Long.MAX_VALUE);
+        assertEquals(histogram.getCount(), 100);
+    }
+
+    /**
+     * Prometheus format test.
+     */
+    @Test
+    public void prometheusTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1500));
+        String text = new PrometheusWriter()
+                .histogram("latency_seconds", histogram, "command", "LOGIN")
+                .counter("errors_total", 3, "command", "LOGIN")
+                .counter("errors_total", 0, "command", "LO\"GOUT")
+                .toString();
+        assertTrue(text.startsWith("# TYPE latency_seconds histogram\nlatency_seconds_bucket{command=\"LOGIN\",le=\"0.001\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_bucket{command=\"LOGIN\",le=\"2\"} 2\n"));
+        assertTrue(text.contains("latency_seconds_bucket{command=\"LOGIN\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("latency_seconds_sum{command=\"LOGIN\"} 1.501\n"));
+        assertTrue(text.endsWith("# TYPE errors_total counter\nerrors_total{command=\"LOGIN\"} 3\nerrors_total{command=\"LO\\\"GOUT\"} 0\n"));
+    }
+}
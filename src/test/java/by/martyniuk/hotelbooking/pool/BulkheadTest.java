@@ -0,0 +1,141 @@
+package by.martyniuk.hotelbooking.pool;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * The Class BulkheadTest.
+ */
+public class BulkheadTest {
+
+    /**
+     * The bulkhead of a pool of 4: booking reserves 2, admin holds at most 1.
+     */
+    private Bulkhead bulkhead;
+
+    /**
+     * The executor.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        Map<OperationClass, Integer> reserved = new EnumMap<>(OperationClass.class);
+        reserved.put(OperationClass.BOOKING, 2);
+        Map<OperationClass, Integer> max = new EnumMap<>(OperationClass.class);
+        max.put(OperationClass.ADMIN, 1);
+        bulkhead = new Bulkhead(4, reserved, max);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Tear down.
+     */
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Others cannot take reserved test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void othersCannotTakeReservedTest() throws Exception {
+        acquire(OperationClass.BROWSING);
+        acquire(OperationClass.BROWSING);
+        assertRejected(OperationClass.BROWSING);
+        assertNotNull(acquire(OperationClass.BOOKING));
+        assertNotNull(acquire(OperationClass.BOOKING));
+        assertRejected(OperationClass.BOOKING);
+    }
+
+    /**
+     * Admin limit test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void adminLimitTest() throws Exception {
+        acquire(OperationClass.ADMIN);
+        assertRejected(OperationClass.ADMIN);
+        assertNotNull(acquire(OperationClass.REPORTING));
+    }
+
+    /**
+     * Release returns quota test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void releaseReturnsQuotaTest() throws Exception {
+        executor.submit(() -> {
+            bulkhead.release(bulkhead.acquire(OperationClass.ADMIN, 100));
+            return null;
+        }).get();
+        assertNotNull(acquire(OperationClass.ADMIN));
+    }
+
+    /**
+     * Nested connection bypasses limit test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void nestedConnectionBypassesLimitTest() throws Exception {
+        assertTrue(executor.submit(() -> {
+            Bulkhead.Permit outer = bulkhead.acquire(OperationClass.ADMIN, 100);
+            Bulkhead.Permit nested = bulkhead.acquire(OperationClass.ADMIN, 100);
+            bulkhead.release(nested);
+            bulkhead.release(outer);
+            return true;
+        }).get());
+    }
+
+    /**
+     * Acquires a permit on a new thread, like a request that holds a connection.
+     *
+     * @param operationClass the operation class
+     * @return the permit
+     * @throws Exception the exception
+     */
+    private Bulkhead.Permit acquire(OperationClass operationClass) throws Exception {
+        FutureTask<Bulkhead.Permit> task = new FutureTask<>(() -> bulkhead.acquire(operationClass, 100));
+        new Thread(task).start();
+        return task.get();
+    }
+
+    /**
+     * Asserts the class gets no permit in time.
+     *
+     * @param operationClass the operation class
+     * @throws InterruptedException the interrupted exception
+     */
+    private void assertRejected(OperationClass operationClass) throws InterruptedException {
+        try {
+            acquire(operationClass);
+            fail("Permit granted to " + operationClass);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        } catch (Exception e) {
+            fail("Unexpected exception", e);
+        }
+    }
+}
@@ -14,9 +14,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 /**
  * The Class ConnectionPoolTest.
@@ -67,10 +71,10 @@ public class ConnectionPoolTest {
     /**
      * Gets the connection test.
      *
-     * @return the connection test
+     * @throws SQLException the SQL exception
      */
     @Test
-    public void getConnectionTest() {
+    public void getConnectionTest() throws SQLException {
         Connection connectionOne = ConnectionPool.getInstance().getConnection();
         Connection connectionTwo = ConnectionPool.getInstance().getConnection();
         assertEquals(2, ConnectionPool.getInstance().getAmountBusyConnections());
@@ -80,9 +84,11 @@ public class ConnectionPoolTest {
 
     /**
      * Return connection test.
+     *
+     * @throws SQLException the SQL exception
      */
     @Test
-    public void returnConnectionTest() {
+    public void returnConnectionTest() throws SQLException {
         Connection connection = ConnectionPool.getInstance().getConnection();
         ConnectionPool.getInstance().returnConnection(connection);
         assertEquals(0, ConnectionPool.getInstance().getAmountBusyConnections());
@@ -90,9 +96,11 @@ public class ConnectionPoolTest {
 
     /**
      * Connection not null test.
+     *
+     * @throws SQLException the SQL exception
      */
     @Test
-    public void connectionNotNullTest() {
+    public void connectionNotNullTest() throws SQLException {
         Connection connection = ConnectionPool.getInstance().getConnection();
         assertNotNull(connection);
         ConnectionPool.getInstance().returnConnection(connection);
@@ -114,4 +122,30 @@ public class ConnectionPoolTest {
         ConnectionPool.getInstance().returnConnection(connection);
     }
 
-}
\ No newline at end of file
+    /**
+     * Ready test.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void readyTest() throws InterruptedException {
+        assertTrue(ConnectionPool.getInstance().awaitReady(10, TimeUnit.SECONDS));
+        assertTrue(ConnectionPool.getInstance().getAmountOpenConnections() >= 1);
+    }
+
+    /**
+     * Replica pool test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void replicaPoolTest() throws SQLException {
+        ConnectionPool replica = ConnectionPool.getInstance(ConnectionPool.REPLICA);
+        assertNotSame(replica, ConnectionPool.getInstance());
+        assertSame(ConnectionPool.getInstance("reporting"), ConnectionPool.getInstance());
+        Connection connection = replica.getConnection();
+        assertEquals(replica.getAmountBusyConnections(), 1);
+        connection.close();
+        assertEquals(replica.getAmountBusyConnections(), 0);
+    }
+}
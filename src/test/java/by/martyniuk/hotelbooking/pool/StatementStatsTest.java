@@ -0,0 +1,107 @@
+package by.martyniuk.hotelbooking.pool;
+
+import org.testng.annotations.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * The Class StatementStatsTest.
+ */
+public class StatementStatsTest {
+
+    /**
+     * Prepared statement test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void preparedStatementTest() throws SQLException {
+        StatementStats stats = new StatementStats(10, 0);
+        String sql = "SELECT `id_user` FROM `user` WHERE `email` = ?";
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+
+        PreparedStatement wrapped = stats.wrap(statement, PreparedStatement.class, sql);
+        wrapped.setString(1, "mail@gmail.com");
+        ResultSet rows = wrapped.executeQuery();
+        while (rows.next()) {
+            rows.getLong(1);
+        }
+        verify(statement).setString(1, "mail@gmail.com");
+        verify(resultSet, times(2)).getLong(1);
+
+        StatementStats.TemplateStats template = stats.getTemplates().get(sql);
+        assertEquals(template.getLatency().getCount(), 1);
+        assertEquals(template.getRowCount(), 2);
+        assertEquals(template.getErrorCount(), 0);
+    }
+
+    /**
+     * Rows of a result set not read to the end are counted when the statement closes test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void partlyReadResultSetTest() throws SQLException {
+        StatementStats stats = new StatementStats(10, 0);
+        String sql = "SELECT `id_user` FROM `user` WHERE `id_user` = ?";
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+
+        PreparedStatement wrapped = stats.wrap(statement, PreparedStatement.class, sql);
+        wrapped.executeQuery().next();
+        assertEquals(stats.getTemplates().get(sql).getRowCount(), 0);
+        wrapped.close();
+
+        assertEquals(stats.getTemplates().get(sql).getRowCount(), 1);
+    }
+
+    /**
+     * Failed statement test.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void failedStatementTest() throws SQLException {
+        StatementStats stats = new StatementStats(1, 0);
+        Statement statement = mock(Statement.class);
+        when(statement.executeUpdate("UPDATE `user` SET `phone` = '+375251712452' WHERE `id_user` = 12"))
+                .thenThrow(new SQLException("Lock wait timeout exceeded"));
+
+        try {
+            stats.wrap(statement, Statement.class, null)
+                    .executeUpdate("UPDATE `user` SET `phone` = '+375251712452' WHERE `id_user` = 12");
+            fail();
+        } catch (SQLException e) {
+            assertEquals(e.getMessage(), "Lock wait timeout exceeded");
+        }
+        stats.wrap(statement, Statement.class, null).execute("SELECT 1");
+
+        assertEquals(stats.getTemplates().get("UPDATE `user` SET `phone` = ? WHERE `id_user` = ?").getErrorCount(), 1);
+        assertTrue(stats.getTemplates().containsKey(StatementStats.OTHER));
+    }
+
+    /**
+     * Template test.
+     */
+    @Test
+    public void templateTest() {
+        assertEquals(StatementStats.template("SELECT * FROM `t1` WHERE a = 'it''s'\n AND b = -1.5 LIMIT 10"),
+                "SELECT * FROM `t1` WHERE a = ? AND b = ? LIMIT ?");
+    }
+}
@@ -1,5 +1,6 @@
 package by.martyniuk.hotelbooking.service;
 
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
 import by.martyniuk.hotelbooking.dao.ApartmentClassDao;
 import by.martyniuk.hotelbooking.entity.ApartmentClass;
 import by.martyniuk.hotelbooking.exception.DaoException;
@@ -15,8 +16,11 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
 
 /**
  * The Class ApartmentClassServiceImplTest.
@@ -54,6 +58,7 @@ public class ApartmentClassServiceImplTest {
     @BeforeMethod
     public void setUp() {
         apartmentClassDao = mock(ApartmentClassDao.class);
+        apartmentClassServiceImpl.setApartmentInventory(mock(ApartmentInventory.class));
         apartmentClassOne = new ApartmentClass(1, "first", 2, 3, new BigDecimal(100), new BigDecimal(50),
                 "description", "img/path.jpg");
         apartmentClassTwo = new ApartmentClass(2, "second", 2, 3, new BigDecimal(100), new BigDecimal(50),
@@ -109,5 +114,38 @@ public class ApartmentClassServiceImplTest {
         assertEquals(apartmentClassServiceImpl.findAllApartmentClasses(), apartmentClassList);
     }
 
+    /**
+     * Find apartment class by id cached test.
+     *
+     * @throws DaoException     the dao exception
+     * @throws ServiceException the service exception
+     */
+    @Test
+    public void findApartmentClassByIdCachedTest() throws DaoException, ServiceException {
+        apartmentClassServiceImpl.setApartmentClassDao(apartmentClassDao);
+        when(apartmentClassDao.findApartmentClassById(apartmentClassOne.getId())).thenReturn(Optional.of(apartmentClassOne));
+        apartmentClassServiceImpl.findApartmentClassById(apartmentClassOne.getId());
+        ApartmentClass cached = apartmentClassServiceImpl.findApartmentClassById(apartmentClassOne.getId()).get();
+        assertEquals(cached, apartmentClassOne);
+        assertNotSame(cached, apartmentClassOne);
+        verify(apartmentClassDao, times(1)).findApartmentClassById(apartmentClassOne.getId());
+    }
 
-}
\ No newline at end of file
+    /**
+     * Update apartment class invalidates cache test.
+     *
+     * @throws DaoException     the dao exception
+     * @throws ServiceException the service exception
+     */
+    @Test
+    public void updateApartmentClassInvalidatesCacheTest() throws DaoException, ServiceException {
+        apartmentClassServiceImpl.setApartmentClassDao(apartmentClassDao);
+        when(apartmentClassDao.findAllApartmentClasses()).thenReturn(apartmentClassList);
+        apartmentClassServiceImpl.findAllApartmentClasses();
+        apartmentClassServiceImpl.findAllApartmentClasses();
+        when(apartmentClassDao.updateApartmentClass(apartmentClassOne)).thenReturn(true);
+        apartmentClassServiceImpl.updateApartmentClass(apartmentClassOne);
+        apartmentClassServiceImpl.findAllApartmentClasses();
+        verify(apartmentClassDao, times(2)).findAllApartmentClasses();
+    }
+}
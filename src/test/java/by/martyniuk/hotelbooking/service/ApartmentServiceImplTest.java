@@ -1,5 +1,6 @@
 package by.martyniuk.hotelbooking.service;
 
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
 import by.martyniuk.hotelbooking.dao.ApartmentDao;
 import by.martyniuk.hotelbooking.dao.ReservationDao;
 import by.martyniuk.hotelbooking.entity.Apartment;
@@ -14,6 +15,7 @@ import org.testng.annotations.Test;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +24,8 @@ import java.util.Optional;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -46,6 +50,11 @@ public class ApartmentServiceImplTest {
      */
     private ApartmentServiceImpl apartmentService = new ApartmentServiceImpl();
 
+    /**
+     * The apartment inventory.
+     */
+    private ApartmentInventory apartmentInventory = new ApartmentInventory();
+
     /**
      * The apartment one.
      */
@@ -101,6 +110,8 @@ public class ApartmentServiceImplTest {
         apartmentList.add(apartmentTwo);
         apartmentListClassOne.add(apartmentOne);
         apartmentListClassTwo.add(apartmentTwo);
+        apartmentInventory.setApartmentDao(apartmentDao);
+        apartmentService.setApartmentInventory(apartmentInventory);
     }
 
     /**
@@ -112,8 +123,8 @@ public class ApartmentServiceImplTest {
     @Test
     public void insertApartmentTest() throws DaoException, ServiceException {
         apartmentService.setApartmentDao(apartmentDao);
-        when(apartmentDao.addApartment(apartmentOne)).thenReturn(true);
-        assertTrue(apartmentService.insertApartment(apartmentOne));
+        when(apartmentDao.addApartment(apartmentOne)).thenReturn(Optional.of(apartmentOne));
+        assertEquals(apartmentService.insertApartment(apartmentOne), Optional.of(apartmentOne));
     }
 
     /**
@@ -152,7 +163,7 @@ public class ApartmentServiceImplTest {
     @Test
     public void getApartmentTest() throws DaoException, ServiceException {
         apartmentService.setApartmentDao(apartmentDao);
-        when(apartmentDao.findApartmentById(apartmentOne.getId())).thenReturn(Optional.of(apartmentOne));
+        when(apartmentDao.findAllApartments()).thenReturn(apartmentList);
         assertEquals(apartmentService.getApartment(apartmentOne.getId()), Optional.of(apartmentOne));
     }
 
@@ -179,8 +190,7 @@ public class ApartmentServiceImplTest {
     public void findFreeApartmentsForReservationsTest() throws DaoException, ServiceException {
         apartmentService.setApartmentDao(apartmentDao);
         apartmentService.setReservationDao(reservationDao);
-        when(apartmentDao.findApartmentListByClassId(apartmentClassOne.getId())).thenReturn(apartmentListClassOne);
-        when(apartmentDao.findApartmentListByClassId(apartmentClassTwo.getId())).thenReturn(apartmentListClassTwo);
+        when(apartmentDao.findAllApartments()).thenReturn(apartmentList);
         when(reservationDao.isApartmentAvailable(eq(apartmentOne.getId()), anyObject(), anyObject())).thenReturn(true);
         when(reservationDao.isApartmentAvailable(eq(apartmentTwo.getId()), anyObject(), anyObject())).thenReturn(false);
         Map<Reservation, List<Apartment>> result = new HashMap<>();
@@ -201,5 +211,39 @@ public class ApartmentServiceImplTest {
 
     }
 
+    /**
+     * Update apartment refreshes inventory test.
+     *
+     * @throws DaoException     the dao exception
+     * @throws ServiceException the service exception
+     */
+    @Test
+    public void updateApartmentRefreshesInventoryTest() throws DaoException, ServiceException {
+        apartmentService.setApartmentDao(apartmentDao);
+        when(apartmentDao.findAllApartments()).thenReturn(apartmentList);
+        assertEquals(apartmentService.findAllApartments(), apartmentList);
+        assertEquals(apartmentService.findAllApartments(), apartmentList);
+        verify(apartmentDao, times(1)).findAllApartments();
+
+        Apartment moved = new Apartment(1, "205", 2, apartmentClassTwo, true);
+        when(apartmentDao.updateApartment(moved)).thenReturn(true);
+        when(apartmentDao.findAllApartments()).thenReturn(Arrays.asList(moved, apartmentTwo));
+        apartmentService.updateApartment(moved);
+        assertEquals(apartmentInventory.findApartmentsByClassId(apartmentClassOne.getId()), new ArrayList<>());
+        assertEquals(apartmentInventory.findApartmentsByClassId(apartmentClassTwo.getId()), Arrays.asList(moved, apartmentTwo));
+    }
 
-}
\ No newline at end of file
+    /**
+     * Get apartment returns copy test.
+     *
+     * @throws DaoException     the dao exception
+     * @throws ServiceException the service exception
+     */
+    @Test
+    public void getApartmentReturnsCopyTest() throws DaoException, ServiceException {
+        when(apartmentDao.findAllApartments()).thenReturn(apartmentList);
+        Apartment apartment = apartmentService.getApartment(apartmentOne.getId()).get();
+        apartment.getApartmentClass().setType("changed");
+        assertEquals(apartmentService.getApartment(apartmentOne.getId()).get().getApartmentClass().getType(), "first");
+    }
+}
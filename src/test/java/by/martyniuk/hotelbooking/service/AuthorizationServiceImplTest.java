@@ -1,12 +1,15 @@
 package by.martyniuk.hotelbooking.service;
 
+import by.martyniuk.hotelbooking.cache.UserCache;
 import by.martyniuk.hotelbooking.dao.UserDao;
 import by.martyniuk.hotelbooking.entity.Role;
 import by.martyniuk.hotelbooking.entity.User;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.exception.ServiceException;
 import by.martyniuk.hotelbooking.service.impl.AuthorizationServiceImpl;
+import by.martyniuk.hotelbooking.service.impl.PasswordHasher;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.math.BigDecimal;
@@ -55,12 +58,23 @@ public class AuthorizationServiceImplTest {
     @BeforeClass
     public void setUp() {
         userDao = mock(UserDao.class);
+        authorizationService.setPasswordHasher(new PasswordHasher());
         user = new User(1, "Vadim", "Alekseevich", "Martyniuk", new BigDecimal(0),
                 "mail@gmail.com", "+375251712452", "$2a$10$dli9pv2bKHf9.OfGatlFrOFJaWRYR14C94VBX1jL33ckdbIiTEg9u", Role.ADMIN, true);
         correctPassword = "useruser";
         incorrectPassword = "user";
     }
 
+    /**
+     * Sets the up cache.
+     */
+    @BeforeMethod
+    public void setUpCache() {
+        UserCache userCache = new UserCache();
+        userCache.setUserDao(userDao);
+        authorizationService.setUserCache(userCache);
+    }
+
 
     /**
      * Authorization test.
@@ -111,7 +125,7 @@ public class AuthorizationServiceImplTest {
     public void registerTest() throws DaoException, ServiceException {
         authorizationService.setUserDao(userDao);
         when(userDao.findUserByMail(user.getEmail())).thenReturn(Optional.empty());
-        when(userDao.addUser(anyObject())).thenReturn(true);
-        assertTrue(authorizationService.register(user));
+        when(userDao.addUser(anyObject())).thenReturn(Optional.of(user));
+        assertEquals(authorizationService.register(user), Optional.of(user));
     }
 }
\ No newline at end of file
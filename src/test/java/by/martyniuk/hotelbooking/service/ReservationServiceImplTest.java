@@ -1,5 +1,9 @@
 package by.martyniuk.hotelbooking.service;
 
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
+import by.martyniuk.hotelbooking.cache.PendingReservationQueue;
+import by.martyniuk.hotelbooking.cache.ReservationSearchCache;
+import by.martyniuk.hotelbooking.cache.UserCache;
 import by.martyniuk.hotelbooking.dao.ApartmentDao;
 import by.martyniuk.hotelbooking.dao.ReservationDao;
 import by.martyniuk.hotelbooking.entity.Apartment;
@@ -87,13 +91,20 @@ public class ReservationServiceImplTest {
 
     /**
      * Sets the up.
+     *
+     * @throws DaoException the dao exception
      */
     @BeforeClass
-    public void setUp() {
+    public void setUp() throws DaoException {
         reservationDao = mock(ReservationDao.class);
         apartmentDao = mock(ApartmentDao.class);
         reservationService.setReservationDao(reservationDao);
-        reservationService.setApartmentDao(apartmentDao);
+        ApartmentInventory apartmentInventory = new ApartmentInventory();
+        apartmentInventory.setApartmentDao(apartmentDao);
+        reservationService.setApartmentInventory(apartmentInventory);
+        reservationService.setUserCache(mock(UserCache.class));
+        reservationService.setPendingReservationQueue(mock(PendingReservationQueue.class));
+        reservationService.setReservationSearchCache(mock(ReservationSearchCache.class));
         user = new User(1, "Vadim", "Alekseevich", "Martyniuk", new BigDecimal(0),
                 "mail@gmail.com", "+375251712452", "$2a$10$dli9pv2bKHf9.OfGatlFrOFJaWRYR14C94VBX1jL33ckdbIiTEg9u", Role.ADMIN, true);
         apartmentClass = new ApartmentClass(1, "first", 2, 3, new BigDecimal(100), new BigDecimal(50),
@@ -104,6 +115,7 @@ public class ReservationServiceImplTest {
         reservationList = new ArrayList<>();
         apartmentList.add(apartmentOne);
         apartmentList.add(apartmentTwo);
+        when(apartmentDao.findAllApartments()).thenReturn(apartmentList);
         reservation = new Reservation(1, LocalDate.now(), LocalDate.now(), LocalDateTime.now(), 2, new BigDecimal(100), new BigDecimal(10), new BigDecimal(50), user, apartmentOne, Status.WAITING_FOR_APPROVE);
         reservationList.add(new Reservation());
         reservationList.add(new Reservation());
@@ -118,11 +130,11 @@ public class ReservationServiceImplTest {
      */
     @Test
     public void bookApartmentTest() throws ServiceException, DaoException {
-        when(apartmentDao.findApartmentListByClassId(apartmentClass.getId())).thenReturn(apartmentList);
         when(reservationDao.isApartmentAvailable(anyLong(), anyObject(), anyObject())).thenReturn(true);
-        when(reservationDao.addReservation(eq(apartmentOne), eq(user), anyObject(), anyObject(), anyObject(), eq(1))).thenReturn(true);
+        when(reservationDao.addReservation(eq(apartmentOne), eq(user), anyObject(), anyObject(), anyObject(), eq(1))).thenReturn(Optional.of(reservation));
 
-        assertTrue(reservationService.bookApartment(user, apartmentClass.getId(), LocalDate.now(), LocalDate.now(), 1));
+        assertEquals(reservationService.bookApartment(user, apartmentClass.getId(), LocalDate.now(), LocalDate.now(), 1),
+                Optional.of(reservation));
     }
 
     /**
@@ -158,7 +170,6 @@ public class ReservationServiceImplTest {
     @Test
     public void updateReservationStatusTest() throws ServiceException, DaoException {
         when(reservationDao.readReservationById(reservation.getId())).thenReturn(Optional.of(reservation));
-        when(apartmentDao.findApartmentById(apartmentOne.getId())).thenReturn(Optional.of(apartmentOne));
         when(reservationDao.isApartmentAvailable(anyLong(), anyObject(), anyObject())).thenReturn(true);
         when(reservationDao.updateReservationApartmentAndStatus(reservation, Status.APPROVED)).thenReturn(true);
         assertTrue(reservationService.updateReservationStatus(reservation.getId(), apartmentOne.getId(), Status.APPROVED));
@@ -1,12 +1,16 @@
 package by.martyniuk.hotelbooking.service;
 
+import by.martyniuk.hotelbooking.cache.UserCache;
 import by.martyniuk.hotelbooking.dao.UserDao;
 import by.martyniuk.hotelbooking.entity.Role;
 import by.martyniuk.hotelbooking.entity.User;
 import by.martyniuk.hotelbooking.exception.DaoException;
 import by.martyniuk.hotelbooking.exception.ServiceException;
+import by.martyniuk.hotelbooking.service.impl.PasswordHasher;
 import by.martyniuk.hotelbooking.service.impl.UserServiceImpl;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.math.BigDecimal;
@@ -14,11 +18,17 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -66,6 +76,7 @@ public class UserServiceImplTest {
                 "mail@gmail.com", "+375251712452", "$2a$10$dli9pv2bKHf9.OfGatlFrOFJaWRYR14C94VBX1jL33ckdbIiTEg9u", Role.ADMIN, true);
         userDao = mock(UserDao.class);
         userService.setUserDao(userDao);
+        userService.setPasswordHasher(new PasswordHasher());
         userList = new ArrayList<>();
         userList.add(user);
         userList.add(user);
@@ -74,6 +85,16 @@ public class UserServiceImplTest {
 
     }
 
+    /**
+     * Sets the up cache.
+     */
+    @BeforeMethod
+    public void setUpCache() {
+        UserCache userCache = new UserCache();
+        userCache.setUserDao(userDao);
+        userService.setUserCache(userCache);
+    }
+
 
     /**
      * Update user profile test.
@@ -124,4 +145,67 @@ public class UserServiceImplTest {
         assertTrue(userService.changeUserPassword(user.getEmail(), currentPassword, newPassword));
     }
 
-}
\ No newline at end of file
+    /**
+     * Find user by mail cached test.
+     *
+     * @throws ServiceException the service exception
+     * @throws DaoException     the dao exception
+     */
+    @Test
+    public void findUserByMailCachedTest() throws ServiceException, DaoException {
+        UserDao cachedUserDao = mock(UserDao.class);
+        UserCache userCache = new UserCache();
+        userCache.setUserDao(cachedUserDao);
+        userService.setUserCache(userCache);
+        when(cachedUserDao.findUserByMail(user.getEmail())).thenReturn(Optional.of(user));
+        userService.findUserByMail(user.getEmail());
+        User cached = userService.findUserByMail(user.getEmail()).get();
+        assertEquals(cached, user);
+        assertNotSame(cached, user);
+        assertEquals(userService.findUserById(user.getId()).get(), user);
+        verify(cachedUserDao, times(1)).findUserByMail(user.getEmail());
+        verify(cachedUserDao, times(0)).findUserById(user.getId());
+    }
+
+    /**
+     * Deposit money invalidates cache test.
+     *
+     * @throws ServiceException the service exception
+     * @throws DaoException     the dao exception
+     */
+    @Test
+    public void depositMoneyInvalidatesCacheTest() throws ServiceException, DaoException {
+        UserDao cachedUserDao = mock(UserDao.class);
+        UserCache userCache = new UserCache();
+        userCache.setUserDao(cachedUserDao);
+        userService.setUserCache(userCache);
+        userService.setUserDao(cachedUserDao);
+        User richer = user.clone();
+        richer.setBalance(new BigDecimal(100));
+        when(cachedUserDao.findUserById(user.getId())).thenReturn(Optional.of(user), Optional.of(richer));
+        userService.findUserById(user.getId());
+        userService.depositMoney(user.getId(), new BigDecimal(100));
+        assertEquals(userService.findUserById(user.getId()).get().getBalance(), new BigDecimal(100));
+        userService.setUserDao(userDao);
+    }
+
+    /**
+     * Delete user leaves the balance untouched test.
+     *
+     * @throws ServiceException the service exception
+     * @throws DaoException     the dao exception
+     */
+    @Test
+    public void deleteUserKeepsBalanceTest() throws ServiceException, DaoException {
+        UserDao deletingUserDao = mock(UserDao.class);
+        userService.setUserDao(deletingUserDao);
+        when(deletingUserDao.findUserById(user.getId())).thenReturn(Optional.of(user.clone()));
+        when(deletingUserDao.updateUser(anyObject())).thenReturn(true);
+        assertTrue(userService.deleteUser(user.getId()));
+        ArgumentCaptor<User> updated = ArgumentCaptor.forClass(User.class);
+        verify(deletingUserDao).updateUser(updated.capture());
+        assertFalse(updated.getValue().isActive());
+        assertNull(updated.getValue().getBalance());
+        userService.setUserDao(userDao);
+    }
+}
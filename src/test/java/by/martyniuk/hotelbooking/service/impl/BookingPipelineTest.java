@@ -0,0 +1,197 @@
+package by.martyniuk.hotelbooking.service.impl;
+
+import by.martyniuk.hotelbooking.cache.ApartmentInventory;
+import by.martyniuk.hotelbooking.dao.ApartmentDao;
+import by.martyniuk.hotelbooking.dao.ReservationDao;
+import by.martyniuk.hotelbooking.entity.Apartment;
+import by.martyniuk.hotelbooking.entity.ApartmentClass;
+import by.martyniuk.hotelbooking.entity.Reservation;
+import by.martyniuk.hotelbooking.entity.Role;
+import by.martyniuk.hotelbooking.entity.User;
+import by.martyniuk.hotelbooking.exception.DaoException;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * The Class BookingPipelineTest.
+ */
+public class BookingPipelineTest {
+
+    /**
+     * The reservation dao.
+     */
+    private ReservationDao reservationDao;
+
+    /**
+     * The booking pipeline.
+     */
+    private BookingPipeline bookingPipeline;
+
+    /**
+     * The user.
+     */
+    private User user;
+
+    /**
+     * The apartment.
+     */
+    private Apartment apartment;
+
+    /**
+     * Sets the up.
+     *
+     * @throws DaoException the dao exception
+     */
+    @BeforeMethod
+    public void setUp() throws DaoException {
+        reservationDao = mock(ReservationDao.class);
+        ApartmentDao apartmentDao = mock(ApartmentDao.class);
+        ApartmentInventory apartmentInventory = new ApartmentInventory();
+        apartmentInventory.setApartmentDao(apartmentDao);
+        bookingPipeline = new BookingPipeline();
+        bookingPipeline.setReservationDao(reservationDao);
+        bookingPipeline.setApartmentInventory(apartmentInventory);
+        user = new User(1, "Vadim", "Alekseevich", "Martyniuk", new BigDecimal(1000),
+                "mail@gmail.com", "+375251712452", "$2a$10$dli9pv2bKHf9.OfGatlFrOFJaWRYR14C94VBX1jL33ckdbIiTEg9u", Role.USER, true);
+        ApartmentClass apartmentClass = new ApartmentClass(1, "first", 2, 3, new BigDecimal(100), new BigDecimal(50),
+                "description", "img/path.jpg");
+        apartment = new Apartment(1, "204", 2, apartmentClass, true);
+        when(apartmentDao.findAllApartments()).thenReturn(Collections.singletonList(apartment));
+        when(reservationDao.findActiveStaysByApartmentClass(anyLong(), anyObject(), anyObject()))
+                .thenReturn(new ArrayList<>());
+    }
+
+    /**
+     * Overlapping bookings of one apartment in a batch test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void overlappingBookingsTest() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(10);
+        BookingPipeline.Request first = new BookingPipeline.Request(user, start, start.plusDays(3), 1);
+        BookingPipeline.Request overlapping = new BookingPipeline.Request(user, start.plusDays(2), start.plusDays(4), 1);
+        BookingPipeline.Request following = new BookingPipeline.Request(user, start.plusDays(3), start.plusDays(5), 1);
+        when(reservationDao.bookReservations(anyListOf(Reservation.class))).thenAnswer(invocation -> {
+            List<Optional<Reservation>> booked = new ArrayList<>();
+            for (Reservation booking : (List<Reservation>) invocation.getArguments()[0]) {
+                booked.add(Optional.of(booking));
+            }
+            return booked;
+        });
+
+        bookingPipeline.process(1, Arrays.asList(first, overlapping, following));
+
+        ArgumentCaptor<List> bookings = ArgumentCaptor.forClass(List.class);
+        verify(reservationDao).bookReservations(bookings.capture());
+        assertEquals(bookings.getValue().size(), 2);
+        assertTrue(first.getResult().get().isPresent());
+        assertFalse(overlapping.getResult().get().isPresent());
+        assertTrue(following.getResult().get().isPresent());
+        assertEquals(first.getResult().get().get().getTotalCost(), new BigDecimal(450));
+    }
+
+    /**
+     * Booked stay makes the apartment busy test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void bookedStayTest() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(10);
+        Reservation stay = new Reservation();
+        stay.setApartment(apartment);
+        stay.setCheckInDate(start);
+        stay.setCheckOutDate(start.plusDays(7));
+        when(reservationDao.findActiveStaysByApartmentClass(anyLong(), anyObject(), anyObject()))
+                .thenReturn(Collections.singletonList(stay));
+        BookingPipeline.Request request = new BookingPipeline.Request(user, start.plusDays(1), start.plusDays(2), 1);
+
+        bookingPipeline.process(1, Collections.singletonList(request));
+
+        assertFalse(request.getResult().get().isPresent());
+        verify(reservationDao, never()).bookReservations(anyListOf(Reservation.class));
+    }
+
+    /**
+     * Cancelled request is not booked test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void cancelledRequestTest() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(10);
+        BookingPipeline.Request request = new BookingPipeline.Request(user, start, start.plusDays(1), 1);
+        request.getResult().cancel(false);
+
+        bookingPipeline.process(1, Collections.singletonList(request));
+
+        verify(reservationDao, never()).bookReservations(anyListOf(Reservation.class));
+    }
+
+    /**
+     * Claimed request cannot be cancelled while its batch is booked test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void claimedRequestTest() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(10);
+        BookingPipeline.Request request = new BookingPipeline.Request(user, start, start.plusDays(1), 1);
+        Reservation reservation = new Reservation();
+        when(reservationDao.bookReservations(anyListOf(Reservation.class))).thenAnswer(invocation -> {
+            assertFalse(request.getResult().cancel(false));
+            assertFalse(request.getResult().isDone());
+            return Collections.singletonList(Optional.of(reservation));
+        });
+
+        bookingPipeline.process(1, Collections.singletonList(request));
+
+        assertFalse(request.getResult().isCancelled());
+        assertEquals(request.getResult().get().get(), reservation);
+    }
+
+    /**
+     * Failed batch fails every request test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void failedBatchTest() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(10);
+        when(reservationDao.bookReservations(anyListOf(Reservation.class))).thenThrow(new DaoException("Deadlock"));
+        BookingPipeline.Request request = new BookingPipeline.Request(user, start, start.plusDays(1), 1);
+
+        bookingPipeline.process(1, Collections.singletonList(request));
+
+        try {
+            request.getResult().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DaoException);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package by.martyniuk.hotelbooking.service.impl;
+
+import by.martyniuk.hotelbooking.exception.ServiceException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * The Class PasswordHasherTest.
+ */
+public class PasswordHasherTest {
+
+    /**
+     * The password hasher.
+     */
+    private PasswordHasher passwordHasher;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        passwordHasher = new PasswordHasher();
+        passwordHasher.setHashSettings(1, 1, 4, 5000);
+    }
+
+    /**
+     * Tear down.
+     */
+    @AfterMethod
+    public void tearDown() {
+        passwordHasher.stop();
+    }
+
+    /**
+     * Hash and verify test.
+     *
+     * @throws ServiceException the service exception
+     */
+    @Test
+    public void hashTest() throws ServiceException {
+        String hash = passwordHasher.hash("useruser");
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(passwordHasher.verify("useruser", hash));
+        assertFalse(passwordHasher.verify("user", hash));
+        assertEquals(passwordHasher.getLatency().getCount(), 3);
+    }
+
+    /**
+     * Needs rehash test.
+     */
+    @Test
+    public void needsRehashTest() {
+        assertFalse(passwordHasher.needsRehash("$2a$04$dli9pv2bKHf9.OfGatlFrOFJaWRYR14C94VBX1jL33ckdbIiTEg9u"));
+        assertTrue(passwordHasher.needsRehash("$2a$10$dli9pv2bKHf9.OfGatlFrOFJaWRYR14C94VBX1jL33ckdbIiTEg9u"));
+        assertFalse(passwordHasher.needsRehash("plain"));
+    }
+
+    /**
+     * Full queue rejects test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void fullQueueTest() throws Exception {
+        passwordHasher.setHashSettings(1, 1, 12, 5000);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<String>> hashes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            hashes.add(callers.submit(() -> passwordHasher.hash("useruser")));
+        }
+        int rejected = 0;
+        for (Future<String> hash : hashes) {
+            try {
+                hash.get();
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof ServiceException)) {
+                    fail();
+                }
+                rejected++;
+            }
+        }
+        callers.shutdown();
+        assertTrue(rejected >= 1);
+    }
+}
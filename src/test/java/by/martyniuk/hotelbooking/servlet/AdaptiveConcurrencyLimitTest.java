@@ -0,0 +1,102 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import by.martyniuk.hotelbooking.exception.QueryTimeoutException;
+import by.martyniuk.hotelbooking.exception.ServiceException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * The Class AdaptiveConcurrencyLimitTest.
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    /**
+     * Sheds beyond the limit test.
+     */
+    @Test
+    public void shedTest() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 0.5, 2.0);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(limit.getRejectedCount(), 1);
+        limit.release(0, 10, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    /**
+     * Fast requests raise the limit test.
+     */
+    @Test
+    public void increaseTest() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 3, 0.5, 2.0);
+        limit.tryAcquire();
+        limit.release(0, 10, false);
+        assertEquals(limit.getLimit(), 3);
+        limit.tryAcquire();
+        limit.tryAcquire();
+        limit.release(20, 30, false);
+        assertEquals(limit.getLimit(), 3);
+    }
+
+    /**
+     * Slow requests cut the limit once per spell test.
+     */
+    @Test
+    public void decreaseTest() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 10, 0.5, 2.0);
+        long now = 0;
+        for (int i = 0; i < 100; i++, now += 10) {
+            limit.tryAcquire();
+            limit.release(now, now + 10, false);
+        }
+        assertEquals(limit.getLimit(), 8);
+        limit.tryAcquire();
+        limit.tryAcquire();
+        long spellStart = now;
+        int slowCount = 0;
+        while (limit.getLimit() == 8 && slowCount < 50) {
+            limit.tryAcquire();
+            limit.release(now, now + 50, false);
+            now += 50;
+            slowCount++;
+        }
+        assertEquals(limit.getLimit(), 4);
+        assertTrue(slowCount > 1);
+        limit.release(spellStart, now, false);
+        assertEquals(limit.getLimit(), 4);
+        limit.release(now + 1, now + 1, true);
+        assertEquals(limit.getLimit(), 2);
+        assertEquals(limit.getInFlight(), 0);
+    }
+
+    /**
+     * Cache hits mixed with database reads do not cut the limit test.
+     */
+    @Test
+    public void mixedLatencyTest() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 10, 0.5, 2.0);
+        long now = 0;
+        for (int i = 0; i < 1000; i++) {
+            long latency = i % 20 == 19 ? 20 : 1;
+            limit.tryAcquire();
+            limit.release(now, now + latency, false);
+            now += latency;
+        }
+        assertEquals(limit.getLimit(), 8);
+    }
+
+    /**
+     * Only overload failures count test.
+     */
+    @Test
+    public void overloadTest() {
+        assertTrue(ConcurrencyLimitInterceptor.isOverload(503, null));
+        assertTrue(ConcurrencyLimitInterceptor.isOverload(200, new ServiceException(new QueryTimeoutException(null))));
+        assertFalse(ConcurrencyLimitInterceptor.isOverload(500, new NumberFormatException("abc")));
+        assertFalse(ConcurrencyLimitInterceptor.isOverload(400, null));
+    }
+}
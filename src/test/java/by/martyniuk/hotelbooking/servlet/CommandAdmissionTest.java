@@ -0,0 +1,144 @@
+package by.martyniuk.hotelbooking.servlet;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * The Class CommandAdmissionTest.
+ */
+public class CommandAdmissionTest {
+
+    /**
+     * The current time in nanoseconds.
+     */
+    private long now;
+
+    /**
+     * The command admission.
+     */
+    private CommandAdmission commandAdmission;
+
+    /**
+     * Sets the up.
+     */
+    @BeforeMethod
+    public void setUp() {
+        now = 0;
+        commandAdmission = new CommandAdmission(() -> now);
+        commandAdmission.setAdmission(true, 2);
+        commandAdmission.setBookingLimit(60, 3);
+        commandAdmission.setAuthLimit(6, 1);
+    }
+
+    /**
+     * Burst then rate test.
+     */
+    @Test
+    public void burstThenRateTest() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(commandAdmission.admit("BOOK_APARTMENT", "user:1"), 0);
+        }
+        assertEquals(commandAdmission.admit("BOOK_APARTMENT", "user:1"), TimeUnit.SECONDS.toNanos(1));
+        assertEquals(commandAdmission.admit("BOOK_APARTMENT", "user:2"), 0);
+        now = TimeUnit.SECONDS.toNanos(1);
+        assertEquals(commandAdmission.admit("BOOK_APARTMENT", "user:1"), 0);
+        assertTrue(commandAdmission.admit("BOOK_APARTMENT", "user:1") > 0);
+        assertEquals(commandAdmission.getRejectedCount(), 2);
+    }
+
+    /**
+     * Commands have own buckets test.
+     */
+    @Test
+    public void commandsTest() {
+        assertEquals(commandAdmission.admit("LOGIN", "address:1"), 0);
+        assertEquals(commandAdmission.admit("LOGIN", "address:1"), TimeUnit.SECONDS.toNanos(10));
+        assertEquals(commandAdmission.admit("REGISTER", "address:1"), 0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(commandAdmission.admit("SHOW_APARTMENT_CLASSES", "address:1"), 0);
+        }
+    }
+
+    /**
+     * Full map sweeps idle buckets, then shares one test.
+     */
+    @Test
+    public void boundedTest() {
+        commandAdmission.admit("LOGIN", "address:1");
+        commandAdmission.admit("LOGIN", "address:2");
+        assertEquals(commandAdmission.admit("LOGIN", "address:3"), 0);
+        assertEquals(commandAdmission.admit("LOGIN", "address:4"), TimeUnit.SECONDS.toNanos(10));
+        assertEquals(commandAdmission.getBucketCount(), 3);
+
+        now = TimeUnit.SECONDS.toNanos(10);
+        assertEquals(commandAdmission.admit("LOGIN", "address:5"), 0);
+        assertEquals(commandAdmission.getBucketCount(), 1);
+    }
+
+    /**
+     * Auth commands are keyed by address even with a session test.
+     */
+    @Test
+    public void authClientTest() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpSession session = mock(HttpSession.class);
+        when(request.getSession(false)).thenReturn(session);
+        when(session.getId()).thenReturn("A1B2");
+        when(request.getRemoteAddr()).thenReturn("10.0.0.7");
+
+        assertEquals(CommandAdmission.client("LOGIN", request), "address:10.0.0.7");
+        assertEquals(CommandAdmission.client("BOOK_APARTMENT", request), "session:A1B2");
+    }
+
+    /**
+     * Clients behind the same proxy have own buckets test.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void forwardedClientTest() throws Exception {
+        Filter filter = CommandAdmission.forwardedAddressFilter("");
+        String first = forwardedClient(filter, "10.0.0.2", "203.0.113.5");
+        String second = forwardedClient(filter, "10.0.0.2", "203.0.113.6");
+        String spoofed = forwardedClient(filter, "198.51.100.9", "203.0.113.5");
+
+        assertEquals(first, "address:203.0.113.5");
+        assertEquals(second, "address:203.0.113.6");
+        assertEquals(spoofed, "address:198.51.100.9");
+        assertEquals(commandAdmission.admit("LOGIN", first), 0);
+        assertEquals(commandAdmission.admit("LOGIN", second), 0);
+    }
+
+    /**
+     * Finds the client of a login the proxy forwarded through the filter.
+     *
+     * @param filter        the filter
+     * @param proxyAddress  the proxy address
+     * @param clientAddress the forwarded client address
+     * @return the client
+     * @throws Exception the exception
+     */
+    private static String forwardedClient(Filter filter, String proxyAddress, String clientAddress) throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRemoteAddr()).thenReturn(proxyAddress);
+        when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.singletonList("X-Forwarded-For")));
+        when(request.getHeaders("X-Forwarded-For")).thenReturn(Collections.enumeration(Collections.singletonList(clientAddress)));
+        when(request.getHeader("X-Forwarded-For")).thenReturn(clientAddress);
+        String[] client = new String[1];
+        filter.doFilter(request, mock(HttpServletResponse.class),
+                (filtered, response) -> client[0] = CommandAdmission.client("LOGIN", (HttpServletRequest) filtered));
+        return client[0];
+    }
+}
@@ -43,6 +43,7 @@ CREATE TABLE IF NOT EXISTS `hotel_booking_test`.`user` (
   `middle_name` VARCHAR(50) NULL COMMENT 'Отчество пользователя. Может быть null так как не во всех странах люди имеют отчество',
   `last_name` VARCHAR(100) NOT NULL COMMENT 'Фамилия пользователя. 100 символов было выделено так как существуют составные фамилии.',
   `balance` DECIMAL(19,2) NOT NULL DEFAULT 0 COMMENT 'Баланс пользователя. Был выбран тип DECIMAL так как он самый точный, а при работе с деньгами должна быть большая точность',
+  `ledger_position` BIGINT(20) UNSIGNED NOT NULL DEFAULT 0 COMMENT 'Id of the last balance ledger entry folded into the balance by compaction',
   `email` VARCHAR(255) NOT NULL COMMENT 'Электронная почта пользователя.',
   `phone_number` VARCHAR(15) NOT NULL,
   `password` VARCHAR(60) NOT NULL COMMENT 'Пароль пользователя в виде хэша. 60 символов было вырабно из-за того, что будет использоваться библиотека org.springframework.security.crypto.bcrypt.BCrypt, которая возвращает  хэш состоящий из 60 символов',
@@ -161,6 +162,91 @@ ENGINE = InnoDB
 COMMENT = 'Таблица которая хранит полную информацию о брони клиента';
 
 
+
+-- -----------------------------------------------------
+-- Table `hotel_booking_test`.`change_version`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `hotel_booking_test`.`change_version` ;
+
+CREATE TABLE IF NOT EXISTS `hotel_booking_test`.`change_version` (
+  `entity` VARCHAR(32) NOT NULL COMMENT 'Type of the changed entity',
+  `entity_id` BIGINT(20) UNSIGNED NOT NULL COMMENT 'Id of the changed entity, 0 when the change is not bound to one entity',
+  `changed_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT 'Time of the last change',
+  `node` VARCHAR(100) NOT NULL COMMENT 'Node that made the last change, so it can skip its own changes',
+  PRIMARY KEY (`entity`, `entity_id`),
+  INDEX `changed_at_idx` (`changed_at` ASC))
+ENGINE = InnoDB
+COMMENT = 'Last change time of cached entities, polled by every node to keep its caches coherent';
+
+-- -----------------------------------------------------
+-- Table `hotel_booking_test`.`reservation_view`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `hotel_booking_test`.`reservation_view` ;
+
+CREATE TABLE IF NOT EXISTS `hotel_booking_test`.`reservation_view` (
+  `id_reservation` BIGINT(20) UNSIGNED NOT NULL COMMENT 'Id of the reservation',
+  `check_in_date` DATE NOT NULL,
+  `check_out_date` DATE NOT NULL,
+  `order_time` DATETIME NOT NULL,
+  `person_amount` TINYINT(3) NOT NULL,
+  `cost_per_person` DECIMAL(19,2) NOT NULL,
+  `cost_per_night` DECIMAL(19,2) NOT NULL,
+  `total_cost` DECIMAL(19,2) NOT NULL,
+  `status` VARCHAR(30) NOT NULL COMMENT 'Status name in upper case, as the Status enum names it',
+  `id_user` BIGINT(20) UNSIGNED NOT NULL,
+  `first_name` VARCHAR(100) NOT NULL,
+  `last_name` VARCHAR(100) NOT NULL,
+  `email` VARCHAR(255) NOT NULL,
+  `id_apartment` BIGINT(20) UNSIGNED NOT NULL,
+  `number` VARCHAR(20) NOT NULL,
+  `floor` SMALLINT(4) NOT NULL,
+  `id_apartment_class` BIGINT(20) UNSIGNED NOT NULL,
+  `type` VARCHAR(30) NOT NULL,
+  PRIMARY KEY (`id_reservation`),
+  INDEX `status_check_in_idx` (`status` ASC, `check_in_date` ASC),
+  INDEX `dates_idx` (`check_in_date` ASC, `check_out_date` ASC),
+  INDEX `user_idx` (`id_user` ASC),
+  INDEX `apartment_idx` (`id_apartment` ASC),
+  INDEX `apartment_class_idx` (`id_apartment_class` ASC))
+ENGINE = InnoDB
+COMMENT = 'Display columns of reservations joined with their user, apartment and status, written in the transaction of every reservation change';
+
+-- -----------------------------------------------------
+-- Table `hotel_booking_test`.`sequence`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `hotel_booking_test`.`sequence` ;
+
+CREATE TABLE IF NOT EXISTS `hotel_booking_test`.`sequence` (
+  `name` VARCHAR(32) NOT NULL COMMENT 'Name of the sequence, one per table with allocated ids',
+  `next_value` BIGINT(20) UNSIGNED NOT NULL COMMENT 'First id not yet reserved by any node',
+  PRIMARY KEY (`name`))
+ENGINE = InnoDB
+COMMENT = 'Id sequences from which nodes reserve blocks of ids for batched inserts';
+
+
+-- -----------------------------------------------------
+-- Table `hotel_booking_test`.`balance_ledger`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `hotel_booking_test`.`balance_ledger` ;
+
+CREATE TABLE IF NOT EXISTS `hotel_booking_test`.`balance_ledger` (
+  `id_entry` BIGINT(20) UNSIGNED NOT NULL AUTO_INCREMENT COMMENT 'Id of the entry, increasing in the order the entries were written',
+  `user_id_fk` BIGINT(20) UNSIGNED NOT NULL COMMENT 'User whose balance changed',
+  `amount` DECIMAL(19,2) NOT NULL COMMENT 'Signed change of the balance, negative for a debit',
+  `reason` VARCHAR(32) NOT NULL COMMENT 'Reason of the change: BOOKING, REFUND, DEPOSIT or ADJUSTMENT',
+  `reservation_id_fk` BIGINT(20) UNSIGNED NULL COMMENT 'Reservation paid or refunded, if any',
+  `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT 'Time of the change',
+  PRIMARY KEY (`id_entry`),
+  INDEX `fk_balance_ledger_user_idx` (`user_id_fk` ASC, `id_entry` ASC),
+  INDEX `fk_balance_ledger_reservation_idx` (`reservation_id_fk` ASC),
+  CONSTRAINT `fk_balance_ledger_user`
+    FOREIGN KEY (`user_id_fk`)
+    REFERENCES `hotel_booking_test`.`user` (`id_user`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB
+COMMENT = 'Append-only balance changes. The available balance is the user balance plus the entries after its ledger position';
+
 SET SQL_MODE=@OLD_SQL_MODE;
 SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;
 SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;
@@ -258,3 +344,29 @@ INSERT INTO `hotel_booking_test`.`reservation` (`id_reservation`, `check_in_date
 
 COMMIT;
 
+
+-- -----------------------------------------------------
+-- Data for table `hotel_booking_test`.`reservation_view`
+-- -----------------------------------------------------
+START TRANSACTION;
+USE `hotel_booking_test`;
+INSERT INTO `hotel_booking_test`.`reservation_view` (`id_reservation`, `check_in_date`, `check_out_date`, `order_time`, `person_amount`, `cost_per_person`, `cost_per_night`, `total_cost`, `status`, `id_user`, `first_name`, `last_name`, `email`, `id_apartment`, `number`, `floor`, `id_apartment_class`, `type`)
+SELECT `id_reservation`, `check_in_date`, `check_out_date`, `order_time`, `person_amount`, `reservation`.`cost_per_person`, `reservation`.`cost_per_night`, `total_cost`, UPPER(`status`), `id_user`, `first_name`, `last_name`, `email`, `id_apartment`, `number`, `floor`, `id_apartment_class`, `type`
+FROM `hotel_booking_test`.`reservation`
+JOIN `hotel_booking_test`.`user` ON `user`.`id_user` = `reservation`.`user_id_fk`
+JOIN `hotel_booking_test`.`apartment` ON `apartment`.`id_apartment` = `reservation`.`apartment_id_fk`
+JOIN `hotel_booking_test`.`apartment_class` ON `apartment_class`.`id_apartment_class` = `apartment`.`apartment_class_id_fk`
+JOIN `hotel_booking_test`.`status` ON `status`.`id_status` = `reservation`.`status_id_fk`;
+
+COMMIT;
+
+
+-- -----------------------------------------------------
+-- Data for table `hotel_booking_test`.`sequence`
+-- -----------------------------------------------------
+START TRANSACTION;
+USE `hotel_booking_test`;
+INSERT INTO `hotel_booking_test`.`sequence` (`name`, `next_value`) SELECT 'apartment', IFNULL(MAX(`id_apartment`), 0) + 1 FROM `hotel_booking_test`.`apartment`;
+INSERT INTO `hotel_booking_test`.`sequence` (`name`, `next_value`) SELECT 'reservation', IFNULL(MAX(`id_reservation`), 0) + 1 FROM `hotel_booking_test`.`reservation`;
+
+COMMIT;